@@ -78,6 +78,56 @@ public final class Environment {
 	 */
 	public static final String WORKER_WORKQUEUE_SIZE = Environment.WORKER_PREFIX + "buffer_queue.max";
 
+	/**
+	 * Codec compressing the works sent to other nodes by the clustered backends: <code>none</code> (default),
+	 * <code>deflate</code>, <code>lz</code> or the fully qualified name of a class implementing
+	 * <code>CompressionCodec</code>.
+	 * Compressed works can only be read by nodes supporting compression, whatever their own codec.
+	 */
+	public static final String WORKER_COMPRESSION = Environment.WORKER_PREFIX + "compression";
+
+	/**
+	 * Size in bytes from which serialized works get compressed. Default to 1024.
+	 */
+	public static final String WORKER_COMPRESSION_THRESHOLD = Environment.WORKER_PREFIX + "compression.threshold";
+
+	/**
+	 * When set to true the clustered backends analyze the documents before sending them, so that the master
+	 * only writes the resulting tokens to the index. Analyzers must then be available on the slaves.
+	 * Default to false.
+	 */
+	public static final String WORKER_PRE_ANALYSIS = Environment.WORKER_PREFIX + "pre_analysis";
+
+	/**
+	 * When set to true the clustered backends send the change sets of a transaction targeting several indexes
+	 * in a single message, when the indexes are sent to the same destination. Requires master nodes able to read
+	 * bundled messages. Default to false.
+	 */
+	public static final String WORKER_BUNDLING = Environment.WORKER_PREFIX + "bundling";
+
+	/**
+	 * Directory where the clustered backends spool the change sets they can't send because the JMS broker or the
+	 * JGroups master is unavailable. Spooled change sets are sent in batches once the destination is back, and
+	 * survive a restart of the node. Not set by default, which disables spooling.
+	 */
+	public static final String WORKER_SPOOL_DIRECTORY = Environment.WORKER_PREFIX + "spool.directory";
+
+	/**
+	 * Maximum size in bytes of the spool of an index. Change sets which can't be sent once the spool is full are
+	 * rejected. Default to 104857600 (100 MB).
+	 */
+	public static final String WORKER_SPOOL_MAX_SIZE = Environment.WORKER_PREFIX + "spool.max_size";
+
+	/**
+	 * Interval in milliseconds between two attempts to send the spooled change sets. Default to 5000.
+	 */
+	public static final String WORKER_SPOOL_RETRY_INTERVAL = Environment.WORKER_PREFIX + "spool.retry_interval";
+
+	/**
+	 * Maximum number of spooled change sets sent in a single message. Default to 1000.
+	 */
+	public static final String WORKER_SPOOL_BATCH_SIZE = Environment.WORKER_PREFIX + "spool.batch_size";
+
 	/**
 	 * define the reader prefix
 	 */
@@ -94,10 +144,34 @@ public final class Environment {
 	public static final String FILTER_CACHING_STRATEGY = "hibernate.search.filter.cache_strategy";
 
 	/**
-	 * number of docidresults cached in hard reference.
+	 * number of docidresults cached in hard reference. Results are cached per index segment.
 	 */
 	public static final String CACHE_DOCIDRESULTS_SIZE = "hibernate.search.filter.cache_docidresults.size";
 
+	/**
+	 * Number of query results (top documents, total hit count and facets) cached in hard reference.
+	 * Cached results are bound to the index state they were computed on, so a change to any of the
+	 * targeted indexes makes them unreachable.
+	 * Default to 0, which disables the query result cache.
+	 */
+	public static final String QUERY_RESULT_CACHE_SIZE = "hibernate.search.query.result_cache.size";
+
+	/**
+	 * Number of faceting results cached in hard reference. The facets of each faceting request are cached
+	 * separately, keyed on the query, the filters and facet selections they depend on, and the index state
+	 * they were computed on. Paging through results doesn't recount facets, and when counting facets
+	 * sideways selecting a facet only recounts the faceting requests affected by the selection.
+	 * Default to 0, which disables the facet result cache.
+	 */
+	public static final String FACET_RESULT_CACHE_SIZE = "hibernate.search.query.facet_cache.size";
+
+	/**
+	 * Number of threads used to search the shards of a query in parallel. When a query targets
+	 * more than one index each of them is searched by its own thread and the results are merged.
+	 * Default to 0, which searches all indexes sequentially from the calling thread.
+	 */
+	public static final String SHARD_SEARCH_THREAD_POOL_SIZE = "hibernate.search.query.shard_thread_pool.size";
+
 	/**
 	 * When set to true a lock on the index will not be released until the
 	 * SearchFactory (or SessionFactory) is closed.
@@ -104,4 +104,13 @@ public @interface Field {
 	 *         null values are not indexed.
 	 */
 	String indexNullAs() default DO_NOT_INDEX_NULL;
+
+	/**
+	 * @return Returns {@code true} if projections on this field should read its values from per segment arrays
+	 *         loaded from the index terms (Lucene's {@code FieldCache}) rather than from the stored fields of each
+	 *         matching document. The field must be indexed and not analyzed, or be a {@code @NumericField}, and hold
+	 *         a single value per document; it does not need to be stored. Such a field can be sorted on as well.
+	 *         Defaults to {@code false}.
+	 */
+	boolean columnStored() default false;
 }
@@ -62,4 +62,13 @@ public @interface FullTextFilterDef {
 	 * @return The cache mode for the filter. Default to instance and results caching
 	 */
 	FilterCacheModeType cache() default FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS;
+
+	/**
+	 * Parameters set on each filter instance through its setters, before the ones set on the query.
+	 * The values are passed as strings, the setters must accept them.
+	 * They do not need to be part of the <code>@Key</code> as the filter instances are cached per definition.
+	 *
+	 * @return the parameters of the filter declared with the mapping
+	 */
+	Parameter[] params() default { };
 }
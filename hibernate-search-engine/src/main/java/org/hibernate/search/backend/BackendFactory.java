@@ -27,6 +27,7 @@ import org.hibernate.annotations.common.util.StringHelper;
 import org.hibernate.search.Environment;
 import org.hibernate.search.SearchException;
 import org.hibernate.search.backend.impl.blackhole.BlackHoleBackendQueueProcessor;
+import org.hibernate.search.backend.impl.jgroups.AutoJGroupsBackendQueueProcessor;
 import org.hibernate.search.backend.impl.jgroups.MasterJGroupsBackendQueueProcessor;
 import org.hibernate.search.backend.impl.jgroups.SlaveJGroupsBackendQueueProcessor;
 import org.hibernate.search.backend.impl.jms.JMSBackendQueueProcessor;
@@ -34,7 +35,11 @@ import org.hibernate.search.backend.impl.lucene.LuceneBackendQueueProcessor;
 import org.hibernate.search.backend.spi.BackendQueueProcessor;
 import org.hibernate.search.batchindexing.impl.Executors;
 import org.hibernate.search.indexes.serialization.avro.impl.AvroSerializationProvider;
+import org.hibernate.search.indexes.serialization.impl.CompressingLuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.impl.DeflateCompressionCodec;
+import org.hibernate.search.indexes.serialization.impl.LZCompressionCodec;
 import org.hibernate.search.indexes.serialization.impl.PluggableSerializationLuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.spi.CompressionCodec;
 import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
 import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
 import org.hibernate.search.spi.WorkerBuildContext;
@@ -71,6 +76,9 @@ public class BackendFactory {
 		else if ( "jgroupsSlave".equals( backend ) ) {
 				backendQueueProcessor = new SlaveJGroupsBackendQueueProcessor();
 		}
+		else if ( "jgroups".equals( backend ) ) {
+			backendQueueProcessor = new AutoJGroupsBackendQueueProcessor();
+		}
 		else {
 			backendQueueProcessor = ClassLoaderHelper.instanceFromName(
 					BackendQueueProcessor.class,
@@ -121,9 +129,12 @@ public class BackendFactory {
 	public static LuceneWorkSerializer createSerializer(String indexName, Properties cfg,
 			WorkerBuildContext buildContext) {
 		try {
-			return new PluggableSerializationLuceneWorkSerializer(
+			LuceneWorkSerializer serializer = new PluggableSerializationLuceneWorkSerializer(
 					new AvroSerializationProvider(),
-					buildContext.getUninitializedSearchFactory() );
+					buildContext.getUninitializedSearchFactory(),
+					ConfigurationParseHelper.getBooleanValue( cfg, Environment.WORKER_PRE_ANALYSIS, false ) );
+			int threshold = ConfigurationParseHelper.getIntValue( cfg, Environment.WORKER_COMPRESSION_THRESHOLD, 1024 );
+			return new CompressingLuceneWorkSerializer( serializer, createCompressionCodec( cfg ), threshold );
 		}
 		catch (RuntimeException e) {
 			if ( e instanceof SearchException ) {
@@ -135,4 +146,26 @@ public class BackendFactory {
 		}
 	}
 
+	/**
+	 * @return the codec compressing serialized works, or null if they are not compressed
+	 */
+	private static CompressionCodec createCompressionCodec(Properties cfg) {
+		String codec = cfg.getProperty( Environment.WORKER_COMPRESSION );
+		if ( StringHelper.isEmpty( codec ) || "none".equalsIgnoreCase( codec ) ) {
+			return null;
+		}
+		else if ( "deflate".equalsIgnoreCase( codec ) ) {
+			return new DeflateCompressionCodec();
+		}
+		else if ( "lz".equalsIgnoreCase( codec ) ) {
+			return new LZCompressionCodec();
+		}
+		else {
+			return ClassLoaderHelper.instanceFromName(
+					CompressionCodec.class,
+					codec, BackendFactory.class, "compression codec"
+			);
+		}
+	}
+
 }
@@ -0,0 +1,239 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.batchindexing.impl.Executors;
+import org.hibernate.search.exception.ErrorHandler;
+import org.hibernate.search.exception.impl.ErrorContextBuilder;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Sends the change sets of an index from a dedicated thread, merging the change sets queued within a
+ * configurable delay into a single batch. Used by the clustered backends to send fewer, larger messages.
+ * <p/>
+ * Change sets are sent in the order they were queued. When the queue is full producers are blocked until
+ * some change sets have been sent, or until the sending thread stops. Change sets which can't be sent, because sending failed, the producer was
+ * interrupted or the queue was shut down, are reported to the error handler.
+ * <p/>
+ * Producers don't wait for their change sets to be sent, so this is not suited to synchronous execution.
+ */
+public abstract class BatchingQueue implements Runnable {
+
+	private static final Log log = LoggerFactory.make();
+
+	/**
+	 * Queued by {@link #shutdown()} to stop the sending thread once the previous change sets are sent
+	 */
+	private static final List<LuceneWork> SHUTDOWN_MARKER = new ArrayList<LuceneWork>( 0 );
+
+	/**
+	 * Time in milliseconds a producer waits for room in the queue before checking the sending thread is still running
+	 */
+	private static final long QUEUE_POLL_INTERVAL = 100;
+
+	private final String threadName;
+	private final ErrorHandler errorHandler;
+	private final String failureMessage;
+	private final long maxDelayNanos;
+	private final int maxBatchSize;
+	private final BlockingQueue<List<LuceneWork>> changeSets;
+	private final ExecutorService executor;
+
+	/**
+	 * Held to queue a change set, and exclusively to queue the shutdown marker: no change set gets
+	 * queued after it. Never held while waiting for room in the queue for longer than {@link #QUEUE_POLL_INTERVAL}.
+	 */
+	private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+	private boolean shutdown;
+
+	/**
+	 * Set once the sending thread stops, before it reports the change sets left in the queue
+	 */
+	private volatile boolean senderStopped;
+
+	/**
+	 * @param threadName the name of the sending thread
+	 * @param failureMessage the message reported to the error handler when a batch can't be sent
+	 * @param maxDelay the time in milliseconds a change set waits for others to be sent with
+	 * @param maxBatchSize the number of works from which a batch is sent without waiting for more change sets
+	 * @param maxQueueLength the number of change sets queued before producers are blocked
+	 */
+	protected BatchingQueue(String threadName, ErrorHandler errorHandler, String failureMessage,
+			long maxDelay, int maxBatchSize, int maxQueueLength) {
+		this.threadName = threadName;
+		this.errorHandler = errorHandler;
+		this.failureMessage = failureMessage;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos( maxDelay );
+		this.maxBatchSize = maxBatchSize;
+		this.changeSets = new LinkedBlockingQueue<List<LuceneWork>>( maxQueueLength );
+		this.executor = Executors.newFixedThreadPool( 1, threadName );
+	}
+
+	/**
+	 * Starts the sending thread
+	 */
+	public void start() {
+		executor.execute( this );
+	}
+
+	/**
+	 * Sends a batch from the sending thread
+	 */
+	protected abstract void send(List<LuceneWork> batch);
+
+	public void enqueue(List<LuceneWork> changeSet) {
+		try {
+			boolean queued = false;
+			while ( !queued ) {
+				shutdownLock.readLock().lock();
+				try {
+					if ( shutdown || senderStopped ) {
+						reportFailure( changeSet, log.batchingQueueStopped( threadName ) );
+						return;
+					}
+					queued = changeSets.offer( changeSet, QUEUE_POLL_INTERVAL, TimeUnit.MILLISECONDS );
+				}
+				finally {
+					shutdownLock.readLock().unlock();
+				}
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			reportFailure( changeSet, new SearchException( failureMessage, e ) );
+			return;
+		}
+		if ( senderStopped ) {
+			// queued after the sending thread emptied the queue
+			reportUnsentChangeSets();
+		}
+	}
+
+	/**
+	 * Sends the change sets already queued and stops the sending thread
+	 */
+	public void shutdown() {
+		shutdownLock.writeLock().lock();
+		try {
+			if ( shutdown ) {
+				return;
+			}
+			shutdown = true;
+			// no marker is needed if the sending thread died, it would never be taken from a full queue
+			boolean queued = false;
+			while ( !queued && !senderStopped ) {
+				queued = changeSets.offer( SHUTDOWN_MARKER, QUEUE_POLL_INTERVAL, TimeUnit.MILLISECONDS );
+			}
+		}
+		catch ( InterruptedException e ) {
+			log.interruptedWhileWaitingForIndexActivity();
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			return;
+		}
+		finally {
+			shutdownLock.writeLock().unlock();
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+		}
+		catch ( InterruptedException e ) {
+			log.interruptedWhileWaitingForIndexActivity();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void run() {
+		boolean stopped = false;
+		try {
+			while ( !stopped ) {
+				List<LuceneWork> changeSet = changeSets.take();
+				if ( changeSet == SHUTDOWN_MARKER ) {
+					return;
+				}
+				List<LuceneWork> batch = new ArrayList<LuceneWork>( changeSet );
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while ( batch.size() < maxBatchSize ) {
+					long delay = deadline - System.nanoTime();
+					changeSet = delay > 0 ? changeSets.poll( delay, TimeUnit.NANOSECONDS ) : changeSets.poll();
+					if ( changeSet == null ) {
+						break;
+					}
+					if ( changeSet == SHUTDOWN_MARKER ) {
+						stopped = true;
+						break;
+					}
+					batch.addAll( changeSet );
+				}
+				sendBatch( batch );
+			}
+		}
+		catch ( InterruptedException e ) {
+			log.interruptedWhileWaitingForIndexActivity();
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			senderStopped = true;
+			reportUnsentChangeSets();
+		}
+	}
+
+	/**
+	 * The sending thread was stopped before the shutdown marker, the remaining change sets are not sent
+	 */
+	private void reportUnsentChangeSets() {
+		List<LuceneWork> changeSet;
+		while ( ( changeSet = changeSets.poll() ) != null ) {
+			if ( changeSet != SHUTDOWN_MARKER ) {
+				reportFailure( changeSet, log.batchingQueueStopped( threadName ) );
+			}
+		}
+	}
+
+	private void sendBatch(List<LuceneWork> batch) {
+		try {
+			send( batch );
+		}
+		catch ( RuntimeException e ) {
+			reportFailure( batch, new SearchException( failureMessage, e ) );
+		}
+	}
+
+	private void reportFailure(List<LuceneWork> works, Throwable cause) {
+		ErrorContextBuilder builder = new ErrorContextBuilder();
+		builder.allWorkToBeDone( works );
+		builder.errorThatOccurred( cause );
+		errorHandler.handle( builder.createErrorContext() );
+	}
+}
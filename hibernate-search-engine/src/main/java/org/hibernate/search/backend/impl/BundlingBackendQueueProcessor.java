@@ -0,0 +1,52 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.indexes.spi.IndexManager;
+
+/**
+ * Implemented by the clustered backends able to send the change sets of several indexes in a single message,
+ * when the indexes are sent to the same destination.
+ *
+ * @see WorkQueuePerIndexSplitter
+ * @see ChangeSetBundle
+ */
+public interface BundlingBackendQueueProcessor extends BackendQueueProcessor {
+
+	/**
+	 * @return a key identifying the destination of the change sets, equal for the backends whose change sets can
+	 * be sent in the same message, or null if the change sets of this index can't be bundled
+	 */
+	Object getBundleKey();
+
+	/**
+	 * Sends in a single message the change sets of several indexes, whose backends have the same bundle key as
+	 * this backend.
+	 *
+	 * @param changeSets the works to apply, per index
+	 */
+	void applyWorkBundle(Map<IndexManager, List<LuceneWork>> changeSets);
+}
@@ -0,0 +1,81 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.OptimizeLuceneWork;
+import org.hibernate.search.indexes.spi.IndexManager;
+
+/**
+ * The change sets of several indexes sent in a single message by the clustered backends: the names of the indexes
+ * route each serialized change set to its index on the master node.
+ *
+ * @see BundlingBackendQueueProcessor
+ */
+public final class ChangeSetBundle implements Serializable {
+
+	private static final long serialVersionUID = -328189914975760522L;
+
+	public final String[] indexNames;
+	public final byte[][] changeSets;
+
+	public ChangeSetBundle(String[] indexNames, byte[][] changeSets) {
+		this.indexNames = indexNames;
+		this.changeSets = changeSets;
+	}
+
+	/**
+	 * Serializes each change set with the serializer of its index. Optimizations are not propagated.
+	 *
+	 * @param changeSets the works to send, per index
+	 *
+	 * @return the bundle to send, or null if there are no works to send
+	 */
+	public static ChangeSetBundle serialize(Map<IndexManager, List<LuceneWork>> changeSets) {
+		List<String> indexNames = new ArrayList<String>( changeSets.size() );
+		List<byte[]> serializedChangeSets = new ArrayList<byte[]>( changeSets.size() );
+		for ( Map.Entry<IndexManager, List<LuceneWork>> entry : changeSets.entrySet() ) {
+			List<LuceneWork> filteredQueue = new ArrayList<LuceneWork>( entry.getValue().size() );
+			for ( LuceneWork work : entry.getValue() ) {
+				if ( !( work instanceof OptimizeLuceneWork ) ) {
+					filteredQueue.add( work );
+				}
+			}
+			if ( !filteredQueue.isEmpty() ) {
+				IndexManager indexManager = entry.getKey();
+				indexNames.add( indexManager.getIndexName() );
+				serializedChangeSets.add( indexManager.getSerializer().toSerializedModel( filteredQueue ) );
+			}
+		}
+		if ( indexNames.isEmpty() ) {
+			return null;
+		}
+		return new ChangeSetBundle(
+				indexNames.toArray( new String[indexNames.size()] ),
+				serializedChangeSets.toArray( new byte[serializedChangeSets.size()][] )
+		);
+	}
+}
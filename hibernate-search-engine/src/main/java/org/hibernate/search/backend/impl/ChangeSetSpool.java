@@ -0,0 +1,477 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.hibernate.annotations.common.util.StringHelper;
+import org.hibernate.search.Environment;
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.jmx.ChangeSetSpoolStatisticsInfo;
+import org.hibernate.search.jmx.ChangeSetSpoolStatisticsInfoMBean;
+import org.hibernate.search.jmx.impl.JMXRegistrar;
+import org.hibernate.search.stat.ChangeSetSpoolStatistics;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Keeps on disk the change sets of an index a clustered backend couldn't send, and sends them from a background
+ * thread once their destination is available again, merging the spooled change sets into large batches.
+ * <p/>
+ * The spool is an append-only file of serialized change sets, preceded by the position of the first change set
+ * not sent yet. The file is synced after each write, so spooled change sets survive a restart of the node. While
+ * change sets are spooled new change sets are appended to the spool, so that they are sent in order. Once the file
+ * is full the change sets already sent are dropped from it, and once the change sets not sent yet fill the spool
+ * new change sets are rejected as if there was no spool.
+ */
+public abstract class ChangeSetSpool implements ChangeSetSpoolStatistics {
+
+	private static final Log log = LoggerFactory.make();
+
+	/**
+	 * Room for the position of the first change set to send
+	 */
+	private static final int HEADER_LENGTH = 8;
+
+	private final IndexManager indexManager;
+	private final String indexName;
+	private final File file;
+	private final long maxSize;
+	private final long retryInterval;
+	private final int maxBatchSize;
+	private final SearchFactoryImplementor searchFactory;
+
+	private Timer forwarder;
+	private boolean mbeanChecked;
+	private String mbeanName; // guarded by this
+
+	// guarded by this
+	private RandomAccessFile spool;
+	private long readPosition;
+	private long writePosition;
+	private int backlogChangeSets;
+	private long spooledChangeSets;
+	private long forwardedChangeSets;
+	private long rejectedChangeSets;
+	private boolean closed;
+
+	private volatile boolean spooling;
+
+	/**
+	 * @param indexManager the index whose change sets are spooled
+	 * @param props the configuration of the index
+	 * @param searchFactory the search factory, to expose the statistics of the spool through JMX if enabled
+	 */
+	protected ChangeSetSpool(IndexManager indexManager, Properties props, SearchFactoryImplementor searchFactory) {
+		this.indexManager = indexManager;
+		this.indexName = indexManager.getIndexName();
+		this.file = new File( props.getProperty( Environment.WORKER_SPOOL_DIRECTORY ), indexName + ".spool" );
+		this.maxSize = ConfigurationParseHelper.getLongValue( props, Environment.WORKER_SPOOL_MAX_SIZE, 104857600L );
+		this.retryInterval = ConfigurationParseHelper.getLongValue( props, Environment.WORKER_SPOOL_RETRY_INTERVAL, 5000L );
+		this.maxBatchSize = ConfigurationParseHelper.getIntValue( props, Environment.WORKER_SPOOL_BATCH_SIZE, 1000 );
+		this.searchFactory = searchFactory;
+	}
+
+	/**
+	 * @param props the configuration of the index
+	 *
+	 * @return true if the change sets of the index are spooled when they can't be sent
+	 */
+	public static boolean isEnabled(Properties props) {
+		return StringHelper.isNotEmpty( props.getProperty( Environment.WORKER_SPOOL_DIRECTORY ) );
+	}
+
+	/**
+	 * Opens the spool, recovering the change sets spooled before a restart, and starts the forwarding thread.
+	 */
+	public synchronized void start() {
+		try {
+			File directory = file.getParentFile();
+			if ( !directory.exists() && !directory.mkdirs() ) {
+				throw new IOException( "Unable to create directory " + directory );
+			}
+			File compacted = getCompactedFile();
+			if ( !file.exists() && compacted.exists() ) {
+				// the node crashed while replacing the spool with its compacted copy
+				replaceSpool( compacted );
+			}
+			spool = new RandomAccessFile( file, "rw" );
+			recover();
+		}
+		catch ( IOException e ) {
+			throw new SearchException( "Unable to open the spool of index " + indexName + ": " + file, e );
+		}
+		forwarder = new Timer( "Hibernate Search: spool forwarder for index " + indexName, true );
+		forwarder.schedule(
+				new TimerTask() {
+					@Override
+					public void run() {
+						forward();
+					}
+				}, retryInterval, retryInterval
+		);
+	}
+
+	/**
+	 * Sends the works, or spools them if they can't be sent or if previous change sets are still spooled.
+	 *
+	 * @throws SearchException if the works can't be sent and the spool is full
+	 */
+	public void sendOrSpool(List<LuceneWork> works) {
+		if ( !spooling ) {
+			try {
+				send( works );
+				return;
+			}
+			catch ( SearchException e ) {
+				log.spoolingChangeSets( indexName, e );
+			}
+		}
+		append( indexManager.getSerializer().toSerializedModel( works ) );
+	}
+
+	/**
+	 * Sends the works to their destination from the calling thread.
+	 *
+	 * @throws SearchException if the destination is not available
+	 */
+	protected abstract void send(List<LuceneWork> works);
+
+	private synchronized void append(byte[] changeSet) {
+		try {
+			if ( closed ) {
+				throw new SearchException( "The spool of index " + indexName + " is closed" );
+			}
+			if ( spool == null ) {
+				// a failed compaction could not reopen it
+				spool = new RandomAccessFile( file, "rw" );
+			}
+			if ( writePosition + 4 + changeSet.length > maxSize && readPosition > HEADER_LENGTH ) {
+				compact();
+			}
+			if ( writePosition + 4 + changeSet.length > maxSize ) {
+				rejectedChangeSets++;
+				throw log.changeSetSpoolFull( indexName, maxSize );
+			}
+			spool.seek( writePosition );
+			spool.writeInt( changeSet.length );
+			spool.write( changeSet );
+			spool.getChannel().force( false );
+		}
+		catch ( IOException e ) {
+			throw new SearchException( "Unable to write to the spool of index " + indexName, e );
+		}
+		writePosition += 4 + changeSet.length;
+		backlogChangeSets++;
+		spooledChangeSets++;
+		spooling = true;
+	}
+
+	/**
+	 * Sends the spooled change sets in batches, until the spool is empty or the destination is not available.
+	 */
+	private void forward() {
+		registerMBean();
+		try {
+			long sent = 0;
+			List<byte[]> changeSets = new ArrayList<byte[]>();
+			long batchLength;
+			while ( ( batchLength = readBatch( changeSets ) ) > 0 ) {
+				List<LuceneWork> batch = new ArrayList<LuceneWork>();
+				for ( byte[] changeSet : changeSets ) {
+					try {
+						batch.addAll( indexManager.getSerializer().toLuceneWorks( changeSet ) );
+					}
+					catch ( SearchException e ) {
+						log.skippingUnreadableSpooledChangeSet( indexName, e );
+					}
+				}
+				if ( !batch.isEmpty() ) {
+					try {
+						send( batch );
+					}
+					catch ( SearchException e ) {
+						// still not available: retried later
+						log.debugf( "Unable to send the spooled change sets of index %s: %s", indexName, e.getMessage() );
+						return;
+					}
+				}
+				markSent( batchLength, changeSets.size() );
+				sent += changeSets.size();
+				changeSets.clear();
+			}
+			if ( sent > 0 ) {
+				log.changeSetSpoolDrained( indexName, sent );
+			}
+		}
+		catch ( RuntimeException e ) {
+			log.unableToForwardSpooledChangeSets( indexName, e );
+		}
+	}
+
+	/**
+	 * Reads the next change sets to send, up to the maximum number of change sets per batch, and empties the spool once everything
+	 * was sent.
+	 *
+	 * @return the length in the spool of the change sets read, or 0 if the spool is empty
+	 */
+	private synchronized long readBatch(List<byte[]> changeSets) {
+		if ( spool == null ) {
+			return 0;
+		}
+		try {
+			if ( readPosition == writePosition ) {
+				if ( writePosition > HEADER_LENGTH ) {
+					spool.setLength( HEADER_LENGTH );
+					readPosition = writePosition = HEADER_LENGTH;
+					writeHeader();
+				}
+				spooling = false;
+				return 0;
+			}
+			long position = readPosition;
+			spool.seek( position );
+			while ( position < writePosition && changeSets.size() < maxBatchSize ) {
+				byte[] changeSet = new byte[spool.readInt()];
+				spool.readFully( changeSet );
+				changeSets.add( changeSet );
+				position += 4 + changeSet.length;
+			}
+			return position - readPosition;
+		}
+		catch ( IOException e ) {
+			throw new SearchException( "Unable to read the spool of index " + indexName, e );
+		}
+	}
+
+	/**
+	 * The spool can be compacted while the batch is sent: the batch is still the start of the change sets to send.
+	 */
+	private synchronized void markSent(long batchLength, int changeSets) {
+		readPosition += batchLength;
+		backlogChangeSets -= changeSets;
+		forwardedChangeSets += changeSets;
+		try {
+			writeHeader();
+		}
+		catch ( IOException e ) {
+			throw new SearchException( "Unable to write to the spool of index " + indexName, e );
+		}
+	}
+
+	/**
+	 * Drops the change sets already sent from the spool. The change sets to send are copied to a new file replacing
+	 * the spool, so that they are kept if the node crashes meanwhile.
+	 */
+	private void compact() throws IOException {
+		File compacted = getCompactedFile();
+		RandomAccessFile copy = new RandomAccessFile( compacted, "rw" );
+		try {
+			copy.setLength( 0 );
+			copy.writeLong( HEADER_LENGTH );
+			long position = readPosition;
+			while ( position < writePosition ) {
+				position += spool.getChannel().transferTo( position, writePosition - position, copy.getChannel() );
+			}
+			copy.getChannel().force( false );
+		}
+		finally {
+			copy.close();
+		}
+		// closed so that the spool can be replaced on all platforms, reopened by the next append if not here
+		spool.close();
+		spool = null;
+		try {
+			replaceSpool( compacted );
+		}
+		catch ( IOException e ) {
+			if ( file.exists() ) {
+				// the spool is untouched and keeps the change sets to send
+				compacted.delete();
+				spool = new RandomAccessFile( file, "rw" );
+				throw e;
+			}
+			// the spool was deleted but its compacted copy could not be renamed
+			copySpool( compacted );
+		}
+		writePosition = HEADER_LENGTH + writePosition - readPosition;
+		readPosition = HEADER_LENGTH;
+		spool = new RandomAccessFile( file, "rw" );
+	}
+
+	private void copySpool(File compacted) throws IOException {
+		RandomAccessFile source = new RandomAccessFile( compacted, "r" );
+		try {
+			RandomAccessFile target = new RandomAccessFile( file, "rw" );
+			try {
+				long length = source.length();
+				long position = 0;
+				while ( position < length ) {
+					position += source.getChannel().transferTo( position, length - position, target.getChannel() );
+				}
+				target.getChannel().force( false );
+			}
+			finally {
+				target.close();
+			}
+		}
+		finally {
+			source.close();
+		}
+		compacted.delete();
+	}
+
+	private File getCompactedFile() {
+		return new File( file.getParentFile(), file.getName() + ".compacted" );
+	}
+
+	private void replaceSpool(File compacted) throws IOException {
+		// renaming fails on some platforms when the spool exists
+		if ( !compacted.renameTo( file ) && ( !file.delete() || !compacted.renameTo( file ) ) ) {
+			throw new IOException( "Unable to replace " + file + " with " + compacted );
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		spool.seek( 0 );
+		spool.writeLong( readPosition );
+		spool.getChannel().force( false );
+	}
+
+	/**
+	 * Reads the position of the first change set to send and drops a change set partially written before a crash.
+	 */
+	private void recover() throws IOException {
+		long length = spool.length();
+		if ( length < HEADER_LENGTH ) {
+			spool.setLength( 0 );
+			readPosition = HEADER_LENGTH;
+			writeHeader();
+			writePosition = HEADER_LENGTH;
+			return;
+		}
+		spool.seek( 0 );
+		readPosition = spool.readLong();
+		long position = readPosition;
+		while ( position + 4 <= length ) {
+			spool.seek( position );
+			int changeSetLength = spool.readInt();
+			if ( changeSetLength < 0 || position + 4 + changeSetLength > length ) {
+				break;
+			}
+			position += 4 + changeSetLength;
+			backlogChangeSets++;
+		}
+		if ( position < length ) {
+			spool.setLength( position );
+		}
+		writePosition = position;
+		spooling = backlogChangeSets > 0;
+	}
+
+	/**
+	 * Registered once the search factory is initialized, from the forwarding thread
+	 */
+	private void registerMBean() {
+		if ( mbeanChecked ) {
+			return;
+		}
+		mbeanChecked = true;
+		if ( searchFactory != null && searchFactory.isJMXEnabled() ) {
+			String name = ChangeSetSpoolStatisticsInfoMBean.CHANGE_SET_SPOOL_MBEAN_OBJECT_NAME_PREFIX + indexName;
+			if ( JMXRegistrar.isNameRegistered( name ) ) {
+				JMXRegistrar.unRegisterMBean( name );
+			}
+			JMXRegistrar.registerMBean( new ChangeSetSpoolStatisticsInfo( this ), name );
+			synchronized ( this ) {
+				mbeanName = name;
+			}
+		}
+	}
+
+	/**
+	 * Stops forwarding the spooled change sets and closes the spool: the change sets left are sent after the
+	 * next start.
+	 */
+	public void close() {
+		if ( forwarder != null ) {
+			forwarder.cancel();
+		}
+		synchronized ( this ) {
+			if ( mbeanName != null ) {
+				JMXRegistrar.unRegisterMBean( mbeanName );
+			}
+			try {
+				if ( spool != null ) {
+					spool.close();
+				}
+			}
+			catch ( IOException e ) {
+				log.debugf( "Unable to close the spool of index %s: %s", indexName, e.getMessage() );
+			}
+			spool = null;
+			closed = true;
+		}
+	}
+
+	public String getIndexName() {
+		return indexName;
+	}
+
+	public boolean isSpooling() {
+		return spooling;
+	}
+
+	public synchronized int getBacklogChangeSetCount() {
+		return backlogChangeSets;
+	}
+
+	public synchronized long getBacklogBytes() {
+		return writePosition - readPosition;
+	}
+
+	public long getMaxBytes() {
+		return maxSize;
+	}
+
+	public synchronized long getSpooledChangeSetCount() {
+		return spooledChangeSets;
+	}
+
+	public synchronized long getForwardedChangeSetCount() {
+		return forwardedChangeSets;
+	}
+
+	public synchronized long getRejectedChangeSetCount() {
+		return rejectedChangeSets;
+	}
+}
@@ -20,17 +20,23 @@
  */
 package org.hibernate.search.backend.impl;
 
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
 import org.hibernate.search.indexes.spi.IndexManager;
 
 /**
  * Used by {@link ContextAwareSelectionDelegate} to split a list of operations
  * according to the multiple IndexManagers it needs to be routed to.
+ * The operations of indexes sent to the same destination by a {@link BundlingBackendQueueProcessor}
+ * are sent together.
  * 
  * @author Sanne Grinovero <sanne@hibernate.org> (C) 2011 Red Hat Inc.
  */
@@ -56,9 +62,55 @@ public class WorkQueuePerIndexSplitter {
 	 */
 	public void commitOperations() {
 		// move executor here to // work - optionally?
+		Map<Object,Map<IndexManager,List<LuceneWork>>> bundles = null;
 		for ( Entry<IndexManager,List<LuceneWork>> entry : queues.entrySet() ) {
-			entry.getKey().performOperations( entry.getValue() );
+			Object bundleKey = queues.size() > 1 ? getBundleKey( entry.getKey() ) : null;
+			if ( bundleKey == null ) {
+				entry.getKey().performOperations( entry.getValue() );
+				continue;
+			}
+			if ( bundles == null ) {
+				bundles = new HashMap<Object,Map<IndexManager,List<LuceneWork>>>();
+			}
+			Map<IndexManager,List<LuceneWork>> bundle = bundles.get( bundleKey );
+			if ( bundle == null ) {
+				bundle = new IdentityHashMap<IndexManager,List<LuceneWork>>();
+				bundles.put( bundleKey, bundle );
+			}
+			bundle.put( entry.getKey(), entry.getValue() );
 		}
+		if ( bundles != null ) {
+			for ( Map<IndexManager,List<LuceneWork>> bundle : bundles.values() ) {
+				if ( bundle.size() == 1 ) {
+					Entry<IndexManager,List<LuceneWork>> entry = bundle.entrySet().iterator().next();
+					entry.getKey().performOperations( entry.getValue() );
+				}
+				else {
+					// any backend of the bundle can send it
+					IndexManager sender = bundle.keySet().iterator().next();
+					getBundlingBackend( sender ).applyWorkBundle( bundle );
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the key grouping the change sets sent in the same message, or null if the change sets of the index
+	 * are sent on their own
+	 */
+	private static Object getBundleKey(IndexManager indexManager) {
+		BundlingBackendQueueProcessor backend = getBundlingBackend( indexManager );
+		return backend == null ? null : backend.getBundleKey();
+	}
+
+	private static BundlingBackendQueueProcessor getBundlingBackend(IndexManager indexManager) {
+		if ( indexManager instanceof DirectoryBasedIndexManager ) {
+			BackendQueueProcessor backend = ( (DirectoryBasedIndexManager) indexManager ).getBackendQueueProcessor();
+			if ( backend instanceof BundlingBackendQueueProcessor ) {
+				return (BundlingBackendQueueProcessor) backend;
+			}
+		}
+		return null;
 	}
 
 }
@@ -0,0 +1,158 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jgroups;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Tracks the change sets a slave node sent to the master without being acknowledged yet. At most a fixed number
+ * of change sets are outstanding: sending more blocks until the master acknowledges some, which bounds the
+ * works the master has to hold and slows down the slaves to the pace of the master.
+ * <p/>
+ * Change sets not acknowledged within the timeout are given up, so that a lost acknowledgement doesn't hold
+ * a credit forever.
+ */
+final class AcknowledgementTracker {
+
+	private static final Log log = LoggerFactory.make();
+
+	private final String indexName;
+	private final long timeout;
+	private final Semaphore credits;
+	private final AtomicLong sequences = new AtomicLong();
+	private final ConcurrentMap<Long, Outstanding> outstandingChangeSets = new ConcurrentHashMap<Long, Outstanding>();
+
+	/**
+	 * @param maxOutstanding the number of change sets sent without being acknowledged before sending blocks
+	 * @param timeout the time in milliseconds to wait for an acknowledgement
+	 */
+	AcknowledgementTracker(String indexName, int maxOutstanding, long timeout) {
+		this.indexName = indexName;
+		this.timeout = timeout;
+		this.credits = new Semaphore( Math.max( 1, maxOutstanding ) );
+	}
+
+	/**
+	 * Waits for a credit to send a change set
+	 *
+	 * @return the change set to send, to be acknowledged by the master or cancelled if it can't be sent
+	 */
+	Outstanding reserve() {
+		try {
+			if ( !credits.tryAcquire() ) {
+				// credits may be held by change sets whose acknowledgement was lost
+				expireOutstanding();
+				if ( !credits.tryAcquire( timeout, TimeUnit.MILLISECONDS ) ) {
+					expireOutstanding();
+					if ( !credits.tryAcquire() ) {
+						throw log.jGroupsMasterDidNotAcknowledge( indexName, timeout );
+					}
+				}
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new SearchException( "Interrupted while waiting to send works to the master node of index " + indexName, e );
+		}
+		Outstanding changeSet = new Outstanding( sequences.incrementAndGet() );
+		outstandingChangeSets.put( changeSet.sequence, changeSet );
+		return changeSet;
+	}
+
+	void cancel(Outstanding changeSet) {
+		complete( changeSet.sequence, false );
+	}
+
+	void acknowledge(BackendAcknowledgement acknowledgement) {
+		complete( acknowledgement.sequence, acknowledgement.applied );
+	}
+
+	/**
+	 * Waits for the master to acknowledge a change set
+	 *
+	 * @throws SearchException if the master failed to apply the change set or didn't acknowledge it in time
+	 */
+	void await(Outstanding changeSet) {
+		try {
+			if ( !changeSet.acknowledged.await( timeout, TimeUnit.MILLISECONDS ) ) {
+				cancel( changeSet );
+				throw log.jGroupsMasterDidNotAcknowledge( indexName, timeout );
+			}
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new SearchException( "Interrupted while waiting for the master node of index " + indexName, e );
+		}
+		if ( !changeSet.applied ) {
+			throw log.jGroupsMasterFailedToApplyWorks( indexName );
+		}
+	}
+
+	/**
+	 * Gives up all the outstanding change sets, as when the master left the cluster
+	 */
+	void cancelAll() {
+		for ( Long sequence : outstandingChangeSets.keySet() ) {
+			complete( sequence, false );
+		}
+	}
+
+	private void expireOutstanding() {
+		long expiration = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos( timeout );
+		Iterator<Outstanding> iterator = outstandingChangeSets.values().iterator();
+		while ( iterator.hasNext() ) {
+			Outstanding changeSet = iterator.next();
+			if ( changeSet.sentTime - expiration < 0 ) {
+				complete( changeSet.sequence, false );
+			}
+		}
+	}
+
+	private void complete(long sequence, boolean applied) {
+		Outstanding changeSet = outstandingChangeSets.remove( sequence );
+		if ( changeSet != null ) {
+			credits.release();
+			changeSet.applied = applied;
+			changeSet.acknowledged.countDown();
+		}
+	}
+
+	static final class Outstanding {
+		final long sequence;
+		final long sentTime = System.nanoTime();
+		final CountDownLatch acknowledged = new CountDownLatch( 1 );
+		volatile boolean applied;
+
+		private Outstanding(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jgroups;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.BackendFactory;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.lucene.LuceneBackendQueueProcessor;
+import org.hibernate.search.batchindexing.impl.Executors;
+import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
+import org.hibernate.search.spi.WorkerBuildContext;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Backend electing the master node of the index: the coordinator of the JGroups cluster applies the works to the
+ * index, the other nodes send it their works. When the coordinator leaves the cluster the next node in the view
+ * takes over, without reconfiguring the nodes. Each index connects to its own cluster, named after the configured
+ * cluster name and the index name, so that the master is elected per index.
+ * <p/>
+ * While a view is being installed the works are held back: the committing thread waits for the new view in sync
+ * mode, while in async mode the works are buffered and sent once the master is known. The node losing the role
+ * releases the index before the new master writes to it, so the index directory must be shared by all the nodes,
+ * using for example the Infinispan directory.
+ *
+ * @see MasterJGroupsBackendQueueProcessor
+ * @see SlaveJGroupsBackendQueueProcessor
+ */
+public class AutoJGroupsBackendQueueProcessor extends JGroupsBackendQueueProcessor {
+
+	private static final Log log = LoggerFactory.make();
+
+	private final ReadWriteLock roleLock = new ReentrantReadWriteLock();
+	private final Object viewInstallation = new Object();
+	private final Queue<List<LuceneWork>> pendingWorks = new ConcurrentLinkedQueue<List<LuceneWork>>();
+
+	private Properties props;
+	private WorkerBuildContext context;
+	private boolean sync;
+	private ExecutorService elector;
+	private AcknowledgementTracker acknowledgementTracker;
+	private JGroupsBackendQueueTask jgroupsProcessor;
+
+	/**
+	 * True while a view is being installed, or before the first one was. Guarded by viewInstallation.
+	 */
+	private boolean blocked = true;
+	private int pendingViews;
+	private volatile Address master;
+
+	/**
+	 * Applies the works while this node is the master, null otherwise. Guarded by roleLock.
+	 */
+	private volatile LuceneBackendQueueProcessor luceneBackendQueueProcessor;
+
+	@Override
+	public void initialize(Properties props, WorkerBuildContext context, DirectoryBasedIndexManager indexManager) {
+		this.props = props;
+		this.context = context;
+		this.sync = BackendFactory.isConfiguredAsSync( props );
+		super.initialize( props, context, indexManager );
+	}
+
+	@Override
+	protected String getChannelClusterName() {
+		// the coordinator of the view is the master: nodes must only see the channels of the same index
+		return clusterName + "/" + indexName;
+	}
+
+	@Override
+	protected Receiver createReceiver(Properties props) {
+		// the first view is received while connecting
+		elector = Executors.newFixedThreadPool( 1, "JGroups master election for index " + indexName );
+		acknowledgementTracker = createAcknowledgementTracker( props );
+		jgroupsProcessor = new JGroupsBackendQueueTask( this, indexManager, acknowledgementTracker );
+		return new JGroupsAutoMessageListener( context.getUninitializedSearchFactory(), this, acknowledgementTracker );
+	}
+
+	/**
+	 * @return true if this node is currently the master of the index
+	 */
+	public boolean isMaster() {
+		return luceneBackendQueueProcessor != null;
+	}
+
+	@Override
+	public Set<Address> getMasters() {
+		Address currentMaster = master;
+		if ( currentMaster == null ) {
+			return Collections.emptySet();
+		}
+		return Collections.singleton( currentMaster );
+	}
+
+	void block() {
+		synchronized ( viewInstallation ) {
+			blocked = true;
+		}
+	}
+
+	void unblock() {
+		synchronized ( viewInstallation ) {
+			if ( pendingViews > 0 || master == null ) {
+				// released once the role of this node is known
+				return;
+			}
+			blocked = false;
+			viewInstallation.notifyAll();
+		}
+		if ( !pendingWorks.isEmpty() ) {
+			scheduleDispatchPendingWorks();
+		}
+	}
+
+	private void scheduleDispatchPendingWorks() {
+		if ( elector.isShutdown() ) {
+			return;
+		}
+		elector.execute(
+				new Runnable() {
+					public void run() {
+						dispatchPendingWorks();
+					}
+				}
+		);
+	}
+
+	void viewAccepted(final View view) {
+		synchronized ( viewInstallation ) {
+			blocked = true;
+			pendingViews++;
+		}
+		Address previousMaster = master;
+		if ( acknowledgementTracker != null && previousMaster != null && !view.getMembers().contains( previousMaster ) ) {
+			// the change sets sent to the master which left won't be acknowledged
+			acknowledgementTracker.cancelAll();
+		}
+		if ( elector.isShutdown() ) {
+			return;
+		}
+		// the new master opens the index outside of the JGroups thread, which can't wait for works being applied
+		elector.execute(
+				new Runnable() {
+					public void run() {
+						switchRole( view );
+					}
+				}
+		);
+	}
+
+	private void switchRole(View view) {
+		Address coordinator = view.getMembers().isEmpty() ? null : view.getMembers().get( 0 );
+		boolean elected = coordinator != null && coordinator.equals( getAddress() );
+		roleLock.writeLock().lock();
+		try {
+			if ( elected && luceneBackendQueueProcessor == null ) {
+				LuceneBackendQueueProcessor processor = new LuceneBackendQueueProcessor();
+				processor.initialize( props, context, indexManager );
+				luceneBackendQueueProcessor = processor;
+				log.jGroupsNodeElectedMaster( indexName, getAddress() );
+			}
+			else if ( !elected && luceneBackendQueueProcessor != null ) {
+				// applies the pending works and releases the index to the new master
+				luceneBackendQueueProcessor.close();
+				luceneBackendQueueProcessor = null;
+				log.jGroupsNodeReplacedAsMaster( indexName, getAddress(), coordinator );
+			}
+			master = coordinator;
+		}
+		catch ( RuntimeException e ) {
+			log.unableToSwitchJGroupsRole( indexName, getAddress(), e );
+		}
+		finally {
+			try {
+				boolean lastView;
+				synchronized ( viewInstallation ) {
+					lastView = pendingViews == 1;
+				}
+				if ( lastView ) {
+					// the buffered works go first, before works are dispatched directly again
+					drainPendingWorks();
+				}
+			}
+			finally {
+				synchronized ( viewInstallation ) {
+					if ( --pendingViews == 0 ) {
+						blocked = false;
+						viewInstallation.notifyAll();
+					}
+				}
+				roleLock.writeLock().unlock();
+			}
+		}
+	}
+
+	private void dispatchPendingWorks() {
+		roleLock.writeLock().lock();
+		try {
+			if ( !isBlocked() ) {
+				drainPendingWorks();
+			}
+		}
+		finally {
+			roleLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Dispatches the works buffered while the master was unknown, in order. Must be invoked holding the role write
+	 * lock.
+	 */
+	private void drainPendingWorks() {
+		try {
+			List<LuceneWork> works;
+			while ( ( works = pendingWorks.poll() ) != null ) {
+				dispatch( works, false );
+			}
+		}
+		catch ( RuntimeException e ) {
+			log.unableToSendJGroupsPendingWorks( indexName, e );
+		}
+	}
+
+	@Override
+	public void applyWork(List<LuceneWork> workList) {
+		roleLock.readLock().lock();
+		try {
+			if ( !sync && !pendingWorks.isEmpty() ) {
+				// queued behind the buffered works, so that the works of an entity are applied in order
+				pendingWorks.add( workList );
+				if ( !isBlocked() ) {
+					scheduleDispatchPendingWorks();
+				}
+				return;
+			}
+			// the master applies the works right away, including the ones received by the JGroups thread
+			if ( luceneBackendQueueProcessor != null || !isBlocked() ) {
+				dispatch( workList, sync );
+				return;
+			}
+			else if ( !sync ) {
+				pendingWorks.add( workList );
+				return;
+			}
+		}
+		finally {
+			roleLock.readLock().unlock();
+		}
+		awaitViewInstallation();
+		roleLock.readLock().lock();
+		try {
+			dispatch( workList, true );
+		}
+		finally {
+			roleLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	void applyWorkAndWait(List<LuceneWork> workList) {
+		roleLock.readLock().lock();
+		try {
+			LuceneBackendQueueProcessor processor = luceneBackendQueueProcessor;
+			if ( processor == null ) {
+				throw new SearchException( "Node " + getAddress() + " is no longer the master of index " + indexName );
+			}
+			processor.applyWorkAndWait( workList );
+		}
+		finally {
+			roleLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies the works if this node is the master, sends them to the master otherwise. Must be invoked holding
+	 * the role lock.
+	 */
+	private void dispatch(List<LuceneWork> workList, boolean waitForAcknowledgement) {
+		LuceneBackendQueueProcessor processor = luceneBackendQueueProcessor;
+		if ( processor != null ) {
+			processor.applyWork( workList );
+		}
+		else if ( getAddress().equals( master ) ) {
+			throw new SearchException( "Node " + getAddress() + " failed to become the master of index " + indexName );
+		}
+		else {
+			jgroupsProcessor.sendLuceneWorkList( workList, waitForAcknowledgement );
+		}
+	}
+
+	/**
+	 * Sends works received after this node lost the master role to the new master. Acknowledged change sets are
+	 * reported as not applied instead, as the new master would acknowledge them to this node.
+	 */
+	void forward(BackendMessage message, Address sender) {
+		Address currentMaster = master;
+		try {
+			if ( message instanceof AcknowledgedBackendMessage ) {
+				BackendAcknowledgement acknowledgement = new BackendAcknowledgement(
+						indexName, ( (AcknowledgedBackendMessage) message ).sequence, false );
+				channel.send( new Message( sender, getAddress(), acknowledgement ) );
+			}
+			else if ( currentMaster != null && !currentMaster.equals( getAddress() ) ) {
+				channel.send( new Message( currentMaster, getAddress(), message ) );
+			}
+		}
+		catch ( Exception e ) {
+			log.unableToForwardWorksToMaster( indexName, currentMaster, e );
+		}
+	}
+
+	private boolean isBlocked() {
+		synchronized ( viewInstallation ) {
+			return blocked;
+		}
+	}
+
+	private void awaitViewInstallation() {
+		synchronized ( viewInstallation ) {
+			while ( blocked ) {
+				try {
+					viewInstallation.wait();
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+					throw new SearchException( "Interrupted while waiting for the master node of index " + indexName, e );
+				}
+			}
+		}
+	}
+
+	@Override
+	public void applyStreamWork(LuceneWork singleOperation) {
+		applyWork( Collections.singletonList( singleOperation ) );
+	}
+
+	@Override
+	public void close() {
+		elector.shutdown();
+		try {
+			elector.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		super.close();
+		roleLock.writeLock().lock();
+		try {
+			if ( luceneBackendQueueProcessor != null ) {
+				luceneBackendQueueProcessor.close();
+				luceneBackendQueueProcessor = null;
+			}
+		}
+		finally {
+			roleLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Lock getExclusiveWriteLock() {
+		LuceneBackendQueueProcessor processor = luceneBackendQueueProcessor;
+		if ( processor != null ) {
+			return processor.getExclusiveWriteLock();
+		}
+		return new ReentrantLock(); // only the master writes to the index
+	}
+}
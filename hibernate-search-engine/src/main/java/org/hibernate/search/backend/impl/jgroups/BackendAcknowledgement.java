@@ -0,0 +1,43 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jgroups;
+
+import java.io.Serializable;
+
+/**
+ * Sent by the master node to the slave node which sent an {@link AcknowledgedBackendMessage}, once the
+ * change set is applied or failed to be.
+ */
+public class BackendAcknowledgement implements Serializable {
+
+	private static final long serialVersionUID = -7138353220685993946L;
+
+	public final String indexName;
+	public final long sequence;
+	public final boolean applied;
+
+	public BackendAcknowledgement(String indexName, long sequence, boolean applied) {
+		this.indexName = indexName;
+		this.sequence = sequence;
+		this.applied = applied;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jgroups;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jgroups.Address;
+import org.jgroups.ExtendedReceiver;
+import org.jgroups.View;
+
+import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+
+/**
+ * Receives the messages of an index in the automatic JGroups backend: works are applied while this node is the
+ * master of the index, and forwarded to the new master once it isn't anymore.
+ *
+ * @see AutoJGroupsBackendQueueProcessor
+ */
+public class JGroupsAutoMessageListener extends JGroupsMasterMessageListener implements ExtendedReceiver {
+
+	private final AutoJGroupsBackendQueueProcessor processor;
+	private final AcknowledgementTracker acknowledgementTracker;
+
+	JGroupsAutoMessageListener(SearchFactoryImplementor searchFactory, AutoJGroupsBackendQueueProcessor processor,
+			AcknowledgementTracker acknowledgementTracker) {
+		super( searchFactory, processor );
+		this.processor = processor;
+		this.acknowledgementTracker = acknowledgementTracker;
+	}
+
+	@Override
+	protected void receive(Object object, Address sender) {
+		if ( object instanceof BackendAcknowledgement ) {
+			BackendAcknowledgement acknowledgement = (BackendAcknowledgement) object;
+			if ( acknowledgementTracker != null && processor.indexName.equals( acknowledgement.indexName ) ) {
+				acknowledgementTracker.acknowledge( acknowledgement );
+			}
+		}
+		else if ( object instanceof BackendMessage && !processor.isMaster() ) {
+			BackendMessage backendMessage = (BackendMessage) object;
+			if ( processor.indexName.equals( backendMessage.indexName ) ) {
+				// sent before the sender saw the new master
+				processor.forward( backendMessage, sender );
+			}
+		}
+		else {
+			super.receive( object, sender );
+		}
+	}
+
+	@Override
+	public void viewAccepted(View view) {
+		super.viewAccepted( view );
+		processor.viewAccepted( view );
+	}
+
+	@Override
+	public void block() {
+		processor.block();
+	}
+
+	public void unblock() {
+		processor.unblock();
+	}
+
+	public byte[] getState(String state_id) {
+		return null;
+	}
+
+	public void setState(String state_id, byte[] state) {
+		//no-op
+	}
+
+	public void getState(OutputStream ostream) {
+		//no-op
+	}
+
+	public void getState(String state_id, OutputStream ostream) {
+		//no-op
+	}
+
+	public void setState(InputStream istream) {
+		//no-op
+	}
+
+	public void setState(String state_id, InputStream istream) {
+		//no-op
+	}
+}
@@ -24,14 +24,19 @@
 package org.hibernate.search.backend.impl.jgroups;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import org.jgroups.Address;
 import org.jgroups.Channel;
 import org.jgroups.ChannelException;
 import org.jgroups.JChannel;
+import org.jgroups.Receiver;
 
 import org.hibernate.search.Environment;
+import org.hibernate.search.backend.LuceneWork;
 import org.hibernate.search.backend.spi.BackendQueueProcessor;
 import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
 import org.hibernate.search.spi.WorkerBuildContext;
@@ -59,6 +64,33 @@ public abstract class JGroupsBackendQueueProcessor implements BackendQueueProces
 
 	public static final String JG_CLUSTER_NAME = JGROUPS_PREFIX + "clusterName";
 
+	/**
+	 * Time in milliseconds a change set waits on a slave node for others to be sent in the same message.
+	 * Default to 0, which sends each change set from the committing thread. Ignored with sync execution.
+	 */
+	public static final String BATCH_MAX_DELAY = JGROUPS_PREFIX + "batch.max_delay";
+
+	/**
+	 * Number of works from which a batch is sent without waiting for more change sets. Default to 1000.
+	 */
+	public static final String BATCH_MAX_SIZE = JGROUPS_PREFIX + "batch.max_size";
+
+	/**
+	 * When set to true slave nodes send the works to the master nodes of the index only, and the master
+	 * acknowledges each change set once applied. Default to false.
+	 */
+	public static final String ACKNOWLEDGED = JGROUPS_PREFIX + "acknowledged";
+
+	/**
+	 * Number of change sets a slave node sends without being acknowledged before blocking. Default to 10.
+	 */
+	public static final String MAX_OUTSTANDING = JGROUPS_PREFIX + "max_outstanding";
+
+	/**
+	 * Time in milliseconds a slave node waits for the master to acknowledge a change set. Default to 60000.
+	 */
+	public static final String ACKNOWLEDGEMENT_TIMEOUT = JGROUPS_PREFIX + "acknowledgement_timeout";
+
 	protected String clusterName = "HSearchCluster";
 	protected Channel channel = null;
 	protected Address address;
@@ -80,19 +112,30 @@ public abstract class JGroupsBackendQueueProcessor implements BackendQueueProces
 		log.jGroupsStartingChannel();
 		try {
 			buildChannel( props );
+			Receiver receiver = createReceiver( props );
+			if ( receiver != null ) {
+				channel.setReceiver( receiver );
+			}
 			channel.setOpt( Channel.AUTO_RECONNECT, Boolean.TRUE );
-			channel.connect( clusterName );
+			channel.connect( getChannelClusterName() );
 		}
 		catch ( ChannelException e ) {
-			throw new SearchException( "Unable to connect to: [" + clusterName + "] JGroups channel" );
+			throw new SearchException( "Unable to connect to: [" + getChannelClusterName() + "] JGroups channel" );
 		}
-		log.jGroupsConnectedToCluster(clusterName, getAddress() );
+		log.jGroupsConnectedToCluster( getChannelClusterName(), getAddress() );
 
 		if ( !channel.flushSupported() ) {
 			log.jGroupsFlushNotPresentInStack();
 		}
 	}
 
+	/**
+	 * @return the name of the JGroups cluster the channel of the index connects to
+	 */
+	protected String getChannelClusterName() {
+		return clusterName;
+	}
+
 	/**
 	 * Reads configuration and builds channel with its base.
 	 * In order of preference - we first look for an external JGroups file, then a set of XML properties, and
@@ -155,6 +198,54 @@ public abstract class JGroupsBackendQueueProcessor implements BackendQueueProces
 		}
 	}
 
+	/**
+	 * @param props the backend configuration
+	 *
+	 * @return the receiver to register before the channel connects, or null
+	 */
+	protected Receiver createReceiver(Properties props) {
+		return null;
+	}
+
+	/**
+	 * Applies works received from another node, waiting for them to be applied so that they can be acknowledged.
+	 *
+	 * @param workList the works to apply
+	 */
+	void applyWorkAndWait(List<LuceneWork> workList) {
+		applyWork( workList );
+	}
+
+	/**
+	 * Tells the other nodes that this node is the master of the index, if it is.
+	 */
+	void announce() {
+		//no-op
+	}
+
+	/**
+	 * @return the tracker of the change sets sent to the master when acknowledged mode is enabled, or null
+	 */
+	AcknowledgementTracker createAcknowledgementTracker(Properties props) {
+		if ( !ConfigurationParseHelper.getBooleanValue( props, ACKNOWLEDGED, false ) ) {
+			return null;
+		}
+		return new AcknowledgementTracker(
+				indexName,
+				ConfigurationParseHelper.getIntValue( props, MAX_OUTSTANDING, 10 ),
+				ConfigurationParseHelper.getLongValue( props, ACKNOWLEDGEMENT_TIMEOUT, 60000L ) );
+	}
+
+	/**
+	 * The master nodes the works of the index are sent to, empty when they are unknown: the works are then
+	 * sent to all the nodes of the cluster.
+	 *
+	 * @return the addresses of the master nodes of the index
+	 */
+	public Set<Address> getMasters() {
+		return Collections.emptySet();
+	}
+
 	public void close() {
 		try {
 			if ( channel != null && channel.isOpen() ) {
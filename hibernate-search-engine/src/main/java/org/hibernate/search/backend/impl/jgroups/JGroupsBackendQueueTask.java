@@ -23,12 +23,16 @@
  */
 package org.hibernate.search.backend.impl.jgroups;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+import org.jgroups.Address;
 import org.jgroups.ChannelClosedException;
 import org.jgroups.ChannelNotConnectedException;
 import org.jgroups.Message;
+import org.jgroups.View;
 
 import org.hibernate.search.SearchException;
 import org.hibernate.search.backend.LuceneWork;
@@ -50,15 +54,30 @@ public class JGroupsBackendQueueTask {
 	private final JGroupsBackendQueueProcessor factory;
 	private final String indexName;
 	private final IndexManager indexManager;
+	private final AcknowledgementTracker acknowledgementTracker;
 
 	public JGroupsBackendQueueTask(JGroupsBackendQueueProcessor factory, IndexManager indexManager) {
+		this( factory, indexManager, null );
+	}
+
+	JGroupsBackendQueueTask(JGroupsBackendQueueProcessor factory, IndexManager indexManager, AcknowledgementTracker acknowledgementTracker) {
 		this.factory = factory;
 		this.indexManager = indexManager;
 		this.indexName = indexManager.getIndexName();
+		this.acknowledgementTracker = acknowledgementTracker;
 	}
 
-	@SuppressWarnings("unchecked")
 	public void sendLuceneWorkList(List<LuceneWork> queue) {
+		sendLuceneWorkList( queue, false );
+	}
+
+	/**
+	 * @param queue the works to send
+	 * @param waitForAcknowledgement when sending acknowledged change sets, whether to wait for the master to apply
+	 * the works before returning
+	 */
+	@SuppressWarnings("unchecked")
+	public void sendLuceneWorkList(List<LuceneWork> queue, boolean waitForAcknowledgement) {
 		boolean trace = log.isTraceEnabled();
 		List<LuceneWork> filteredQueue = new ArrayList<LuceneWork>( queue );
 		if ( trace ) {
@@ -85,14 +104,46 @@ public class JGroupsBackendQueueTask {
 			return;
 		}
 		byte[] data = indexManager.getSerializer().toSerializedModel( filteredQueue );
-		BackendMessage toSend = new BackendMessage( indexName, data );
+		if ( acknowledgementTracker == null ) {
+			send( new BackendMessage( indexName, data ) );
+			return;
+		}
+		// blocks while too many change sets are waiting for the master
+		AcknowledgementTracker.Outstanding changeSet = acknowledgementTracker.reserve();
+		boolean sent = false;
+		try {
+			send( new AcknowledgedBackendMessage( indexName, data, changeSet.sequence ) );
+			sent = true;
+		}
+		finally {
+			if ( !sent ) {
+				acknowledgementTracker.cancel( changeSet );
+			}
+		}
+		if ( waitForAcknowledgement ) {
+			acknowledgementTracker.await( changeSet );
+		}
+	}
+
+	/**
+	 * Sends a message to a single master of the index, or to all nodes when no master is known
+	 */
+	void send(Serializable toSend) {
+		boolean trace = log.isTraceEnabled();
 
-		/* Creates and send message with lucene works to master.
-		 * As long as message destination address is null, Lucene works will be received by all listeners that implements
-		 * org.jgroups.MessageListener interface, multiple master nodes in cluster are allowed. */
+		/* Creates and send message with lucene works to a master of the index: each master applies the
+		 * works it receives, so that sending to several masters would apply them several times.
+		 * As long as no master announced itself, the message destination address is null and Lucene works
+		 * will be received by all listeners that implements org.jgroups.MessageListener interface. */
 		try {
-			Message message = new Message( null, factory.getAddress(), toSend );
-			factory.getChannel().send( message );
+			List<Address> masters = getMastersInViewOrder();
+			if ( masters.isEmpty() ) {
+				Message message = new Message( null, factory.getAddress(), toSend );
+				factory.getChannel().send( message );
+			}
+			else {
+				sendToFirstMaster( masters, toSend );
+			}
 			if ( trace ) {
 				log.tracef( "Lucene works have been sent from slave %s to master node.", factory.getAddress() );
 			}
@@ -107,5 +158,50 @@ public class JGroupsBackendQueueTask {
 			throw new SearchException( "Unable to send Lucene work. Attempt to send message on closed JGroups channel" );
 		}
 	}
+
+	/**
+	 * Sends a message to the first master it can be sent to, the next masters being only tried when sending fails
+	 */
+	private void sendToFirstMaster(List<Address> masters, Serializable toSend)
+			throws ChannelNotConnectedException, ChannelClosedException {
+		RuntimeException failure = null;
+		for ( Address master : masters ) {
+			try {
+				factory.getChannel().send( new Message( master, factory.getAddress(), toSend ) );
+				return;
+			}
+			catch ( RuntimeException e ) {
+				log.unableToForwardWorksToMaster( indexName, master, e );
+				failure = e;
+			}
+		}
+		throw new SearchException( "Unable to send Lucene work to any master node of cluster " + factory.getClusterName(), failure );
+	}
+
+	/**
+	 * @return the masters of the index ordered as in the current view, so that all slaves pick the same master
+	 */
+	private List<Address> getMastersInViewOrder() {
+		Set<Address> masters = factory.getMasters();
+		List<Address> ordered = new ArrayList<Address>( masters.size() );
+		if ( masters.isEmpty() ) {
+			return ordered;
+		}
+		View view = factory.getChannel().getView();
+		if ( view != null ) {
+			for ( Address member : view.getMembers() ) {
+				if ( masters.contains( member ) ) {
+					ordered.add( member );
+				}
+			}
+		}
+		// masters not in the view yet come last
+		for ( Address master : masters ) {
+			if ( !ordered.contains( master ) ) {
+				ordered.add( master );
+			}
+		}
+		return ordered;
+	}
 	
 }
@@ -32,8 +32,8 @@ import org.jgroups.View;
 
 import org.hibernate.search.SearchException;
 import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
-import org.hibernate.search.indexes.impl.IndexManagerHolder;
 import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
@@ -53,56 +53,127 @@ public class JGroupsMasterMessageListener implements Receiver {
 	private static final Log log = LoggerFactory.make();
 
 	private SearchFactoryImplementor searchFactory;
+	private JGroupsBackendQueueProcessor processor;
 
 	public JGroupsMasterMessageListener(SearchFactoryImplementor searchFactory) {
 		this.searchFactory = searchFactory;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * @param processor the processor applying the works of its index, announced to the cluster whenever the view changes
+	 */
+	public JGroupsMasterMessageListener(SearchFactoryImplementor searchFactory, JGroupsBackendQueueProcessor processor) {
+		this( searchFactory );
+		this.processor = processor;
+	}
+
 	public void receive(Message message) {
-		final List<LuceneWork> queue;
-		final String indexName;
-		final IndexManager indexManager;
+		final Object object;
 		try {
-			BackendMessage decoded = ( BackendMessage ) message.getObject();
-			indexName = decoded.indexName;
-			indexManager = searchFactory.getAllIndexesManager().getIndexManager( indexName );
-			if ( indexManager != null ) {
-				queue = indexManager.getSerializer().toLuceneWorks( decoded.queue );
-			}
-			else {
-				log.messageReceivedForUndefinedIndex( indexName );
+			object = message.getObject();
+		}
+		catch ( IllegalArgumentException e ) {
+			log.illegalObjectRetrievedFromMessage( e );
+			return;
+		}
+		receive( object, message.getSrc() );
+	}
+
+	/**
+	 * @param object the object sent by another node
+	 * @param sender the address of the node
+	 */
+	protected void receive(Object object, Address sender) {
+		if ( object instanceof ChangeSetBundle ) {
+			applyBundle( (ChangeSetBundle) object, sender );
+			return;
+		}
+		final BackendMessage decoded;
+		try {
+			if ( object instanceof MasterAnnouncement || object instanceof BackendAcknowledgement ) {
+				// meant for slave nodes
 				return;
 			}
+			decoded = ( BackendMessage ) object;
 		}
 		catch ( ClassCastException e ) {
 			log.illegalObjectRetrievedFromMessage( e );
 			return;
 		}
+		if ( processor != null && !processor.indexName.equals( decoded.indexName ) ) {
+			// each index has its own channel: the works are applied by the master of their index only
+			return;
+		}
+		boolean applied = apply( decoded, sender );
+		if ( decoded instanceof AcknowledgedBackendMessage ) {
+			acknowledge( (AcknowledgedBackendMessage) decoded, sender, applied );
+		}
+	}
+
+	/**
+	 * Applies the works of the bundled indexes through their own backend: the works of indexes this node isn't
+	 * the master of are passed on to their master.
+	 */
+	private void applyBundle(ChangeSetBundle bundle, Address sender) {
+		for ( int i = 0; i < bundle.indexNames.length; i++ ) {
+			apply( new BackendMessage( bundle.indexNames[i], bundle.changeSets[i] ), sender );
+		}
+	}
+
+	private boolean apply(BackendMessage decoded, Address sender) {
+		final String indexName = decoded.indexName;
+		final IndexManager indexManager = searchFactory.getAllIndexesManager().getIndexManager( indexName );
+		if ( indexManager == null ) {
+			log.messageReceivedForUndefinedIndex( indexName );
+			return false;
+		}
+		final List<LuceneWork> queue;
+		try {
+			queue = indexManager.getSerializer().toLuceneWorks( decoded.queue );
+		}
 		catch ( SearchException e ) {
 			log.illegalObjectRetrievedFromMessage( e );
-			return;
+			return false;
 		}
 
-		if ( queue != null && !queue.isEmpty() ) {
-			if ( log.isDebugEnabled() ) {
-				log.debugf(
-					"There are %d Lucene docs received from slave node %s to be processed by master",
-					queue.size(),
-					message.getSrc()
-				);
+		if ( queue == null || queue.isEmpty() ) {
+			log.receivedEmptyLuceneWOrksInMessage();
+			return true;
+		}
+		if ( log.isDebugEnabled() ) {
+			log.debugf(
+				"There are %d Lucene docs received from slave node %s to be processed by master",
+				queue.size(),
+				sender
+			);
+		}
+		if ( decoded instanceof AcknowledgedBackendMessage && processor != null ) {
+			// the slave waits for the works to be applied, whatever the execution mode of the master
+			try {
+				processor.applyWorkAndWait( queue );
+			}
+			catch ( RuntimeException e ) {
+				log.unableToApplyAcknowledgedWorks( indexName, sender, e );
+				return false;
 			}
-			perform( indexName, queue );
 		}
 		else {
-			log.receivedEmptyLuceneWOrksInMessage();
+			indexManager.performOperations( queue );
 		}
+		return true;
 	}
 
-	private void perform(String indexName, List<LuceneWork> queue) {
-		IndexManagerHolder allIndexesManager = searchFactory.getAllIndexesManager();
-		IndexManager indexManager = allIndexesManager.getIndexManager( indexName );
-		indexManager.performOperations( queue );
+	private void acknowledge(AcknowledgedBackendMessage decoded, Address sender, boolean applied) {
+		if ( processor == null ) {
+			return;
+		}
+		BackendAcknowledgement acknowledgement = new BackendAcknowledgement( decoded.indexName, decoded.sequence, applied );
+		try {
+			processor.getChannel().send( new Message( sender, processor.getAddress(), acknowledgement ) );
+		}
+		catch ( Exception e ) {
+			log.unableToAcknowledgeWorks( decoded.indexName, sender, e );
+		}
 	}
 
 	// ------------------------------------------------------------------------------------------------------------------
@@ -119,6 +190,9 @@ public class JGroupsMasterMessageListener implements Receiver {
 
 	public void viewAccepted(View view) {
 		log.jGroupsReceivedNewClusterView( view );
+		if ( processor != null ) {
+			processor.announce();
+		}
 	}
 
 	public void suspect(Address suspected_mbr) {
@@ -0,0 +1,115 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jgroups;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Tracks the master nodes of an index on a slave node: masters announce themselves when the view changes,
+ * and are forgotten when they leave the view. In acknowledged mode it also receives the acknowledgements of the
+ * change sets sent to the masters.
+ *
+ * @see MasterAnnouncement
+ */
+public class JGroupsSlaveMessageListener implements Receiver {
+
+	private static final Log log = LoggerFactory.make();
+
+	private final String indexName;
+	private final Set<Address> masters = new CopyOnWriteArraySet<Address>();
+	private final AcknowledgementTracker acknowledgementTracker;
+
+	public JGroupsSlaveMessageListener(String indexName) {
+		this( indexName, null );
+	}
+
+	JGroupsSlaveMessageListener(String indexName, AcknowledgementTracker acknowledgementTracker) {
+		this.indexName = indexName;
+		this.acknowledgementTracker = acknowledgementTracker;
+	}
+
+	/**
+	 * @return the master nodes known for the index, empty when no master announced itself yet
+	 */
+	public Set<Address> getMasters() {
+		return masters;
+	}
+
+	public void receive(Message message) {
+		Object object;
+		try {
+			object = message.getObject();
+		}
+		catch ( IllegalArgumentException e ) {
+			log.illegalObjectRetrievedFromMessage( e );
+			return;
+		}
+		// works broadcast by other slaves are ignored
+		if ( object instanceof MasterAnnouncement && indexName.equals( ( (MasterAnnouncement) object ).indexName ) ) {
+			if ( masters.add( message.getSrc() ) && log.isDebugEnabled() ) {
+				log.debugf( "Node %s is the master of index %s", message.getSrc(), indexName );
+			}
+		}
+		else if ( object instanceof BackendAcknowledgement && acknowledgementTracker != null ) {
+			BackendAcknowledgement acknowledgement = (BackendAcknowledgement) object;
+			if ( indexName.equals( acknowledgement.indexName ) ) {
+				acknowledgementTracker.acknowledge( acknowledgement );
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------------------------------
+	// Implementations of JGroups interfaces
+	// ------------------------------------------------------------------------------------------------------------------
+
+	public byte[] getState() {
+		return null;
+	}
+
+	public void setState(byte[] state) {
+		//no-op
+	}
+
+	public void viewAccepted(View view) {
+		boolean mastersLeft = masters.retainAll( view.getMembers() );
+		if ( mastersLeft && acknowledgementTracker != null ) {
+			// the change sets sent to a master which left won't be acknowledged
+			acknowledgementTracker.cancelAll();
+		}
+	}
+
+	public void suspect(Address suspected_mbr) {
+		//no-op
+	}
+
+	public void block() {
+		//no-op
+	}
+}
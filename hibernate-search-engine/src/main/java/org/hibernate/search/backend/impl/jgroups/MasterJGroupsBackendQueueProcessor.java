@@ -25,11 +25,15 @@ package org.hibernate.search.backend.impl.jgroups;
 
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.jgroups.Message;
 import org.jgroups.Receiver;
 
+import org.hibernate.search.batchindexing.impl.Executors;
+
 import org.hibernate.search.spi.WorkerBuildContext;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
@@ -53,20 +57,47 @@ public class MasterJGroupsBackendQueueProcessor extends JGroupsBackendQueueProce
 
 	private LuceneBackendQueueProcessor luceneBackendQueueProcessor;
 	private Receiver masterListener;
+	private ExecutorService announcer;
 
 	@Override
 	public void initialize(Properties props, WorkerBuildContext context, DirectoryBasedIndexManager indexManager) {
 		super.initialize( props, context, indexManager );
 		initLuceneBackendQueueProcessor( props, context );
+		announcer = Executors.newFixedThreadPool( 1, "JGroups master announcer for index " + indexName );
 		registerMasterListener( context.getUninitializedSearchFactory() );
+		announce();
 	}
 
 	private void registerMasterListener(SearchFactoryImplementor searchFactory) {
 		//register JGroups receiver in master node to get Lucene docs from slave nodes
-		masterListener = new JGroupsMasterMessageListener( searchFactory );
+		masterListener = new JGroupsMasterMessageListener( searchFactory, this );
 		channel.setReceiver( masterListener );
 	}
 
+	/**
+	 * Tells the slave nodes that this node is the master of the index, so that they send it the works of the
+	 * index only. Sending is asynchronous, as messages can't be sent from the JGroups thread installing a view
+	 * while a flush is in progress.
+	 */
+	@Override
+	void announce() {
+		if ( announcer == null || announcer.isShutdown() ) {
+			return;
+		}
+		announcer.execute(
+				new Runnable() {
+					public void run() {
+						try {
+							channel.send( new Message( null, getAddress(), new MasterAnnouncement( indexName ) ) );
+						}
+						catch ( Exception e ) {
+							log.unableToAnnounceJGroupsMaster( indexName, e );
+						}
+					}
+				}
+		);
+	}
+
 	private void initLuceneBackendQueueProcessor(Properties props, WorkerBuildContext context) {
 		luceneBackendQueueProcessor = new LuceneBackendQueueProcessor();
 		luceneBackendQueueProcessor.initialize( props, context, indexManager );
@@ -78,6 +109,9 @@ public class MasterJGroupsBackendQueueProcessor extends JGroupsBackendQueueProce
 
 	@Override
 	public void close() {
+		if ( announcer != null ) {
+			announcer.shutdownNow();
+		}
 		super.close();
 		luceneBackendQueueProcessor.close();
 	}
@@ -92,6 +126,14 @@ public class MasterJGroupsBackendQueueProcessor extends JGroupsBackendQueueProce
 		luceneBackendQueueProcessor.applyStreamWork( singleOperation );
 	}
 
+	/**
+	 * Applies the works of an acknowledged change set, waiting for them to be applied
+	 */
+	@Override
+	void applyWorkAndWait(List<LuceneWork> workList) {
+		luceneBackendQueueProcessor.applyWorkAndWait( workList );
+	}
+
 	@Override
 	public Lock getExclusiveWriteLock() {
 		log.warnSuspiciousBackendDirectoryCombination( indexName );
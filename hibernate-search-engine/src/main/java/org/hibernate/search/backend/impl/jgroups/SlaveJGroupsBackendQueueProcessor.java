@@ -25,40 +25,166 @@ package org.hibernate.search.backend.impl.jgroups;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.jgroups.Address;
+import org.jgroups.Receiver;
+
+import org.hibernate.search.Environment;
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.BackendFactory;
 import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.BatchingQueue;
+import org.hibernate.search.backend.impl.BundlingBackendQueueProcessor;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
+import org.hibernate.search.backend.impl.ChangeSetSpool;
+import org.hibernate.search.indexes.impl.CommonPropertiesParse;
 import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
+import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.spi.WorkerBuildContext;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
 
 /**
  * @author Sanne Grinovero <sanne@hibernate.org> (C) 2011 Red Hat Inc.
  */
-public class SlaveJGroupsBackendQueueProcessor extends JGroupsBackendQueueProcessor {
+public class SlaveJGroupsBackendQueueProcessor extends JGroupsBackendQueueProcessor implements BundlingBackendQueueProcessor {
 	
 	private static final Log log = LoggerFactory.make();
 	
 	private JGroupsBackendQueueTask jgroupsProcessor;
+	private JGroupsSlaveMessageListener slaveListener;
+	private BatchingQueue batchingQueue;
+	private AcknowledgementTracker acknowledgementTracker;
+	private boolean sync;
+	private boolean bundling;
+	private ChangeSetSpool spool;
 
 	@Override
 	public void initialize(Properties props, WorkerBuildContext context, DirectoryBasedIndexManager indexManager) {
 		super.initialize( props, context, indexManager );
-		jgroupsProcessor = new JGroupsBackendQueueTask( this, indexManager );
+		jgroupsProcessor = new JGroupsBackendQueueTask( this, indexManager, acknowledgementTracker );
+		sync = BackendFactory.isConfiguredAsSync( props );
+		bundling = ConfigurationParseHelper.getBooleanValue( props, Environment.WORKER_BUNDLING, false );
+		if ( ChangeSetSpool.isEnabled( props ) ) {
+			spool = new ChangeSetSpool( indexManager, props, context.getUninitializedSearchFactory() ) {
+				@Override
+				protected void send(List<LuceneWork> works) {
+					if ( getMasters().isEmpty() ) {
+						throw new SearchException( "No master node known for index " + indexName + " in cluster " + clusterName );
+					}
+					jgroupsProcessor.sendLuceneWorkList( works );
+				}
+			};
+			spool.start();
+		}
+		// committing threads don't wait for batched change sets to be sent, unlike sync execution requires
+		int maxDelay = sync ? 0 : ConfigurationParseHelper.getIntValue( props, BATCH_MAX_DELAY, 0 );
+		if ( maxDelay > 0 ) {
+			batchingQueue = new BatchingQueue(
+					"JGroups sender for index " + indexName,
+					context.getErrorHandler(),
+					log.unableToSendJGroupsBatch( clusterName ),
+					maxDelay,
+					ConfigurationParseHelper.getIntValue( props, BATCH_MAX_SIZE, 1000 ),
+					CommonPropertiesParse.extractMaxQueueSize( indexName, props ) ) {
+				@Override
+				protected void send(List<LuceneWork> batch) {
+					SlaveJGroupsBackendQueueProcessor.this.send( batch );
+				}
+			};
+			batchingQueue.start();
+		}
+	}
+
+	@Override
+	protected Receiver createReceiver(Properties props) {
+		acknowledgementTracker = createAcknowledgementTracker( props );
+		slaveListener = new JGroupsSlaveMessageListener( indexName, acknowledgementTracker );
+		return slaveListener;
+	}
+
+	@Override
+	public Set<Address> getMasters() {
+		return slaveListener.getMasters();
 	}
 
 	@Override
 	public void applyWork(List<LuceneWork> workList) {
-		jgroupsProcessor.sendLuceneWorkList( workList );
+		if ( sync && acknowledgementTracker != null ) {
+			// the committing thread waits for the master to apply its own change set
+			jgroupsProcessor.sendLuceneWorkList( workList, true );
+		}
+		else if ( batchingQueue != null ) {
+			batchingQueue.enqueue( workList );
+		}
+		else {
+			send( workList );
+		}
+	}
+
+	/**
+	 * Sends a change set to the masters, or spools it while no master is known
+	 */
+	private void send(List<LuceneWork> workList) {
+		if ( spool != null ) {
+			spool.sendOrSpool( workList );
+		}
+		else {
+			jgroupsProcessor.sendLuceneWorkList( workList );
+		}
+	}
+
+	/**
+	 * Change sets are bundled once the masters of the index are known, and sent through the channel of one of the
+	 * indexes: its masters apply the works of their indexes and pass the other works to the backends of their
+	 * indexes.
+	 */
+	@Override
+	public Object getBundleKey() {
+		if ( !bundling || batchingQueue != null || acknowledgementTracker != null || getMasters().isEmpty()
+				|| ( spool != null && spool.isSpooling() ) ) {
+			return null;
+		}
+		return clusterName;
+	}
+
+	@Override
+	public void applyWorkBundle(Map<IndexManager, List<LuceneWork>> changeSets) {
+		if ( getMasters().isEmpty() ) {
+			// the masters left the cluster in the meantime
+			for ( Entry<IndexManager, List<LuceneWork>> entry : changeSets.entrySet() ) {
+				entry.getKey().performOperations( entry.getValue() );
+			}
+			return;
+		}
+		ChangeSetBundle bundle = ChangeSetBundle.serialize( changeSets );
+		if ( bundle != null ) {
+			jgroupsProcessor.send( bundle );
+		}
 	}
 
 	@Override
 	public void applyStreamWork(LuceneWork singleOperation) {
 		//TODO optimize for single operation?
-		jgroupsProcessor.sendLuceneWorkList( Collections.singletonList( singleOperation ) );
+		applyWork( Collections.singletonList( singleOperation ) );
+	}
+
+	@Override
+	public void close() {
+		if ( batchingQueue != null ) {
+			batchingQueue.shutdown();
+		}
+		if ( spool != null ) {
+			spool.close();
+		}
+		super.close();
 	}
 
 	@Override
@@ -24,7 +24,9 @@
 package org.hibernate.search.backend.impl.jms;
 
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,12 +38,18 @@ import javax.naming.NamingException;
 
 import org.hibernate.search.Environment;
 import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.BackendFactory;
 import org.hibernate.search.backend.LuceneWork;
-import org.hibernate.search.backend.spi.BackendQueueProcessor;
+import org.hibernate.search.backend.impl.BatchingQueue;
+import org.hibernate.search.backend.impl.BundlingBackendQueueProcessor;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
+import org.hibernate.search.backend.impl.ChangeSetSpool;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.indexes.impl.CommonPropertiesParse;
 import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
 import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.spi.WorkerBuildContext;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
 import org.hibernate.search.util.impl.JNDIHelper;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
@@ -51,7 +59,7 @@ import org.hibernate.search.util.logging.impl.LoggerFactory;
  * @author Hardy Ferentschik
  * @author Sanne Grinovero <sanne@hibernate.org> (C) 2011 Red Hat Inc.
  */
-public class JMSBackendQueueProcessor implements BackendQueueProcessor {
+public class JMSBackendQueueProcessor implements BundlingBackendQueueProcessor {
 
 	private String jmsQueueName;
 	private String jmsConnectionFactoryName;
@@ -63,7 +71,33 @@ public class JMSBackendQueueProcessor implements BackendQueueProcessor {
 	private SearchFactoryImplementor searchFactory;
 	public static final String JMS_CONNECTION_FACTORY = Environment.WORKER_PREFIX + "jms.connection_factory";
 	public static final String JMS_QUEUE = Environment.WORKER_PREFIX + "jms.queue";
+
+	/**
+	 * Whether messages are sent in a transacted JMS session, committed after each message. Default to false.
+	 */
+	public static final String JMS_TRANSACTED = Environment.WORKER_PREFIX + "jms.transacted";
+
+	/**
+	 * Number of idle JMS sessions kept for reuse. Default to 10.
+	 */
+	public static final String JMS_SESSION_POOL_SIZE = Environment.WORKER_PREFIX + "jms.session_pool.size";
+
+	/**
+	 * Time in milliseconds a change set waits for others to be sent in the same message. Default to 0,
+	 * which sends each change set synchronously from the committing thread. Ignored with sync execution.
+	 */
+	public static final String JMS_BATCH_MAX_DELAY = Environment.WORKER_PREFIX + "jms.batch.max_delay";
+
+	/**
+	 * Number of works from which a batch is sent without waiting for more change sets. Default to 1000.
+	 */
+	public static final String JMS_BATCH_MAX_SIZE = Environment.WORKER_PREFIX + "jms.batch.max_size";
+
 	private IndexManager indexManager;
+	private JMSSessionPool sessionPool;
+	private BatchingQueue batchingQueue;
+	private Object bundleKey;
+	private ChangeSetSpool spool;
 
 	private static final Log log = LoggerFactory.make();
 
@@ -77,6 +111,49 @@ public class JMSBackendQueueProcessor implements BackendQueueProcessor {
 		this.indexName = indexManager.getIndexName();
 		this.searchFactory = context.getUninitializedSearchFactory();
 		prepareJMSTools();
+		this.sessionPool = new JMSSessionPool(
+				factory,
+				jmsQueue,
+				jmsQueueName,
+				ConfigurationParseHelper.getBooleanValue( props, JMS_TRANSACTED, false ),
+				ConfigurationParseHelper.getIntValue( props, JMS_SESSION_POOL_SIZE, 10 )
+		);
+		if ( ChangeSetSpool.isEnabled( props ) ) {
+			this.spool = new ChangeSetSpool( indexManager, props, searchFactory ) {
+				@Override
+				protected void send(List<LuceneWork> works) {
+					sendNow( works );
+				}
+			};
+			this.spool.start();
+		}
+		// committing threads don't wait for batched change sets to be sent, unlike sync execution requires
+		int maxDelay = BackendFactory.isConfiguredAsSync( props ) ?
+				0 :
+				ConfigurationParseHelper.getIntValue( props, JMS_BATCH_MAX_DELAY, 0 );
+		if ( maxDelay <= 0 && ConfigurationParseHelper.getBooleanValue( props, Environment.WORKER_BUNDLING, false ) ) {
+			// indexes looking up the same queue the same way share its messages
+			this.bundleKey = Arrays.asList(
+					jmsConnectionFactoryName,
+					jmsQueueName,
+					JNDIHelper.getJndiProperties( props, JNDI_PREFIX )
+			);
+		}
+		if ( maxDelay > 0 ) {
+			this.batchingQueue = new BatchingQueue(
+					"JMS sender for index " + indexName,
+					context.getErrorHandler(),
+					log.unableToSendJmsBatch( jmsQueueName ),
+					maxDelay,
+					ConfigurationParseHelper.getIntValue( props, JMS_BATCH_MAX_SIZE, 1000 ),
+					CommonPropertiesParse.extractMaxQueueSize( indexName, props ) ) {
+				@Override
+				protected void send(List<LuceneWork> batch) {
+					JMSBackendQueueProcessor.this.send( batch );
+				}
+			};
+			this.batchingQueue.start();
+		}
 	}
 
 	public QueueConnectionFactory getJMSFactory() {
@@ -91,6 +168,10 @@ public class JMSBackendQueueProcessor implements BackendQueueProcessor {
 		return jmsQueueName;
 	}
 
+	JMSSessionPool getSessionPool() {
+		return sessionPool;
+	}
+
 	public void prepareJMSTools() {
 		if ( jmsQueue != null && factory != null ) {
 			return;
@@ -120,16 +201,71 @@ public class JMSBackendQueueProcessor implements BackendQueueProcessor {
 	}
 
 	public void close() {
-		// no need to release anything
+		if ( batchingQueue != null ) {
+			batchingQueue.shutdown();
+		}
+		if ( spool != null ) {
+			spool.close();
+		}
+		if ( sessionPool != null ) {
+			sessionPool.close();
+		}
 	}
 
 	@Override
 	public void applyWork(List<LuceneWork> workList) {
+		if ( batchingQueue != null ) {
+			batchingQueue.enqueue( workList );
+		}
+		else {
+			send( workList );
+		}
+	}
+
+	/**
+	 * Sends a change set to the queue from the calling thread, or spools it if the queue is not available
+	 */
+	void send(List<LuceneWork> workList) {
+		if ( spool != null ) {
+			spool.sendOrSpool( workList );
+		}
+		else {
+			sendNow( workList );
+		}
+	}
+
+	private void sendNow(List<LuceneWork> workList) {
 		//TODO review this integration with the old Runnable-style execution
 		Runnable operation = new JMSBackendQueueTask( indexName, workList, indexManager, this );
 		operation.run();
 	}
 
+	@Override
+	public Object getBundleKey() {
+		// spooled change sets are sent before any new one
+		return spool != null && spool.isSpooling() ? null : bundleKey;
+	}
+
+	@Override
+	public void applyWorkBundle(Map<IndexManager, List<LuceneWork>> changeSets) {
+		ChangeSetBundle bundle = ChangeSetBundle.serialize( changeSets );
+		if ( bundle == null ) {
+			return;
+		}
+		try {
+			JMSBackendQueueTask.send( this, bundle, null );
+		}
+		catch ( SearchException e ) {
+			if ( spool == null ) {
+				throw e;
+			}
+			// each index spools its own change set
+			for ( Map.Entry<IndexManager, List<LuceneWork>> entry : changeSets.entrySet() ) {
+				entry.getKey().performOperations( entry.getValue() );
+			}
+		}
+	}
+
 	@Override
 	public void applyStreamWork(LuceneWork singleOperation) {
 		applyWork( Collections.singletonList( singleOperation ) );
@@ -23,23 +23,19 @@
  */
 package org.hibernate.search.backend.impl.jms;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import javax.jms.JMSException;
 import javax.jms.ObjectMessage;
-import javax.jms.QueueConnection;
-import javax.jms.QueueSender;
-import javax.jms.QueueSession;
-
-import org.hibernate.search.util.logging.impl.Log;
 
 import org.hibernate.search.SearchException;
 import org.hibernate.search.backend.LuceneWork;
 import org.hibernate.search.backend.OptimizeLuceneWork;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
 import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
 import org.hibernate.search.indexes.spi.IndexManager;
-import org.hibernate.search.util.logging.impl.LoggerFactory;
 
 /**
  * @author Emmanuel Bernard
@@ -47,8 +43,6 @@ import org.hibernate.search.util.logging.impl.LoggerFactory;
  */
 public class JMSBackendQueueTask implements Runnable {
 
-	private static final Log log = LoggerFactory.make();
-
 	public static final String INDEX_NAME_JMS_PROPERTY = "hibernate.search.jms.indexNameProperty";
 
 	private final Collection<LuceneWork> queue;
@@ -75,33 +69,39 @@ public class JMSBackendQueueTask implements Runnable {
 		if ( filteredQueue.size() == 0) return;
 		LuceneWorkSerializer serializer = indexManager.getSerializer();
 		byte[] data = serializer.toSerializedModel( filteredQueue );
+		send( processor, data, indexName );
+	}
+
+	/**
+	 * Sends an object to the queue of the processor
+	 *
+	 * @param indexName the index the object is routed to, or null for a {@link ChangeSetBundle}
+	 */
+	static void send(JMSBackendQueueProcessor processor, Serializable object, String indexName) {
 		processor.prepareJMSTools();
-		QueueConnection cnn = null;
-		QueueSender sender;
-		QueueSession session;
+		JMSSessionPool sessionPool = processor.getSessionPool();
+		JMSSessionPool.PooledSession pooledSession = null;
 		try {
-			cnn = processor.getJMSFactory().createQueueConnection();
-			//TODO make transacted parameterized
-			session = cnn.createQueueSession( false, QueueSession.AUTO_ACKNOWLEDGE );
-			ObjectMessage message = session.createObjectMessage();
-			message.setObject( data );
-			message.setStringProperty( INDEX_NAME_JMS_PROPERTY, indexName );
-
-			sender = session.createSender( processor.getJmsQueue() );
-			sender.send( message );
+			pooledSession = sessionPool.borrowSession();
+			ObjectMessage message = pooledSession.session.createObjectMessage();
+			message.setObject( object );
+			if ( indexName != null ) {
+				message.setStringProperty( INDEX_NAME_JMS_PROPERTY, indexName );
+			}
 
-			session.close();
+			pooledSession.sender.send( message );
+			if ( sessionPool.isTransacted() ) {
+				pooledSession.session.commit();
+			}
+			sessionPool.returnSession( pooledSession );
+			pooledSession = null;
 		}
 		catch (JMSException e) {
 			throw new SearchException( "Unable to send Search work to JMS queue: " + processor.getJmsQueueName(), e );
 		}
 		finally {
-			try {
-				if (cnn != null)
-					cnn.close();
-				}
-			catch ( JMSException e ) {
-				log.unableToCloseJmsConnection( processor.getJmsQueueName(), e );
+			if ( pooledSession != null ) {
+				sessionPool.discardSession( pooledSession );
 			}
 		}
 	}
@@ -0,0 +1,250 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.batchindexing.impl.Executors;
+import org.hibernate.search.exception.ErrorHandler;
+import org.hibernate.search.exception.impl.ErrorContextBuilder;
+import org.hibernate.search.indexes.spi.IndexManager;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Applies the change sets received by the master node of a JMS cluster from a pool of threads, so that the
+ * master is not limited by the speed of a single message consumer.
+ * <p/>
+ * Change sets are decoded in parallel, then applied through one ordered lane per index: the change sets of an
+ * index are applied in the order they were dispatched, while the lanes of different indexes proceed in
+ * parallel. Consecutive change sets already decoded when a lane is ready are merged into a single batch, so
+ * that they are committed to the index at once.
+ * <p/>
+ * Dispatching blocks when too many change sets are waiting to be applied. Change sets which can't be decoded
+ * or applied are reported to the error handler.
+ */
+public class JMSMasterDispatcher {
+
+	private static final Log log = LoggerFactory.make();
+
+	private final ErrorHandler errorHandler;
+	private final int maxBatchSize;
+	private final int maxPendingChangeSets;
+	private final Semaphore pendingChangeSets;
+	private final ExecutorService decodingExecutor;
+	private final ExecutorService applyingExecutor;
+	private final ConcurrentMap<String, IndexLane> lanes = new ConcurrentHashMap<String, IndexLane>();
+
+	/**
+	 * @param threads the number of threads decoding change sets, and the number of indexes updated in parallel
+	 * @param maxBatchSize the number of works from which a batch is applied without merging more change sets
+	 * @param maxPendingChangeSets the number of change sets waiting to be applied before dispatching blocks
+	 */
+	public JMSMasterDispatcher(ErrorHandler errorHandler, int threads, int maxBatchSize, int maxPendingChangeSets) {
+		this.errorHandler = errorHandler;
+		this.maxBatchSize = maxBatchSize;
+		this.maxPendingChangeSets = maxPendingChangeSets;
+		this.pendingChangeSets = new Semaphore( maxPendingChangeSets );
+		this.decodingExecutor = Executors.newFixedThreadPool( threads, "JMS master decoder", maxPendingChangeSets );
+		this.applyingExecutor = Executors.newFixedThreadPool( threads, "JMS master index updater" );
+	}
+
+	/**
+	 * Queues a serialized change set to be decoded and applied to its index
+	 *
+	 * @param indexManager the index the change set was sent for
+	 * @param data the serialized change set
+	 *
+	 * @return a latch released once the change set is applied, or reported to the error handler
+	 */
+	public CountDownLatch dispatch(final IndexManager indexManager, final byte[] data) {
+		pendingChangeSets.acquireUninterruptibly();
+		Future<List<LuceneWork>> works = decodingExecutor.submit(
+				new Callable<List<LuceneWork>>() {
+					public List<LuceneWork> call() {
+						return indexManager.getSerializer().toLuceneWorks( data );
+					}
+				}
+		);
+		DispatchedChangeSet changeSet = new DispatchedChangeSet( works );
+		getLane( indexManager ).add( changeSet );
+		return changeSet.applied;
+	}
+
+	/**
+	 * Waits for the dispatched change sets to be applied and stops the threads
+	 */
+	public void shutdown() {
+		pendingChangeSets.acquireUninterruptibly( maxPendingChangeSets );
+		decodingExecutor.shutdown();
+		applyingExecutor.shutdown();
+		try {
+			decodingExecutor.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+			applyingExecutor.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+		}
+		catch ( InterruptedException e ) {
+			log.interruptedWhileWaitingForIndexActivity();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private IndexLane getLane(IndexManager indexManager) {
+		String indexName = indexManager.getIndexName();
+		IndexLane lane = lanes.get( indexName );
+		if ( lane == null ) {
+			lane = new IndexLane( indexManager );
+			IndexLane existing = lanes.putIfAbsent( indexName, lane );
+			if ( existing != null ) {
+				lane = existing;
+			}
+		}
+		return lane;
+	}
+
+	/**
+	 * The change sets of an index waiting to be applied. A lane is scheduled on the applying executor at most
+	 * once at a time, which keeps its change sets ordered; it applies a single batch per run so that
+	 * lanes share the threads fairly.
+	 */
+	private final class IndexLane implements Runnable {
+		private final IndexManager indexManager;
+		private final LinkedList<DispatchedChangeSet> changeSets = new LinkedList<DispatchedChangeSet>();
+		private boolean scheduled;
+
+		IndexLane(IndexManager indexManager) {
+			this.indexManager = indexManager;
+		}
+
+		void add(DispatchedChangeSet changeSet) {
+			synchronized ( this ) {
+				changeSets.add( changeSet );
+				if ( scheduled ) {
+					return;
+				}
+				scheduled = true;
+			}
+			applyingExecutor.execute( this );
+		}
+
+		public void run() {
+			List<DispatchedChangeSet> merged = new ArrayList<DispatchedChangeSet>();
+			List<LuceneWork> batch = new ArrayList<LuceneWork>();
+			try {
+				DispatchedChangeSet changeSet;
+				synchronized ( this ) {
+					changeSet = changeSets.poll();
+				}
+				merged.add( changeSet );
+				batch.addAll( decode( changeSet ) );
+				while ( batch.size() < maxBatchSize ) {
+					synchronized ( this ) {
+						changeSet = changeSets.peek();
+						if ( changeSet == null || !changeSet.works.isDone() ) {
+							break;
+						}
+						changeSets.poll();
+					}
+					merged.add( changeSet );
+					batch.addAll( decode( changeSet ) );
+				}
+				if ( !batch.isEmpty() ) {
+					indexManager.performOperations( batch );
+				}
+			}
+			catch ( RuntimeException e ) {
+				ErrorContextBuilder builder = new ErrorContextBuilder();
+				builder.allWorkToBeDone( batch );
+				builder.errorThatOccurred(
+						new SearchException( log.unableToApplyJmsChangeSets( indexManager.getIndexName() ), e )
+				);
+				errorHandler.handle( builder.createErrorContext() );
+			}
+			finally {
+				// reschedule first, so that shutdown never finds the executor still needed
+				reschedule();
+				pendingChangeSets.release( merged.size() );
+				for ( DispatchedChangeSet changeSet : merged ) {
+					changeSet.applied.countDown();
+				}
+			}
+		}
+
+		private void reschedule() {
+			synchronized ( this ) {
+				if ( changeSets.isEmpty() ) {
+					scheduled = false;
+					return;
+				}
+			}
+			applyingExecutor.execute( this );
+		}
+
+		/**
+		 * Waits for a change set to be decoded, even if interrupted: once dispatched, a change set is only
+		 * dropped when it can't be decoded
+		 */
+		private List<LuceneWork> decode(DispatchedChangeSet changeSet) {
+			boolean interrupted = false;
+			try {
+				while ( true ) {
+					try {
+						return changeSet.works.get();
+					}
+					catch ( InterruptedException e ) {
+						interrupted = true;
+					}
+				}
+			}
+			catch ( ExecutionException e ) {
+				errorHandler.handleException( log.unableToApplyJmsChangeSets( indexManager.getIndexName() ), e.getCause() );
+				return Collections.emptyList();
+			}
+			finally {
+				if ( interrupted ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private static final class DispatchedChangeSet {
+		private final Future<List<LuceneWork>> works;
+		private final CountDownLatch applied = new CountDownLatch( 1 );
+
+		DispatchedChangeSet(Future<List<LuceneWork>> works) {
+			this.works = works;
+		}
+	}
+}
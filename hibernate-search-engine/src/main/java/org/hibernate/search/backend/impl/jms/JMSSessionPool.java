@@ -0,0 +1,173 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.backend.impl.jms;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Shares one JMS connection among the senders of an index, and keeps the sessions and senders created on it
+ * for reuse: creating them for each change set dominates the sending time and loads the broker.
+ * <p/>
+ * JMS sessions are single threaded, so a session is only used by the thread which borrowed it until it
+ * is returned. When sending fails the session and its connection are discarded, and the next borrower
+ * opens a new connection.
+ */
+final class JMSSessionPool {
+
+	private static final Log log = LoggerFactory.make();
+
+	private final QueueConnectionFactory factory;
+	private final Queue queue;
+	private final String queueName;
+	private final boolean transacted;
+	private final BlockingQueue<PooledSession> idleSessions;
+
+	private QueueConnection connection;
+	private boolean closed;
+
+	/**
+	 * @param maxIdleSessions the number of sessions kept when they are returned, more sessions are created on demand
+	 */
+	JMSSessionPool(QueueConnectionFactory factory, Queue queue, String queueName, boolean transacted, int maxIdleSessions) {
+		this.factory = factory;
+		this.queue = queue;
+		this.queueName = queueName;
+		this.transacted = transacted;
+		this.idleSessions = new ArrayBlockingQueue<PooledSession>( Math.max( 1, maxIdleSessions ) );
+	}
+
+	boolean isTransacted() {
+		return transacted;
+	}
+
+	PooledSession borrowSession() throws JMSException {
+		PooledSession session = idleSessions.poll();
+		if ( session != null ) {
+			return session;
+		}
+		QueueConnection queueConnection = getConnection();
+		QueueSession queueSession = queueConnection.createQueueSession( transacted, QueueSession.AUTO_ACKNOWLEDGE );
+		return new PooledSession( queueConnection, queueSession, queueSession.createSender( queue ) );
+	}
+
+	/**
+	 * Makes a session available to other senders, after it was used successfully
+	 */
+	void returnSession(PooledSession session) {
+		if ( !isCurrent( session.connection ) || !idleSessions.offer( session ) ) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Closes a session which failed, and its connection as it might be the cause of the failure
+	 */
+	void discardSession(PooledSession session) {
+		session.close();
+		QueueConnection brokenConnection = null;
+		synchronized ( this ) {
+			if ( connection == session.connection ) {
+				brokenConnection = connection;
+				connection = null;
+			}
+		}
+		if ( brokenConnection != null ) {
+			closeIdleSessions();
+			closeConnection( brokenConnection );
+		}
+	}
+
+	void close() {
+		QueueConnection openConnection;
+		synchronized ( this ) {
+			closed = true;
+			openConnection = connection;
+			connection = null;
+		}
+		closeIdleSessions();
+		if ( openConnection != null ) {
+			closeConnection( openConnection );
+		}
+	}
+
+	private synchronized QueueConnection getConnection() throws JMSException {
+		if ( closed ) {
+			throw new IllegalStateException( "The JMS sessions of queue " + queueName + " are closed" );
+		}
+		if ( connection == null ) {
+			connection = factory.createQueueConnection();
+		}
+		return connection;
+	}
+
+	private synchronized boolean isCurrent(QueueConnection queueConnection) {
+		return !closed && connection == queueConnection;
+	}
+
+	private void closeIdleSessions() {
+		PooledSession session;
+		while ( ( session = idleSessions.poll() ) != null ) {
+			session.close();
+		}
+	}
+
+	private void closeConnection(QueueConnection queueConnection) {
+		try {
+			queueConnection.close();
+		}
+		catch ( JMSException e ) {
+			log.unableToCloseJmsConnection( queueName, e );
+		}
+	}
+
+	final class PooledSession {
+		private final QueueConnection connection;
+		final QueueSession session;
+		final QueueSender sender;
+
+		private PooledSession(QueueConnection connection, QueueSession session, QueueSender sender) {
+			this.connection = connection;
+			this.session = session;
+			this.sender = sender;
+		}
+
+		private void close() {
+			try {
+				// closing a transacted session rolls back the messages not committed yet
+				session.close();
+			}
+			catch ( JMSException e ) {
+				log.unableToCloseJmsConnection( queueName, e );
+			}
+		}
+	}
+}
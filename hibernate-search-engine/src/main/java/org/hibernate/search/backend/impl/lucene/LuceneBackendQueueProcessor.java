@@ -91,6 +91,30 @@ public class LuceneBackendQueueProcessor implements BackendQueueProcessor {
 		}
 	}
 
+	/**
+	 * Applies the works and waits for them to be applied, even when the backend is configured as async
+	 *
+	 * @throws SearchException if the works were not all applied, or the thread was interrupted while waiting
+	 */
+	public void applyWorkAndWait(List<LuceneWork> workList) {
+		LuceneBackendQueueTask luceneBackendQueueProcessor = new LuceneBackendQueueTask( workList, resources );
+		Future<?> future = resources.getQueueingExecutor().submit( luceneBackendQueueProcessor );
+		try {
+			future.get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new SearchException( "Interrupted while waiting for updates to be applied to the Lucene index", e );
+		}
+		catch ( ExecutionException e ) {
+			throw new SearchException( "Error applying updates to the Lucene index", e.getCause() );
+		}
+		if ( luceneBackendQueueProcessor.isFailed() ) {
+			// the failure was already reported to the error handler
+			throw new SearchException( "Error applying updates to the Lucene index" );
+		}
+	}
+
 	@Override
 	public void applyStreamWork(LuceneWork singleOperation) {
 		List<LuceneWork> singletonList = Collections.singletonList( singleOperation );
@@ -52,6 +52,11 @@ class LuceneBackendQueueTask implements Runnable {
 	private final LuceneBackendResources resources;
 	private final List<LuceneWork> queue;
 
+	/**
+	 * Whether some works could not be applied, the failure being reported to the error handler
+	 */
+	private volatile boolean failed;
+
 	LuceneBackendQueueTask(List<LuceneWork> queue, LuceneBackendResources resources) {
 		this.queue = queue;
 		this.resources = resources;
@@ -74,7 +79,15 @@ class LuceneBackendQueueTask implements Runnable {
 		}
 	}
 
+	/**
+	 * @return true if some works could not be applied once the task is run
+	 */
+	boolean isFailed() {
+		return failed;
+	}
+
 	private void handleException(Exception e) {
+		failed = true;
 		log.backendError( e );
 		ErrorContextBuilder builder = new ErrorContextBuilder();
 		builder.allWorkToBeDone( queue );
@@ -95,6 +108,7 @@ class LuceneBackendQueueTask implements Runnable {
 		
 		IndexWriter indexWriter = workspace.getIndexWriter( errorContextBuilder );
 		if ( indexWriter == null ) {
+			failed = true;
 			log.cannotOpenIndexWriterCausePreviousError();
 			return;
 		}
@@ -123,6 +137,7 @@ class LuceneBackendQueueTask implements Runnable {
 				}
 			}
 			if ( someFailureHappened ) {
+				failed = true;
 				errorContextBuilder.addAllWorkThatFailed( failedUpdates );
 				resources.getErrorHandler().handle( errorContextBuilder.createErrorContext() );
 			}
@@ -1,6 +1,8 @@
 package org.hibernate.search.bridge.util.impl;
 
 import org.apache.lucene.document.NumericField;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.NumericRangeFilter;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.hibernate.search.SearchException;
@@ -14,37 +16,70 @@ public class NumericFieldUtils {
 
 	public static Query createNumericRangeQuery(String fieldName, Object from, Object to,
 												boolean includeLower, boolean includeUpper) {
-
-		Class numericClass;
-
-		if ( from != null ) {
-			numericClass = from.getClass();
+		switch ( numericType( "query", fieldName, from, to ) ) {
+			case DOUBLE:
+				return NumericRangeQuery.newDoubleRange( fieldName, (Double) from, (Double) to, includeLower, includeUpper );
+			case LONG:
+				return NumericRangeQuery.newLongRange( fieldName, (Long) from, (Long) to, includeLower, includeUpper );
+			case INTEGER:
+				return NumericRangeQuery.newIntRange( fieldName, (Integer) from, (Integer) to, includeLower, includeUpper );
+			default:
+				return NumericRangeQuery.newFloatRange( fieldName, (Float) from, (Float) to, includeLower, includeUpper );
 		}
-		else if ( to != null ) {
-			numericClass = to.getClass();
+	}
+
+	/**
+	 * Creates a filter matching the same documents as {@link #createNumericRangeQuery}. Unlike the query, the
+	 * matching documents of a filter can be cached per segment, see
+	 * {@link org.hibernate.search.filter.impl.CachingWrapperFilter}.
+	 * @param fieldName
+	 * @param from
+	 * @param to
+	 * @param includeLower
+	 * @param includeUpper
+	 * @return the created Filter
+	 */
+	public static Filter createNumericRangeFilter(String fieldName, Object from, Object to,
+												boolean includeLower, boolean includeUpper) {
+		switch ( numericType( "filter", fieldName, from, to ) ) {
+			case DOUBLE:
+				return NumericRangeFilter.newDoubleRange( fieldName, (Double) from, (Double) to, includeLower, includeUpper );
+			case LONG:
+				return NumericRangeFilter.newLongRange( fieldName, (Long) from, (Long) to, includeLower, includeUpper );
+			case INTEGER:
+				return NumericRangeFilter.newIntRange( fieldName, (Integer) from, (Integer) to, includeLower, includeUpper );
+			default:
+				return NumericRangeFilter.newFloatRange( fieldName, (Float) from, (Float) to, includeLower, includeUpper );
 		}
-		else {
+	}
+
+	/**
+	 * @return the type of the range bounds, the one of {@code from} unless it is null
+	 * @throws SearchException if both bounds are null or the bounds are not numeric
+	 */
+	private static NumericType numericType(String rangeKind, String fieldName, Object from, Object to) {
+		Object value = from != null ? from : to;
+		if ( value == null ) {
 			throw new SearchException(
-				"Cannot create numeric range query for field " + fieldName + ", since from and to values are " +
+				"Cannot create numeric range " + rangeKind + " for field " + fieldName + ", since from and to values are " +
 						"null");
 		}
-
-		if ( numericClass.isAssignableFrom( Double.class ) ) {
-			return NumericRangeQuery.newDoubleRange( fieldName, (Double) from, (Double) to, includeLower, includeUpper );
+		if ( value instanceof Double ) {
+			return NumericType.DOUBLE;
 		}
-		if ( numericClass.isAssignableFrom( Long.class ) ) {
-			return NumericRangeQuery.newLongRange( fieldName, (Long) from, (Long) to, includeLower, includeUpper );
+		if ( value instanceof Long ) {
+			return NumericType.LONG;
 		}
-		if ( numericClass.isAssignableFrom( Integer.class ) ) {
-			return NumericRangeQuery.newIntRange( fieldName, (Integer) from, (Integer) to, includeLower, includeUpper );
+		if ( value instanceof Integer ) {
+			return NumericType.INTEGER;
 		}
-		if ( numericClass.isAssignableFrom( Float.class ) ) {
-			return NumericRangeQuery.newFloatRange( fieldName, (Float) from, (Float) to, includeLower, includeUpper );
+		if ( value instanceof Float ) {
+			return NumericType.FLOAT;
 		}
 		// TODO: check for type before in the mapping
 		throw new SearchException(
-				"Cannot create numeric range query for field " + fieldName + ", since values are not numeric " +
-						"(int,long, short or double) ");
+				"Cannot create numeric range " + rangeKind + " for field " + fieldName + ", since values are not numeric " +
+						"(int, long, float or double) ");
 	}
 
 	/**
@@ -74,4 +109,11 @@ public class NumericFieldUtils {
 			numericField.setFloatValue( (Float) value );
 		}
 	}
+
+	private enum NumericType {
+		DOUBLE,
+		LONG,
+		INTEGER,
+		FLOAT
+	}
 }
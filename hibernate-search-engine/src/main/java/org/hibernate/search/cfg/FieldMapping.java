@@ -112,6 +112,11 @@ public class FieldMapping {
 		return this;
 	}
 
+	public FieldMapping columnStored(boolean columnStored) {
+		field.put( "columnStored", columnStored );
+		return this;
+	}
+
 	public FieldMapping field() {
 		return new FieldMapping( property, entity, mapping );
 	}
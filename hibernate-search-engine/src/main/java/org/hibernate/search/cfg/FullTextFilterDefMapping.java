@@ -56,6 +56,16 @@ public class FullTextFilterDefMapping {
 		return this;
 	}
 
+	/**
+	 * @FullTextFilterDef(, ... params={@Parameter(name="name", value="value"), ...})
+	 */
+	public FullTextFilterDefMapping param(String name, String value) {
+		Map<String, Object> param = SearchMapping.addElementToAnnotationArray( fullTextFilterDef, "params" );
+		param.put( "name", name );
+		param.put( "value", value );
+		return this;
+	}
+
 	public FullTextFilterDefMapping fullTextFilterDef(String name, Class<?> impl) {
 		return new FullTextFilterDefMapping(mapping, name, impl);
 	}
@@ -154,10 +154,14 @@ public final class DocumentBuilderHelper {
 			if ( matchingPosition != -1 ) {
 				contextualBridge.pushMethod( metadata.fieldGetters.get( index ) );
 				try {
+					// column stored values are added to the document by the DocumentExtractor
+					Store store = metadata.columnStoredFieldNames.contains( fieldName ) ?
+							Store.YES :
+							metadata.fieldStore.get( index );
 					populateResult(
 							fieldName,
 							metadata.fieldBridges.get( index ),
-							metadata.fieldStore.get( index ),
+							store,
 							fields,
 							result,
 							document,
@@ -25,12 +25,15 @@ package org.hibernate.search.engine.impl;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.hibernate.search.SearchException;
 import org.hibernate.search.annotations.FilterCacheModeType;
 import org.hibernate.search.annotations.FullTextFilterDef;
+import org.hibernate.search.annotations.Parameter;
 import org.hibernate.search.util.impl.ReflectionHelper;
 
 /**
@@ -46,11 +49,17 @@ public class FilterDef {
 	private final FilterCacheModeType cacheMode;
 	private final Class<?> impl;
 	private final String name;
+	private final Map<String, String> parameters;
 
 	public FilterDef(FullTextFilterDef def) {
 		this.name = def.name();
 		this.impl = def.impl();
 		this.cacheMode = def.cache();
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		for ( Parameter param : def.params() ) {
+			params.put( param.name(), param.value() );
+		}
+		this.parameters = Collections.unmodifiableMap( params );
 	}
 
 	public String getName() {
@@ -65,6 +74,17 @@ public class FilterDef {
 		return impl;
 	}
 
+	/**
+	 * @return the parameters declared with the filter definition, to set on each filter instance
+	 */
+	public Map<String, String> getParameters() {
+		return parameters;
+	}
+
+	public boolean hasSetter(String parameterName) {
+		return setters.containsKey( parameterName );
+	}
+
 	public Method getFactoryMethod() {
 		return factoryMethod;
 	}
@@ -79,6 +79,8 @@ import org.hibernate.search.engine.impl.DefaultBoostStrategy;
 import org.hibernate.search.engine.impl.LuceneOptionsImpl;
 import org.hibernate.search.engine.impl.WorkPlan;
 import org.hibernate.search.impl.ConfigContext;
+import org.hibernate.search.query.fieldcache.impl.ClassLoadingStrategySelector;
+import org.hibernate.search.query.fieldcache.impl.FieldCacheLoadingType;
 import org.hibernate.search.spi.ClassNavigator;
 import org.hibernate.search.util.impl.ClassLoaderHelper;
 import org.hibernate.search.util.impl.PassThroughAnalyzer;
@@ -109,6 +111,7 @@ public abstract class AbstractDocumentBuilder<T> {
 	private Analyzer passThroughAnalyzer = new PassThroughAnalyzer();
 	protected final Set<String> indexedEmbeddedCollectionRoles = new TreeSet<String>();
 	protected final Set<String> containedInCollectionRoles = new TreeSet<String>();
+	private final Map<String, FieldCacheLoadingType> columnStoredFields = new HashMap<String, FieldCacheLoadingType>();
 
 	protected final PropertiesMetadata metadata = new PropertiesMetadata();
 	protected EntityState entityState;
@@ -204,6 +207,14 @@ public abstract class AbstractDocumentBuilder<T> {
 		return mappedSubclasses;
 	}
 
+	/**
+	 * @return the names of the fields mapped with {@code columnStored}, including the ones of embedded objects,
+	 *         and the type of {@code FieldCache} to read their values from
+	 */
+	public Map<String, FieldCacheLoadingType> getColumnStoredFields() {
+		return columnStoredFields;
+	}
+
 	public void postInitialize(Set<Class<?>> indexedClasses) {
 		//we initialize only once because we no longer have a reference to the reflectionManager
 		//in theory
@@ -807,6 +818,9 @@ public abstract class AbstractDocumentBuilder<T> {
 			fieldBridge = new NullEncodingTwoWayFieldBridge( (TwoWayFieldBridge) fieldBridge, indexNullAs );
 		}
 		propertiesMetadata.fieldBridges.add( fieldBridge );
+		if ( fieldAnn.columnStored() ) {
+			bindColumnStoredField( fieldName, index, fieldBridge, numericFieldAnn, propertiesMetadata );
+		}
 
 		// Field > property > entity analyzer
 		Analyzer analyzer = getAnalyzer( fieldAnn.analyzer(), context );
@@ -816,6 +830,32 @@ public abstract class AbstractDocumentBuilder<T> {
 		addToScopedAnalyzer( fieldName, analyzer, index );
 	}
 
+	private void bindColumnStoredField(String fieldName, Field.Index index, FieldBridge fieldBridge, NumericField numericFieldAnn, PropertiesMetadata propertiesMetadata) {
+		// the values are read from the index terms, one per document
+		if ( !index.isIndexed() || ( index.isAnalyzed() && numericFieldAnn == null ) ) {
+			throw new SearchException(
+					"Column stored field '" + fieldName + "' in " + beanXClassName + " must be indexed and not analyzed"
+			);
+		}
+		if ( !( fieldBridge instanceof TwoWayFieldBridge ) ) {
+			throw new SearchException(
+					"Column stored field '" + fieldName + "' in " + beanXClassName + " must use a TwoWayFieldBridge"
+			);
+		}
+		FieldCacheLoadingType loadingType = FieldCacheLoadingType.STRING;
+		if ( numericFieldAnn != null ) {
+			loadingType = ClassLoadingStrategySelector.guessAppropriateCollectorType( (TwoWayFieldBridge) fieldBridge );
+			if ( loadingType == null ) {
+				throw new SearchException(
+						"Column stored field '" + fieldName + "' in " + beanXClassName + " uses an unsupported numeric bridge: "
+								+ fieldBridge.getClass()
+				);
+			}
+		}
+		propertiesMetadata.columnStoredFieldNames.add( fieldName );
+		columnStoredFields.put( fieldName, loadingType );
+	}
+
 	protected Integer getPrecisionStep(NumericField numericFieldAnn) {
 		return numericFieldAnn == null ? NumericField.PRECISION_STEP_DEFAULT : numericFieldAnn.precisionStep();
 	}
@@ -981,6 +1021,7 @@ public abstract class AbstractDocumentBuilder<T> {
 		public final List<BoostStrategy> dynamicFieldBoosts = new ArrayList<BoostStrategy>();
 		public final List<Integer> precisionSteps = new ArrayList<Integer>();
 		public final List<String> fieldNullTokens = new LinkedList<String>();
+		public final Set<String> columnStoredFieldNames = new HashSet<String>();
 
 		public final List<Field.TermVector> fieldTermVectors = new ArrayList<Field.TermVector>();
 		public final List<XMember> embeddedGetters = new ArrayList<XMember>();
@@ -22,12 +22,15 @@ package org.hibernate.search.engine.spi;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.hibernate.search.backend.impl.batch.BatchBackend;
 import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
 import org.hibernate.search.engine.impl.FilterDef;
 import org.hibernate.search.filter.FilterCachingStrategy;
 import org.hibernate.search.indexes.impl.IndexManagerHolder;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.spi.ClassNavigator;
 import org.hibernate.search.spi.SearchFactoryIntegrator;
 import org.hibernate.search.stat.spi.StatisticsImplementor;
@@ -52,6 +55,22 @@ public interface SearchFactoryImplementor extends SearchFactoryIntegrator {
 
 	int getFilterCacheBitResultsSize();
 
+	/**
+	 * @return the cache of query results, or {@code null} if query results should not be cached.
+	 */
+	QueryResultCache getQueryResultCache();
+
+	/**
+	 * @return the cache of faceting results, or {@code null} if faceting results should not be cached.
+	 */
+	FacetResultCache getFacetResultCache();
+
+	/**
+	 * @return the executor searching the shards of a query in parallel, or {@code null} if shards should be
+	 * searched sequentially.
+	 */
+	ExecutorService getShardSearchExecutor();
+
 	Set<Class<?>> getIndexedTypesPolymorphic(Class<?>[] classes);
 
 	BatchBackend makeBatchBackend(MassIndexerProgressMonitor progressMonitor);
@@ -0,0 +1,125 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter;
+
+import org.apache.lucene.search.Filter;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.annotations.Factory;
+import org.hibernate.search.annotations.Key;
+import org.hibernate.search.bridge.util.impl.NumericFieldUtils;
+
+/**
+ * Filter factory creating a numeric range filter on a {@code @NumericField}, so that it can be declared on a mapping:
+ * <pre>
+ * &#64;FullTextFilterDef(name = "adults", impl = NumericRangeFilterFactory.class, params = {
+ *         &#64;Parameter(name = "field", value = "age"),
+ *         &#64;Parameter(name = "type", value = "int"),
+ *         &#64;Parameter(name = "from", value = "18") })
+ * </pre>
+ * The {@code type} of the field is one of {@code int}, {@code long}, {@code float} or {@code double}: it is
+ * needed to parse bounds given as strings. A missing bound leaves the range open, and both bounds are
+ * included unless {@code includeLower} or {@code includeUpper} is set to false.
+ */
+public class NumericRangeFilterFactory {
+	private String field;
+	private String type;
+	private Object from;
+	private Object to;
+	private boolean includeLower = true;
+	private boolean includeUpper = true;
+
+	public void setField(String field) {
+		this.field = field;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public void setFrom(Object from) {
+		this.from = from;
+	}
+
+	public void setTo(Object to) {
+		this.to = to;
+	}
+
+	public void setIncludeLower(Object includeLower) {
+		this.includeLower = Boolean.valueOf( String.valueOf( includeLower ) );
+	}
+
+	public void setIncludeUpper(Object includeUpper) {
+		this.includeUpper = Boolean.valueOf( String.valueOf( includeUpper ) );
+	}
+
+	@Key
+	public FilterKey getKey() {
+		StandardFilterKey key = new StandardFilterKey();
+		key.addParameter( field );
+		key.addParameter( toNumber( from ) );
+		key.addParameter( toNumber( to ) );
+		key.addParameter( includeLower );
+		key.addParameter( includeUpper );
+		return key;
+	}
+
+	@Factory
+	public Filter getFilter() {
+		if ( field == null ) {
+			throw new SearchException( "The field parameter of a NumericRangeFilterFactory is not set" );
+		}
+		return NumericFieldUtils.createNumericRangeFilter(
+				field, toNumber( from ), toNumber( to ), includeLower, includeUpper
+		);
+	}
+
+	private Number toNumber(Object bound) {
+		if ( bound == null || ( type == null && bound instanceof Number ) ) {
+			return (Number) bound;
+		}
+		if ( type == null ) {
+			throw new SearchException(
+					"The type parameter of a NumericRangeFilterFactory on " + field + " is needed to parse: " + bound
+			);
+		}
+		try {
+			if ( "int".equals( type ) ) {
+				return bound instanceof Number ? ( (Number) bound ).intValue() : Integer.valueOf( bound.toString() );
+			}
+			else if ( "long".equals( type ) ) {
+				return bound instanceof Number ? ( (Number) bound ).longValue() : Long.valueOf( bound.toString() );
+			}
+			else if ( "float".equals( type ) ) {
+				return bound instanceof Number ? ( (Number) bound ).floatValue() : Float.valueOf( bound.toString() );
+			}
+			else if ( "double".equals( type ) ) {
+				return bound instanceof Number ? ( (Number) bound ).doubleValue() : Double.valueOf( bound.toString() );
+			}
+		}
+		catch ( NumberFormatException e ) {
+			throw new SearchException( "Unable to parse the bound " + bound + " of a numeric range on " + field, e );
+		}
+		throw new SearchException(
+				"Unknown numeric type " + type + " of a NumericRangeFilterFactory, expected int, long, float or double"
+		);
+	}
+}
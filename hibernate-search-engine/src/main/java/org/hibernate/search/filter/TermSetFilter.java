@@ -0,0 +1,108 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * Matches the documents holding any of the given terms in a field, like the entity types stored in
+ * {@link org.hibernate.search.ProjectionConstants#OBJECT_CLASS}.
+ * <p/>
+ * The matching documents are collected in a bit set for each segment, which is cached when the filter is
+ * returned by a {@code @FullTextFilterDef} caching its results: such filters are applied without scanning the
+ * terms again on each query. Filters are equal when they match the same terms of the same field.
+ */
+@SuppressWarnings("serial")
+public class TermSetFilter extends Filter {
+	private static final int BUFFER_SIZE = 64;
+
+	private final String field;
+	private final Set<String> values;
+
+	/**
+	 * @param field the field to look the terms up in
+	 * @param values the text of the terms
+	 */
+	public TermSetFilter(String field, Collection<String> values) {
+		if ( field == null || values == null ) {
+			throw new IllegalArgumentException( "The field and the values of a TermSetFilter cannot be null" );
+		}
+		this.field = field;
+		// sorted, so that terms are looked up in index order
+		this.values = new TreeSet<String>( values );
+	}
+
+	@Override
+	public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+		OpenBitSet bits = new OpenBitSet( reader.maxDoc() );
+		Term template = new Term( field );
+		int[] docs = new int[BUFFER_SIZE];
+		int[] freqs = new int[BUFFER_SIZE];
+		TermDocs termDocs = reader.termDocs();
+		try {
+			for ( String value : values ) {
+				termDocs.seek( template.createTerm( value ) );
+				int count;
+				while ( ( count = termDocs.read( docs, freqs ) ) > 0 ) {
+					for ( int i = 0; i < count; i++ ) {
+						bits.fastSet( docs[i] );
+					}
+				}
+			}
+		}
+		finally {
+			termDocs.close();
+		}
+		return bits;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if ( this == o ) {
+			return true;
+		}
+		if ( !( o instanceof TermSetFilter ) ) {
+			return false;
+		}
+		TermSetFilter that = (TermSetFilter) o;
+		return field.equals( that.field ) && values.equals( that.values );
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * field.hashCode() + values.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "TermSetFilter(" + field + ":" + values + ")";
+	}
+}
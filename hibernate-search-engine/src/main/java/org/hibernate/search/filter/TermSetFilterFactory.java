@@ -0,0 +1,80 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.lucene.search.Filter;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.annotations.Factory;
+import org.hibernate.search.annotations.Key;
+
+/**
+ * Filter factory creating a {@link TermSetFilter}, so that it can be declared on a mapping:
+ * <pre>
+ * &#64;FullTextFilterDef(name = "pets", impl = TermSetFilterFactory.class, params = {
+ *         &#64;Parameter(name = "field", value = "species"),
+ *         &#64;Parameter(name = "values", value = "dog,cat") })
+ * </pre>
+ * The parameters can be set on the query as well, the values either as a comma separated string
+ * or as a collection.
+ */
+public class TermSetFilterFactory {
+	private String field;
+	private final Set<String> values = new TreeSet<String>();
+
+	public void setField(String field) {
+		this.field = field;
+	}
+
+	public void setValues(Object values) {
+		this.values.clear();
+		if ( values instanceof Collection ) {
+			for ( Object value : (Collection<?>) values ) {
+				this.values.add( String.valueOf( value ) );
+			}
+		}
+		else if ( values != null ) {
+			for ( String value : values.toString().split( "," ) ) {
+				this.values.add( value.trim() );
+			}
+		}
+	}
+
+	@Key
+	public FilterKey getKey() {
+		StandardFilterKey key = new StandardFilterKey();
+		key.addParameter( field );
+		key.addParameter( values );
+		return key;
+	}
+
+	@Factory
+	public Filter getFilter() {
+		if ( field == null ) {
+			throw new SearchException( "The field parameter of a TermSetFilterFactory is not set" );
+		}
+		return new TermSetFilter( field, values );
+	}
+}
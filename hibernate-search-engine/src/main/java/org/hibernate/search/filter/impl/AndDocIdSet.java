@@ -25,144 +25,144 @@ package org.hibernate.search.filter.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.DocIdBitSet;
 import org.apache.lucene.util.OpenBitSet;
-
-import static java.lang.Math.max;
+import org.apache.lucene.util.SortedVIntList;
 
 /**
  * A DocIdSet built as applying "AND" operation to a list of other DocIdSet(s).
  * The DocIdSetIterator returned will return only document ids contained
  * in all DocIdSet(s) handed to the constructor.
+ * <p/>
+ * The intersection is computed lazily while iterating: the iterator of the set expected to hold the fewest
+ * documents leads, and the other iterators are advanced to its candidates in turn, so that the cost depends on
+ * the size of the smallest set rather than on the number of documents in the index. Bit sets, which can be
+ * advanced at no cost, are checked last.
  *
  * @author Sanne Grinovero
  * @author Hardy Ferentschik
  */
 public class AndDocIdSet extends DocIdSet {
 
-	private DocIdSet docIdBitSet;
-	private final List<DocIdSet> andedDocIdSets;
-	private final int maxDocNumber;
+	private final DocIdSet[] andedDocIdSets;
 
 	public AndDocIdSet(List<DocIdSet> andedDocIdSets, int maxDocs) {
 		if ( andedDocIdSets == null || andedDocIdSets.size() < 2 ) {
 			throw new IllegalArgumentException( "To \"and\" some DocIdSet(s) they should be at least 2" );
 		}
-		this.andedDocIdSets = new ArrayList<DocIdSet>( andedDocIdSets ); // make a defensive mutable copy
-		this.maxDocNumber = maxDocs;
+		this.andedDocIdSets = andedDocIdSets.toArray( new DocIdSet[andedDocIdSets.size()] );
+		Arrays.sort( this.andedDocIdSets, new EstimatedCostComparator( maxDocs ) );
 	}
 
 	@Override
 	public DocIdSetIterator iterator() throws IOException {
-		return buildBitSet().iterator();
+		int size = andedDocIdSets.length;
+		List<DocIdSetIterator> iterators = new ArrayList<DocIdSetIterator>( size );
+		for ( DocIdSet docIdSet : andedDocIdSets ) {
+			DocIdSetIterator docIdSetIterator = docIdSet.iterator();
+			if ( docIdSetIterator == null ) {
+				// the Lucene API permits to return null on any iterator for empty matches
+				return DocIdSet.EMPTY_DOCIDSET.iterator();
+			}
+			iterators.add( docIdSetIterator );
+		}
+		return new LeapfrogIterator( iterators );
 	}
 
+	/**
+	 * The intersection is computed again on each iteration, caches need to collect it.
+	 */
 	@Override
 	public boolean isCacheable() {
-		return true;
+		return false;
 	}
 
-	private synchronized DocIdSet buildBitSet() throws IOException {
-		if ( docIdBitSet != null ) {
-			return docIdBitSet;
-		} // check for concurrent initialization
-		//TODO if all andedDocIdSets are actually DocIdBitSet, use their internal BitSet instead of next algo.
-		//TODO if some andedDocIdSets are DocIdBitSet, merge them first.
-		int size = andedDocIdSets.size();
-		DocIdSetIterator[] iterators = new DocIdSetIterator[size];
-		for ( int i = 0; i < size; i++ ) {
-			// build all iterators
-			DocIdSetIterator docIdSetIterator = andedDocIdSets.get( i ).iterator();
-			if ( docIdSetIterator == null ) {
-				// the Lucene API permits to return null on any iterator for empty matches
-				return DocIdSet.EMPTY_DOCIDSET;
-			}
-			iterators[i] = docIdSetIterator;
+	private static final class LeapfrogIterator extends DocIdSetIterator {
+		private final DocIdSetIterator lead;
+		private final DocIdSetIterator[] others;
+		private int doc = -1;
+
+		LeapfrogIterator(List<DocIdSetIterator> iterators) {
+			this.lead = iterators.get( 0 );
+			this.others = iterators.subList( 1, iterators.size() ).toArray( new DocIdSetIterator[iterators.size() - 1] );
 		}
-		andedDocIdSets.clear(); // contained DocIdSets are not needed any more, release them.
-		docIdBitSet = makeDocIdSetOnAgreedBits( iterators ); // before returning hold a copy as cache
-		return docIdBitSet;
-	}
 
-	private DocIdSet makeDocIdSetOnAgreedBits(final DocIdSetIterator[] iterators) throws IOException {
-		final OpenBitSet result = new OpenBitSet( maxDocNumber );
-		final int numberOfIterators = iterators.length;
+		@Override
+		public int docID() {
+			return doc;
+		}
 
-		int targetPosition = findFirstTargetPosition( iterators, result );
+		@Override
+		public int nextDoc() throws IOException {
+			return doc = agreeOn( lead.nextDoc() );
+		}
 
-		if ( targetPosition == DocIdSetIterator.NO_MORE_DOCS ) {
-			return DocIdSet.EMPTY_DOCIDSET;
+		@Override
+		public int advance(int target) throws IOException {
+			return doc = agreeOn( lead.advance( target ) );
 		}
 
-		// Each iterator can vote "ok" for the current target to
-		// be reached; when all agree the bit is set.
-		// if an iterator disagrees (it jumped longer), it's current position becomes the new targetPosition
-		// for the others and he is considered "first" in the voting round (every iterator votes for himself ;-)
-
-		int i = 0;
-		int votes = 0; //could be smarter but would make the code even more complex for a minor optimization out of cycle.
-		// enter main loop:
-		while ( true ) {
-			final DocIdSetIterator iterator = iterators[i];
-			int position = targetPosition;
-			if ( !iteratorAlreadyOnTargetPosition( targetPosition, iterator ) ) {
-				position = iterator.advance( targetPosition );
-			}
-			if ( position == DocIdSetIterator.NO_MORE_DOCS ) {
-				return result;
-			} //exit condition
-			if ( position == targetPosition ) {
-				if ( ++votes == numberOfIterators ) {
-					result.fastSet( position );
-					votes = 0;
-					targetPosition++;
+		/**
+		 * Advances the other iterators to the candidate of the lead iterator. When one of them jumps past it,
+		 * the lead iterator is advanced to the new position in turn, until all iterators agree.
+		 */
+		private int agreeOn(int candidate) throws IOException {
+			candidates:
+			while ( candidate != NO_MORE_DOCS ) {
+				for ( DocIdSetIterator other : others ) {
+					int otherDoc = other.docID();
+					// see HSEARCH-610, the iterator may already be on the candidate
+					if ( otherDoc < candidate ) {
+						otherDoc = other.advance( candidate );
+					}
+					if ( otherDoc > candidate ) {
+						candidate = lead.advance( otherDoc );
+						continue candidates;
+					}
 				}
+				return candidate;
 			}
-			else {
-				votes = 1;
-				targetPosition = position;
-			}
-			i = ++i % numberOfIterators;
+			return NO_MORE_DOCS;
 		}
 	}
 
-	// see  HSEARCH-610
-	private boolean iteratorAlreadyOnTargetPosition(int targetPosition, DocIdSetIterator iterator) {
-		return iterator.docID() == targetPosition;
-	}
+	/**
+	 * Orders sets by the number of documents they are expected to hold, bit sets last.
+	 */
+	private static final class EstimatedCostComparator implements Comparator<DocIdSet> {
+		private final long maxDocs;
 
-	private int findFirstTargetPosition(final DocIdSetIterator[] iterators, OpenBitSet result) throws IOException {
-		int targetPosition = iterators[0].nextDoc();
-		if ( targetPosition == DocIdSetIterator.NO_MORE_DOCS ) {
-			// first iterator has no values, so skip all
-			return DocIdSetIterator.NO_MORE_DOCS;
+		EstimatedCostComparator(int maxDocs) {
+			this.maxDocs = maxDocs;
 		}
 
-		boolean allIteratorsShareSameFirstTarget = true;
+		public int compare(DocIdSet set1, DocIdSet set2) {
+			long cost1 = estimateCost( set1 );
+			long cost2 = estimateCost( set2 );
+			return cost1 < cost2 ? -1 : ( cost1 == cost2 ? 0 : 1 );
+		}
 
-		//iterator initialize, just one "next" for each DocIdSetIterator
-		for ( int i = 1; i < iterators.length; i++ ) {
-			final DocIdSetIterator iterator = iterators[i];
-			final int position = iterator.nextDoc();
-			if ( position == DocIdSetIterator.NO_MORE_DOCS ) {
-				//current iterator has no values, so skip all
-				return DocIdSetIterator.NO_MORE_DOCS;
+		private long estimateCost(DocIdSet docIdSet) {
+			if ( docIdSet instanceof SortedIntDocIdSet ) {
+				return ( (SortedIntDocIdSet) docIdSet ).cardinality();
 			}
-			if ( targetPosition != position ) {
-				targetPosition = max( targetPosition, position );
-				allIteratorsShareSameFirstTarget = false;
+			else if ( docIdSet instanceof WordAlignedDocIdSet ) {
+				return ( (WordAlignedDocIdSet) docIdSet ).cardinality();
 			}
+			else if ( docIdSet instanceof SortedVIntList ) {
+				return ( (SortedVIntList) docIdSet ).size();
+			}
+			else if ( docIdSet instanceof OpenBitSet || docIdSet instanceof DocIdBitSet ) {
+				return maxDocs + 1;
+			}
+			// unknown, possibly iterating over all documents
+			return maxDocs;
 		}
-		// end iterator initialize
-
-		if ( allIteratorsShareSameFirstTarget ) {
-			result.fastSet( targetPosition );
-			targetPosition++;
-		}
-
-		return targetPosition;
 	}
 }
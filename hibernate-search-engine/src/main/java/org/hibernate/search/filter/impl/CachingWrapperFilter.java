@@ -24,12 +24,22 @@
 package org.hibernate.search.filter.impl;
 
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredDocIdSet;
 
-import org.hibernate.search.util.impl.SoftLimitMRUCache;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
 
@@ -37,6 +47,12 @@ import org.hibernate.search.util.logging.impl.LoggerFactory;
  * A slightly different version of Lucene's original <code>CachingWrapperFilter</code> which
  * uses <code>SoftReferences</code> instead of <code>WeakReferences</code> in order to cache
  * the filter <code>BitSet</code>.
+ * <p/>
+ * Searches ask filters for the <code>DocIdSet</code> of each segment, so results are cached per segment core:
+ * when the index is reopened only the new segments are filtered, while segments which just got more deleted
+ * documents reuse their cached result with the deleted documents excluded. Lookups don't lock, concurrent
+ * misses on the same segment may compute the result more than once. Results are cached in the representation
+ * taking the least memory, see {@link DocIdSetCompressionHelper}.
  *
  * @author Hardy Ferentschik
  * @see org.apache.lucene.search.CachingWrapperFilter
@@ -50,17 +66,41 @@ public class CachingWrapperFilter extends Filter {
 	public static final int DEFAULT_SIZE = 5;
 
 	/**
-	 * The cache using soft references in order to store the filter bit sets.
+	 * The cached results by segment core. Segment cores are weakly referenced, so that results are released
+	 * together with the segments, and results are softly referenced.
 	 */
-	private final SoftLimitMRUCache cache;
+	private final ConcurrentMap<CoreKey, CachedDocIdSet> cache = new ConcurrentHashMap<CoreKey, CachedDocIdSet>();
+
+	private final ReferenceQueue<Object> releasedCoreKeys = new ReferenceQueue<Object>();
+
+	private final ReferenceQueue<DocIdSet> releasedDocIdSets = new ReferenceQueue<DocIdSet>();
+
+	/**
+	 * The most recently computed results, which are kept with hard references.
+	 */
+	private final AtomicReferenceArray<DocIdSet> recentDocIdSets;
+
+	private final AtomicInteger nextRecentDocIdSet = new AtomicInteger();
+
+	/**
+	 * The memory taken by the cached results, results released by the garbage collector are subtracted once
+	 * their references are enqueued.
+	 */
+	private final AtomicLong cachedBytes = new AtomicLong();
+
+	/**
+	 * The number of results computed and the time spent computing them
+	 */
+	private final AtomicLong computationCount = new AtomicLong();
+	private final AtomicLong computationNanos = new AtomicLong();
 
 	private final Filter filter;
 
 	/**
-	 * Under memory pressure the JVM will release all Soft references,
-	 * so pushing it too high will invalidate all eventually useful other caches.
+	 * True if all the cached results are kept with hard references, their memory being bounded by the
+	 * filter caching strategy instead
 	 */
-	private static final int HARD_TO_SOFT_RATIO = 15;
+	private final boolean hardReferences;
 
 	/**
 	 * @param filter Filter to cache results of
@@ -71,30 +111,116 @@ public class CachingWrapperFilter extends Filter {
 
 	/**
 	 * @param filter Filter to cache results of
-	 * @param size soft reference size (gets multiplied by {@link #HARD_TO_SOFT_RATIO}.
+	 * @param size the number of most recently computed segment results kept with hard references
 	 */
 	public CachingWrapperFilter(Filter filter, int size) {
+		this( filter, size, false );
+	}
+
+	/**
+	 * @param filter Filter to cache results of
+	 * @param size the number of most recently computed segment results kept with hard references
+	 * @param hardReferences true to keep all the cached results with hard references, so that the garbage collector
+	 * doesn't release them
+	 */
+	public CachingWrapperFilter(Filter filter, int size, boolean hardReferences) {
 		this.filter = filter;
-		final int softRefSize = size * HARD_TO_SOFT_RATIO;
-		log.debugf( "Initialising SoftLimitMRUCache with hard ref size of %d and a soft ref of %d", size, softRefSize );
-		this.cache = new SoftLimitMRUCache( size, softRefSize );
+		this.hardReferences = hardReferences;
+		log.debugf( "Initialising per segment filter cache with hard ref size of %d", size );
+		this.recentDocIdSets = new AtomicReferenceArray<DocIdSet>( Math.max( size, 1 ) );
 	}
 
 	@Override
 	public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
-		DocIdSet cached = (DocIdSet) cache.get( reader );
+		expungeReleasedSegments();
+		CoreKey key = new CoreKey( reader.getCoreCacheKey(), null );
+		int numDeletedDocs = reader.numDeletedDocs();
+		CachedDocIdSet cached = cache.get( key );
 		if ( cached != null ) {
-			return cached;
+			DocIdSet docIdSet = cached.get();
+			if ( docIdSet != null && numDeletedDocs >= cached.numDeletedDocs ) {
+				return excludeNewDeletions( docIdSet, reader, numDeletedDocs - cached.numDeletedDocs );
+			}
 		}
-		synchronized ( cache ) {
-			cached = (DocIdSet) cache.get( reader );
-			if ( cached != null ) {
-				return cached;
+		long start = System.nanoTime();
+		final DocIdSet docIdSet = docIdSetToCache( filter.getDocIdSet( reader ), reader );
+		computationNanos.addAndGet( System.nanoTime() - start );
+		computationCount.incrementAndGet();
+		// deletions only grow for a segment core: a reader with more deletions than the cached
+		// result can use it, unlike an older reader with fewer deletions
+		if ( cached == null || cached.get() == null || numDeletedDocs > cached.numDeletedDocs ) {
+			CoreKey coreKey = new CoreKey( reader.getCoreCacheKey(), releasedCoreKeys );
+			CachedDocIdSet newlyCached = new CachedDocIdSet(
+					docIdSet, numDeletedDocs, coreKey, releasedDocIdSets, hardReferences
+			);
+			cachedBytes.addAndGet( newlyCached.sizeInBytes );
+			CachedDocIdSet replaced = cache.put( coreKey, newlyCached );
+			if ( replaced != null ) {
+				cachedBytes.addAndGet( -replaced.release() );
 			}
-			final DocIdSet docIdSet = filter.getDocIdSet( reader );
-			cache.put( reader, docIdSet );
+			int slot = ( nextRecentDocIdSet.getAndIncrement() & Integer.MAX_VALUE ) % recentDocIdSets.length();
+			recentDocIdSets.set( slot, docIdSet );
+		}
+		return docIdSet;
+	}
+
+	/**
+	 * @return an estimate of the memory taken by the cached results
+	 */
+	public long getCachedBytes() {
+		expungeReleasedSegments();
+		return cachedBytes.get();
+	}
+
+	/**
+	 * @return the number of segment results computed so far, as they were not cached
+	 */
+	public long getComputationCount() {
+		return computationCount.get();
+	}
+
+	/**
+	 * @return the time in nanoseconds spent computing segment results so far
+	 */
+	public long getComputationNanos() {
+		return computationNanos.get();
+	}
+
+	/**
+	 * Results which recompute the matching documents on iteration, like the ones of query wrapping filters,
+	 * are not worth caching as they are: the matching documents are collected, in the representation taking
+	 * the least memory.
+	 */
+	private DocIdSet docIdSetToCache(DocIdSet docIdSet, IndexReader reader) throws IOException {
+		return DocIdSetCompressionHelper.compress( docIdSet, reader.maxDoc() );
+	}
+
+	private DocIdSet excludeNewDeletions(DocIdSet docIdSet, final IndexReader reader, int newDeletions) {
+		if ( newDeletions == 0 ) {
 			return docIdSet;
 		}
+		return new FilteredDocIdSet( docIdSet ) {
+			@Override
+			protected boolean match(int docId) {
+				return !reader.isDeleted( docId );
+			}
+		};
+	}
+
+	private void expungeReleasedSegments() {
+		Reference<?> releasedCoreKey;
+		while ( ( releasedCoreKey = releasedCoreKeys.poll() ) != null ) {
+			CachedDocIdSet released = cache.remove( releasedCoreKey );
+			if ( released != null ) {
+				cachedBytes.addAndGet( -released.release() );
+			}
+		}
+		Reference<? extends DocIdSet> releasedDocIdSet;
+		while ( ( releasedDocIdSet = releasedDocIdSets.poll() ) != null ) {
+			CachedDocIdSet released = (CachedDocIdSet) releasedDocIdSet;
+			cache.remove( released.coreKey, released );
+			cachedBytes.addAndGet( -released.release() );
+		}
 	}
 
 	public String toString() {
@@ -111,4 +237,67 @@ public class CachingWrapperFilter extends Filter {
 	public int hashCode() {
 		return filter.hashCode() ^ 0x1117BF25;
 	}
+
+	/**
+	 * Weak reference to a segment core, compared by identity.
+	 */
+	private static final class CoreKey extends WeakReference<Object> {
+		private final int hashCode;
+
+		CoreKey(Object coreCacheKey, ReferenceQueue<Object> queue) {
+			super( coreCacheKey, queue );
+			this.hashCode = System.identityHashCode( coreCacheKey );
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( !( o instanceof CoreKey ) ) {
+				return false;
+			}
+			Object coreCacheKey = get();
+			return coreCacheKey != null && coreCacheKey == ( (CoreKey) o ).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * A cached result together with the number of deleted documents of the segment it was computed on, and its size.
+	 */
+	private static final class CachedDocIdSet extends SoftReference<DocIdSet> {
+		private final int numDeletedDocs;
+		private final long sizeInBytes;
+		private final CoreKey coreKey;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		/**
+		 * The result if it is kept with a hard reference, so that the soft reference is never cleared
+		 */
+		private final DocIdSet hardReference;
+
+		CachedDocIdSet(DocIdSet docIdSet, int numDeletedDocs, CoreKey coreKey, ReferenceQueue<DocIdSet> queue,
+				boolean hardReference) {
+			super( docIdSet, queue );
+			this.hardReference = hardReference ? docIdSet : null;
+			this.numDeletedDocs = numDeletedDocs;
+			this.sizeInBytes = DocIdSetCompressionHelper.sizeInBytes( docIdSet );
+			this.coreKey = coreKey;
+		}
+
+		/**
+		 * A result can be released both by being replaced or by its segment being released, and by the
+		 * garbage collector: its size is only to be subtracted once.
+		 *
+		 * @return the size of the result the first time it is released, 0 afterwards
+		 */
+		long release() {
+			return released.compareAndSet( false, true ) ? sizeInBytes : 0;
+		}
+	}
 }
@@ -97,6 +97,22 @@ public class ChainedFilter extends Filter {
 		}
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if ( this == o ) {
+			return true;
+		}
+		if ( o == null || getClass() != o.getClass() ) {
+			return false;
+		}
+		return chainedFilters.equals( ( (ChainedFilter) o ).chainedFilters );
+	}
+
+	@Override
+	public int hashCode() {
+		return chainedFilters.hashCode();
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
@@ -0,0 +1,281 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.lucene.search.Filter;
+
+import org.hibernate.search.Environment;
+import org.hibernate.search.filter.FilterCachingStrategy;
+import org.hibernate.search.filter.FilterKey;
+import org.hibernate.search.stat.FilterCacheStatistics;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
+
+/**
+ * Keeps the Filters worth the memory taken by the results they cache, with hard references only.
+ * <p/>
+ * The results cached by {@link CachingWrapperFilter} may take at most
+ * <code>hibernate.search.filter.cache_strategy.max_bytes</code> (defaults to 64 MB), and at most
+ * <code>hibernate.search.filter.cache_strategy.size</code> times 15 Filters are kept. Beyond these bounds the
+ * Filters of least value are evicted, the value of a Filter being the average time spent computing a segment
+ * result, times its recent hit count, divided by the memory taken by its cached results: cheap Filters with
+ * large results go first, while expensive Filters stay even if used less often. Hit counts are halved
+ * periodically so that Filters no longer used eventually lose their value.
+ * <p/>
+ * The memory taken by a Filter is updated as it gets used, and the bounds are enforced as Filters are added:
+ * lookups don't scan the cache.
+ * <p/>
+ * Unlike {@link MRUFilterCachingStrategy} no soft references are used: the Filters are kept with hard references,
+ * and so are the results cached by the {@link CachingWrapperFilter}s created while this strategy is active, so the
+ * cache doesn't get cleared as a whole by the garbage collector under memory pressure. A Filter being added which
+ * caches no results yet is not evicted to bound the number of Filters, as it had no chance to be used yet.
+ */
+public class CostBasedFilterCachingStrategy implements FilterCachingStrategy, FilterCacheStatistics {
+	private static final int DEFAULT_SIZE = 128;
+	private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+	private static final String SIZE = Environment.FILTER_CACHING_STRATEGY + ".size";
+	private static final String MAX_BYTES = Environment.FILTER_CACHING_STRATEGY + ".max_bytes";
+
+	/**
+	 * As many Filters as {@link MRUFilterCachingStrategy} keeps with hard and soft references.
+	 */
+	private static final int MAX_FILTERS_RATIO = 15;
+
+	/**
+	 * The memory accounted for a Filter besides its cached results, so that Filters caching no results
+	 * have a value as well.
+	 */
+	private static final long FILTER_OVERHEAD_BYTES = 64;
+
+	private final Map<FilterKey, CachedFilter> cache = new HashMap<FilterKey, CachedFilter>();
+
+	/**
+	 * The memory taken by the results cached by the Filters, as last seen
+	 */
+	private long cachedBytes;
+	private long maxBytes;
+	private int maxFilters;
+
+	private long accessCount;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public void initialize(Properties properties) {
+		int size = ConfigurationParseHelper.getIntValue( properties, SIZE, DEFAULT_SIZE );
+		maxFilters = Math.max( 1, size * MAX_FILTERS_RATIO );
+		maxBytes = ConfigurationParseHelper.getLongValue( properties, MAX_BYTES, DEFAULT_MAX_BYTES );
+	}
+
+	public Filter getCachedFilter(FilterKey key) {
+		synchronized ( cache ) {
+			accessed();
+			CachedFilter cached = cache.get( key );
+			if ( cached == null ) {
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			cached.hits++;
+			// cached results grow as the Filter gets used, they are accounted for and evicted on the next addition
+			updateSize( cached );
+			return cached.filter;
+		}
+	}
+
+	public void addCachedFilter(FilterKey key, Filter filter) {
+		synchronized ( cache ) {
+			CachedFilter cached = new CachedFilter( filter );
+			updateSize( cached );
+			CachedFilter replaced = cache.put( key, cached );
+			if ( replaced != null ) {
+				cachedBytes -= replaced.sizeInBytes;
+			}
+			if ( isOverBounds() ) {
+				evictLeastValuable( key );
+			}
+		}
+	}
+
+	/**
+	 * Halves the hit counts once every {@code maxFilters} lookups, so that they reflect the recent use of Filters.
+	 */
+	private void accessed() {
+		if ( ++accessCount % maxFilters == 0 ) {
+			for ( CachedFilter cached : cache.values() ) {
+				cached.hits >>= 1;
+			}
+		}
+	}
+
+	private boolean isOverBounds() {
+		return cachedBytes > maxBytes || cache.size() > maxFilters;
+	}
+
+	private void updateSize(CachedFilter cached) {
+		long sizeInBytes = cached.currentSizeInBytes();
+		cachedBytes += sizeInBytes - cached.sizeInBytes;
+		cached.sizeInBytes = sizeInBytes;
+	}
+
+	/**
+	 * Evicts the Filters of least value until the cache fits its bounds. The sizes of all Filters are updated
+	 * first, as Filters not used recently may have had their results released.
+	 *
+	 * @param addedKey the key of the Filter being added, only evicted for the memory taken by its results
+	 */
+	private void evictLeastValuable(FilterKey addedKey) {
+		for ( CachedFilter cached : cache.values() ) {
+			updateSize( cached );
+		}
+		if ( !isOverBounds() ) {
+			return;
+		}
+		// snapshot the values, they change as Filters are used concurrently
+		List<ValuedFilter> candidates = new ArrayList<ValuedFilter>( cache.size() );
+		for ( Map.Entry<FilterKey, CachedFilter> entry : cache.entrySet() ) {
+			candidates.add( new ValuedFilter( entry.getKey(), entry.getValue() ) );
+		}
+		ValuedFilter[] byValue = candidates.toArray( new ValuedFilter[candidates.size()] );
+		Arrays.sort( byValue );
+		for ( ValuedFilter candidate : byValue ) {
+			boolean tooManyFilters = cache.size() > maxFilters;
+			if ( !tooManyFilters && cachedBytes <= maxBytes ) {
+				break;
+			}
+			if ( candidate.key.equals( addedKey ) && candidate.cached.sizeInBytes == 0 ) {
+				// valued as if never used, while it wasn't even computed yet
+				continue;
+			}
+			// evicting Filters caching no results doesn't free memory
+			if ( tooManyFilters || candidate.cached.sizeInBytes > 0 ) {
+				cache.remove( candidate.key );
+				cachedBytes -= candidate.cached.sizeInBytes;
+				evictionCount++;
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized ( cache ) {
+			hitCount = 0;
+			missCount = 0;
+			evictionCount = 0;
+		}
+	}
+
+	public long getFilterCacheHitCount() {
+		synchronized ( cache ) {
+			return hitCount;
+		}
+	}
+
+	public long getFilterCacheMissCount() {
+		synchronized ( cache ) {
+			return missCount;
+		}
+	}
+
+	public long getFilterCacheEvictionCount() {
+		synchronized ( cache ) {
+			return evictionCount;
+		}
+	}
+
+	public int getCachedFilterCount() {
+		synchronized ( cache ) {
+			return cache.size();
+		}
+	}
+
+	public long getCachedBytes() {
+		synchronized ( cache ) {
+			return cachedBytes;
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public String[] getCachedFilterStatistics() {
+		synchronized ( cache ) {
+			List<String> statistics = new ArrayList<String>( cache.size() );
+			for ( CachedFilter cached : cache.values() ) {
+				statistics.add(
+						cached.filter + ": hits=" + cached.hits
+								+ ", bytes=" + cached.sizeInBytes
+								+ ", averageComputationTime=" + cached.averageComputationNanos() + "ns"
+				);
+			}
+			return statistics.toArray( new String[statistics.size()] );
+		}
+	}
+
+	private static final class CachedFilter {
+		private final Filter filter;
+		private long hits;
+		private long sizeInBytes;
+
+		CachedFilter(Filter filter) {
+			this.filter = filter;
+		}
+
+		long currentSizeInBytes() {
+			return filter instanceof CachingWrapperFilter ? ( (CachingWrapperFilter) filter ).getCachedBytes() : 0;
+		}
+
+		/**
+		 * @return the average time spent computing a segment result, 0 if unknown
+		 */
+		long averageComputationNanos() {
+			if ( !( filter instanceof CachingWrapperFilter ) ) {
+				return 0;
+			}
+			CachingWrapperFilter cachingFilter = (CachingWrapperFilter) filter;
+			long computationCount = cachingFilter.getComputationCount();
+			return computationCount == 0 ? 0 : cachingFilter.getComputationNanos() / computationCount;
+		}
+	}
+
+	private static final class ValuedFilter implements Comparable<ValuedFilter> {
+		private final FilterKey key;
+		private final CachedFilter cached;
+		private final double value;
+
+		ValuedFilter(FilterKey key, CachedFilter cached) {
+			this.key = key;
+			this.cached = cached;
+			this.value = ( cached.hits + 1 ) * (double) Math.max( 1, cached.averageComputationNanos() )
+					/ ( cached.sizeInBytes + FILTER_OVERHEAD_BYTES );
+		}
+
+		public int compareTo(ValuedFilter other) {
+			return Double.compare( value, other.value );
+		}
+	}
+}
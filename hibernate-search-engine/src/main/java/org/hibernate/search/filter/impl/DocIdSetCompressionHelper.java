@@ -0,0 +1,129 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter.impl;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.OpenBitSetDISI;
+
+/**
+ * Helper class choosing the representation of the {@code DocIdSet}s kept in memory, like cached filter results,
+ * depending on how many documents they hold and how these are distributed: a sorted array of document ids for
+ * sparse sets, a run compressed bit set for clustered sets and a plain bit set otherwise.
+ */
+public class DocIdSetCompressionHelper {
+
+	/**
+	 * A compressed representation is only chosen if it takes at most this fraction of the memory of a bit set,
+	 * as bit sets are faster to iterate and to combine.
+	 */
+	private static final int MIN_COMPRESSION_RATIO = 2;
+
+	private DocIdSetCompressionHelper() {
+	}
+
+	/**
+	 * @param docIdSet the set to compress, can be {@code null}
+	 * @param maxDoc the maximum document id of the set plus one
+	 *
+	 * @return the smallest representation of the set
+	 *
+	 * @throws IOException in case the set can't be iterated
+	 */
+	public static DocIdSet compress(DocIdSet docIdSet, int maxDoc) throws IOException {
+		if ( docIdSet == null || docIdSet == DocIdSet.EMPTY_DOCIDSET ) {
+			return DocIdSet.EMPTY_DOCIDSET;
+		}
+		if ( docIdSet instanceof SortedIntDocIdSet || docIdSet instanceof WordAlignedDocIdSet ) {
+			return docIdSet;
+		}
+		OpenBitSet bits;
+		if ( docIdSet instanceof OpenBitSet ) {
+			bits = (OpenBitSet) docIdSet;
+		}
+		else {
+			DocIdSetIterator iterator = docIdSet.iterator();
+			if ( iterator == null ) {
+				return DocIdSet.EMPTY_DOCIDSET;
+			}
+			bits = new OpenBitSetDISI( iterator, maxDoc );
+		}
+		return compress( bits );
+	}
+
+	/**
+	 * @param bits the bit set to compress
+	 *
+	 * @return the smallest representation of the bit set, possibly the bit set itself
+	 */
+	public static DocIdSet compress(OpenBitSet bits) {
+		int cardinality = (int) bits.cardinality();
+		if ( cardinality == 0 ) {
+			return DocIdSet.EMPTY_DOCIDSET;
+		}
+		long bitSetBytes = 8L * bits.getNumWords();
+		long sortedIntBytes = 4L * cardinality;
+		long wordAlignedBytes = 8L * WordAlignedDocIdSet.compressedLength( bits.getBits(), bits.getNumWords() );
+		if ( sortedIntBytes <= wordAlignedBytes && sortedIntBytes * MIN_COMPRESSION_RATIO <= bitSetBytes ) {
+			return toSortedIntDocIdSet( bits, cardinality );
+		}
+		if ( wordAlignedBytes * MIN_COMPRESSION_RATIO <= bitSetBytes ) {
+			return WordAlignedDocIdSet.compress( bits.getBits(), bits.getNumWords(), cardinality );
+		}
+		return bits;
+	}
+
+	/**
+	 * @param docIdSet a set of documents
+	 *
+	 * @return an estimate of the memory taken by the set, {@code 0} if the set doesn't hold its documents
+	 */
+	public static long sizeInBytes(DocIdSet docIdSet) {
+		if ( docIdSet instanceof SortedIntDocIdSet ) {
+			return ( (SortedIntDocIdSet) docIdSet ).sizeInBytes();
+		}
+		if ( docIdSet instanceof WordAlignedDocIdSet ) {
+			return ( (WordAlignedDocIdSet) docIdSet ).sizeInBytes();
+		}
+		if ( docIdSet instanceof OpenBitSet ) {
+			return 8L * ( (OpenBitSet) docIdSet ).getBits().length;
+		}
+		return 0;
+	}
+
+	private static SortedIntDocIdSet toSortedIntDocIdSet(OpenBitSet bits, int cardinality) {
+		int[] docs = new int[cardinality];
+		long[] words = bits.getBits();
+		int numWords = bits.getNumWords();
+		int count = 0;
+		for ( int i = 0; i < numWords; i++ ) {
+			long word = words[i];
+			while ( word != 0L ) {
+				docs[count++] = ( i << 6 ) + Long.numberOfTrailingZeros( word );
+				word &= word - 1;
+			}
+		}
+		return new SortedIntDocIdSet( docs );
+	}
+}
@@ -23,11 +23,14 @@
  */
 package org.hibernate.search.filter.impl;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
 import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.DocIdBitSet;
 import org.apache.lucene.util.OpenBitSet;
 
@@ -42,6 +45,9 @@ public class FilterOptimizationHelper {
 	/**
 	 * Returns a new list of DocIdSet, applying binary AND
 	 * on all DocIdSet implemented by using BitSet or OpenBitSet.
+	 * When a list of few sorted documents is present its documents
+	 * are looked up in the bit sets instead, while compressed bit
+	 * sets are merged word by word into the other bit sets.
 	 * @param docIdSets
 	 * @return the same list if no changes were done
 	 */
@@ -49,6 +55,8 @@ public class FilterOptimizationHelper {
 		int size = docIdSets.size();
 		List<OpenBitSet> openBitSets = new ArrayList<OpenBitSet>( size );
 		List<DocIdBitSet> docIdBitSets = new ArrayList<DocIdBitSet>( size );
+		List<WordAlignedDocIdSet> wordAlignedSets = new ArrayList<WordAlignedDocIdSet>( size );
+		List<SortedIntDocIdSet> sortedIntSets = new ArrayList<SortedIntDocIdSet>( size );
 		List<DocIdSet> nonMergeAble = new ArrayList<DocIdSet>( size );
 		for (DocIdSet set : docIdSets) {
 			if (set instanceof OpenBitSet) {
@@ -57,23 +65,115 @@ public class FilterOptimizationHelper {
 			else if (set instanceof DocIdBitSet) {
 				docIdBitSets.add( (DocIdBitSet) set );
 			}
+			else if (set instanceof WordAlignedDocIdSet) {
+				wordAlignedSets.add( (WordAlignedDocIdSet) set );
+			}
+			else if (set instanceof SortedIntDocIdSet) {
+				sortedIntSets.add( (SortedIntDocIdSet) set );
+			}
 			else {
 				nonMergeAble.add( set );
 			}
 		}
-		if ( openBitSets.size() <= 1 && docIdBitSets.size() <= 1 ) {
+		int bitSets = openBitSets.size() + docIdBitSets.size();
+		if ( bitSets == 0 || ( bitSets == 1 && wordAlignedSets.isEmpty() && sortedIntSets.isEmpty() ) ) {
 			//skip all work as no optimization is possible
 			return docIdSets;
 		}
-		if ( openBitSets.size() > 0 ) {
-			nonMergeAble.add( mergeByBitAndsForOpenBitSet( openBitSets ) );
+		if ( sortedIntSets.isEmpty() ) {
+			nonMergeAble.add( mergeBitSets( openBitSets, docIdBitSets, wordAlignedSets ) );
 		}
-		if ( docIdBitSets.size() > 0 ) {
-			nonMergeAble.add( mergeByBitAndsForDocIdBitSet( docIdBitSets ) );
+		else {
+			// looking up few documents is cheaper than combining whole bit sets
+			SortedIntDocIdSet smallest = sortedIntSets.get( 0 );
+			for ( SortedIntDocIdSet sortedIntSet : sortedIntSets ) {
+				if ( sortedIntSet.cardinality() < smallest.cardinality() ) {
+					smallest = sortedIntSet;
+				}
+			}
+			sortedIntSets.remove( smallest );
+			nonMergeAble.add( lookupInBitSets( smallest, openBitSets, docIdBitSets ) );
+			nonMergeAble.addAll( sortedIntSets );
+			nonMergeAble.addAll( wordAlignedSets );
 		}
 		return nonMergeAble;
 	}
 
+	/**
+	 * Merges all bit sets in a new bit set using binary AND operations.
+	 * @return a new DocIdBitSet if only DocIdBitSet were found, an OpenBitSet otherwise
+	 */
+	private static DocIdSet mergeBitSets(List<OpenBitSet> openBitSets, List<DocIdBitSet> docIdBitSets,
+			List<WordAlignedDocIdSet> wordAlignedSets) {
+		if ( openBitSets.isEmpty() && wordAlignedSets.isEmpty() ) {
+			return mergeByBitAndsForDocIdBitSet( docIdBitSets );
+		}
+		OpenBitSet result;
+		int docIdBitSetsStart = 0;
+		if ( openBitSets.isEmpty() ) {
+			result = toOpenBitSet( docIdBitSets.get( 0 ).getBitSet() );
+			docIdBitSetsStart = 1;
+		}
+		else {
+			result = mergeByBitAndsForOpenBitSet( openBitSets );
+			if ( openBitSets.size() == 1 ) {
+				//we need to copy the OpenBitSet as it is going to be modified
+				result = (OpenBitSet) result.clone();
+			}
+		}
+		for ( WordAlignedDocIdSet wordAlignedSet : wordAlignedSets ) {
+			wordAlignedSet.intersect( result );
+		}
+		for ( int i = docIdBitSetsStart; i < docIdBitSets.size(); i++ ) {
+			BitSet bitSet = docIdBitSets.get( i ).getBitSet();
+			for ( int doc = result.nextSetBit( 0 ); doc >= 0; doc = result.nextSetBit( doc + 1 ) ) {
+				if ( !bitSet.get( doc ) ) {
+					result.fastClear( doc );
+				}
+			}
+		}
+		return result;
+	}
+
+	private static OpenBitSet toOpenBitSet(BitSet bitSet) {
+		OpenBitSet result = new OpenBitSet( bitSet.length() );
+		for ( int doc = bitSet.nextSetBit( 0 ); doc >= 0; doc = bitSet.nextSetBit( doc + 1 ) ) {
+			result.fastSet( doc );
+		}
+		return result;
+	}
+
+	/**
+	 * @return a new SortedIntDocIdSet holding the documents of {@code sortedIntSet} set in all bit sets
+	 */
+	private static SortedIntDocIdSet lookupInBitSets(SortedIntDocIdSet sortedIntSet, List<OpenBitSet> openBitSets,
+			List<DocIdBitSet> docIdBitSets) {
+		int[] docs = new int[sortedIntSet.cardinality()];
+		int count = 0;
+		DocIdSetIterator iterator = sortedIntSet.iterator();
+		try {
+			candidates:
+			for ( int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc() ) {
+				for ( OpenBitSet openBitSet : openBitSets ) {
+					if ( !openBitSet.get( doc ) ) {
+						continue candidates;
+					}
+				}
+				for ( DocIdBitSet docIdBitSet : docIdBitSets ) {
+					if ( !docIdBitSet.getBitSet().get( doc ) ) {
+						continue candidates;
+					}
+				}
+				docs[count++] = doc;
+			}
+		}
+		catch (IOException e) {
+			// can't happen, the documents are held in memory
+			throw new AssertionError( e );
+		}
+		return new SortedIntDocIdSet( Arrays.copyOf( docs, count ) );
+	}
+
 	/**
 	 * Merges all DocIdBitSet in a new DocIdBitSet using
 	 * binary AND operations, which is usually more efficient
@@ -23,6 +23,8 @@
  */
 package org.hibernate.search.filter.impl;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Properties;
 
 import org.apache.lucene.search.Filter;
@@ -36,6 +38,11 @@ import org.hibernate.search.util.impl.SoftLimitMRUCache;
  * Keep the most recently used Filters in the cache
  * The cache is at least as big as <code>hibernate.search.filter.cache_strategy.size</code>
  * Above this limit, Filters are kept as soft references
+ * <p/>
+ * When <code>hibernate.search.filter.cache_strategy.max_bytes</code> is set, the most recently used Filters are
+ * kept as long as the results they cache fit in the given number of bytes instead, up to
+ * <code>hibernate.search.filter.cache_strategy.size</code> times the hard to soft ratio of Filters.
+ * Only the results cached by {@link CachingWrapperFilter} are accounted for.
  *
  * @author Emmanuel Bernard
  */
@@ -43,6 +50,7 @@ public class MRUFilterCachingStrategy implements FilterCachingStrategy {
 	private static final int DEFAULT_SIZE = 128;
 	private SoftLimitMRUCache cache;
 	private static final String SIZE = Environment.FILTER_CACHING_STRATEGY + ".size";
+	private static final String MAX_BYTES = Environment.FILTER_CACHING_STRATEGY + ".max_bytes";
 
 	/**
 	 * Under memory pressure the JVM will release all Soft references,
@@ -50,16 +58,96 @@ public class MRUFilterCachingStrategy implements FilterCachingStrategy {
 	 */
 	private static final int HARD_TO_SOFT_RATIO = 15;
 
+	/**
+	 * The Filters by access order when the cache is bounded by bytes, and the memory taken by the results they
+	 * cache as last seen
+	 */
+	private LinkedHashMap<FilterKey, CachedFilter> byteBoundedCache;
+	private long cachedBytes;
+	private long maxBytes;
+	private int maxFilters;
+
 	public void initialize(Properties properties) {
 		int size = ConfigurationParseHelper.getIntValue( properties, SIZE, DEFAULT_SIZE );
-		cache = new SoftLimitMRUCache( size, size * HARD_TO_SOFT_RATIO );
+		maxBytes = ConfigurationParseHelper.getLongValue( properties, MAX_BYTES, 0L );
+		if ( maxBytes > 0 ) {
+			maxFilters = size * HARD_TO_SOFT_RATIO;
+			byteBoundedCache = new LinkedHashMap<FilterKey, CachedFilter>( 16, 0.75f, true );
+		}
+		else {
+			cache = new SoftLimitMRUCache( size, size * HARD_TO_SOFT_RATIO );
+		}
 	}
 
 	public Filter getCachedFilter(FilterKey key) {
+		if ( byteBoundedCache != null ) {
+			synchronized ( byteBoundedCache ) {
+				CachedFilter cached = byteBoundedCache.get( key );
+				if ( cached == null ) {
+					return null;
+				}
+				// cached results grow as the Filter gets used
+				updateSize( cached );
+				if ( isOverBounds() ) {
+					evictLeastRecentlyUsed();
+				}
+				return cached.filter;
+			}
+		}
 		return (Filter) cache.get( key );
 	}
 
 	public void addCachedFilter(FilterKey key, Filter filter) {
+		if ( byteBoundedCache != null ) {
+			synchronized ( byteBoundedCache ) {
+				CachedFilter cached = new CachedFilter( filter );
+				updateSize( cached );
+				CachedFilter replaced = byteBoundedCache.put( key, cached );
+				if ( replaced != null ) {
+					cachedBytes -= replaced.sizeInBytes;
+				}
+				evictLeastRecentlyUsed();
+			}
+			return;
+		}
 		cache.put( key, filter );
 	}
+
+	/**
+	 * Evicts the least recently used Filters until the cache fits its bounds, always keeping the most recently used.
+	 * The size of each Filter is updated before evicting it, as it may have shrunk since it was last used.
+	 */
+	private void evictLeastRecentlyUsed() {
+		Iterator<CachedFilter> leastRecentlyUsed = byteBoundedCache.values().iterator();
+		while ( byteBoundedCache.size() > 1 && isOverBounds() ) {
+			CachedFilter cached = leastRecentlyUsed.next();
+			updateSize( cached );
+			if ( !isOverBounds() ) {
+				return;
+			}
+			cachedBytes -= cached.sizeInBytes;
+			leastRecentlyUsed.remove();
+		}
+	}
+
+	private boolean isOverBounds() {
+		return cachedBytes > maxBytes || byteBoundedCache.size() > maxFilters;
+	}
+
+	private void updateSize(CachedFilter cached) {
+		long sizeInBytes = cached.filter instanceof CachingWrapperFilter ?
+				( (CachingWrapperFilter) cached.filter ).getCachedBytes() :
+				0;
+		cachedBytes += sizeInBytes - cached.sizeInBytes;
+		cached.sizeInBytes = sizeInBytes;
+	}
+
+	private static final class CachedFilter {
+		private final Filter filter;
+		private long sizeInBytes;
+
+		CachedFilter(Filter filter) {
+			this.filter = filter;
+		}
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter.impl;
+
+import java.util.Arrays;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * A {@code DocIdSet} holding its document ids in a sorted array, which takes less memory than a bit set
+ * when less than one document in 32 is set.
+ */
+public final class SortedIntDocIdSet extends DocIdSet {
+	private final int[] docs;
+
+	/**
+	 * @param docs the document ids in increasing order, without duplicates. The array is not copied.
+	 */
+	public SortedIntDocIdSet(int[] docs) {
+		this.docs = docs;
+	}
+
+	@Override
+	public DocIdSetIterator iterator() {
+		return new SortedIntDocIdSetIterator();
+	}
+
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	public int cardinality() {
+		return docs.length;
+	}
+
+	public long sizeInBytes() {
+		return 4L * docs.length;
+	}
+
+	private final class SortedIntDocIdSetIterator extends DocIdSetIterator {
+		private int index = -1;
+		private int doc = -1;
+
+		@Override
+		public int docID() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			if ( ++index >= docs.length ) {
+				index = docs.length;
+				return doc = NO_MORE_DOCS;
+			}
+			return doc = docs[index];
+		}
+
+		@Override
+		public int advance(int target) {
+			// gallop from the current position, then search the last interval
+			int low = index + 1;
+			int step = 1;
+			int high = low;
+			while ( high < docs.length && docs[high] < target ) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			int found = Arrays.binarySearch( docs, low, Math.min( high + 1, docs.length ), target );
+			index = found >= 0 ? found : -found - 1;
+			if ( index >= docs.length ) {
+				return doc = NO_MORE_DOCS;
+			}
+			return doc = docs[index];
+		}
+	}
+}
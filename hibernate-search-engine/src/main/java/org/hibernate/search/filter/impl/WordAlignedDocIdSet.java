@@ -0,0 +1,249 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.filter.impl;
+
+import java.util.Arrays;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * A {@code DocIdSet} holding a bit set compressed by runs of 64 bit words: runs of empty or full words are
+ * replaced by a marker word, while other words are kept as they are. This takes less memory than a plain bit set
+ * when documents are clustered, like the documents of an entity type indexed in bulk, and iterating skips
+ * empty runs at once.
+ * <p/>
+ * Each marker word holds the value of the run in its highest bit, the number of words of the run in the next
+ * 31 bits, and the number of literal words following the run in the lowest 32 bits.
+ */
+public final class WordAlignedDocIdSet extends DocIdSet {
+	private static final int MAX_RUN_LENGTH = Integer.MAX_VALUE;
+
+	private final long[] words;
+	private final int cardinality;
+
+	private WordAlignedDocIdSet(long[] words, int cardinality) {
+		this.words = words;
+		this.cardinality = cardinality;
+	}
+
+	/**
+	 * @param bits the words of a bit set
+	 * @param numWords the number of words in use
+	 *
+	 * @return the number of words needed to compress the bit set
+	 */
+	static int compressedLength(long[] bits, int numWords) {
+		int length = 0;
+		int i = 0;
+		while ( i < numWords ) {
+			long runWord = bits[i];
+			if ( runWord == 0L || runWord == -1L ) {
+				int runLength = 0;
+				while ( i < numWords && bits[i] == runWord && runLength < MAX_RUN_LENGTH ) {
+					i++;
+					runLength++;
+				}
+			}
+			while ( i < numWords && bits[i] != 0L && bits[i] != -1L ) {
+				i++;
+				length++;
+			}
+			// the marker
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * @param bits the words of a bit set
+	 * @param numWords the number of words in use
+	 * @param cardinality the number of bits set
+	 *
+	 * @return the compressed bit set
+	 */
+	static WordAlignedDocIdSet compress(long[] bits, int numWords, int cardinality) {
+		long[] words = new long[compressedLength( bits, numWords )];
+		int length = 0;
+		int i = 0;
+		while ( i < numWords ) {
+			long runWord = bits[i];
+			int runLength = 0;
+			if ( runWord == 0L || runWord == -1L ) {
+				while ( i < numWords && bits[i] == runWord && runLength < MAX_RUN_LENGTH ) {
+					i++;
+					runLength++;
+				}
+			}
+			int markerIndex = length++;
+			int literalCount = 0;
+			while ( i < numWords && bits[i] != 0L && bits[i] != -1L ) {
+				words[length++] = bits[i++];
+				literalCount++;
+			}
+			words[markerIndex] = ( runLength > 0 && runWord == -1L ? Long.MIN_VALUE : 0L )
+					| ( (long) runLength << 32 )
+					| literalCount;
+		}
+		return new WordAlignedDocIdSet( words, cardinality );
+	}
+
+	@Override
+	public DocIdSetIterator iterator() {
+		return new WordAlignedIterator();
+	}
+
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public long sizeInBytes() {
+		return 8L * words.length;
+	}
+
+	/**
+	 * Clears the bits of {@code bits} not set in this set, one word at a time: full runs leave the words
+	 * untouched and empty runs clear them at once.
+	 *
+	 * @param bits the bit set to intersect in place
+	 */
+	void intersect(OpenBitSet bits) {
+		long[] target = bits.getBits();
+		int numWords = bits.getNumWords();
+		int wordIndex = 0;
+		int position = 0;
+		while ( position < words.length && wordIndex < numWords ) {
+			long marker = words[position++];
+			int runLength = (int) ( ( marker >>> 32 ) & Integer.MAX_VALUE );
+			int literalCount = (int) marker;
+			int runEnd = (int) Math.min( (long) wordIndex + runLength, numWords );
+			if ( marker >= 0 ) {
+				Arrays.fill( target, wordIndex, runEnd, 0L );
+			}
+			wordIndex = runEnd;
+			for ( int i = 0; i < literalCount && wordIndex < numWords; i++ ) {
+				target[wordIndex++] &= words[position + i];
+			}
+			position += literalCount;
+		}
+		Arrays.fill( target, wordIndex, numWords, 0L );
+	}
+
+	private final class WordAlignedIterator extends DocIdSetIterator {
+		/**
+		 * The position of the next word to decode
+		 */
+		private int position;
+
+		/**
+		 * The words left in the current run and the literal words following it
+		 */
+		private int runWordsLeft;
+		private boolean fullRun;
+		private int literalWordsLeft;
+
+		/**
+		 * The index of the current word in the bit set, and its bits not iterated yet
+		 */
+		private int wordIndex = -1;
+		private long word;
+
+		private int doc = -1;
+
+		@Override
+		public int docID() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			while ( word == 0L ) {
+				if ( !nextWord( wordIndex + 1 ) ) {
+					return doc = NO_MORE_DOCS;
+				}
+			}
+			int bit = Long.numberOfTrailingZeros( word );
+			word &= word - 1;
+			return doc = ( wordIndex << 6 ) + bit;
+		}
+
+		@Override
+		public int advance(int target) {
+			int targetWordIndex = target >> 6;
+			while ( wordIndex < targetWordIndex ) {
+				if ( !nextWord( targetWordIndex ) ) {
+					return doc = NO_MORE_DOCS;
+				}
+			}
+			if ( wordIndex == targetWordIndex ) {
+				word &= -1L << ( target & 63 );
+			}
+			return nextDoc();
+		}
+
+		/**
+		 * Moves to the word of index {@code targetWordIndex}, or past it when it belongs to a run of empty words.
+		 *
+		 * @return {@code false} if there are no more words
+		 */
+		private boolean nextWord(int targetWordIndex) {
+			while ( true ) {
+				if ( runWordsLeft > 0 ) {
+					if ( fullRun ) {
+						// skip to the target at once, all the words of the run are alike
+						int skipped = Math.max( 1, Math.min( runWordsLeft, targetWordIndex - wordIndex ) );
+						wordIndex += skipped;
+						runWordsLeft -= skipped;
+						word = -1L;
+						return true;
+					}
+					wordIndex += runWordsLeft;
+					runWordsLeft = 0;
+					word = 0L;
+					if ( wordIndex >= targetWordIndex ) {
+						return true;
+					}
+				}
+				if ( literalWordsLeft > 0 ) {
+					int skipped = Math.max( 1, Math.min( literalWordsLeft, targetWordIndex - wordIndex ) );
+					position += skipped - 1;
+					wordIndex += skipped;
+					literalWordsLeft -= skipped;
+					word = words[position++];
+					return true;
+				}
+				if ( position >= words.length ) {
+					return false;
+				}
+				long marker = words[position++];
+				fullRun = marker < 0;
+				runWordsLeft = (int) ( ( marker >>> 32 ) & Integer.MAX_VALUE );
+				literalWordsLeft = (int) marker;
+			}
+		}
+	}
+}
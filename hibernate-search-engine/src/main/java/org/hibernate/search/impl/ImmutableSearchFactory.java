@@ -26,6 +26,7 @@ package org.hibernate.search.impl;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.lucene.analysis.Analyzer;
@@ -58,6 +59,8 @@ import org.hibernate.search.engine.spi.EntityIndexBinder;
 import org.hibernate.search.engine.ServiceManager;
 import org.hibernate.search.exception.ErrorHandler;
 import org.hibernate.search.filter.FilterCachingStrategy;
+import org.hibernate.search.jmx.FilterCacheStatisticsInfo;
+import org.hibernate.search.jmx.FilterCacheStatisticsInfoMBean;
 import org.hibernate.search.jmx.StatisticsInfo;
 import org.hibernate.search.jmx.StatisticsInfoMBean;
 import org.hibernate.search.query.dsl.QueryContextBuilder;
@@ -65,12 +68,15 @@ import org.hibernate.search.query.dsl.impl.ConnectedQueryContextBuilder;
 import org.hibernate.search.query.engine.spi.HSQuery;
 import org.hibernate.search.query.engine.spi.TimeoutExceptionFactory;
 import org.hibernate.search.query.engine.impl.HSQueryImpl;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.spi.ClassNavigator;
 import org.hibernate.search.spi.ServiceProvider;
 import org.hibernate.search.spi.WorkerBuildContext;
 import org.hibernate.search.spi.internals.PolymorphicIndexHierarchy;
 import org.hibernate.search.spi.internals.SearchFactoryImplementorWithShareableState;
 import org.hibernate.search.spi.internals.SearchFactoryState;
+import org.hibernate.search.stat.FilterCacheStatistics;
 import org.hibernate.search.stat.Statistics;
 import org.hibernate.search.store.DirectoryProvider;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
@@ -96,6 +102,9 @@ public class ImmutableSearchFactory implements SearchFactoryImplementorWithShare
 	private final Map<String, Analyzer> analyzers;
 	private final AtomicBoolean stopped = new AtomicBoolean( false );
 	private final int cacheBitResultsSize;
+	private final QueryResultCache queryResultCache;
+	private final FacetResultCache facetResultCache;
+	private final ExecutorService shardSearchExecutor;
 	private final Properties configurationProperties;
 	private final PolymorphicIndexHierarchy indexHierarchy;
 	private final StatisticsImpl statistics;
@@ -117,6 +126,9 @@ public class ImmutableSearchFactory implements SearchFactoryImplementorWithShare
 	public ImmutableSearchFactory(SearchFactoryState state) {
 		this.analyzers = state.getAnalyzers();
 		this.cacheBitResultsSize = state.getCacheBitResultsSize();
+		this.queryResultCache = state.getQueryResultCache();
+		this.facetResultCache = state.getFacetResultCache();
+		this.shardSearchExecutor = state.getShardSearchExecutor();
 		this.configurationProperties = state.getConfigurationProperties();
 		this.dirProviderIndexingParams = state.getDirectoryProviderIndexingParams();
 		this.indexBindingForEntities = state.getIndexBindingForEntity();
@@ -150,6 +162,15 @@ public class ImmutableSearchFactory implements SearchFactoryImplementorWithShare
 			JMXRegistrar.registerMBean(
 					new StatisticsInfo( statistics ), StatisticsInfoMBean.STATISTICS_MBEAN_OBJECT_NAME
 			);
+			if ( JMXRegistrar.isNameRegistered( FilterCacheStatisticsInfoMBean.FILTER_CACHE_STATISTICS_MBEAN_OBJECT_NAME ) ) {
+				JMXRegistrar.unRegisterMBean( FilterCacheStatisticsInfoMBean.FILTER_CACHE_STATISTICS_MBEAN_OBJECT_NAME );
+			}
+			if ( filterCachingStrategy instanceof FilterCacheStatistics ) {
+				JMXRegistrar.registerMBean(
+						new FilterCacheStatisticsInfo( (FilterCacheStatistics) filterCachingStrategy ),
+						FilterCacheStatisticsInfoMBean.FILTER_CACHE_STATISTICS_MBEAN_OBJECT_NAME
+				);
+			}
 		}
 
 		this.indexReaderAccessor = new DefaultIndexReaderAccessor( this );
@@ -174,6 +195,10 @@ public class ImmutableSearchFactory implements SearchFactoryImplementorWithShare
 
 			this.allIndexesManager.stop();
 
+			if ( shardSearchExecutor != null ) {
+				shardSearchExecutor.shutdown();
+			}
+
 			serviceManager.stopServices();
 		}
 	}
@@ -287,6 +312,18 @@ public class ImmutableSearchFactory implements SearchFactoryImplementorWithShare
 		return cacheBitResultsSize;
 	}
 
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
+	public FacetResultCache getFacetResultCache() {
+		return facetResultCache;
+	}
+
+	public ExecutorService getShardSearchExecutor() {
+		return shardSearchExecutor;
+	}
+
 	public Set<Class<?>> getIndexedTypesPolymorphic(Class<?>[] classes) {
 		return indexHierarchy.getIndexedClasses( classes );
 	}
@@ -152,7 +152,12 @@ public class MappingModelMetadataProvider implements MetadataProvider {
 	private static FullTextFilterDef createFullTextFilterDef(Map<String, Object> filterDef) {
 		AnnotationDescriptor fullTextFilterDefAnnotation = new AnnotationDescriptor( FullTextFilterDef.class );
 		for ( Entry<String, Object> entry : filterDef.entrySet() ) {
-			fullTextFilterDefAnnotation.setValue( entry.getKey(), entry.getValue() );
+			if ( entry.getKey().equals( "params" ) ) {
+				addParamsToAnnotation( fullTextFilterDefAnnotation, entry );
+			}
+			else {
+				fullTextFilterDefAnnotation.setValue( entry.getKey(), entry.getValue() );
+			}
 		}
 
 		return AnnotationFactory.create( fullTextFilterDefAnnotation );
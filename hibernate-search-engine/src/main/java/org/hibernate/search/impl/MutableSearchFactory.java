@@ -26,6 +26,7 @@ package org.hibernate.search.impl;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -44,6 +45,8 @@ import org.hibernate.search.filter.FilterCachingStrategy;
 import org.hibernate.search.indexes.IndexReaderAccessor;
 import org.hibernate.search.indexes.impl.IndexManagerHolder;
 import org.hibernate.search.query.dsl.QueryContextBuilder;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.query.engine.spi.HSQuery;
 import org.hibernate.search.query.engine.spi.TimeoutExceptionFactory;
 import org.hibernate.search.spi.ClassNavigator;
@@ -131,6 +134,18 @@ public class MutableSearchFactory implements SearchFactoryImplementorWithShareab
 		return delegate.getFilterCacheBitResultsSize();
 	}
 
+	public QueryResultCache getQueryResultCache() {
+		return delegate.getQueryResultCache();
+	}
+
+	public FacetResultCache getFacetResultCache() {
+		return delegate.getFacetResultCache();
+	}
+
+	public ExecutorService getShardSearchExecutor() {
+		return delegate.getShardSearchExecutor();
+	}
+
 	public Set<Class<?>> getIndexedTypesPolymorphic(Class<?>[] classes) {
 		return delegate.getIndexedTypesPolymorphic( classes );
 	}
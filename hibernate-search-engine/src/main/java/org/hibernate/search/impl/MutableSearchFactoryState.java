@@ -35,6 +35,8 @@ import org.hibernate.search.engine.ServiceManager;
 import org.hibernate.search.exception.ErrorHandler;
 import org.hibernate.search.filter.FilterCachingStrategy;
 import org.hibernate.search.indexes.impl.IndexManagerHolder;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.query.engine.spi.TimeoutExceptionFactory;
 import org.hibernate.search.spi.ClassNavigator;
 import org.hibernate.search.spi.internals.PolymorphicIndexHierarchy;
@@ -44,6 +46,7 @@ import org.hibernate.search.store.DirectoryProvider;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Shared factory state
@@ -60,6 +63,9 @@ public class MutableSearchFactoryState implements SearchFactoryState {
 	private FilterCachingStrategy filterCachingStrategy;
 	private Map<String, Analyzer> analyzers;
 	private int cacheBitResultsSize;
+	private QueryResultCache queryResultCache;
+	private FacetResultCache facetResultCache;
+	private ExecutorService shardSearchExecutor;
 	private Properties configurationProperties;
 	private PolymorphicIndexHierarchy indexHierarchy;
 	private Map<DirectoryProvider, LuceneIndexingParameters> directoryProviderIndexingParams;
@@ -79,6 +85,9 @@ public class MutableSearchFactoryState implements SearchFactoryState {
 		filterCachingStrategy = oldFactoryState.getFilterCachingStrategy();
 		analyzers = oldFactoryState.getAnalyzers();
 		cacheBitResultsSize = oldFactoryState.getCacheBitResultsSize();
+		queryResultCache = oldFactoryState.getQueryResultCache();
+		facetResultCache = oldFactoryState.getFacetResultCache();
+		shardSearchExecutor = oldFactoryState.getShardSearchExecutor();
 		configurationProperties = oldFactoryState.getConfigurationProperties();
 		indexHierarchy = oldFactoryState.getIndexHierarchy();
 		directoryProviderIndexingParams = oldFactoryState.getDirectoryProviderIndexingParams();
@@ -134,6 +143,18 @@ public class MutableSearchFactoryState implements SearchFactoryState {
 		return cacheBitResultsSize;
 	}
 
+	public QueryResultCache getQueryResultCache() {
+		return queryResultCache;
+	}
+
+	public FacetResultCache getFacetResultCache() {
+		return facetResultCache;
+	}
+
+	public ExecutorService getShardSearchExecutor() {
+		return shardSearchExecutor;
+	}
+
 	public Properties getConfigurationProperties() {
 		return configurationProperties;
 	}
@@ -182,6 +203,18 @@ public class MutableSearchFactoryState implements SearchFactoryState {
 		this.cacheBitResultsSize = cacheBitResultsSize;
 	}
 
+	public void setQueryResultCache(QueryResultCache queryResultCache) {
+		this.queryResultCache = queryResultCache;
+	}
+
+	public void setFacetResultCache(FacetResultCache facetResultCache) {
+		this.facetResultCache = facetResultCache;
+	}
+
+	public void setShardSearchExecutor(ExecutorService shardSearchExecutor) {
+		this.shardSearchExecutor = shardSearchExecutor;
+	}
+
 	public void setConfigurationProperties(Properties configurationProperties) {
 		this.configurationProperties = configurationProperties;
 	}
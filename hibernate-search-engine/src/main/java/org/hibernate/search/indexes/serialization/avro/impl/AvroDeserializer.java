@@ -20,18 +20,16 @@
  */
 package org.hibernate.search.indexes.serialization.avro.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.avro.Protocol;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.Decoder;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.util.Utf8;
 
@@ -44,23 +42,45 @@ import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
 
 /**
+ * Reads the Avro binary encoding of the protocol directly, without building generic records.
+ * <p/>
+ * Field names are read in a per message dictionary, so that all the fields sharing a name in a message
+ * share the same {@code String} instance.
+ *
  * @author Emmanuel Bernard <emmanuel@hibernate.org>
  */
 public class AvroDeserializer implements Deserializer {
 
 	private static final Log log = LoggerFactory.make();
-	private final Protocol protocol;
-	private List<Utf8> classReferences;
+
+	private final SerializableStore[] stores;
+	private final SerializableIndex[] indexes;
+	private final SerializableTermVector[] termVectors;
+
+	private final Utf8 scratch = new Utf8();
+	private final Map<Utf8, String> fieldNames = new HashMap<Utf8, String>();
+	private BinaryDecoder decoder;
+	private List<String> classReferences;
 
 	public AvroDeserializer(Protocol protocol) {
-		this.protocol = protocol;
+		this.stores = symbols( protocol, "Store", SerializableStore.class );
+		this.indexes = symbols( protocol, "Index", SerializableIndex.class );
+		this.termVectors = symbols( protocol, "TermVector", SerializableTermVector.class );
+	}
+
+	private static <E extends Enum<E>> E[] symbols(Protocol protocol, String schemaName, Class<E> enumType) {
+		List<String> symbols = protocol.getType( schemaName ).getEnumSymbols();
+		E[] values = Arrays.copyOf( enumType.getEnumConstants(), symbols.size() );
+		for ( int ordinal = 0; ordinal < values.length; ordinal++ ) {
+			values[ordinal] = Enum.valueOf( enumType, symbols.get( ordinal ) );
+		}
+		return values;
 	}
 
 	@Override
 	public void deserialize(byte[] data, LuceneWorksBuilder hydrator) {
-		ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
-		int majorVersion = inputStream.read();
-		int minorVersion = inputStream.read();
+		int majorVersion = data[0] & 0xFF;
+		int minorVersion = data[1] & 0xFF;
 		if ( AvroSerializationProvider.getMajorVersion() != majorVersion ) {
 			throw log.incompatibleProtocolVersion(
 					majorVersion,
@@ -81,300 +101,330 @@ public class AvroDeserializer implements Deserializer {
 			}
 		}
 
-		Decoder decoder = DecoderFactory.get().binaryDecoder( inputStream, null );
-		GenericDatumReader<GenericRecord> reader = new GenericDatumReader<GenericRecord>( protocol.getType("Message") );
-		GenericRecord result;
+		decoder = DecoderFactory.get().binaryDecoder( data, 2, data.length - 2, null );
 		try {
-			result = reader.read(null, decoder);
+			readClassReferences();
+			for ( long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext() ) {
+				for ( long i = 0; i < count; i++ ) {
+					readOperation( hydrator );
+				}
+			}
 		}
 		catch ( IOException e ) {
 			throw log.unableToDeserializeAvroStream( e );
 		}
+		finally {
+			decoder = null;
+			fieldNames.clear();
+		}
+	}
 
-		classReferences = asListOfString( result, "classReferences" );
-		List<GenericRecord> operations = asListOfGenericRecords( result, "operations" );
-		for ( GenericRecord operation : operations ) {
-			String schema = operation.getSchema().getName();
-			if ( "OptimizeAll".equals( schema ) ) {
-				hydrator.addOptimizeAll();
+	private void readClassReferences() throws IOException {
+		classReferences = new ArrayList<String>();
+		for ( long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext() ) {
+			for ( long i = 0; i < count; i++ ) {
+				classReferences.add( readString() );
 			}
-			else if ( "PurgeAll".equals( schema ) ) {
-				hydrator.addPurgeAllLuceneWork( asClass( operation, "class" ) );
-			}
-			else if ( "Delete".equals( schema ) ) {
-				processId(operation, hydrator);
-				hydrator.addDeleteLuceneWork(
-						asClass( operation, "class" )
-				);
-			}
-			else if ( "Add".equals( schema ) ) {
-				buildLuceneDocument( asGenericRecord( operation, "document" ), hydrator );
-				Map<String, String> analyzers = getAnalyzers( operation );
-				processId(operation, hydrator);
-				hydrator.addAddLuceneWork(
-						asClass( operation, "class" ),
-						analyzers
-				);
+		}
+	}
+
+	private void readOperation(LuceneWorksBuilder hydrator) throws IOException {
+		int operation = decoder.readIndex();
+		switch ( operation ) {
+			case 0: //OptimizeAll
+				hydrator.addOptimizeAll();
+				break;
+			case 1: //PurgeAll
+				hydrator.addPurgeAllLuceneWork( readClass() );
+				break;
+			case 2: { //Delete
+				String entityClassName = readClass();
+				readId( hydrator );
+				hydrator.addDeleteLuceneWork( entityClassName );
+				break;
 			}
-			else if ( "Update".equals( schema ) ) {
-				buildLuceneDocument( asGenericRecord( operation, "document" ), hydrator );
-				Map<String, String> analyzers = getAnalyzers( operation );
-				processId(operation, hydrator);
-				hydrator.addUpdateLuceneWork(
-						asClass( operation, "class" ),
-						analyzers
-				);
+			case 3: { //Add
+				String entityClassName = readClass();
+				readId( hydrator );
+				readDocument( hydrator );
+				hydrator.addAddLuceneWork( entityClassName, readAnalyzers() );
+				break;
 			}
-			else {
-				throw log.cannotDeserializeOperation( schema );
+			case 4: { //Update
+				String entityClassName = readClass();
+				readId( hydrator );
+				readDocument( hydrator );
+				hydrator.addUpdateLuceneWork( entityClassName, readAnalyzers() );
+				break;
 			}
+			default:
+				throw log.cannotDeserializeOperation( String.valueOf( operation ) );
 		}
 	}
 
-	private String asClass(GenericRecord operation, String attribute) {
-		Integer index =  (Integer) operation.get( attribute );
-		return classReferences.get( index ).toString();
+	private String readClass() throws IOException {
+		return classReferences.get( decoder.readInt() );
 	}
 
-	private List<Utf8> asListOfString(GenericRecord result, String attribute) {
-		return (List<Utf8>) result.get(attribute);
+	private void readId(LuceneWorksBuilder hydrator) throws IOException {
+		int idType = decoder.readIndex();
+		switch ( idType ) {
+			case 0:
+				hydrator.addIdAsJavaSerialized( readBytes() );
+				break;
+			case 1:
+				hydrator.addId( readString() );
+				break;
+			case 2:
+				hydrator.addId( decoder.readInt() );
+				break;
+			case 3:
+				hydrator.addId( decoder.readLong() );
+				break;
+			case 4:
+				hydrator.addId( decoder.readFloat() );
+				break;
+			case 5:
+				hydrator.addId( decoder.readDouble() );
+				break;
+			default:
+				throw new IOException( "Unknown id type " + idType );
+		}
 	}
 
-	private void processId(GenericRecord operation, LuceneWorksBuilder hydrator) {
-		GenericRecord id = (GenericRecord)operation.get("id");
-		Object value = id.get( "value" );
-		if (value instanceof ByteBuffer) {
-			hydrator.addIdAsJavaSerialized( asByteArray( ( ByteBuffer ) value ) );
-		}
-		else if (value instanceof Utf8) {
-			hydrator.addId( value.toString() );
+	private Map<String, String> readAnalyzers() throws IOException {
+		if ( decoder.readIndex() != 0 ) {
+			decoder.readNull();
+			return null;
 		}
-		else {
-			//the rest are serialized objects
-			hydrator.addId( (Serializable) value );
+		Map<String, String> analyzers = new HashMap<String, String>();
+		for ( long count = decoder.readMapStart(); count > 0; count = decoder.mapNext() ) {
+			for ( long i = 0; i < count; i++ ) {
+				String fieldName = readFieldName();
+				analyzers.put( fieldName, readString() );
+			}
 		}
+		return analyzers;
 	}
 
-	private Map<String, String> getAnalyzers(GenericRecord operation) {
-		Map<?,?> analyzersWithUtf8  = (Map<?,?>) operation.get( "fieldToAnalyzerMap" );
-		if (analyzersWithUtf8 == null) return null;
-		Map<String,String> analyzers = new HashMap<String, String>( analyzersWithUtf8.size() );
-		for ( Map.Entry<?,?> entry : analyzersWithUtf8.entrySet() ) {
-			analyzers.put( entry.getKey().toString(), entry.getValue().toString() );
+	private void readDocument(LuceneWorksBuilder hydrator) throws IOException {
+		hydrator.defineDocument( decoder.readFloat() );
+		for ( long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext() ) {
+			for ( long i = 0; i < count; i++ ) {
+				readFieldable( hydrator );
+			}
 		}
-		return analyzers;
 	}
 
-	private void buildLuceneDocument(GenericRecord document, LuceneWorksBuilder hydrator) {
-		hydrator.defineDocument( asFloat( document, "boost" ) );
-		List<GenericRecord> fieldables = asListOfGenericRecords( document, "fieldables" );
-		for ( GenericRecord field : fieldables ) {
-			String schema = field.getSchema().getName();
-			if ( "CustomFieldable".equals( schema ) ) {
-				hydrator.addFieldable( asByteArray( field, "instance" ) );
-			}
-			else if ( "NumericIntField".equals( schema ) ) {
+	private void readFieldable(LuceneWorksBuilder hydrator) throws IOException {
+		int fieldType = decoder.readIndex();
+		switch ( fieldType ) {
+			case 0: //CustomFieldable
+				hydrator.addFieldable( readBytes() );
+				break;
+			case 1: { //NumericIntField
+				int value = decoder.readInt();
 				hydrator.addIntNumericField(
-							asInt( field, "value" ),
-							asString( field, "name" ),
-							asInt( field, "precisionStep" ),
-							asStore( field ),
-							asBoolean( field, "indexed" ),
-							asFloat( field, "boost" ),
-							asBoolean( field, "omitNorms" ),
-							asBoolean( field, "omitTermFreqAndPositions" )
+						value,
+						readFieldName(),
+						decoder.readInt(),
+						readStore(),
+						decoder.readBoolean(),
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "NumericFloatField".equals( schema ) ) {
-				hydrator.addFloatNumericField(
-							asFloat( field, "value" ),
-							asString( field, "name" ),
-							asInt( field, "precisionStep" ),
-							asStore( field ),
-							asBoolean(field, "indexed"),
-							asFloat( field, "boost" ),
-							asBoolean( field, "omitNorms" ),
-							asBoolean( field, "omitTermFreqAndPositions" )
+			case 2: { //NumericLongField
+				long value = decoder.readLong();
+				hydrator.addLongNumericField(
+						value,
+						readFieldName(),
+						decoder.readInt(),
+						readStore(),
+						decoder.readBoolean(),
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "NumericLongField".equals( schema ) ) {
-				hydrator.addLongNumericField(
-							asLong( field, "value" ),
-							asString( field, "name" ),
-							asInt( field, "precisionStep" ),
-							asStore( field ),
-							asBoolean(field, "indexed"),
-							asFloat( field, "boost" ),
-							asBoolean( field, "omitNorms" ),
-							asBoolean( field, "omitTermFreqAndPositions" )
+			case 3: { //NumericFloatField
+				float value = decoder.readFloat();
+				hydrator.addFloatNumericField(
+						value,
+						readFieldName(),
+						decoder.readInt(),
+						readStore(),
+						decoder.readBoolean(),
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "NumericDoubleField".equals( schema ) ) {
+			case 4: { //NumericDoubleField
+				double value = decoder.readDouble();
 				hydrator.addDoubleNumericField(
-							asDouble( field, "value" ),
-							asString( field, "name" ),
-							asInt( field, "precisionStep" ),
-							asStore( field ),
-							asBoolean( field, "indexed" ),
-							asFloat( field, "boost" ),
-							asBoolean( field, "omitNorms" ),
-							asBoolean( field, "omitTermFreqAndPositions" )
+						value,
+						readFieldName(),
+						decoder.readInt(),
+						readStore(),
+						decoder.readBoolean(),
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "BinaryField".equals( schema ) ) {
+			case 5: { //BinaryField
+				byte[] value = readBytes();
+				int offset = decoder.readInt();
+				int length = decoder.readInt();
 				hydrator.addFieldWithBinaryData(
-							asString( field, "name" ),
-							asByteArray( field, "value" ),
-							asInt( field, "offset" ),
-							asInt( field, "length" ),
-							asFloat( field, "boost" ),
-							asBoolean( field, "omitNorms" ),
-							asBoolean( field, "omitTermFreqAndPositions" )
+						readFieldName(),
+						value,
+						offset,
+						length,
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "StringField".equals( schema ) ) {
+			case 6: { //StringField
+				String value = readString();
+				SerializableStore store = readStore();
+				SerializableIndex index = indexes[decoder.readEnum()];
+				SerializableTermVector termVector = readTermVector();
 				hydrator.addFieldWithStringData(
-						asString( field, "name" ),
-						asString( field, "value" ),
-						asStore( field ),
-						asIndex( field ),
-						asTermVector( field ),
-						asFloat( field, "boost" ),
-						asBoolean( field, "omitNorms" ),
-						asBoolean( field, "omitTermFreqAndPositions" )
+						readFieldName(),
+						value,
+						store,
+						index,
+						termVector,
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "TokenStreamField".equals( schema ) ) {
-				buildAttributes(field, "value", hydrator);
+			case 7: { //TokenStreamField
+				readTokens( hydrator );
+				SerializableTermVector termVector = readTermVector();
 				hydrator.addFieldWithTokenStreamData(
-						asString( field, "name" ),
-						asTermVector( field ),
-						asFloat( field, "boost" ),
-						asBoolean( field, "omitNorms" ),
-						asBoolean( field, "omitTermFreqAndPositions" )
+						readFieldName(),
+						termVector,
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else if ( "ReaderField".equals( schema ) ) {
+			case 8: { //ReaderField
+				byte[] value = readBytes();
+				SerializableTermVector termVector = readTermVector();
 				hydrator.addFieldWithSerializableReaderData(
-						asString( field, "name" ),
-						asByteArray( field, "value" ),
-						asTermVector( field ),
-						asFloat( field, "boost" ),
-						asBoolean( field, "omitNorms" ),
-						asBoolean( field, "omitTermFreqAndPositions" )
+						readFieldName(),
+						value,
+						termVector,
+						decoder.readFloat(),
+						decoder.readBoolean(),
+						decoder.readBoolean()
 				);
+				break;
 			}
-			else {
-				throw log.cannotDeserializeField(schema);
-			}
+			default:
+				throw log.cannotDeserializeField( String.valueOf( fieldType ) );
 		}
 	}
 
-	private void buildAttributes(GenericRecord record, String field, LuceneWorksBuilder hydrator) {
-		List<List<?>> tokens = (List<List<?>>) record.get( field );
-		for ( List<?> token : tokens ) {
-			for(Object attribute : token) {
-				buildAttribute( attribute, hydrator );
+	private void readTokens(LuceneWorksBuilder hydrator) throws IOException {
+		for ( long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext() ) {
+			for ( long i = 0; i < count; i++ ) {
+				for ( long attributeCount = decoder.readArrayStart(); attributeCount > 0; attributeCount = decoder.arrayNext() ) {
+					for ( long j = 0; j < attributeCount; j++ ) {
+						readAttribute( hydrator );
+					}
+				}
+				hydrator.addToken();
 			}
-			hydrator.addToken();
 		}
 	}
 
-	private void buildAttribute(Object element, LuceneWorksBuilder hydrator) {
-		if ( element instanceof GenericRecord ) {
-			GenericRecord record = (GenericRecord) element;
-			String name = record.getSchema().getName();
-			if ( "TokenTrackingAttribute".equals( name ) ) {
-				hydrator.addTokenTrackingAttribute( (List<Integer>) record.get( "positions" ) );
-			}
-			else if ( "CharTermAttribute".equals( name ) ) {
-				hydrator.addCharTermAttribute( (CharSequence) record.get( "sequence" ) );
-			}
-			else if ( "PayloadAttribute".equals( name ) ) {
-				hydrator.addPayloadAttribute( asByteArray(record, "payload") );
-			}
-			else if ( "KeywordAttribute".equals( name ) ) {
-				hydrator.addKeywordAttribute( asBoolean(record, "isKeyword") );
-			}
-			else if ( "PositionIncrementAttribute".equals( name ) ) {
-				hydrator.addPositionIncrementAttribute( asInt(record, "positionIncrement") );
-			}
-			else if ( "FlagsAttribute".equals( name ) ) {
-				hydrator.addFlagsAttribute( asInt(record, "flags") );
+	private void readAttribute(LuceneWorksBuilder hydrator) throws IOException {
+		int attributeType = decoder.readIndex();
+		switch ( attributeType ) {
+			case 0:
+				hydrator.addSerializedAttribute( readBytes() );
+				break;
+			case 1: { //TokenTrackingAttribute
+				List<Integer> positions = new ArrayList<Integer>();
+				for ( long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext() ) {
+					for ( long i = 0; i < count; i++ ) {
+						positions.add( decoder.readInt() );
+					}
+				}
+				hydrator.addTokenTrackingAttribute( positions );
+				break;
 			}
-			else if ( "TypeAttribute".equals( name ) ) {
-				hydrator.addTypeAttribute( asString(record, "type") );
+			case 2: //CharTermAttribute
+				hydrator.addCharTermAttribute( readString() );
+				break;
+			case 3: //PayloadAttribute
+				hydrator.addPayloadAttribute( readBytes() );
+				break;
+			case 4: //KeywordAttribute
+				hydrator.addKeywordAttribute( decoder.readBoolean() );
+				break;
+			case 5: //PositionIncrementAttribute
+				hydrator.addPositionIncrementAttribute( decoder.readInt() );
+				break;
+			case 6: //FlagsAttribute
+				hydrator.addFlagsAttribute( decoder.readInt() );
+				break;
+			case 7: //TypeAttribute
+				hydrator.addTypeAttribute( readString() );
+				break;
+			case 8: { //OffsetAttribute
+				int startOffset = decoder.readInt();
+				hydrator.addOffsetAttribute( startOffset, decoder.readInt() );
+				break;
 			}
-			else if ( "OffsetAttribute".equals( name ) ) {
-				hydrator.addOffsetAttribute( asInt(record, "startOffset"), asInt(record, "endOffset") );
-			}
-			else {
-				log.unknownAttributeSerializedRepresentation( name );
-			}
-		}
-		if ( element instanceof ByteBuffer) {
-			hydrator.addSerializedAttribute( asByteArray( (ByteBuffer) element ) );
-		}
-		else {
-			log.unknownAttributeSerializedRepresentation( element.getClass().getName() );
+			default:
+				throw log.unknownAttributeSerializedRepresentation( String.valueOf( attributeType ) );
 		}
 	}
 
-	private GenericRecord asGenericRecord(GenericRecord operation, String field) {
-		return (GenericRecord) operation.get(field);
-	}
-
-	private List<GenericRecord> asListOfGenericRecords(GenericRecord result, String field) {
-		return (List<GenericRecord>) result.get(field);
-	}
-
-	private float asFloat(GenericRecord record, String field) {
-		return ( (Float) record.get(field) ).floatValue();
-	}
-
-	private int asInt(GenericRecord record, String field) {
-		return ( (Integer) record.get(field) ).intValue();
-	}
-
-	private long asLong(GenericRecord record, String field) {
-		return ( (Long) record.get(field) ).longValue();
-	}
-
-	private double asDouble(GenericRecord record, String field) {
-		return ( (Double) record.get(field) ).doubleValue();
+	private SerializableStore readStore() throws IOException {
+		return stores[decoder.readEnum()];
 	}
 
-	private String asString(GenericRecord record, String field) {
-		return record.get(field).toString();
+	private SerializableTermVector readTermVector() throws IOException {
+		return termVectors[decoder.readEnum()];
 	}
 
-	private boolean asBoolean(GenericRecord record, String field) {
-		return ( (Boolean) record.get(field) ).booleanValue();
+	private String readString() throws IOException {
+		return decoder.readString( scratch ).toString();
 	}
 
-	private SerializableStore asStore(GenericRecord field) {
-		String string = field.get("store").toString();
-		return SerializableStore.valueOf( string );
-	}
-
-	private SerializableIndex asIndex(GenericRecord field) {
-		String string = field.get("index").toString();
-		return SerializableIndex.valueOf( string );
-	}
-
-	private SerializableTermVector asTermVector(GenericRecord field) {
-		String string = field.get("termVector").toString();
-		return SerializableTermVector.valueOf( string );
-	}
-
-	private byte[] asByteArray(GenericRecord operation, String field) {
-		ByteBuffer buffer = (ByteBuffer) operation.get(field);
-		return asByteArray( buffer );
+	private String readFieldName() throws IOException {
+		decoder.readString( scratch );
+		String name = fieldNames.get( scratch );
+		if ( name == null ) {
+			name = scratch.toString();
+			fieldNames.put( new Utf8( Arrays.copyOf( scratch.getBytes(), scratch.getByteLength() ) ), name );
+		}
+		return name;
 	}
 
-	private byte[] asByteArray(ByteBuffer buffer) {
-		byte[] copy = new byte[buffer.remaining()];
-		buffer.get( copy );
-		return copy;
+	/**
+	 * Reads an Avro {@code bytes} value straight into an array of its length
+	 */
+	private byte[] readBytes() throws IOException {
+		byte[] bytes = new byte[decoder.readInt()];
+		decoder.readFixed( bytes );
+		return bytes;
 	}
 }
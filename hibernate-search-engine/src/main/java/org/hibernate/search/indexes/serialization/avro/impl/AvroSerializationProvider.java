@@ -45,8 +45,14 @@ public class AvroSerializationProvider implements SerializationProvider {
 	private static final String AVRO_SCHEMA_FILE_SUFFIX = ".avro";
 	private static final String AVRO_PROTOCOL_FILE_SUFFIX = ".avpr";
 
+	/**
+	 * Serialization buffers grown beyond this capacity are not kept for reuse
+	 */
+	private static final int MAX_POOLED_BUFFER_CAPACITY = 1024 * 1024;
+
 	private Map<String, String> schemas = new HashMap<String, String>();
 	private Protocol protocol;
+	private final ThreadLocal<AvroSerializer.Buffers> pooledBuffers = new ThreadLocal<AvroSerializer.Buffers>();
 
 	public static byte MAJOR_VERSION = (byte) ( -128 + 1 );
 	public static byte MINOR_VERSION = (byte) ( -128 + 0 );
@@ -61,7 +67,28 @@ public class AvroSerializationProvider implements SerializationProvider {
 
 	@Override
 	public Serializer getSerializer() {
-		return new AvroSerializer( protocol );
+		return new AvroSerializer( protocol, this );
+	}
+
+	/**
+	 * The buffers of the current thread are handed out once, so that nested serializers never share them.
+	 */
+	AvroSerializer.Buffers borrowBuffers() {
+		AvroSerializer.Buffers buffers = pooledBuffers.get();
+		if ( buffers == null ) {
+			buffers = new AvroSerializer.Buffers();
+		}
+		else {
+			pooledBuffers.remove();
+			buffers.reset();
+		}
+		return buffers;
+	}
+
+	void returnBuffers(AvroSerializer.Buffers buffers) {
+		if ( buffers.capacity() <= MAX_POOLED_BUFFER_CAPACITY ) {
+			pooledBuffers.set( buffers );
+		}
 	}
 
 	@Override
@@ -21,21 +21,18 @@
 package org.hibernate.search.indexes.serialization.avro.impl;
 
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.avro.Protocol;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttributeImpl;
 import org.apache.lucene.analysis.tokenattributes.FlagsAttribute;
@@ -45,12 +42,16 @@ import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.index.Payload;
 import org.apache.lucene.util.AttributeImpl;
 import org.apache.solr.handler.AnalysisRequestHandlerBase;
 
 import org.hibernate.search.backend.LuceneWork;
 import org.hibernate.search.indexes.serialization.spi.LuceneFieldContext;
 import org.hibernate.search.indexes.serialization.spi.LuceneNumericFieldContext;
+import org.hibernate.search.indexes.serialization.spi.SerializableIndex;
+import org.hibernate.search.indexes.serialization.spi.SerializableStore;
+import org.hibernate.search.indexes.serialization.spi.SerializableTermVector;
 import org.hibernate.search.indexes.serialization.spi.Serializer;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
@@ -58,291 +59,490 @@ import org.hibernate.search.util.logging.impl.LoggerFactory;
 import static org.hibernate.search.indexes.serialization.impl.SerializationHelper.toByteArray;
 
 /**
+ * Writes the Avro binary encoding of the protocol directly, without building generic records.
+ * <p/>
+ * As the traversal reports the document fields before the id, and the id before the operation, the fields and
+ * the id are encoded in their own buffers and copied into the operations buffer when the operation is added.
+ * Buffers are borrowed from the {@link AvroSerializationProvider} and returned once the message is serialized.
+ * Entity class names are written once per message in the class references, and the encoding of the field names
+ * is computed once per message.
+ *
  * @author Emmanuel Bernard <emmanuel@hibernate.org>
  */
 public class AvroSerializer implements Serializer {
 	private static final Log log = LoggerFactory.make();
 
-	private GenericRecord idRecord;
-	private List<GenericRecord> fieldables;
-	private List<GenericRecord> operations;
-	private List<String> classReferences;
-	private GenericRecord document;
-	private final Protocol protocol;
-
-	public AvroSerializer(Protocol protocol) {
-		this.protocol = protocol;
-		this.classReferences = new ArrayList<String>();
+	//indexes of the types in the unions of the protocol
+	private static final int OPTIMIZE_ALL = 0;
+	private static final int PURGE_ALL = 1;
+	private static final int DELETE = 2;
+	private static final int ADD = 3;
+	private static final int UPDATE = 4;
+
+	private static final int ID_SERIALIZED = 0;
+	private static final int ID_STRING = 1;
+	private static final int ID_INT = 2;
+	private static final int ID_LONG = 3;
+	private static final int ID_FLOAT = 4;
+	private static final int ID_DOUBLE = 5;
+
+	private static final int CUSTOM_FIELDABLE = 0;
+	private static final int NUMERIC_INT_FIELD = 1;
+	private static final int NUMERIC_LONG_FIELD = 2;
+	private static final int NUMERIC_FLOAT_FIELD = 3;
+	private static final int NUMERIC_DOUBLE_FIELD = 4;
+	private static final int BINARY_FIELD = 5;
+	private static final int STRING_FIELD = 6;
+	private static final int TOKEN_STREAM_FIELD = 7;
+	private static final int READER_FIELD = 8;
+
+	private static final int SERIALIZED_ATTRIBUTE = 0;
+	private static final int TOKEN_TRACKING_ATTRIBUTE = 1;
+	private static final int CHAR_TERM_ATTRIBUTE = 2;
+	private static final int PAYLOAD_ATTRIBUTE = 3;
+	private static final int KEYWORD_ATTRIBUTE = 4;
+	private static final int POSITION_INCREMENT_ATTRIBUTE = 5;
+	private static final int FLAGS_ATTRIBUTE = 6;
+	private static final int TYPE_ATTRIBUTE = 7;
+	private static final int OFFSET_ATTRIBUTE = 8;
+
+	private static final int MAP = 0;
+	private static final int NULL = 1;
+
+	private final AvroSerializationProvider provider;
+	private final Schema storeSchema;
+	private final Schema indexSchema;
+	private final Schema termVectorSchema;
+
+	private final List<String> classReferences = new ArrayList<String>();
+	private final Map<String, Integer> classReferenceIndexes = new HashMap<String, Integer>();
+	private final Map<String, Utf8> fieldNames = new HashMap<String, Utf8>();
+
+	private Buffers buffers;
+	private int operationCount;
+	private int fieldableCount;
+	private float documentBoost;
+
+	public AvroSerializer(Protocol protocol, AvroSerializationProvider provider) {
+		this.provider = provider;
+		this.storeSchema = protocol.getType( "Store" );
+		this.indexSchema = protocol.getType( "Index" );
+		this.termVectorSchema = protocol.getType( "TermVector" );
 	}
 
 	@Override
 	public void luceneWorks(List<LuceneWork> works) {
-		operations = new ArrayList<GenericRecord>( works.size() );
+		buffers = provider.borrowBuffers();
+		operationCount = 0;
 	}
 
 	@Override
 	public void addOptimizeAll() {
-		operations.add( new GenericData.Record( protocol.getType( "OptimizeAll" ) ) );
+		try {
+			buffers.operationsEncoder.writeIndex( OPTIMIZE_ALL );
+			operationCount++;
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addPurgeAll(String entityClassName) {
-		int classRef = getClassReference( entityClassName );
-		GenericRecord purgeAll = new GenericData.Record( protocol.getType( "PurgeAll" ) );
-		purgeAll.put( "class", classRef );
-		operations.add( purgeAll );
+		try {
+			BinaryEncoder encoder = buffers.operationsEncoder;
+			encoder.writeIndex( PURGE_ALL );
+			encoder.writeInt( getClassReference( entityClassName ) );
+			operationCount++;
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	private int getClassReference(String entityClassName) {
-		int classRef = classReferences.indexOf( entityClassName );
-		if ( classRef == -1 ) {
+		Integer classRef = classReferenceIndexes.get( entityClassName );
+		if ( classRef == null ) {
+			classRef = classReferences.size();
 			classReferences.add( entityClassName );
-			classRef = classReferences.size() - 1;
+			classReferenceIndexes.put( entityClassName, classRef );
 		}
 		return classRef;
 	}
 
 	@Override
 	public void addIdSerializedInJava(byte[] id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", ByteBuffer.wrap( id ) );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_SERIALIZED );
+			buffers.idEncoder.writeBytes( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addIdAsInteger(int id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", id );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_INT );
+			buffers.idEncoder.writeInt( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addIdAsLong(long id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", id );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_LONG );
+			buffers.idEncoder.writeLong( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addIdAsFloat(float id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", id );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_FLOAT );
+			buffers.idEncoder.writeFloat( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addIdAsDouble(double id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", id );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_DOUBLE );
+			buffers.idEncoder.writeDouble( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addIdAsString(String id) {
-		this.idRecord = new GenericData.Record( protocol.getType( "Id" ) );
-		idRecord.put( "value", id );
+		try {
+			buffers.id.reset();
+			buffers.idEncoder.writeIndex( ID_STRING );
+			buffers.idEncoder.writeString( id );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addDelete(String entityClassName) {
-		int classRef = getClassReference( entityClassName );
-		GenericRecord delete = new GenericData.Record( protocol.getType( "Delete" ) );
-		delete.put( "class", classRef );
-		delete.put( "id", idRecord );
-		operations.add( delete );
-		idRecord = null;
+		try {
+			BinaryEncoder encoder = buffers.operationsEncoder;
+			encoder.writeIndex( DELETE );
+			encoder.writeInt( getClassReference( entityClassName ) );
+			buffers.id.writeTo( buffers.operations );
+			buffers.id.reset();
+			operationCount++;
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addAdd(String entityClassName, Map<String, String> fieldToAnalyzerMap) {
-		int classRef = getClassReference( entityClassName );
-		GenericRecord add = new GenericData.Record( protocol.getType( "Add" ) );
-		add.put( "class", classRef );
-		add.put( "id", idRecord );
-		add.put( "document", document );
-		add.put( "fieldToAnalyzerMap", fieldToAnalyzerMap );
-		operations.add( add );
-		idRecord = null;
-		clearDocument();
+		addDocumentOperation( ADD, entityClassName, fieldToAnalyzerMap );
 	}
 
 	@Override
 	public void addUpdate(String entityClassName, Map<String, String> fieldToAnalyzerMap) {
-		int classRef = getClassReference( entityClassName );
-		GenericRecord update = new GenericData.Record( protocol.getType( "Update" ) );
-		update.put( "class", classRef );
-		update.put( "id", idRecord );
-		update.put( "document", document );
-		update.put( "fieldToAnalyzerMap", fieldToAnalyzerMap );
-		operations.add( update );
-		idRecord = null;
-		clearDocument();
+		addDocumentOperation( UPDATE, entityClassName, fieldToAnalyzerMap );
 	}
 
+	private void addDocumentOperation(int operation, String entityClassName, Map<String, String> fieldToAnalyzerMap) {
+		try {
+			BinaryEncoder encoder = buffers.operationsEncoder;
+			encoder.writeIndex( operation );
+			encoder.writeInt( getClassReference( entityClassName ) );
+			buffers.id.writeTo( buffers.operations );
+			buffers.id.reset();
+			encoder.writeFloat( documentBoost );
+			encoder.writeArrayStart();
+			encoder.setItemCount( fieldableCount );
+			buffers.document.writeTo( buffers.operations );
+			encoder.writeArrayEnd();
+			buffers.document.reset();
+			if ( fieldToAnalyzerMap == null ) {
+				encoder.writeIndex( NULL );
+				encoder.writeNull();
+			}
+			else {
+				encoder.writeIndex( MAP );
+				encoder.writeMapStart();
+				encoder.setItemCount( fieldToAnalyzerMap.size() );
+				for ( Map.Entry<String, String> entry : fieldToAnalyzerMap.entrySet() ) {
+					encoder.startItem();
+					encoder.writeString( entry.getKey() );
+					encoder.writeString( entry.getValue() );
+				}
+				encoder.writeMapEnd();
+			}
+			operationCount++;
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
+	}
 
 	@Override
 	public byte[] serialize() {
-		final ByteArrayOutputStream out = new ByteArrayOutputStream();
-		out.write( AvroSerializationProvider.getMajorVersion() );
-		out.write( AvroSerializationProvider.getMinorVersion() );
-		Schema msgSchema = protocol.getType( "Message" );
-		GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<GenericRecord>( msgSchema );
-		BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder( out, null );
-		GenericRecord message = new GenericData.Record( msgSchema );
-		message.put( "classReferences", classReferences );
-		message.put( "operations", operations );
-		operations = null;
 		try {
-			writer.write( message, encoder );
-			encoder.flush();
+			writeMessageHeader();
+			byte[] message = new byte[buffers.header.size() + buffers.operations.size()];
+			buffers.operations.copyTo( message, buffers.header.copyTo( message, 0 ) );
+			return message;
 		}
 		catch ( IOException e ) {
-			throw log.unableToSerializeInAvro(e);
+			throw log.unableToSerializeInAvro( e );
+		}
+		finally {
+			releaseBuffers();
 		}
-		return out.toByteArray();
+	}
+
+	/**
+	 * Writes the protocol version and the class references, and frames the operations as a single array block.
+	 */
+	private void writeMessageHeader() throws IOException {
+		buffers.operationsEncoder.writeArrayEnd();
+		buffers.header.write( AvroSerializationProvider.getMajorVersion() );
+		buffers.header.write( AvroSerializationProvider.getMinorVersion() );
+		BinaryEncoder encoder = buffers.headerEncoder;
+		encoder.writeArrayStart();
+		encoder.setItemCount( classReferences.size() );
+		for ( String classReference : classReferences ) {
+			encoder.startItem();
+			encoder.writeString( classReference );
+		}
+		encoder.writeArrayEnd();
+		encoder.writeArrayStart();
+		encoder.setItemCount( operationCount );
+	}
+
+	private void releaseBuffers() {
+		provider.returnBuffers( buffers );
+		buffers = null;
 	}
 
 	@Override
 	public void fields(List<Fieldable> fields) {
-		fieldables = new ArrayList<GenericRecord>( fields.size() );
+		buffers.document.reset();
+		fieldableCount = 0;
 	}
 
 	@Override
 	public void addIntNumericField(int value, LuceneNumericFieldContext context) {
-		GenericRecord numericField = createNumericfield( "NumericIntField", context );
-		numericField.put( "value", value );
-		fieldables.add( numericField );
+		try {
+			buffers.documentEncoder.writeIndex( NUMERIC_INT_FIELD );
+			buffers.documentEncoder.writeInt( value );
+			writeNumericField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
-	private GenericRecord createNumericfield(String schemaName, LuceneNumericFieldContext context) {
-		GenericRecord numericField = new GenericData.Record( protocol.getType( schemaName ) );
-		numericField.put( "name", context.getName() );
-		numericField.put( "precisionStep", context.getPrecisionStep() );
-		numericField.put( "store", context.getStore() );
-		numericField.put( "indexed", context.isIndexed() );
-		numericField.put( "boost", context.getBoost() );
-		numericField.put( "omitNorms", context.getOmitNorms() );
-		numericField.put( "omitTermFreqAndPositions", context.getOmitTermFreqAndPositions() );
-		return numericField;
+	private void writeNumericField(LuceneNumericFieldContext context) throws IOException {
+		BinaryEncoder encoder = buffers.documentEncoder;
+		writeFieldName( context.getName() );
+		encoder.writeInt( context.getPrecisionStep() );
+		writeStore( context.getStore() );
+		encoder.writeBoolean( context.isIndexed() );
+		encoder.writeFloat( context.getBoost() );
+		encoder.writeBoolean( context.getOmitNorms() );
+		encoder.writeBoolean( context.getOmitTermFreqAndPositions() );
+		fieldableCount++;
 	}
 
 	@Override
 	public void addLongNumericField(long value, LuceneNumericFieldContext context) {
-		GenericRecord numericField = createNumericfield( "NumericLongField", context );
-		numericField.put( "value", value );
-		fieldables.add( numericField );
+		try {
+			buffers.documentEncoder.writeIndex( NUMERIC_LONG_FIELD );
+			buffers.documentEncoder.writeLong( value );
+			writeNumericField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addFloatNumericField(float value, LuceneNumericFieldContext context) {
-		GenericRecord numericField = createNumericfield( "NumericFloatField", context );
-		numericField.put( "value", value );
-		fieldables.add( numericField );
+		try {
+			buffers.documentEncoder.writeIndex( NUMERIC_FLOAT_FIELD );
+			buffers.documentEncoder.writeFloat( value );
+			writeNumericField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addDoubleNumericField(double value, LuceneNumericFieldContext context) {
-		GenericRecord numericField = createNumericfield( "NumericDoubleField", context );
-		numericField.put( "value", value );
-		fieldables.add( numericField );
+		try {
+			buffers.documentEncoder.writeIndex( NUMERIC_DOUBLE_FIELD );
+			buffers.documentEncoder.writeDouble( value );
+			writeNumericField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addFieldWithBinaryData(LuceneFieldContext context) {
-		GenericRecord field = createNormalField( "BinaryField", context );
-		field.put( "offset", context.getBinaryOffset() );
-		field.put( "length", context.getBinaryLength() );
-		field.put( "value", ByteBuffer.wrap( context.getBinaryValue() ) );
-		fieldables.add( field );
+		try {
+			BinaryEncoder encoder = buffers.documentEncoder;
+			encoder.writeIndex( BINARY_FIELD );
+			encoder.writeBytes( context.getBinaryValue() );
+			encoder.writeInt( context.getBinaryOffset() );
+			encoder.writeInt( context.getBinaryLength() );
+			writeNormalField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
+	}
+
+	private void writeNormalField(LuceneFieldContext context) throws IOException {
+		BinaryEncoder encoder = buffers.documentEncoder;
+		writeFieldName( context.getName() );
+		encoder.writeFloat( context.getBoost() );
+		encoder.writeBoolean( context.isOmitNorms() );
+		encoder.writeBoolean( context.isOmitTermFreqAndPositions() );
+		fieldableCount++;
+	}
+
+	private void writeFieldName(String name) throws IOException {
+		Utf8 encodedName = fieldNames.get( name );
+		if ( encodedName == null ) {
+			encodedName = new Utf8( name );
+			fieldNames.put( name, encodedName );
+		}
+		buffers.documentEncoder.writeString( encodedName );
+	}
+
+	private void writeStore(SerializableStore store) throws IOException {
+		buffers.documentEncoder.writeEnum( storeSchema.getEnumOrdinal( store.name() ) );
+	}
+
+	private void writeIndex(SerializableIndex index) throws IOException {
+		buffers.documentEncoder.writeEnum( indexSchema.getEnumOrdinal( index.name() ) );
 	}
 
-	private GenericRecord createNormalField(String schemaName, LuceneFieldContext context) {
-		GenericRecord field = new GenericData.Record( protocol.getType( schemaName ) );
-		field.put( "name", context.getName() );
-		field.put( "boost", context.getBoost() );
-		field.put( "omitNorms", context.isOmitNorms() );
-		field.put( "omitTermFreqAndPositions", context.isOmitTermFreqAndPositions() );
-		return field;
+	private void writeTermVector(SerializableTermVector termVector) throws IOException {
+		buffers.documentEncoder.writeEnum( termVectorSchema.getEnumOrdinal( termVector.name() ) );
 	}
 
 	@Override
 	public void addFieldWithStringData(LuceneFieldContext context) {
-		GenericRecord field = createNormalField( "StringField", context );
-		field.put( "value", context.getStringValue() );
-		field.put( "store", context.getStore() );
-		field.put( "index", context.getIndex() );
-		field.put( "termVector", context.getTermVector() );
-		fieldables.add( field );
+		try {
+			BinaryEncoder encoder = buffers.documentEncoder;
+			encoder.writeIndex( STRING_FIELD );
+			encoder.writeString( context.getStringValue() );
+			writeStore( context.getStore() );
+			writeIndex( context.getIndex() );
+			writeTermVector( context.getTermVector() );
+			writeNormalField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addFieldWithTokenStreamData(LuceneFieldContext context) {
-		GenericRecord field = createNormalField( "TokenStreamField", context );
-		List<List<AttributeImpl>> stream = context.getTokenStream().getStream();
-		List<List<Object>> value = new ArrayList<List<Object>>( stream.size() );
-		for( List<AttributeImpl> attrs : stream ) {
-			List<Object> elements = new ArrayList<Object>( attrs.size() );
-			for(AttributeImpl attr : attrs) {
-				elements.add( buildAttributeImpl( attr ) );
+		try {
+			BinaryEncoder encoder = buffers.documentEncoder;
+			encoder.writeIndex( TOKEN_STREAM_FIELD );
+			List<List<AttributeImpl>> stream = context.getTokenStream().getStream();
+			encoder.writeArrayStart();
+			encoder.setItemCount( stream.size() );
+			for ( List<AttributeImpl> attrs : stream ) {
+				encoder.startItem();
+				encoder.writeArrayStart();
+				encoder.setItemCount( attrs.size() );
+				for ( AttributeImpl attr : attrs ) {
+					encoder.startItem();
+					writeAttribute( attr );
+				}
+				encoder.writeArrayEnd();
 			}
-			value.add(elements);
+			encoder.writeArrayEnd();
+			writeTermVector( context.getTermVector() );
+			writeNormalField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
 		}
-		field.put( "value", value );
-		field.put( "termVector", context.getTermVector() );
-		fieldables.add( field );
 	}
 
-	private Object buildAttributeImpl(AttributeImpl attr) {
+	private void writeAttribute(AttributeImpl attr) throws IOException {
+		BinaryEncoder encoder = buffers.documentEncoder;
 		if ( attr instanceof AnalysisRequestHandlerBase.TokenTrackingAttributeImpl ) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "TokenTrackingAttribute" ) );
 			int[] positions = ( (AnalysisRequestHandlerBase.TokenTrackingAttributeImpl) attr ).getPositions();
-			List<Integer> fullPositions = new ArrayList<Integer>( positions.length );
-			for (int position : positions) {
-				fullPositions.add( position );
+			encoder.writeIndex( TOKEN_TRACKING_ATTRIBUTE );
+			encoder.writeArrayStart();
+			encoder.setItemCount( positions.length );
+			for ( int position : positions ) {
+				encoder.startItem();
+				encoder.writeInt( position );
 			}
-			record.put( "positions", fullPositions );
-			return record;
-		}
-		else if (attr instanceof CharTermAttributeImpl) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "CharTermAttribute" ) );
-			CharTermAttribute charAttr = (CharTermAttribute) attr;
-			record.put("sequence", charAttr.toString() );
-			return record;
-		}
-		else if (attr instanceof PayloadAttribute) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "PayloadAttribute" ) );
-			PayloadAttribute payloadAttr = (PayloadAttribute) attr;
-			record.put("payload", ByteBuffer.wrap( payloadAttr.getPayload().toByteArray() ) );
-			return record;
-		}
-		else if (attr instanceof KeywordAttribute) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "KeywordAttribute" ) );
-			KeywordAttribute narrowedAttr = (KeywordAttribute) attr;
-			record.put("isKeyword", narrowedAttr.isKeyword() );
-			return record;
-		}
-		else if (attr instanceof PositionIncrementAttribute ) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "PositionIncrementAttribute" ) );
-			PositionIncrementAttribute narrowedAttr = (PositionIncrementAttribute) attr;
-			record.put("positionIncrement", narrowedAttr.getPositionIncrement() );
-			return record;
-		}
-		else if (attr instanceof FlagsAttribute ) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "FlagsAttribute" ) );
-			FlagsAttribute narrowedAttr = (FlagsAttribute) attr;
-			record.put("flags", narrowedAttr.getFlags() );
-			return record;
-		}
-		else if (attr instanceof TypeAttribute ) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "TypeAttribute" ) );
-			TypeAttribute narrowedAttr = (TypeAttribute) attr;
-			record.put("type", narrowedAttr.type() );
-			return record;
-		}
-		else if (attr instanceof OffsetAttribute ) {
-			GenericRecord record = new GenericData.Record( protocol.getType( "OffsetAttribute" ) );
+			encoder.writeArrayEnd();
+		}
+		else if ( attr instanceof CharTermAttributeImpl ) {
+			encoder.writeIndex( CHAR_TERM_ATTRIBUTE );
+			encoder.writeString( ( (CharTermAttribute) attr ).toString() );
+		}
+		else if ( attr instanceof PayloadAttribute ) {
+			Payload payload = ( (PayloadAttribute) attr ).getPayload();
+			encoder.writeIndex( PAYLOAD_ATTRIBUTE );
+			encoder.writeBytes( payload.getData(), payload.getOffset(), payload.length() );
+		}
+		else if ( attr instanceof KeywordAttribute ) {
+			encoder.writeIndex( KEYWORD_ATTRIBUTE );
+			encoder.writeBoolean( ( (KeywordAttribute) attr ).isKeyword() );
+		}
+		else if ( attr instanceof PositionIncrementAttribute ) {
+			encoder.writeIndex( POSITION_INCREMENT_ATTRIBUTE );
+			encoder.writeInt( ( (PositionIncrementAttribute) attr ).getPositionIncrement() );
+		}
+		else if ( attr instanceof FlagsAttribute ) {
+			encoder.writeIndex( FLAGS_ATTRIBUTE );
+			encoder.writeInt( ( (FlagsAttribute) attr ).getFlags() );
+		}
+		else if ( attr instanceof TypeAttribute ) {
+			encoder.writeIndex( TYPE_ATTRIBUTE );
+			encoder.writeString( ( (TypeAttribute) attr ).type() );
+		}
+		else if ( attr instanceof OffsetAttribute ) {
 			OffsetAttribute narrowedAttr = (OffsetAttribute) attr;
-			record.put("startOffset", narrowedAttr.startOffset() );
-			record.put("endOffset", narrowedAttr.endOffset() );
-			return record;
+			encoder.writeIndex( OFFSET_ATTRIBUTE );
+			encoder.writeInt( narrowedAttr.startOffset() );
+			encoder.writeInt( narrowedAttr.endOffset() );
 		}
-		else if (attr instanceof Serializable) {
-			return ByteBuffer.wrap( toByteArray(attr) );
+		else if ( attr instanceof Serializable ) {
+			encoder.writeIndex( SERIALIZED_ATTRIBUTE );
+			encoder.writeBytes( toByteArray( attr ) );
 		}
 		else {
 			throw log.attributeNotRecognizedNorSerializable( attr.getClass() );
@@ -351,28 +551,60 @@ public class AvroSerializer implements Serializer {
 
 	@Override
 	public void addFieldWithSerializableReaderData(LuceneFieldContext context) {
-		GenericRecord field = createNormalField( "ReaderField", context );
-		field.put( "value", ByteBuffer.wrap( context.getReaderValue() ) );
-		field.put( "termVector", context.getTermVector() );
-		fieldables.add( field );
+		try {
+			BinaryEncoder encoder = buffers.documentEncoder;
+			encoder.writeIndex( READER_FIELD );
+			encoder.writeBytes( context.getReaderValue() );
+			writeTermVector( context.getTermVector() );
+			writeNormalField( context );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addFieldWithSerializableFieldable(byte[] fieldable) {
-		GenericRecord customFieldable = new GenericData.Record( protocol.getType( "CustomFieldable" ) );
-		customFieldable.put( "instance", ByteBuffer.wrap( fieldable ) );
-		fieldables.add( customFieldable );
+		try {
+			buffers.documentEncoder.writeIndex( CUSTOM_FIELDABLE );
+			buffers.documentEncoder.writeBytes( fieldable );
+			fieldableCount++;
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeInAvro( e );
+		}
 	}
 
 	@Override
 	public void addDocument(float boost) {
-		document = new GenericData.Record( protocol.getType( "Document" ) );
-		document.put( "boost", boost );
-		document.put( "fieldables", fieldables );
+		documentBoost = boost;
 	}
 
-	private void clearDocument() {
-		document = null;
-		fieldables = null;
+	/**
+	 * The buffers and encoders used to serialize a message. The encoders write straight to their buffer,
+	 * so a buffer can be copied into another at any time.
+	 */
+	static final class Buffers {
+		private static final int INITIAL_CAPACITY = 1024;
+
+		final ReusableByteArrayOutputStream header = new ReusableByteArrayOutputStream( 256 );
+		final ReusableByteArrayOutputStream operations = new ReusableByteArrayOutputStream( INITIAL_CAPACITY );
+		final ReusableByteArrayOutputStream document = new ReusableByteArrayOutputStream( INITIAL_CAPACITY );
+		final ReusableByteArrayOutputStream id = new ReusableByteArrayOutputStream( 64 );
+		final BinaryEncoder headerEncoder = EncoderFactory.get().directBinaryEncoder( header, null );
+		final BinaryEncoder operationsEncoder = EncoderFactory.get().directBinaryEncoder( operations, null );
+		final BinaryEncoder documentEncoder = EncoderFactory.get().directBinaryEncoder( document, null );
+		final BinaryEncoder idEncoder = EncoderFactory.get().directBinaryEncoder( id, null );
+
+		void reset() {
+			header.reset();
+			operations.reset();
+			document.reset();
+			id.reset();
+		}
+
+		int capacity() {
+			return header.capacity() + operations.capacity() + document.capacity() + id.capacity();
+		}
 	}
 }
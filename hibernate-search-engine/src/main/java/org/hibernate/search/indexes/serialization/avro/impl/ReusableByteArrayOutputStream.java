@@ -0,0 +1,81 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.indexes.serialization.avro.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An unsynchronized {@code ByteArrayOutputStream} which can be reset and reused, and copies its
+ * content to another stream or array without making an intermediate copy.
+ */
+final class ReusableByteArrayOutputStream extends OutputStream {
+	private byte[] buffer;
+	private int count;
+
+	ReusableByteArrayOutputStream(int initialCapacity) {
+		this.buffer = new byte[initialCapacity];
+	}
+
+	@Override
+	public void write(int b) {
+		ensureCapacity( count + 1 );
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) {
+		ensureCapacity( count + length );
+		System.arraycopy( bytes, offset, buffer, count, length );
+		count += length;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if ( capacity > buffer.length ) {
+			buffer = Arrays.copyOf( buffer, Math.max( buffer.length << 1, capacity ) );
+		}
+	}
+
+	int size() {
+		return count;
+	}
+
+	int capacity() {
+		return buffer.length;
+	}
+
+	void reset() {
+		count = 0;
+	}
+
+	void writeTo(OutputStream out) throws IOException {
+		out.write( buffer, 0, count );
+	}
+
+	/**
+	 * @return the offset following the copied bytes
+	 */
+	int copyTo(byte[] target, int offset) {
+		System.arraycopy( buffer, 0, target, offset, count );
+		return offset + count;
+	}
+}
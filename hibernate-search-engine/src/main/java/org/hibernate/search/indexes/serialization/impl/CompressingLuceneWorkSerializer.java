@@ -0,0 +1,134 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.indexes.serialization.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.indexes.serialization.spi.CompressionCodec;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+import org.hibernate.search.util.logging.impl.Log;
+import org.hibernate.search.util.logging.impl.LoggerFactory;
+
+/**
+ * Compresses the payloads of another {@code LuceneWorkSerializer} above a size threshold.
+ *
+ * A compressed payload starts with a marker byte, the identifier of the codec and the length of the uncompressed
+ * payload on 4 bytes. Payloads below the threshold, or which don't get smaller, are sent as they are: they can be
+ * read by nodes not knowing about compression, so compression can be enabled once all nodes are upgraded.
+ * Compressed payloads are read whether compression is enabled or not, with any of the codecs of Hibernate Search
+ * or the configured one.
+ */
+public class CompressingLuceneWorkSerializer implements LuceneWorkSerializer {
+	private static final Log log = LoggerFactory.make();
+
+	/**
+	 * First byte of compressed payloads. Uncompressed payloads start with the protocol major version for Avro,
+	 * and with 0xAC for Java serialization.
+	 */
+	static final byte COMPRESSED_PAYLOAD = (byte) 0xFF;
+	private static final int HEADER_LENGTH = 6;
+
+	/**
+	 * Deflate can't expand data more than 1032 times, the LZ codec 255 times: a larger uncompressed length
+	 * in the header of a payload means it is corrupted, and is not allocated.
+	 */
+	static final int MAX_COMPRESSION_RATIO = 1032;
+
+	private final LuceneWorkSerializer delegate;
+	private final CompressionCodec codec;
+	private final int threshold;
+	private final CompressionCodec[] codecs = new CompressionCodec[256];
+
+	/**
+	 * @param delegate the serializer of the uncompressed payloads
+	 * @param codec the codec compressing payloads, or {@code null} to only decompress
+	 * @param threshold the size in bytes from which payloads are compressed
+	 */
+	public CompressingLuceneWorkSerializer(LuceneWorkSerializer delegate, CompressionCodec codec, int threshold) {
+		this.delegate = delegate;
+		this.codec = codec;
+		this.threshold = threshold;
+		register( new DeflateCompressionCodec() );
+		register( new LZCompressionCodec() );
+		if ( codec != null ) {
+			register( codec );
+		}
+	}
+
+	private void register(CompressionCodec codec) {
+		int id = codec.getId() & 0xFF;
+		CompressionCodec registered = codecs[id];
+		if ( registered != null && registered.getClass() != codec.getClass() ) {
+			throw log.duplicateCompressionCodecId( codec.getClass().getName(), id, registered.getClass().getName() );
+		}
+		codecs[id] = codec;
+	}
+
+	@Override
+	public byte[] toSerializedModel(List<LuceneWork> works) {
+		byte[] data = delegate.toSerializedModel( works );
+		if ( codec == null || data.length < threshold ) {
+			return data;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream( data.length / 2 + HEADER_LENGTH );
+		out.write( COMPRESSED_PAYLOAD );
+		out.write( codec.getId() );
+		out.write( data.length >>> 24 );
+		out.write( data.length >>> 16 );
+		out.write( data.length >>> 8 );
+		out.write( data.length );
+		try {
+			codec.compress( data, 0, data.length, out );
+		}
+		catch ( IOException e ) {
+			throw log.unableToSerializeLuceneWorks( e );
+		}
+		return out.size() < data.length ? out.toByteArray() : data;
+	}
+
+	@Override
+	public List<LuceneWork> toLuceneWorks(byte[] data) {
+		if ( data.length < HEADER_LENGTH || data[0] != COMPRESSED_PAYLOAD ) {
+			return delegate.toLuceneWorks( data );
+		}
+		int codecId = data[1] & 0xFF;
+		CompressionCodec payloadCodec = codecs[codecId];
+		if ( payloadCodec == null ) {
+			throw log.unknownCompressionCodec( codecId );
+		}
+		int length = ( data[2] & 0xFF ) << 24 | ( data[3] & 0xFF ) << 16 | ( data[4] & 0xFF ) << 8 | ( data[5] & 0xFF );
+		int compressedLength = data.length - HEADER_LENGTH;
+		if ( length < 0 || length > (long) compressedLength * MAX_COMPRESSION_RATIO ) {
+			throw log.invalidUncompressedLength( length, compressedLength );
+		}
+		byte[] uncompressed = new byte[length];
+		try {
+			payloadCodec.decompress( data, HEADER_LENGTH, compressedLength, uncompressed );
+		}
+		catch ( IOException e ) {
+			throw log.unableToDecompressLuceneWorks( e );
+		}
+		return delegate.toLuceneWorks( uncompressed );
+	}
+}
@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.util.Attribute;
 import org.apache.lucene.util.AttributeImpl;
 
 import org.hibernate.search.indexes.serialization.spi.SerializableTokenStream;
@@ -54,7 +55,7 @@ public class CopyTokenStream extends TokenStream implements Serializable {
 			return new SerializableTokenStream(stream);
 		}
 		catch ( IOException e ) {
-			throw log.unableToReadTokenStream();
+			throw log.unableToReadTokenStream( e );
 		}
 	}
 
@@ -78,8 +79,29 @@ public class CopyTokenStream extends TokenStream implements Serializable {
 
 	private void setState(int localIndex) {
 		for ( AttributeImpl attr : cache.get(localIndex) ) {
-			addAttributeImpl( attr );
+			Class<? extends Attribute> attributeType = attributeType( attr );
+			if ( attributeType == null ) {
+				continue;
+			}
+			if ( hasAttribute( attributeType ) ) {
+				// consumers like IndexWriter add their attributes before iterating: copy the values into them
+				attr.copyTo( (AttributeImpl) getAttribute( attributeType ) );
+			}
+			else {
+				// never register the cached instance, as it would be overwritten by the next tokens
+				addAttributeImpl( (AttributeImpl) attr.clone() );
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Attribute> attributeType(AttributeImpl attr) {
+		for ( Class<?> type : attr.getClass().getInterfaces() ) {
+			if ( type != Attribute.class && Attribute.class.isAssignableFrom( type ) ) {
+				return (Class<? extends Attribute>) type;
+			}
 		}
+		return null;
 	}
 
 	@Override
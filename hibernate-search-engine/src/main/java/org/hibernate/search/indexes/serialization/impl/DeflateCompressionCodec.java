@@ -0,0 +1,86 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.indexes.serialization.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.hibernate.search.indexes.serialization.spi.CompressionCodec;
+
+/**
+ * Compresses with the deflate algorithm of {@code java.util.zip}: slower than {@link LZCompressionCodec}
+ * but giving smaller payloads.
+ */
+public class DeflateCompressionCodec implements CompressionCodec {
+	public static final byte ID = 1;
+
+	private static final int BUFFER_SIZE = 4096;
+
+	@Override
+	public byte getId() {
+		return ID;
+	}
+
+	@Override
+	public void compress(byte[] data, int offset, int length, OutputStream out) throws IOException {
+		Deflater deflater = new Deflater( Deflater.BEST_SPEED, true );
+		try {
+			deflater.setInput( data, offset, length );
+			deflater.finish();
+			byte[] buffer = new byte[Math.min( BUFFER_SIZE, length + 64 )];
+			while ( !deflater.finished() ) {
+				int count = deflater.deflate( buffer );
+				out.write( buffer, 0, count );
+			}
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public void decompress(byte[] data, int offset, int length, byte[] target) throws IOException {
+		Inflater inflater = new Inflater( true );
+		try {
+			inflater.setInput( data, offset, length );
+			int count = 0;
+			while ( count < target.length ) {
+				int inflated = inflater.inflate( target, count, target.length - count );
+				if ( inflated == 0 && ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() ) ) {
+					break;
+				}
+				count += inflated;
+			}
+			if ( count != target.length ) {
+				throw new IOException( "Compressed data is shorter than expected: " + count + " bytes instead of " + target.length );
+			}
+		}
+		catch ( DataFormatException e ) {
+			throw new IOException( "Corrupted compressed data", e );
+		}
+		finally {
+			inflater.end();
+		}
+	}
+}
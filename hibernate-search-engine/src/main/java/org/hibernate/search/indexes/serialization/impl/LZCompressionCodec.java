@@ -0,0 +1,182 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.indexes.serialization.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.hibernate.search.indexes.serialization.spi.CompressionCodec;
+
+/**
+ * A fast LZ77 compressor, trading compression ratio for speed: repeated sequences of at least
+ * {@value #MIN_MATCH} bytes are found through a hash table of the last positions of each sequence, without
+ * looking for longer matches.
+ * <p/>
+ * The compressed data is a list of sequences, each made of a token, the literal bytes and a match copying bytes
+ * already decompressed. The high 4 bits of the token hold the number of literals, the low 4 bits the length of
+ * the match minus {@value #MIN_MATCH}; a value of 15 is followed by bytes to add to it, up to a byte different
+ * from 255. The literals are followed by the distance of the match on 2 bytes, little endian, and the additional
+ * bytes of the match length. The last sequence has no match.
+ */
+public class LZCompressionCodec implements CompressionCodec {
+	public static final byte ID = 2;
+
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_DISTANCE = 0xFFFF;
+	private static final int HASH_BITS = 13;
+	// the last bytes are always written as literals, so matches never read past the end of the data
+	private static final int LAST_LITERALS = 5;
+	private static final int RUN_MASK = 15;
+
+	@Override
+	public byte getId() {
+		return ID;
+	}
+
+	@Override
+	public void compress(byte[] data, int offset, int length, OutputStream out) throws IOException {
+		byte[] target = new byte[length + length / 255 + 16];
+		int[] lastPositions = new int[1 << HASH_BITS];
+		int end = offset + length;
+		int matchLimit = end - LAST_LITERALS;
+		int anchor = offset;
+		int position = offset;
+		int targetPosition = 0;
+		while ( position < matchLimit ) {
+			int sequence = readInt( data, position );
+			int hash = hash( sequence );
+			//positions are stored plus one, so that 0 means none
+			int candidate = lastPositions[hash] - 1 + offset;
+			lastPositions[hash] = position - offset + 1;
+			if ( candidate < offset || position - candidate > MAX_DISTANCE || readInt( data, candidate ) != sequence ) {
+				position++;
+				continue;
+			}
+			int matchLength = MIN_MATCH;
+			while ( position + matchLength < matchLimit && data[candidate + matchLength] == data[position + matchLength] ) {
+				matchLength++;
+			}
+			targetPosition = writeSequence(
+					data, anchor, position - anchor, position - candidate, matchLength, target, targetPosition
+			);
+			position += matchLength;
+			anchor = position;
+		}
+		targetPosition = writeSequence( data, anchor, end - anchor, 0, 0, target, targetPosition );
+		out.write( target, 0, targetPosition );
+	}
+
+	/**
+	 * @param matchLength the length of the match, 0 for the last sequence
+	 *
+	 * @return the position following the sequence
+	 */
+	private static int writeSequence(byte[] data, int literalsStart, int literalCount, int distance, int matchLength, byte[] target, int targetPosition) {
+		int tokenPosition = targetPosition++;
+		int token = Math.min( literalCount, RUN_MASK ) << 4;
+		targetPosition = writeExtraLength( literalCount, target, targetPosition );
+		System.arraycopy( data, literalsStart, target, targetPosition, literalCount );
+		targetPosition += literalCount;
+		if ( matchLength > 0 ) {
+			target[targetPosition++] = (byte) distance;
+			target[targetPosition++] = (byte) ( distance >>> 8 );
+			token |= Math.min( matchLength - MIN_MATCH, RUN_MASK );
+			targetPosition = writeExtraLength( matchLength - MIN_MATCH, target, targetPosition );
+		}
+		target[tokenPosition] = (byte) token;
+		return targetPosition;
+	}
+
+	private static int writeExtraLength(int length, byte[] target, int targetPosition) {
+		if ( length >= RUN_MASK ) {
+			int remaining = length - RUN_MASK;
+			while ( remaining >= 255 ) {
+				target[targetPosition++] = (byte) 255;
+				remaining -= 255;
+			}
+			target[targetPosition++] = (byte) remaining;
+		}
+		return targetPosition;
+	}
+
+	@Override
+	public void decompress(byte[] data, int offset, int length, byte[] target) throws IOException {
+		int end = offset + length;
+		int position = offset;
+		int targetPosition = 0;
+		try {
+			while ( true ) {
+				int token = data[position++] & 0xFF;
+				int literalCount = token >>> 4;
+				if ( literalCount == RUN_MASK ) {
+					int extra;
+					do {
+						extra = data[position++] & 0xFF;
+						literalCount += extra;
+					} while ( extra == 255 );
+				}
+				System.arraycopy( data, position, target, targetPosition, literalCount );
+				position += literalCount;
+				targetPosition += literalCount;
+				if ( position >= end ) {
+					break;
+				}
+				int distance = ( data[position++] & 0xFF ) | ( data[position++] & 0xFF ) << 8;
+				int matchLength = token & RUN_MASK;
+				if ( matchLength == RUN_MASK ) {
+					int extra;
+					do {
+						extra = data[position++] & 0xFF;
+						matchLength += extra;
+					} while ( extra == 255 );
+				}
+				matchLength += MIN_MATCH;
+				int matchPosition = targetPosition - distance;
+				if ( distance == 0 || matchPosition < 0 || targetPosition + matchLength > target.length ) {
+					throw new IOException( "Corrupted compressed data: invalid match at " + ( position - offset ) );
+				}
+				//byte per byte, as the match can overlap the bytes it produces
+				for ( int i = 0; i < matchLength; i++ ) {
+					target[targetPosition++] = target[matchPosition++];
+				}
+			}
+		}
+		catch ( IndexOutOfBoundsException e ) {
+			throw new IOException( "Corrupted compressed data", e );
+		}
+		if ( position != end || targetPosition != target.length ) {
+			throw new IOException(
+					"Compressed data is decompressed into " + targetPosition + " bytes instead of " + target.length
+			);
+		}
+	}
+
+	private static int readInt(byte[] data, int position) {
+		return ( data[position] & 0xFF )
+				| ( data[position + 1] & 0xFF ) << 8
+				| ( data[position + 2] & 0xFF ) << 16
+				| ( data[position + 3] & 0xFF ) << 24;
+	}
+
+	private static int hash(int sequence) {
+		return ( sequence * -1640531535 ) >>> ( 32 - HASH_BITS );
+	}
+}
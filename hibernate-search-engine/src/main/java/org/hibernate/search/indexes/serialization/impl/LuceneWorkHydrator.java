@@ -25,6 +25,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.FlagsAttribute;
@@ -75,9 +77,18 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 	private List<AttributeImpl> attributes;
 	private List<List<AttributeImpl>> tokens;
 	private Serializable id;
+	private final ConcurrentMap<String, Class<?>> entityClasses;
 
 	public LuceneWorkHydrator(SearchFactoryImplementor searchFactory) {
+		this( searchFactory, new ConcurrentHashMap<String, Class<?>>() );
+	}
+
+	/**
+	 * @param entityClasses the entity classes already resolved by name, shared with other hydrators
+	 */
+	public LuceneWorkHydrator(SearchFactoryImplementor searchFactory, ConcurrentMap<String, Class<?>> entityClasses) {
 		this.searchFactory = searchFactory;
+		this.entityClasses = entityClasses;
 		this.results = new ArrayList<LuceneWork>();
 		this.loader = Thread.currentThread().getContextClassLoader();
 	}
@@ -93,11 +104,7 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 
 	@Override
 	public void addPurgeAllLuceneWork(String entityClassName) {
-		Class<?> entityClass = ClassLoaderHelper.classForName(
-				entityClassName,
-				LuceneWorkHydrator.class,
-				"entity class"
-		);
+		Class<?> entityClass = entityClass( entityClassName );
 		results.add( new PurgeAllLuceneWork( entityClass ) );
 	}
 
@@ -113,11 +120,7 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 
 	@Override
 	public void addDeleteLuceneWork(String entityClassName) {
-		Class<?> entityClass = ClassLoaderHelper.classForName(
-				entityClassName,
-				LuceneWorkHydrator.class,
-				"entity class"
-		);
+		Class<?> entityClass = entityClass( entityClassName );
 		LuceneWork result = new DeleteLuceneWork(
 				id,
 				objectIdInString( entityClass, id ),
@@ -129,11 +132,7 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 
 	@Override
 	public void addAddLuceneWork(String entityClassName, Map<String, String> fieldToAnalyzerMap) {
-		Class<?> entityClass = ClassLoaderHelper.classForName(
-				entityClassName,
-				LuceneWorkHydrator.class,
-				"entity class"
-		);
+		Class<?> entityClass = entityClass( entityClassName );
 		LuceneWork result = new AddLuceneWork(
 				id,
 				objectIdInString( entityClass, id ),
@@ -148,11 +147,7 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 
 	@Override
 	public void addUpdateLuceneWork(String entityClassName, Map<String, String> fieldToAnalyzerMap) {
-		Class<?> entityClass = ClassLoaderHelper.classForName(
-				entityClassName,
-				LuceneWorkHydrator.class,
-				"entity class"
-		);
+		Class<?> entityClass = entityClass( entityClassName );
 		LuceneWork result = new UpdateLuceneWork(
 				id,
 				objectIdInString( entityClass, id ),
@@ -165,6 +160,19 @@ public class LuceneWorkHydrator implements LuceneWorksBuilder {
 		id = null;
 	}
 
+	private Class<?> entityClass(String entityClassName) {
+		Class<?> entityClass = entityClasses.get( entityClassName );
+		if ( entityClass == null ) {
+			entityClass = ClassLoaderHelper.classForName(
+					entityClassName,
+					LuceneWorkHydrator.class,
+					"entity class"
+			);
+			entityClasses.put( entityClassName, entityClass );
+		}
+		return entityClass;
+	}
+
 	private void clearDocument() {
 		luceneDocument = null;
 	}
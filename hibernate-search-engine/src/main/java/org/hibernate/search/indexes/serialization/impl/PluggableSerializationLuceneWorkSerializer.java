@@ -20,9 +20,17 @@
  */
 package org.hibernate.search.indexes.serialization.impl;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Fieldable;
@@ -42,6 +50,7 @@ import org.hibernate.search.indexes.serialization.spi.LuceneNumericFieldContext;
 import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
 import org.hibernate.search.indexes.serialization.spi.SerializationProvider;
 import org.hibernate.search.indexes.serialization.spi.Serializer;
+import org.hibernate.search.util.impl.ScopedAnalyzer;
 import org.hibernate.search.util.logging.impl.Log;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
 
@@ -61,10 +70,22 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 
 	private SearchFactoryImplementor searchFactory;
 	private SerializationProvider provider;
+	private final boolean preAnalysis;
+	//entity classes resolved by name when deserializing, shared by all messages
+	private final ConcurrentMap<String, Class<?>> entityClasses = new ConcurrentHashMap<String, Class<?>>();
 
 	public PluggableSerializationLuceneWorkSerializer(SerializationProvider provider, SearchFactoryImplementor searchFactory) {
+		this( provider, searchFactory, false );
+	}
+
+	/**
+	 * @param preAnalysis whether analyzed fields are serialized as the token streams produced by their analyzer,
+	 * so that the node applying the works doesn't analyze them again
+	 */
+	public PluggableSerializationLuceneWorkSerializer(SerializationProvider provider, SearchFactoryImplementor searchFactory, boolean preAnalysis) {
 		this.provider = provider;
 		this.searchFactory = searchFactory;
+		this.preAnalysis = preAnalysis;
 	}
 
 	/**
@@ -73,32 +94,7 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 	@Override
 	public byte[] toSerializedModel(List<LuceneWork> works) {
 		try {
-			Serializer serializer = provider.getSerializer();
-			serializer.luceneWorks( works );
-
-			for (LuceneWork work : works) {
-				if (work instanceof OptimizeLuceneWork) {
-					serializer.addOptimizeAll();
-				}
-				else if (work instanceof PurgeAllLuceneWork) {
-					serializer.addPurgeAll( work.getEntityClass().getName() );
-				}
-				else if (work instanceof DeleteLuceneWork) {
-					processId(work, serializer);
-					serializer.addDelete( work.getEntityClass().getName() );
-				}
-				else if (work instanceof AddLuceneWork ) {
-					buildDocument( work.getDocument(), serializer );
-					processId(work, serializer);
-					serializer.addAdd( work.getEntityClass().getName(),  work.getFieldToAnalyzerMap() );
-				}
-				else if (work instanceof UpdateLuceneWork ) {
-					buildDocument( work.getDocument(), serializer );
-					processId(work, serializer);
-					serializer.addUpdate( work.getEntityClass().getName(), work.getFieldToAnalyzerMap() );
-				}
-			}
-			return serializer.serialize();
+			return traverse( works ).serialize();
 		}
 		catch ( RuntimeException e ) {
 			if ( e instanceof SearchException ) {
@@ -110,6 +106,35 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 		}
 	}
 
+	private Serializer traverse(List<LuceneWork> works) {
+		Serializer serializer = provider.getSerializer();
+		serializer.luceneWorks( works );
+
+		for (LuceneWork work : works) {
+			if (work instanceof OptimizeLuceneWork) {
+				serializer.addOptimizeAll();
+			}
+			else if (work instanceof PurgeAllLuceneWork) {
+				serializer.addPurgeAll( work.getEntityClass().getName() );
+			}
+			else if (work instanceof DeleteLuceneWork) {
+				processId(work, serializer);
+				serializer.addDelete( work.getEntityClass().getName() );
+			}
+			else if (work instanceof AddLuceneWork ) {
+				buildDocument( work, serializer );
+				processId(work, serializer);
+				serializer.addAdd( work.getEntityClass().getName(),  work.getFieldToAnalyzerMap() );
+			}
+			else if (work instanceof UpdateLuceneWork ) {
+				buildDocument( work, serializer );
+				processId(work, serializer);
+				serializer.addUpdate( work.getEntityClass().getName(), work.getFieldToAnalyzerMap() );
+			}
+		}
+		return serializer;
+	}
+
 	private void processId(LuceneWork work, Serializer serializer) {
 		Serializable id = work.getId();
 		if ( id instanceof Integer ) {
@@ -139,7 +164,7 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 	public List<LuceneWork> toLuceneWorks(byte[] data) {
 		try {
 			Deserializer deserializer = provider.getDeserializer();
-			LuceneWorkHydrator hydrator = new LuceneWorkHydrator( searchFactory );
+			LuceneWorkHydrator hydrator = new LuceneWorkHydrator( searchFactory, entityClasses );
 			deserializer.deserialize( data, hydrator );
 			return hydrator.getLuceneWorks();
 		}
@@ -154,7 +179,9 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 	}
 
 
-	private void buildDocument(Document document, Serializer serializer) {
+	private void buildDocument(LuceneWork work, Serializer serializer) {
+		Document document = work.getDocument();
+		Analyzer analyzer = null;
 		List<Fieldable> docFields = document.getFields();
 		serializer.fields( docFields );
 		for(Fieldable fieldable : docFields) {
@@ -193,7 +220,13 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 			}
 			else if (fieldable instanceof Field) {
 				Field safeField = (Field) fieldable;
-				if ( safeField.isBinary() ) {
+				if ( preAnalysis && isAnalyzedText( safeField ) ) {
+					if ( analyzer == null ) {
+						analyzer = getAnalyzer( work );
+					}
+					addPreAnalyzedField( safeField, analyzer, serializer );
+				}
+				else if ( safeField.isBinary() ) {
 					serializer.addFieldWithBinaryData( new LuceneFieldContext( safeField ) );
 				}
 				else if ( safeField.stringValue() != null )  {
@@ -221,4 +254,67 @@ public class PluggableSerializationLuceneWorkSerializer implements LuceneWorkSer
 		}
 		serializer.addDocument( document.getBoost() );
 	}
+
+	private static boolean isAnalyzedText(Field field) {
+		return field.isIndexed() && field.isTokenized() && field.tokenStreamValue() == null
+				&& ( field.stringValue() != null || field.readerValue() != null );
+	}
+
+	/**
+	 * The analyzer used to index the document of a work, as in {@code AddWorkDelegate}
+	 */
+	private Analyzer getAnalyzer(LuceneWork work) {
+		ScopedAnalyzer analyzer = searchFactory.getIndexBindingForEntity( work.getEntityClass() )
+				.getDocumentBuilder()
+				.getAnalyzer();
+		Map<String, String> fieldToAnalyzerMap = work.getFieldToAnalyzerMap();
+		if ( fieldToAnalyzerMap == null || fieldToAnalyzerMap.isEmpty() ) {
+			return analyzer;
+		}
+		ScopedAnalyzer analyzerClone = analyzer.clone();
+		for ( Map.Entry<String, String> entry : fieldToAnalyzerMap.entrySet() ) {
+			analyzerClone.addScopedAnalyzer( entry.getKey(), searchFactory.getAnalyzer( entry.getValue() ) );
+		}
+		return analyzerClone;
+	}
+
+	/**
+	 * Serializes the stored value of an analyzed field, if any, as a stored only field and the tokens produced by
+	 * its analyzer as an unstored field of the same name.
+	 */
+	private void addPreAnalyzedField(Field field, Analyzer analyzer, Serializer serializer) {
+		if ( field.isStored() ) {
+			Field storedField = new Field( field.name(), field.stringValue(), Field.Store.YES, Field.Index.NO );
+			storedField.setOmitNorms( field.getOmitNorms() );
+			storedField.setIndexOptions( field.getIndexOptions() );
+			serializer.addFieldWithStringData( new LuceneFieldContext( storedField ) );
+		}
+		Reader reader = field.readerValue() != null ? field.readerValue() : new StringReader( field.stringValue() );
+		try {
+			TokenStream tokenStream = analyzer.reusableTokenStream( field.name(), reader );
+			try {
+				tokenStream.reset();
+				Field analyzedField = new Field(
+						field.name(),
+						tokenStream,
+						Field.TermVector.toTermVector(
+								field.isTermVectorStored(),
+								field.isStoreOffsetWithTermVector(),
+								field.isStorePositionWithTermVector()
+						)
+				);
+				analyzedField.setBoost( field.getBoost() );
+				analyzedField.setOmitNorms( field.getOmitNorms() );
+				analyzedField.setIndexOptions( field.getIndexOptions() );
+				serializer.addFieldWithTokenStreamData( new LuceneFieldContext( analyzedField ) );
+				tokenStream.end();
+			}
+			finally {
+				tokenStream.close();
+			}
+		}
+		catch ( IOException e ) {
+			throw log.unableToReadTokenStream( e );
+		}
+	}
 }
@@ -0,0 +1,53 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.indexes.serialization.spi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses serialized works before they are sent to other nodes.
+ *
+ * Compressed payloads are prefixed by the identifier of the codec, so a node can read payloads compressed by any
+ * codec it knows, whatever codec it uses to compress its own payloads. Implementations must be thread safe and
+ * have a no-arg constructor.
+ */
+public interface CompressionCodec {
+
+	/**
+	 * Identifier of the codec written in compressed payloads. Identifiers below 16 are reserved to the codecs
+	 * of Hibernate Search.
+	 */
+	byte getId();
+
+	/**
+	 * Writes the compressed form of {@code length} bytes of {@code data} starting at {@code offset}.
+	 */
+	void compress(byte[] data, int offset, int length, OutputStream out) throws IOException;
+
+	/**
+	 * Decompresses {@code length} bytes of {@code data} starting at {@code offset} filling {@code target},
+	 * which has the length of the uncompressed data.
+	 *
+	 * @throws IOException if the compressed data is corrupted or doesn't decompress to {@code target.length} bytes
+	 */
+	void decompress(byte[] data, int offset, int length, byte[] target) throws IOException;
+}
@@ -0,0 +1,63 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.jmx;
+
+import org.hibernate.search.stat.ChangeSetSpoolStatistics;
+
+public class ChangeSetSpoolStatisticsInfo implements ChangeSetSpoolStatisticsInfoMBean {
+	private final ChangeSetSpoolStatistics delegate;
+
+	public ChangeSetSpoolStatisticsInfo(ChangeSetSpoolStatistics delegate) {
+		this.delegate = delegate;
+	}
+
+	public String getIndexName() {
+		return delegate.getIndexName();
+	}
+
+	public boolean isSpooling() {
+		return delegate.isSpooling();
+	}
+
+	public int getBacklogChangeSetCount() {
+		return delegate.getBacklogChangeSetCount();
+	}
+
+	public long getBacklogBytes() {
+		return delegate.getBacklogBytes();
+	}
+
+	public long getMaxBytes() {
+		return delegate.getMaxBytes();
+	}
+
+	public long getSpooledChangeSetCount() {
+		return delegate.getSpooledChangeSetCount();
+	}
+
+	public long getForwardedChangeSetCount() {
+		return delegate.getForwardedChangeSetCount();
+	}
+
+	public long getRejectedChangeSetCount() {
+		return delegate.getRejectedChangeSetCount();
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.jmx;
+
+import org.hibernate.search.stat.ChangeSetSpoolStatistics;
+
+/**
+ * A MBean exposing the backlog of the spool of an index.
+ */
+public interface ChangeSetSpoolStatisticsInfoMBean extends ChangeSetSpoolStatistics {
+	/**
+	 * Followed by the name of the index
+	 */
+	public static final String CHANGE_SET_SPOOL_MBEAN_OBJECT_NAME_PREFIX = "org.hibernate.search.jmx:type=ChangeSetSpoolMBean,index=";
+}
@@ -0,0 +1,63 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.jmx;
+
+import org.hibernate.search.stat.FilterCacheStatistics;
+
+public class FilterCacheStatisticsInfo implements FilterCacheStatisticsInfoMBean {
+	private final FilterCacheStatistics delegate;
+
+	public FilterCacheStatisticsInfo(FilterCacheStatistics delegate) {
+		this.delegate = delegate;
+	}
+
+	public void clear() {
+		delegate.clear();
+	}
+
+	public long getFilterCacheHitCount() {
+		return delegate.getFilterCacheHitCount();
+	}
+
+	public long getFilterCacheMissCount() {
+		return delegate.getFilterCacheMissCount();
+	}
+
+	public long getFilterCacheEvictionCount() {
+		return delegate.getFilterCacheEvictionCount();
+	}
+
+	public int getCachedFilterCount() {
+		return delegate.getCachedFilterCount();
+	}
+
+	public long getCachedBytes() {
+		return delegate.getCachedBytes();
+	}
+
+	public long getMaxBytes() {
+		return delegate.getMaxBytes();
+	}
+
+	public String[] getCachedFilterStatistics() {
+		return delegate.getCachedFilterStatistics();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * A {@code Collector} interrupting the search once a deadline has expired.
+ * <p/>
+ * Unlike {@link org.apache.lucene.search.TimeLimitingCollector} the clock is not read on each collected document:
+ * the deadline is checked every {@link #CHECK_INTERVAL} collected documents and whenever the search moves to a
+ * new segment. The deadline is an absolute {@link System#nanoTime()} value computed once per query, so the same
+ * deadline can be shared by the collectors of all shards searched in parallel.
+ * <p/>
+ * The search is interrupted by throwing a {@link DeadlineExceededException}, which the caller is expected to catch.
+ */
+public class DeadlineCollector extends Collector {
+
+	/**
+	 * Number of collected documents between two checks of the deadline
+	 */
+	public static final int CHECK_INTERVAL = 256;
+
+	private final Collector delegate;
+	private final long deadline;
+	private int countdown = CHECK_INTERVAL;
+
+	/**
+	 * @param delegate the collector to delegate to
+	 * @param deadline the {@link System#nanoTime()} value after which the search is interrupted
+	 */
+	public DeadlineCollector(Collector delegate, long deadline) {
+		this.delegate = delegate;
+		this.deadline = deadline;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		if ( --countdown == 0 ) {
+			countdown = CHECK_INTERVAL;
+			checkDeadline();
+		}
+		delegate.collect( doc );
+	}
+
+	@Override
+	public void setNextReader(IndexReader reader, int docBase) throws IOException {
+		checkDeadline();
+		delegate.setNextReader( reader, docBase );
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		delegate.setScorer( scorer );
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return delegate.acceptsDocsOutOfOrder();
+	}
+
+	private void checkDeadline() {
+		// compare the difference, nanoTime values can overflow
+		if ( System.nanoTime() - deadline > 0 ) {
+			throw new DeadlineExceededException();
+		}
+	}
+
+	/**
+	 * Thrown to stop the search once the deadline has expired.
+	 */
+	public static class DeadlineExceededException extends RuntimeException {
+		private DeadlineExceededException() {
+			super( "Search interrupted: deadline exceeded" );
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Scorer;
+
+import org.hibernate.search.query.dsl.impl.FacetingRequestImpl;
+
+/**
+ * Applies the facet selections while collecting, to count the facets of each selection group sideways in the
+ * same pass as the query results.
+ * <p/>
+ * The search runs without the facet selections. A document matching all the selection groups is a hit: it is
+ * passed to the next collector and counted by all the sideways facet collectors. A document missing a single
+ * selection group is only counted by the sideways facet collector of this group, as it would be a hit if the
+ * selection of the group were ignored. Other documents are skipped.
+ * <p/>
+ * Documents are checked against the selections by advancing an iterator per selection group, so they have to be
+ * collected in order.
+ */
+public class DrillSidewaysCollector extends Collector {
+	private static final Collector DISCARDING_COLLECTOR = new DiscardingCollector();
+
+	private final Collector nextInChainCollector;
+	private final Filter[] selectionFilters;
+	private final FacetCollector[] sidewaysFacetCollectors;
+	private final DocIdSetIterator[] selectionIterators;
+
+	/**
+	 * @param nextInChainCollector the collector of the documents matching all the selections
+	 * @param selectionFilters the filter of each selection group
+	 * @param sidewaysFacetRequests for each selection group, the facet requests to count ignoring the selection of the
+	 * group
+	 */
+	public DrillSidewaysCollector(Collector nextInChainCollector, List<Filter> selectionFilters,
+			List<List<FacetingRequestImpl>> sidewaysFacetRequests) {
+		this.nextInChainCollector = nextInChainCollector;
+		this.selectionFilters = selectionFilters.toArray( new Filter[selectionFilters.size()] );
+		this.sidewaysFacetCollectors = new FacetCollector[this.selectionFilters.length];
+		for ( int i = 0; i < this.selectionFilters.length; i++ ) {
+			List<FacetingRequestImpl> facetRequests = sidewaysFacetRequests.get( i );
+			if ( !facetRequests.isEmpty() ) {
+				sidewaysFacetCollectors[i] = new FacetCollector( DISCARDING_COLLECTOR, facetRequests );
+			}
+		}
+		this.selectionIterators = new DocIdSetIterator[this.selectionFilters.length];
+	}
+
+	/**
+	 * @return the collector of the facets counted ignoring the selection group at {@code index}, {@code null} if
+	 *         there are none
+	 */
+	public FacetCollector getSidewaysFacetCollector(int index) {
+		return sidewaysFacetCollectors[index];
+	}
+
+	@Override
+	public void setNextReader(IndexReader reader, int docBase) throws IOException {
+		for ( int i = 0; i < selectionFilters.length; i++ ) {
+			DocIdSet docIdSet = selectionFilters[i].getDocIdSet( reader );
+			DocIdSetIterator iterator = docIdSet == null ? null : docIdSet.iterator();
+			// a null iterator matches no document
+			selectionIterators[i] = iterator == null ? DocIdSet.EMPTY_DOCIDSET.iterator() : iterator;
+		}
+		for ( FacetCollector facetCollector : sidewaysFacetCollectors ) {
+			if ( facetCollector != null ) {
+				facetCollector.setNextReader( reader, docBase );
+			}
+		}
+		nextInChainCollector.setNextReader( reader, docBase );
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		int missedSelection = -1;
+		for ( int i = 0; i < selectionIterators.length; i++ ) {
+			DocIdSetIterator iterator = selectionIterators[i];
+			int selectedDoc = iterator.docID();
+			if ( selectedDoc < doc ) {
+				selectedDoc = iterator.advance( doc );
+			}
+			if ( selectedDoc != doc ) {
+				if ( missedSelection >= 0 ) {
+					// missing two selections: not counted at all
+					return;
+				}
+				missedSelection = i;
+			}
+		}
+		if ( missedSelection < 0 ) {
+			for ( FacetCollector facetCollector : sidewaysFacetCollectors ) {
+				if ( facetCollector != null ) {
+					facetCollector.collect( doc );
+				}
+			}
+			nextInChainCollector.collect( doc );
+		}
+		else if ( sidewaysFacetCollectors[missedSelection] != null ) {
+			sidewaysFacetCollectors[missedSelection].collect( doc );
+		}
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		nextInChainCollector.setScorer( scorer );
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return false;
+	}
+
+	private static final class DiscardingCollector extends Collector {
+
+		@Override
+		public void setScorer(Scorer scorer) {
+		}
+
+		@Override
+		public void collect(int doc) {
+		}
+
+		@Override
+		public void setNextReader(IndexReader reader, int docBase) {
+		}
+
+		@Override
+		public boolean acceptsDocsOutOfOrder() {
+			return true;
+		}
+	}
+}
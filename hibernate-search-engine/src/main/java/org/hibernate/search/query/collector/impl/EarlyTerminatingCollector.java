@@ -0,0 +1,97 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * A {@code Collector} stopping the search as soon as a given number of documents has been collected,
+ * so that the count of matching documents stops growing at the limit: when the search is terminated
+ * at least one more matching document exists, and the count is a lower bound.
+ * <p/>
+ * As for {@link DeadlineCollector} the search is interrupted by
+ * throwing a {@link CollectionTerminatedException}, which the caller is expected to catch.
+ */
+public class EarlyTerminatingCollector extends Collector {
+
+	private final Collector delegate;
+	private final int limit;
+	private final boolean docsInOrder;
+	private int collected;
+	private boolean terminated;
+
+	/**
+	 * @param delegate the collector to delegate to
+	 * @param limit the number of documents to collect before terminating the search
+	 * @param docsInOrder whether documents have to be collected in index order, so that the collected documents
+	 * are the first matches of the index
+	 */
+	public EarlyTerminatingCollector(Collector delegate, int limit, boolean docsInOrder) {
+		this.delegate = delegate;
+		this.limit = limit;
+		this.docsInOrder = docsInOrder;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		if ( collected == limit ) {
+			terminated = true;
+			throw new CollectionTerminatedException();
+		}
+		collected++;
+		delegate.collect( doc );
+	}
+
+	@Override
+	public void setNextReader(IndexReader reader, int docBase) throws IOException {
+		delegate.setNextReader( reader, docBase );
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		delegate.setScorer( scorer );
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return !docsInOrder && delegate.acceptsDocsOutOfOrder();
+	}
+
+	/**
+	 * @return {@code true} if the search was terminated before all matching documents were collected
+	 */
+	public boolean isTerminated() {
+		return terminated;
+	}
+
+	/**
+	 * Thrown to stop the search once the limit is reached.
+	 */
+	public static class CollectionTerminatedException extends RuntimeException {
+		private CollectionTerminatedException() {
+			super( "Collection terminated: document limit reached" );
+		}
+	}
+}
@@ -26,34 +26,44 @@ package org.hibernate.search.query.collector.impl;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Random;
 
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.Scorer;
 
 import org.hibernate.search.query.dsl.impl.DiscreteFacetRequest;
-import org.hibernate.search.query.dsl.impl.FacetRange;
 import org.hibernate.search.query.dsl.impl.FacetingRequestImpl;
+import org.hibernate.search.query.dsl.impl.HierarchicalFacetRequest;
 import org.hibernate.search.query.dsl.impl.RangeFacetImpl;
 import org.hibernate.search.query.dsl.impl.RangeFacetRequest;
 import org.hibernate.search.query.facet.Facet;
 import org.hibernate.search.query.facet.FacetSortOrder;
-import org.hibernate.search.query.fieldcache.impl.FieldCacheLoadingType;
-import org.hibernate.search.query.fieldcache.impl.FieldLoadingStrategy;
 
 import static org.hibernate.search.util.impl.CollectionHelper.newArrayList;
 import static org.hibernate.search.util.impl.CollectionHelper.newHashMap;
 
 /**
- * A custom {@code Collector} used for handling facet requests.
+ * A custom {@code Collector} used for handling facet requests. A single collector counts all the facet requests
+ * of a query, so that adding facets doesn't add collectors to the delegation chain.
+ * <p/>
+ * Discrete and hierarchical facets are counted by term ordinal: each segment's terms are numbered by the
+ * {@code FieldCache} {@code StringIndex}, so counting a document is an increment in an {@code int[]}. The ordinals
+ * of a field are counted once per document, however many facet requests target the field. The counts of a segment
+ * are merged by term when the collector moves to the next segment.
+ * <p/>
+ * Sampled facet requests count the documents beyond their sampling threshold on a sample only, with counters of
+ * their own, and scale the counts of the sample up.
  *
  * @author Hardy Ferentschik
  */
@@ -64,49 +74,66 @@ public class FacetCollector extends Collector {
 	private final Collector nextInChainCollector;
 
 	/**
-	 * Facet request this collector handles
+	 * Facet requests this collector handles
 	 */
-	private final FacetingRequestImpl facetRequest;
+	private final List<FacetingRequestImpl> facetRequests;
 
 	/**
-	 * Used to load field values from the Lucene field cache
+	 * The counter of each facet request, in the order of the requests
 	 */
-	private final FieldLoadingStrategy fieldLoader;
+	private final List<FacetCounter> facetCounters;
 
 	/**
-	 * A counter mapped to the field name for which it is counting
+	 * The counters looking at the collected documents, at most one per field for the ordinal based facets
 	 */
-	private final FacetCounter facetCounts;
-
-	/**
-	 * Flag indicating whether the data structure has been initialised. Initialisation happens on the first call
-	 * to {@link #setNextReader(org.apache.lucene.index.IndexReader, int)}.
-	 */
-	private boolean initialised = false;
+	private final SegmentCounter[] segmentCounters;
 
 	public FacetCollector(Collector nextInChainCollector, FacetingRequestImpl facetRequest) {
+		this( nextInChainCollector, Collections.singletonList( facetRequest ) );
+	}
+
+	public FacetCollector(Collector nextInChainCollector, Collection<FacetingRequestImpl> facetRequests) {
 		this.nextInChainCollector = nextInChainCollector;
-		this.facetRequest = facetRequest;
-		this.facetCounts = createFacetCounter( facetRequest );
-		fieldLoader = FieldCacheLoadingType.getLoadingStrategy(
-				this.facetRequest.getFieldName(), this.facetRequest.getFieldCacheType()
-		);
+		this.facetRequests = new ArrayList<FacetingRequestImpl>( facetRequests );
+		this.facetCounters = new ArrayList<FacetCounter>( facetRequests.size() );
+		List<SegmentCounter> segmentCounterList = newArrayList();
+		Map<String, FieldOrdinalCounter> ordinalCounters = newHashMap();
+		for ( FacetingRequestImpl request : this.facetRequests ) {
+			FacetCounter counter;
+			if ( request.isSampled() ) {
+				// the counters of the exact and of the sampled documents can't be shared with other requests
+				Map<String, FieldOrdinalCounter> exactOrdinalCounters = newHashMap();
+				Map<String, FieldOrdinalCounter> sampleOrdinalCounters = newHashMap();
+				counter = new SampledFacetCounter(
+						request,
+						createFacetCounter( request, exactOrdinalCounters ),
+						createFacetCounter( request, sampleOrdinalCounters )
+				);
+			}
+			else {
+				counter = createFacetCounter( request, ordinalCounters );
+			}
+			facetCounters.add( counter );
+			if ( counter instanceof SegmentCounter ) {
+				segmentCounterList.add( (SegmentCounter) counter );
+			}
+		}
+		segmentCounterList.addAll( ordinalCounters.values() );
+		this.segmentCounters = segmentCounterList.toArray( new SegmentCounter[segmentCounterList.size()] );
 	}
 
 	@Override
 	public void setNextReader(IndexReader reader, int docBase) throws IOException {
-		if ( !initialised ) {
-			initialiseCollector( reader );
+		for ( SegmentCounter segmentCounter : segmentCounters ) {
+			segmentCounter.setNextReader( reader );
 		}
-		initialiseFieldCaches( reader );
 		nextInChainCollector.setNextReader( reader, docBase );
 	}
 
 	@Override
 	public void collect(int doc) throws IOException {
-		Object value = fieldLoader.collect( doc );
-		if ( value != null ) {
-			facetCounts.countValue( value );
+		for ( SegmentCounter segmentCounter : segmentCounters ) {
+			segmentCounter.countDocument( doc );
 		}
 		nextInChainCollector.collect( doc );
 	}
@@ -121,12 +148,28 @@ public class FacetCollector extends Collector {
 		return nextInChainCollector.acceptsDocsOutOfOrder();
 	}
 
-	public String getFacetName() {
-		return facetRequest.getFacetingName();
+	/**
+	 * @return the facets of each request, keyed by faceting name
+	 */
+	public Map<String, List<Facet>> getFacets() {
+		Map<String, List<Facet>> facets = newHashMap();
+		for ( int i = 0; i < facetRequests.size(); i++ ) {
+			FacetingRequestImpl request = facetRequests.get( i );
+			facets.put( request.getFacetingName(), createSortedFacetList( facetCounters.get( i ), request ) );
+		}
+		return facets;
 	}
 
-	public List<Facet> getFacetList() {
-		return createSortedFacetList( facetCounts, facetRequest );
+	/**
+	 * Adds the counts of another collector for the same facet requests to the counts of this collector.
+	 * Used to combine the facets of the same query run on different shards.
+	 *
+	 * @param otherCollector the collector to merge counts from
+	 */
+	public void mergeCounts(FacetCollector otherCollector) {
+		for ( int i = 0; i < facetCounters.size(); i++ ) {
+			facetCounters.get( i ).mergeCounts( otherCollector.facetCounters.get( i ) );
+		}
 	}
 
 	private List<Facet> createSortedFacetList(FacetCounter counter, FacetingRequestImpl request) {
@@ -134,30 +177,70 @@ public class FacetCollector extends Collector {
 		// handle RANGE_DEFINITION_ODER differently from count based orders. we try to avoid the creation of
 		// Facet instances which we can only do for count based ordering
 		if ( FacetSortOrder.RANGE_DEFINITION_ODER.equals( request.getSort() ) ) {
-			facetList = createRangeFacetList( counter.getCounts().entrySet(), request, counter.getCounts().size() );
+			Map<String, Integer> counts = counter.getCounts();
+			facetList = createRangeFacetList( counts.entrySet(), request, counter, counts.size() );
 			Collections.sort( facetList, new RangeDefinitionOrderFacetComparator( ) );
-			if ( facetRequest.getMaxNumberOfFacets() > 0 ) {
-				facetList = facetList.subList( 0, Math.min( facetRequest.getMaxNumberOfFacets(), facetList.size() ) );
+			if ( request.getMaxNumberOfFacets() > 0 ) {
+				facetList = facetList.subList( 0, Math.min( request.getMaxNumberOfFacets(), facetList.size() ) );
 			}
 		}
 		else {
-			List<Map.Entry<String, Integer>> countEntryList = newArrayList();
-			for ( Entry<String, Integer> stringIntegerEntry : counter.getCounts().entrySet() ) {
-				countEntryList.add( stringIntegerEntry );
+			FacetEntryComparator comparator = new FacetEntryComparator( request.getSort() );
+			Map<String, Integer> counts = counter.getCounts();
+			List<Map.Entry<String, Integer>> countEntryList;
+			int facetCount;
+			if ( request.getMaxNumberOfFacets() > 0 ) {
+				facetCount = request.getMaxNumberOfFacets();
+				countEntryList = selectTopEntries(
+						counts, comparator, facetCount, request.hasZeroCountsIncluded()
+				);
 			}
-			int facetCount = facetRequest.getMaxNumberOfFacets() > 0 ?
-					facetRequest.getMaxNumberOfFacets() : countEntryList.size();
-			Collections.sort( countEntryList, new FacetEntryComparator( request.getSort() ) );
-			facetList = createRangeFacetList( countEntryList, request, facetCount );
+			else {
+				countEntryList = newArrayList();
+				for ( Entry<String, Integer> stringIntegerEntry : counts.entrySet() ) {
+					countEntryList.add( stringIntegerEntry );
+				}
+				facetCount = countEntryList.size();
+				Collections.sort( countEntryList, comparator );
+			}
+			facetList = createRangeFacetList( countEntryList, request, counter, facetCount );
 		}
 		return facetList;
 	}
 
-	private List<Facet> createRangeFacetList(Collection<Entry<String, Integer>> countEntryList, FacetingRequestImpl request, int count) {
+	/**
+	 * Selects the first {@code maxEntries} entries in the order of the comparator using a bounded heap,
+	 * rather than sorting all the counted values.
+	 */
+	private List<Entry<String, Integer>> selectTopEntries(Map<String, Integer> counts,
+			Comparator<Entry<String, Integer>> comparator, int maxEntries, boolean includeZeroCounts) {
+		// the head of the queue is the last of the selected entries
+		PriorityQueue<Entry<String, Integer>> selectedEntries = new PriorityQueue<Entry<String, Integer>>(
+				Math.min( maxEntries, counts.size() ) + 1, Collections.reverseOrder( comparator )
+		);
+		for ( Entry<String, Integer> countEntry : counts.entrySet() ) {
+			if ( !includeZeroCounts && countEntry.getValue() == 0 ) {
+				continue;
+			}
+			if ( selectedEntries.size() < maxEntries ) {
+				selectedEntries.add( countEntry );
+			}
+			else if ( comparator.compare( countEntry, selectedEntries.peek() ) < 0 ) {
+				selectedEntries.poll();
+				selectedEntries.add( countEntry );
+			}
+		}
+		List<Entry<String, Integer>> countEntryList = new ArrayList<Entry<String, Integer>>( selectedEntries );
+		Collections.sort( countEntryList, comparator );
+		return countEntryList;
+	}
+
+	private List<Facet> createRangeFacetList(Collection<Entry<String, Integer>> countEntryList, FacetingRequestImpl request, FacetCounter counter, int count) {
 		List<Facet> facetList = newArrayList();
 		int includedFacetCount = 0;
+		boolean countExact = counter.isCountExact();
 		for ( Map.Entry<String, Integer> countEntry : countEntryList ) {
-			Facet facet = request.createFacet( countEntry.getKey(), countEntry.getValue() );
+			Facet facet = request.createFacet( countEntry.getKey(), countEntry.getValue(), countExact );
 			if ( !request.hasZeroCountsIncluded() && facet.getCount() == 0 ) {
 				continue;
 			}
@@ -170,48 +253,35 @@ public class FacetCollector extends Collector {
 		return facetList;
 	}
 
-	private void initialiseCollector(IndexReader reader) throws IOException {
-		// we only need to initialise the counts in case we have to include 0 counts as well
-		if ( facetRequest.hasZeroCountsIncluded() && facetRequest instanceof DiscreteFacetRequest ) {
-			initFacetCounts( reader );
-		}
-		initialised = true;
-	}
-
-	private void initialiseFieldCaches(IndexReader reader) throws IOException {
-		fieldLoader.loadNewCacheValues( reader );
-	}
-
-	private <N extends Number> FacetCounter createFacetCounter(FacetingRequestImpl request) {
-		if ( request instanceof DiscreteFacetRequest ) {
-			return new SimpleFacetCounter();
-		}
-		else if ( request instanceof RangeFacetRequest ) {
+	private <N extends Number> FacetCounter createFacetCounter(FacetingRequestImpl request,
+			Map<String, FieldOrdinalCounter> ordinalCounters) {
+		if ( request instanceof RangeFacetRequest ) {
 			@SuppressWarnings("unchecked")
 			RangeFacetRequest<N> rangeFacetRequest = (RangeFacetRequest<N>) request;
 			return new RangeFacetCounter<N>( rangeFacetRequest );
 		}
+		OrdinalFacetCounter counter;
+		if ( request instanceof HierarchicalFacetRequest ) {
+			HierarchicalFacetRequest hierarchicalRequest = (HierarchicalFacetRequest) request;
+			counter = new HierarchicalFacetCounter(
+					hierarchicalRequest.getPathSeparator(),
+					hierarchicalRequest.getParentPath(),
+					request.hasZeroCountsIncluded()
+			);
+		}
+		else if ( request instanceof DiscreteFacetRequest ) {
+			counter = new DiscreteFacetCounter( request.hasZeroCountsIncluded() );
+		}
 		else {
 			throw new IllegalArgumentException( "Unsupported cache type" );
 		}
-	}
-
-	private void initFacetCounts(IndexReader reader) throws IOException {
-		String fieldName = facetRequest.getFieldName();
-		// term are enumerated by field name and within field names by term value
-		TermEnum terms = reader.terms( new Term( fieldName, "" ) );
-		try {
-			while ( fieldName.equals( terms.term().field() ) ) {
-				String fieldValue = terms.term().text();
-				facetCounts.initCount( fieldValue );
-				if ( !terms.next() ) {
-					break;
-				}
-			}
-		}
-		finally {
-			terms.close();
+		FieldOrdinalCounter ordinalCounter = ordinalCounters.get( request.getFieldName() );
+		if ( ordinalCounter == null ) {
+			ordinalCounter = new FieldOrdinalCounter( request.getFieldName() );
+			ordinalCounters.put( request.getFieldName(), ordinalCounter );
 		}
+		ordinalCounter.addFacetCounter( counter );
+		return counter;
 	}
 
 	static public class FacetEntryComparator implements Comparator<Entry<String, Integer>>, Serializable {
@@ -222,15 +292,18 @@ public class FacetCollector extends Collector {
 		}
 
 		public int compare(Entry<String, Integer> entry1, Entry<String, Integer> entry2) {
+			int result = 0;
 			if ( FacetSortOrder.COUNT_ASC.equals( sortOder ) ) {
-				return entry1.getValue() - entry2.getValue();
+				result = entry1.getValue() - entry2.getValue();
 			}
 			else if ( FacetSortOrder.COUNT_DESC.equals( sortOder ) ) {
-				return entry2.getValue() - entry1.getValue();
+				result = entry2.getValue() - entry1.getValue();
 			}
-			else {
-				return entry1.getKey().compareTo( entry2.getKey() );
+			// order by value on equal counts, so that the selected facets don't depend on the counting order
+			if ( result == 0 ) {
+				result = entry1.getKey().compareTo( entry2.getKey() );
 			}
+			return result;
 		}
 	}
 
@@ -241,10 +314,36 @@ public class FacetCollector extends Collector {
 		}
 	}
 
+	/**
+	 * Orders facets as {@link FacetEntryComparator} orders counted values.
+	 */
+	static public class FacetCountComparator implements Comparator<Facet>, Serializable {
+		private final FacetSortOrder sortOrder;
+
+		public FacetCountComparator(FacetSortOrder sortOrder) {
+			this.sortOrder = sortOrder;
+		}
+
+		public int compare(Facet facet1, Facet facet2) {
+			int result = 0;
+			if ( FacetSortOrder.COUNT_ASC.equals( sortOrder ) ) {
+				result = facet1.getCount() - facet2.getCount();
+			}
+			else if ( FacetSortOrder.COUNT_DESC.equals( sortOrder ) ) {
+				result = facet2.getCount() - facet1.getCount();
+			}
+			if ( result == 0 ) {
+				result = facet1.getValue().compareTo( facet2.getValue() );
+			}
+			return result;
+		}
+	}
+
 	static public abstract class FacetCounter {
 		private Map<String, Integer> counts = newHashMap();
 
 		Map<String, Integer> getCounts() {
+			flushSegmentCounts();
 			return counts;
 		}
 
@@ -255,40 +354,303 @@ public class FacetCollector extends Collector {
 		}
 
 		void incrementCount(String value) {
-			if ( !counts.containsKey( value ) ) {
-				counts.put( value, 1 );
+			addCount( value, 1 );
+		}
+
+		void addCount(String value, int count) {
+			Integer currentCount = counts.get( value );
+			if ( currentCount == null ) {
+				counts.put( value, count );
 			}
 			else {
-				counts.put( value, counts.get( value ) + 1 );
+				counts.put( value, currentCount + count );
 			}
 		}
 
-		abstract void countValue(Object value);
+		void mergeCounts(FacetCounter otherCounter) {
+			flushSegmentCounts();
+			for ( Entry<String, Integer> countEntry : otherCounter.getCounts().entrySet() ) {
+				addCount( countEntry.getKey(), countEntry.getValue() );
+			}
+		}
+
+		/**
+		 * Adds the counts kept for the current segment, if any, to the counts by value.
+		 */
+		void flushSegmentCounts() {
+		}
+
+		/**
+		 * @return {@code false} if the counts are estimated from a sample of the collected documents
+		 */
+		boolean isCountExact() {
+			return true;
+		}
+
+		/**
+		 * @return the counter looking at the collected documents on behalf of this counter
+		 */
+		SegmentCounter getSegmentCounter() {
+			return (SegmentCounter) this;
+		}
 	}
 
-	static class SimpleFacetCounter extends FacetCounter {
-		void countValue(Object value) {
-			incrementCount( (String) value );
+	/**
+	 * Counts the documents collected up to the sampling threshold of a request, then a sample of the following
+	 * ones. Counts are the exact counts of the first documents plus the counts of the sample scaled by the ratio
+	 * between the documents beyond the threshold and the documents sampled.
+	 */
+	static class SampledFacetCounter extends FacetCounter implements SegmentCounter {
+		private final FacetCounter exactCounter;
+		private final SegmentCounter exactSegmentCounter;
+		private final FacetCounter sampleCounter;
+		private final SegmentCounter sampleSegmentCounter;
+		private final int samplingThreshold;
+		private final int samplingInterval;
+		private final Random random;
+
+		private int exactDocs;
+		private int docsBeyondThreshold;
+		private int sampledDocs;
+
+		/**
+		 * The number of documents to collect until the next sampled one
+		 */
+		private int docsToNextSample;
+
+		SampledFacetCounter(FacetingRequestImpl request, FacetCounter exactCounter, FacetCounter sampleCounter) {
+			this.exactCounter = exactCounter;
+			this.exactSegmentCounter = exactCounter.getSegmentCounter();
+			this.sampleCounter = sampleCounter;
+			this.sampleSegmentCounter = sampleCounter.getSegmentCounter();
+			this.samplingThreshold = request.getSamplingThreshold();
+			this.samplingInterval = Math.max( 1, (int) Math.round( 1 / request.getSamplingRatio() ) );
+			this.random = request.isRandomSampling() ? new Random() : null;
+			this.docsToNextSample = nextSamplingInterval();
+		}
+
+		public void setNextReader(IndexReader reader) throws IOException {
+			exactSegmentCounter.setNextReader( reader );
+			sampleSegmentCounter.setNextReader( reader );
+		}
+
+		public void countDocument(int doc) {
+			if ( exactDocs < samplingThreshold ) {
+				exactDocs++;
+				exactSegmentCounter.countDocument( doc );
+				return;
+			}
+			docsBeyondThreshold++;
+			if ( --docsToNextSample == 0 ) {
+				sampledDocs++;
+				sampleSegmentCounter.countDocument( doc );
+				docsToNextSample = nextSamplingInterval();
+			}
+		}
+
+		/**
+		 * @return the interval, which is on average the inverse of the sampling ratio when picked at random
+		 */
+		private int nextSamplingInterval() {
+			if ( random == null || samplingInterval == 1 ) {
+				return samplingInterval;
+			}
+			return 1 + random.nextInt( 2 * samplingInterval - 1 );
+		}
+
+		@Override
+		Map<String, Integer> getCounts() {
+			Map<String, Integer> counts = newHashMap();
+			counts.putAll( exactCounter.getCounts() );
+			double scale = sampledDocs == 0 ? 0 : (double) docsBeyondThreshold / sampledDocs;
+			for ( Entry<String, Integer> sampleCount : sampleCounter.getCounts().entrySet() ) {
+				int scaledCount = (int) Math.round( sampleCount.getValue() * scale );
+				Integer exactCount = counts.get( sampleCount.getKey() );
+				counts.put( sampleCount.getKey(), exactCount == null ? scaledCount : exactCount + scaledCount );
+			}
+			return counts;
+		}
+
+		@Override
+		void mergeCounts(FacetCounter otherCounter) {
+			SampledFacetCounter other = (SampledFacetCounter) otherCounter;
+			exactCounter.mergeCounts( other.exactCounter );
+			sampleCounter.mergeCounts( other.sampleCounter );
+			exactDocs += other.exactDocs;
+			docsBeyondThreshold += other.docsBeyondThreshold;
+			sampledDocs += other.sampledDocs;
+		}
+
+		@Override
+		boolean isCountExact() {
+			return sampledDocs == docsBeyondThreshold;
+		}
+	}
+
+	/**
+	 * Counts the documents collected in each segment.
+	 */
+	interface SegmentCounter {
+
+		void setNextReader(IndexReader reader) throws IOException;
+
+		/**
+		 * @param doc the id of a matching document, relative to the current segment
+		 */
+		void countDocument(int doc);
+	}
+
+	/**
+	 * Counts the documents of each segment by ordinal of the single term they hold in a field, on behalf of all
+	 * the facet counters of the field.
+	 */
+	static class FieldOrdinalCounter implements SegmentCounter {
+		private final String fieldName;
+		private final List<OrdinalFacetCounter> facetCounters = newArrayList();
+		private int[] segmentOrdinals;
+		private String[] segmentTerms;
+		private int[] segmentCounts;
+
+		FieldOrdinalCounter(String fieldName) {
+			this.fieldName = fieldName;
+		}
+
+		void addFacetCounter(OrdinalFacetCounter facetCounter) {
+			facetCounters.add( facetCounter );
+			facetCounter.ordinalCounter = this;
+		}
+
+		public void setNextReader(IndexReader reader) throws IOException {
+			flushSegmentCounts();
+			FieldCache.StringIndex stringIndex = FieldCache.DEFAULT.getStringIndex( reader, fieldName );
+			segmentOrdinals = stringIndex.order;
+			segmentTerms = stringIndex.lookup;
+			// the array is reused across segments, flushing resets it
+			if ( segmentCounts == null || segmentCounts.length < segmentTerms.length ) {
+				segmentCounts = new int[segmentTerms.length];
+			}
+		}
+
+		public void countDocument(int doc) {
+			segmentCounts[segmentOrdinals[doc]]++;
+		}
+
+		void flushSegmentCounts() {
+			if ( segmentTerms == null ) {
+				return;
+			}
+			String[] terms = segmentTerms;
+			segmentOrdinals = null;
+			segmentTerms = null;
+			// ordinal 0 is used by documents not having a value
+			segmentCounts[0] = 0;
+			for ( OrdinalFacetCounter facetCounter : facetCounters ) {
+				facetCounter.addSegmentCounts( terms, segmentCounts );
+			}
+			Arrays.fill( segmentCounts, 0, terms.length, 0 );
 		}
 	}
 
-	static class RangeFacetCounter<T> extends FacetCounter {
-		private final List<FacetRange<T>> ranges;
+	/**
+	 * Turns the counts by ordinal of a segment into counts by value.
+	 */
+	static abstract class OrdinalFacetCounter extends FacetCounter {
+		private FieldOrdinalCounter ordinalCounter;
+
+		@Override
+		void flushSegmentCounts() {
+			ordinalCounter.flushSegmentCounts();
+		}
+
+		@Override
+		SegmentCounter getSegmentCounter() {
+			return ordinalCounter;
+		}
+
+		/**
+		 * @param terms the terms of the segment by ordinal, starting at ordinal 1
+		 * @param counts the count of each ordinal in the segment
+		 */
+		abstract void addSegmentCounts(String[] terms, int[] counts);
+	}
 
-		RangeFacetCounter(RangeFacetRequest<T> request) {
-			this.ranges = request.getFacetRangeList();
-			for ( FacetRange<T> range : ranges ) {
-				initCount( range.getRangeString() );
+	/**
+	 * Counts the values of a field holding a single term per document. The counts of each segment are merged by
+	 * term into sorted arrays: the terms of a segment are sorted by ordinal, so merging is a linear walk over both
+	 * arrays. Counts are turned into a map by value once, when they are read.
+	 */
+	static class DiscreteFacetCounter extends OrdinalFacetCounter {
+		private final boolean includeZeroCounts;
+		private String[] mergedTerms = new String[0];
+		private int[] mergedCounts = new int[0];
+		private int mergedSize;
+
+		DiscreteFacetCounter(boolean includeZeroCounts) {
+			this.includeZeroCounts = includeZeroCounts;
+		}
+
+		void addSegmentCounts(String[] terms, int[] counts) {
+			mergeSortedCounts( terms, counts, 1, terms.length );
+		}
+
+		@Override
+		Map<String, Integer> getCounts() {
+			flushSegmentCounts();
+			Map<String, Integer> counts = newHashMap();
+			for ( int i = 0; i < mergedSize; i++ ) {
+				counts.put( mergedTerms[i], mergedCounts[i] );
 			}
+			return counts;
 		}
 
-		@SuppressWarnings("unchecked")
-		void countValue(Object value) {
-			for ( FacetRange<T> range : ranges ) {
-				if ( range.isInRange( (T) value ) ) {
-					incrementCount( range.getRangeString() );
+		@Override
+		void mergeCounts(FacetCounter otherCounter) {
+			DiscreteFacetCounter other = (DiscreteFacetCounter) otherCounter;
+			flushSegmentCounts();
+			other.flushSegmentCounts();
+			mergeSortedCounts( other.mergedTerms, other.mergedCounts, 0, other.mergedSize );
+		}
+
+		/**
+		 * Adds the counts of the terms in the range {@code [from, to[}, sorted by term, to the merged counts.
+		 */
+		private void mergeSortedCounts(String[] terms, int[] counts, int from, int to) {
+			String[] newTerms = new String[mergedSize + to - from];
+			int[] newCounts = new int[newTerms.length];
+			int size = 0;
+			int i = 0;
+			int j = from;
+			while ( i < mergedSize || j < to ) {
+				if ( j < to && counts[j] == 0 && !includeZeroCounts ) {
+					j++;
+					continue;
+				}
+				int comparison;
+				if ( i == mergedSize ) {
+					comparison = 1;
+				}
+				else if ( j == to ) {
+					comparison = -1;
+				}
+				else {
+					comparison = mergedTerms[i].compareTo( terms[j] );
+				}
+				if ( comparison < 0 ) {
+					newTerms[size] = mergedTerms[i];
+					newCounts[size++] = mergedCounts[i++];
+				}
+				else if ( comparison > 0 ) {
+					newTerms[size] = terms[j];
+					newCounts[size++] = counts[j++];
+				}
+				else {
+					newTerms[size] = mergedTerms[i];
+					newCounts[size++] = mergedCounts[i++] + counts[j++];
 				}
 			}
+			mergedTerms = newTerms;
+			mergedCounts = newCounts;
+			mergedSize = size;
 		}
 	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.util.Arrays;
+
+/**
+ * Counts the children of a node of a hierarchical facet. The field holds a path per document, and each document
+ * is counted for the child of the parent path it descends from.
+ * <p/>
+ * Terms are sorted, so the descendants of the parent path are a contiguous range of ordinals found by binary
+ * search, and the descendants of a given child follow each other.
+ */
+class HierarchicalFacetCounter extends FacetCollector.OrdinalFacetCounter {
+	private final String pathSeparator;
+	private final String childPrefix;
+	private final boolean includeZeroCounts;
+
+	HierarchicalFacetCounter(String pathSeparator, String parentPath, boolean includeZeroCounts) {
+		this.pathSeparator = pathSeparator;
+		this.childPrefix = parentPath == null ? "" : parentPath + pathSeparator;
+		this.includeZeroCounts = includeZeroCounts;
+	}
+
+	void addSegmentCounts(String[] terms, int[] counts) {
+		int firstOrdinal = Arrays.binarySearch( terms, 1, terms.length, childPrefix );
+		if ( firstOrdinal < 0 ) {
+			firstOrdinal = -firstOrdinal - 1;
+		}
+		String child = null;
+		for ( int ordinal = firstOrdinal; ordinal < terms.length; ordinal++ ) {
+			String term = terms[ordinal];
+			if ( !term.startsWith( childPrefix ) ) {
+				break;
+			}
+			int count = counts[ordinal];
+			if ( count == 0 && !includeZeroCounts ) {
+				continue;
+			}
+			if ( child == null || !isSelfOrDescendant( term, child ) ) {
+				child = toChildPath( term );
+			}
+			if ( count > 0 ) {
+				addCount( child, count );
+			}
+			else {
+				initCount( child );
+			}
+		}
+	}
+
+	private boolean isSelfOrDescendant(String path, String ancestor) {
+		return path.startsWith( ancestor )
+				&& ( path.length() == ancestor.length() || path.startsWith( pathSeparator, ancestor.length() ) );
+	}
+
+	private String toChildPath(String descendantPath) {
+		int childEnd = descendantPath.indexOf( pathSeparator, childPrefix.length() );
+		return childEnd < 0 ? descendantPath : descendantPath.substring( 0, childEnd );
+	}
+}
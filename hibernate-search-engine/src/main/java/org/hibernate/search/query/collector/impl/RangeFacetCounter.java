@@ -0,0 +1,345 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.lucene.index.IndexReader;
+
+import org.hibernate.search.query.dsl.impl.FacetRange;
+import org.hibernate.search.query.dsl.impl.RangeFacetRequest;
+import org.hibernate.search.query.fieldcache.impl.DoubleFieldLoadingStrategy;
+import org.hibernate.search.query.fieldcache.impl.FloatFieldLoadingStrategy;
+import org.hibernate.search.query.fieldcache.impl.IntFieldLoadingStrategy;
+import org.hibernate.search.query.fieldcache.impl.LongFieldLoadingStrategy;
+import org.hibernate.search.query.fieldcache.impl.StringFieldLoadingStrategy;
+
+/**
+ * Counts range facets by elementary intervals. The distinct bounds of all ranges split the values into
+ * ordered intervals: with n bounds there are 2n + 1 of them, the bounds themselves and the open intervals
+ * around them. Each document is counted in its interval, found by binary search on the primitive
+ * field cache value, and the count of a range is the sum of the counts of the contiguous intervals it spans.
+ * Overlapping ranges simply share some of their intervals.
+ */
+class RangeFacetCounter<T> extends FacetCollector.FacetCounter implements FacetCollector.SegmentCounter {
+	private final List<FacetRange<T>> ranges;
+	private final Bounds bounds;
+	private final int[] firstIntervals;
+	private final int[] lastIntervals;
+	private final int[] intervalCounts;
+	private boolean pendingCounts;
+
+	RangeFacetCounter(RangeFacetRequest<T> request) {
+		this.ranges = request.getFacetRangeList();
+		this.bounds = createBounds( request );
+		this.intervalCounts = new int[2 * bounds.size() + 1];
+		this.firstIntervals = new int[ranges.size()];
+		this.lastIntervals = new int[ranges.size()];
+		for ( int i = 0; i < ranges.size(); i++ ) {
+			FacetRange<T> range = ranges.get( i );
+			Object min = range.getIndexedMin();
+			Object max = range.getIndexedMax();
+			if ( min == null ) {
+				firstIntervals[i] = 0;
+			}
+			else {
+				int boundIndex = bounds.indexOf( min );
+				firstIntervals[i] = range.isMinIncluded() ? 2 * boundIndex + 1 : 2 * boundIndex + 2;
+			}
+			if ( max == null ) {
+				lastIntervals[i] = intervalCounts.length - 1;
+			}
+			else {
+				int boundIndex = bounds.indexOf( max );
+				lastIntervals[i] = range.isMaxIncluded() ? 2 * boundIndex + 1 : 2 * boundIndex;
+			}
+			initCount( range.getRangeString() );
+		}
+	}
+
+	public void setNextReader(IndexReader reader) throws IOException {
+		bounds.loadValues( reader );
+	}
+
+	public void countDocument(int doc) {
+		int interval = bounds.findInterval( doc );
+		if ( interval >= 0 ) {
+			intervalCounts[interval]++;
+			pendingCounts = true;
+		}
+	}
+
+	@Override
+	void flushSegmentCounts() {
+		if ( !pendingCounts ) {
+			return;
+		}
+		// intervalSums[i] is the count of the intervals before interval i
+		int[] intervalSums = new int[intervalCounts.length + 1];
+		for ( int i = 0; i < intervalCounts.length; i++ ) {
+			intervalSums[i + 1] = intervalSums[i] + intervalCounts[i];
+		}
+		for ( int i = 0; i < ranges.size(); i++ ) {
+			if ( firstIntervals[i] <= lastIntervals[i] ) {
+				int count = intervalSums[lastIntervals[i] + 1] - intervalSums[firstIntervals[i]];
+				if ( count > 0 ) {
+					addCount( ranges.get( i ).getRangeString(), count );
+				}
+			}
+		}
+		Arrays.fill( intervalCounts, 0 );
+		pendingCounts = false;
+	}
+
+	private Bounds createBounds(RangeFacetRequest<T> request) {
+		String fieldName = request.getFieldName();
+		Class<?> type = request.getFieldCacheType();
+		if ( Integer.class.equals( type ) ) {
+			return new IntBounds( fieldName, ranges );
+		}
+		else if ( Long.class.equals( type ) ) {
+			return new LongBounds( fieldName, ranges );
+		}
+		else if ( Double.class.equals( type ) ) {
+			return new DoubleBounds( fieldName, ranges );
+		}
+		else if ( Float.class.equals( type ) ) {
+			return new FloatBounds( fieldName, ranges );
+		}
+		else if ( String.class.equals( type ) ) {
+			return new StringBounds( fieldName, ranges );
+		}
+		else {
+			throw new IllegalArgumentException( "Unsupported range type: " + type );
+		}
+	}
+
+	/**
+	 * The sorted distinct bounds of the ranges, and the values of the current segment to look up.
+	 */
+	private abstract static class Bounds {
+
+		abstract int size();
+
+		abstract int indexOf(Object bound);
+
+		abstract void loadValues(IndexReader reader) throws IOException;
+
+		/**
+		 * @return the interval of the value of the document, or -1 if the document has no value
+		 */
+		abstract int findInterval(int doc);
+
+		/**
+		 * Converts the result of a binary search on the bounds into an interval: a bound found at index i is
+		 * interval 2i + 1, a value to be inserted at index i is in interval 2i.
+		 */
+		static int toInterval(int searchResult) {
+			return searchResult >= 0 ? 2 * searchResult + 1 : -2 * ( searchResult + 1 );
+		}
+
+		static <T> TreeSet<Object> collectBounds(List<FacetRange<T>> ranges) {
+			TreeSet<Object> bounds = new TreeSet<Object>();
+			for ( FacetRange<T> range : ranges ) {
+				if ( range.getIndexedMin() != null ) {
+					bounds.add( range.getIndexedMin() );
+				}
+				if ( range.getIndexedMax() != null ) {
+					bounds.add( range.getIndexedMax() );
+				}
+			}
+			return bounds;
+		}
+	}
+
+	private static final class IntBounds extends Bounds {
+		private final int[] bounds;
+		private final IntFieldLoadingStrategy values;
+
+		<T> IntBounds(String fieldName, List<FacetRange<T>> ranges) {
+			TreeSet<Integer> sortedBounds = new TreeSet<Integer>();
+			for ( Object bound : collectBounds( ranges ) ) {
+				sortedBounds.add( ( (Number) bound ).intValue() );
+			}
+			bounds = new int[sortedBounds.size()];
+			int i = 0;
+			for ( Integer bound : sortedBounds ) {
+				bounds[i++] = bound;
+			}
+			values = new IntFieldLoadingStrategy( fieldName );
+		}
+
+		int size() {
+			return bounds.length;
+		}
+
+		int indexOf(Object bound) {
+			return Arrays.binarySearch( bounds, ( (Number) bound ).intValue() );
+		}
+
+		void loadValues(IndexReader reader) throws IOException {
+			values.loadNewCacheValues( reader );
+		}
+
+		int findInterval(int doc) {
+			return toInterval( Arrays.binarySearch( bounds, values.collectInt( doc ) ) );
+		}
+	}
+
+	private static final class LongBounds extends Bounds {
+		private final long[] bounds;
+		private final LongFieldLoadingStrategy values;
+
+		<T> LongBounds(String fieldName, List<FacetRange<T>> ranges) {
+			TreeSet<Long> sortedBounds = new TreeSet<Long>();
+			for ( Object bound : collectBounds( ranges ) ) {
+				sortedBounds.add( ( (Number) bound ).longValue() );
+			}
+			bounds = new long[sortedBounds.size()];
+			int i = 0;
+			for ( Long bound : sortedBounds ) {
+				bounds[i++] = bound;
+			}
+			values = new LongFieldLoadingStrategy( fieldName );
+		}
+
+		int size() {
+			return bounds.length;
+		}
+
+		int indexOf(Object bound) {
+			return Arrays.binarySearch( bounds, ( (Number) bound ).longValue() );
+		}
+
+		void loadValues(IndexReader reader) throws IOException {
+			values.loadNewCacheValues( reader );
+		}
+
+		int findInterval(int doc) {
+			return toInterval( Arrays.binarySearch( bounds, values.collectLong( doc ) ) );
+		}
+	}
+
+	private static final class DoubleBounds extends Bounds {
+		private final double[] bounds;
+		private final DoubleFieldLoadingStrategy values;
+
+		<T> DoubleBounds(String fieldName, List<FacetRange<T>> ranges) {
+			TreeSet<Double> sortedBounds = new TreeSet<Double>();
+			for ( Object bound : collectBounds( ranges ) ) {
+				sortedBounds.add( ( (Number) bound ).doubleValue() );
+			}
+			bounds = new double[sortedBounds.size()];
+			int i = 0;
+			for ( Double bound : sortedBounds ) {
+				bounds[i++] = bound;
+			}
+			values = new DoubleFieldLoadingStrategy( fieldName );
+		}
+
+		int size() {
+			return bounds.length;
+		}
+
+		int indexOf(Object bound) {
+			return Arrays.binarySearch( bounds, ( (Number) bound ).doubleValue() );
+		}
+
+		void loadValues(IndexReader reader) throws IOException {
+			values.loadNewCacheValues( reader );
+		}
+
+		int findInterval(int doc) {
+			return toInterval( Arrays.binarySearch( bounds, values.collectDouble( doc ) ) );
+		}
+	}
+
+	private static final class FloatBounds extends Bounds {
+		private final float[] bounds;
+		private final FloatFieldLoadingStrategy values;
+
+		<T> FloatBounds(String fieldName, List<FacetRange<T>> ranges) {
+			TreeSet<Float> sortedBounds = new TreeSet<Float>();
+			for ( Object bound : collectBounds( ranges ) ) {
+				sortedBounds.add( ( (Number) bound ).floatValue() );
+			}
+			bounds = new float[sortedBounds.size()];
+			int i = 0;
+			for ( Float bound : sortedBounds ) {
+				bounds[i++] = bound;
+			}
+			values = new FloatFieldLoadingStrategy( fieldName );
+		}
+
+		int size() {
+			return bounds.length;
+		}
+
+		int indexOf(Object bound) {
+			return Arrays.binarySearch( bounds, ( (Number) bound ).floatValue() );
+		}
+
+		void loadValues(IndexReader reader) throws IOException {
+			values.loadNewCacheValues( reader );
+		}
+
+		int findInterval(int doc) {
+			return toInterval( Arrays.binarySearch( bounds, values.collectFloat( doc ) ) );
+		}
+	}
+
+	/**
+	 * Used for string and date ranges, dates being compared by their string encoding.
+	 */
+	private static final class StringBounds extends Bounds {
+		private final String[] bounds;
+		private final StringFieldLoadingStrategy values;
+
+		<T> StringBounds(String fieldName, List<FacetRange<T>> ranges) {
+			TreeSet<Object> sortedBounds = collectBounds( ranges );
+			bounds = sortedBounds.toArray( new String[sortedBounds.size()] );
+			values = new StringFieldLoadingStrategy( fieldName );
+		}
+
+		int size() {
+			return bounds.length;
+		}
+
+		int indexOf(Object bound) {
+			return Arrays.binarySearch( bounds, bound );
+		}
+
+		void loadValues(IndexReader reader) throws IOException {
+			values.loadNewCacheValues( reader );
+		}
+
+		int findInterval(int doc) {
+			String value = values.collect( doc );
+			if ( value == null ) {
+				return -1;
+			}
+			return toInterval( Arrays.binarySearch( bounds, value ) );
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.collector.impl;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.ReaderUtil;
+
+/**
+ * Exposes the values collected by one {@code FieldCacheCollector} per shard, when the shards
+ * of a query were searched in parallel, as if they were collected by a single collector.
+ * Each shard collector was fed with document ids relative to its shard, values are
+ * looked up by translating the global document id.
+ * <p/>
+ * This is a read-only view: it can't be used to collect documents.
+ */
+public final class ShardedFieldCacheCollector extends FieldCacheCollector {
+
+	private final FieldCacheCollector[] shardCollectors;
+	private final int[] shardStarts;
+
+	/**
+	 * @param shardCollectors the collector used on each shard
+	 * @param shardStarts the document id of the first document of each shard in the global document id space
+	 */
+	public ShardedFieldCacheCollector(FieldCacheCollector[] shardCollectors, int[] shardStarts) {
+		super( shardCollectors[0] );
+		this.shardCollectors = shardCollectors;
+		this.shardStarts = shardStarts;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		throw new UnsupportedOperationException( "Values are collected by the shard collectors" );
+	}
+
+	@Override
+	public void setNextReader(IndexReader reader, int docBase) throws IOException {
+		throw new UnsupportedOperationException( "Values are collected by the shard collectors" );
+	}
+
+	@Override
+	public Object getValue(int docId) {
+		int shard = ReaderUtil.subIndex( docId, shardStarts );
+		return shardCollectors[shard].getValue( docId - shardStarts[shard] );
+	}
+}
@@ -41,6 +41,17 @@ public interface FacetContinuationContext {
 	 * @return  a {@code FacetRangeContext} to continue building the facet request
 	 */
 	DiscreteFacetContext discrete();
+
+	/**
+	 * Start building a hierarchical facet. The field holds a path per document, the levels of which are separated
+	 * by {@code pathSeparator}, for example {@code Electronics/Computers/Laptops}. Each facet counts the documents
+	 * of a path and of all its descendants.
+	 *
+	 * @param pathSeparator the separator between the levels of a path
+	 *
+	 * @return a {@code HierarchicalFacetContext} to continue building the facet request
+	 */
+	HierarchicalFacetContext hierarchical(String pathSeparator);
 }
 
 
@@ -53,6 +53,36 @@ public interface FacetParameterContext extends FacetTermination {
 	 * @return a {@code FacetParameterContext} to continue building the facet request
 	 */
 	FacetParameterContext maxFacetCount(int maxFacetCount);
+
+	/**
+	 * Estimates the facet counts of large results from a sample of the matching documents: the first
+	 * {@code threshold} matching documents are counted, then only one in {@code 1 / samplingRatio} of the
+	 * following ones, and the counts of the sample are scaled up. Results smaller than the threshold are counted
+	 * exactly. See {@link org.hibernate.search.query.facet.SampledFacet#isCountExact()}.
+	 *
+	 * @param threshold the number of matching documents to count before sampling
+	 * @param samplingRatio the ratio of the matching documents beyond the threshold to count, greater than 0 and
+	 * at most 1
+	 *
+	 * @return a {@code FacetParameterContext} to continue building the facet request
+	 */
+	FacetParameterContext sampleAbove(int threshold, double samplingRatio);
+
+	/**
+	 * Picks the sampled documents at random rather than at regular intervals, for indexes where documents
+	 * added at regular intervals have correlated values. Only applies to sampled facets.
+	 *
+	 * @return a {@code FacetParameterContext} to continue building the facet request
+	 */
+	FacetParameterContext randomSampling();
+
+	/**
+	 * Counts exactly the returned facets when they are estimated from a sample, with an additional search per
+	 * returned facet. The sample still determines which facets are returned. Only applies to sampled facets.
+	 *
+	 * @return a {@code FacetParameterContext} to continue building the facet request
+	 */
+	FacetParameterContext recountReturnedFacets();
 }
 
 
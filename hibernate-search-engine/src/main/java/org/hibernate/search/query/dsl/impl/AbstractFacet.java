@@ -26,30 +26,40 @@ package org.hibernate.search.query.dsl.impl;
 
 import org.apache.lucene.search.Query;
 
-import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.SampledFacet;
 
 /**
  * A single facet (field value and count).
  *
  * @author Hardy Ferentschik
  */
-public abstract class AbstractFacet implements Facet {
+public abstract class AbstractFacet implements SampledFacet {
 	private final String facetingName;
 	private final String fieldName;
 	private final String value;
 	private final int count;
+	private final boolean countExact;
 
 	public AbstractFacet(String facetingName, String fieldName, String value, int count) {
+		this( facetingName, fieldName, value, count, true );
+	}
+
+	public AbstractFacet(String facetingName, String fieldName, String value, int count, boolean countExact) {
 		this.facetingName = facetingName;
 		this.fieldName = fieldName;
 		this.count = count;
 		this.value = value;
+		this.countExact = countExact;
 	}
 
 	public int getCount() {
 		return count;
 	}
 
+	public boolean isCountExact() {
+		return countExact;
+	}
+
 	public String getValue() {
 		return value;
 	}
@@ -108,6 +118,7 @@ public abstract class AbstractFacet implements Facet {
 		sb.append( ", fieldName='" ).append( fieldName ).append( '\'' );
 		sb.append( ", value='" ).append( value ).append( '\'' );
 		sb.append( ", count=" ).append( count );
+		sb.append( ", countExact=" ).append( countExact );
 		sb.append( '}' );
 		return sb.toString();
 	}
@@ -54,6 +54,21 @@ public class ConnectedDiscreteFacetContext implements DiscreteFacetContext {
 		return new ConnectedFacetParameterContext( context );
 	}
 
+	public FacetParameterContext sampleAbove(int threshold, double samplingRatio) {
+		context.setSampling( threshold, samplingRatio );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext randomSampling() {
+		context.setRandomSampling( true );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext recountReturnedFacets() {
+		context.setRecountReturnedFacets( true );
+		return new ConnectedFacetParameterContext( context );
+	}
+
 	public FacetingRequest createFacetingRequest() {
 		return context.getFacetingRequest();
 	}
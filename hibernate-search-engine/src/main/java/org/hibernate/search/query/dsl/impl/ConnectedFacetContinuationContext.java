@@ -27,6 +27,7 @@ package org.hibernate.search.query.dsl.impl;
 import org.hibernate.search.query.dsl.DiscreteFacetContext;
 import org.hibernate.search.query.dsl.FacetContinuationContext;
 import org.hibernate.search.query.dsl.FacetRangeAboveBelowContext;
+import org.hibernate.search.query.dsl.HierarchicalFacetContext;
 
 /**
  * @author Hardy Ferentschik
@@ -46,6 +47,11 @@ public class ConnectedFacetContinuationContext implements FacetContinuationConte
 	public DiscreteFacetContext discrete() {
 		return new ConnectedDiscreteFacetContext(context);
 	}
+
+	public HierarchicalFacetContext hierarchical(String pathSeparator) {
+		context.setPathSeparator( pathSeparator );
+		return new ConnectedHierarchicalFacetContext( context );
+	}
 }
 
 
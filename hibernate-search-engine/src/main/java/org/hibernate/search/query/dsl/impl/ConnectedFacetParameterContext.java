@@ -53,6 +53,21 @@ public class ConnectedFacetParameterContext implements FacetParameterContext {
 		return this;
 	}
 
+	public FacetParameterContext sampleAbove(int threshold, double samplingRatio) {
+		context.setSampling( threshold, samplingRatio );
+		return this;
+	}
+
+	public FacetParameterContext randomSampling() {
+		context.setRandomSampling( true );
+		return this;
+	}
+
+	public FacetParameterContext recountReturnedFacets() {
+		context.setRecountReturnedFacets( true );
+		return this;
+	}
+
 	public FacetingRequest createFacetingRequest() {
 		return context.getFacetingRequest();
 	}
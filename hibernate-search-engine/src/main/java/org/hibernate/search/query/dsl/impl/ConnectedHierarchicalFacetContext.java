@@ -0,0 +1,73 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.dsl.impl;
+
+import org.hibernate.search.query.dsl.FacetParameterContext;
+import org.hibernate.search.query.dsl.HierarchicalFacetContext;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+public class ConnectedHierarchicalFacetContext implements HierarchicalFacetContext {
+	private final FacetBuildingContext context;
+
+	public ConnectedHierarchicalFacetContext(FacetBuildingContext context) {
+		this.context = context;
+	}
+
+	public FacetParameterContext childrenOf(String parentPath) {
+		context.setParentPath( parentPath );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext orderedBy(FacetSortOrder sort) {
+		context.setSort( sort );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext includeZeroCounts(boolean zeroCounts) {
+		context.setIncludeZeroCount( zeroCounts );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext maxFacetCount(int maxFacetCount) {
+		context.setMaxFacetCount( maxFacetCount );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext sampleAbove(int threshold, double samplingRatio) {
+		context.setSampling( threshold, samplingRatio );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext randomSampling() {
+		context.setRandomSampling( true );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetParameterContext recountReturnedFacets() {
+		context.setRecountReturnedFacets( true );
+		return new ConnectedFacetParameterContext( context );
+	}
+
+	public FacetingRequest createFacetingRequest() {
+		return context.getFacetingRequest();
+	}
+}
@@ -44,13 +44,13 @@ public class DiscreteFacetRequest extends FacetingRequestImpl {
 	}
 
 	@Override
-	public Facet createFacet(String value, int count) {
-		return new SimpleFacet( getFacetingName(), getFieldName(), value, count );
+	public Facet createFacet(String value, int count, boolean countExact) {
+		return new SimpleFacet( getFacetingName(), getFieldName(), value, count, countExact );
 	}
 
 	static class SimpleFacet extends AbstractFacet {
-		SimpleFacet(String facetingName, String fieldName, String value, int count) {
-			super( facetingName, fieldName, value, count );
+		SimpleFacet(String facetingName, String fieldName, String value, int count, boolean countExact) {
+			super( facetingName, fieldName, value, count, countExact );
 		}
 
 		@Override
@@ -68,6 +68,12 @@ class FacetBuildingContext<T> {
 	private T rangeEnd;
 	private boolean includeRangeEnd = true;
 	private int maxFacetCount = -1;
+	private String pathSeparator;
+	private String parentPath;
+	private int samplingThreshold = -1;
+	private double samplingRatio = 1;
+	private boolean randomSampling;
+	private boolean recountReturnedFacets;
 	private DocumentBuilderIndexedEntity<?> documentBuilder;
 
 	public FacetBuildingContext(SearchFactoryImplementor factory, Class<?> entityType) {
@@ -116,6 +122,33 @@ class FacetBuildingContext<T> {
 		this.maxFacetCount = maxFacetCount;
 	}
 
+	public void setPathSeparator(String pathSeparator) {
+		this.pathSeparator = pathSeparator;
+	}
+
+	public void setParentPath(String parentPath) {
+		this.parentPath = parentPath;
+	}
+
+	public void setSampling(int samplingThreshold, double samplingRatio) {
+		if ( samplingThreshold < 0 ) {
+			throw new SearchException( "The sampling threshold cannot be negative: " + samplingThreshold );
+		}
+		if ( !( samplingRatio > 0 && samplingRatio <= 1 ) ) {
+			throw new SearchException( "The sampling ratio must be greater than 0 and at most 1: " + samplingRatio );
+		}
+		this.samplingThreshold = samplingThreshold;
+		this.samplingRatio = samplingRatio;
+	}
+
+	public void setRandomSampling(boolean randomSampling) {
+		this.randomSampling = randomSampling;
+	}
+
+	public void setRecountReturnedFacets(boolean recountReturnedFacets) {
+		this.recountReturnedFacets = recountReturnedFacets;
+	}
+
 	public void makeRange() {
 		Class<?> type = getRangeType();
 		assertValidRangeType( type );
@@ -163,11 +196,21 @@ class FacetBuildingContext<T> {
 						"RANGE_DEFINITION_ODER is not a valid sort order for a discrete faceting request."
 				);
 			}
-			request = new DiscreteFacetRequest( name, fieldName );
+			if ( pathSeparator != null ) {
+				request = new HierarchicalFacetRequest( name, fieldName, pathSeparator, parentPath );
+			}
+			else {
+				request = new DiscreteFacetRequest( name, fieldName );
+			}
 		}
 		request.setSort( sort );
 		request.setIncludeZeroCounts( includeZeroCount );
 		request.setMaxNumberOfFacets( maxFacetCount );
+		if ( samplingThreshold >= 0 ) {
+			request.setSampling( samplingThreshold, samplingRatio );
+		}
+		request.setRandomSampling( randomSampling );
+		request.setRecountReturnedFacets( recountReturnedFacets );
 		return request;
 	}
 
@@ -200,6 +243,12 @@ class FacetBuildingContext<T> {
 		sb.append( ", includeRangeStart=" ).append( includeRangeStart );
 		sb.append( ", rangeEnd=" ).append( rangeEnd );
 		sb.append( ", includeRangeEnd=" ).append( includeRangeEnd );
+		sb.append( ", pathSeparator='" ).append( pathSeparator ).append( '\'' );
+		sb.append( ", parentPath='" ).append( parentPath ).append( '\'' );
+		sb.append( ", samplingThreshold=" ).append( samplingThreshold );
+		sb.append( ", samplingRatio=" ).append( samplingRatio );
+		sb.append( ", randomSampling=" ).append( randomSampling );
+		sb.append( ", recountReturnedFacets=" ).append( recountReturnedFacets );
 		sb.append( '}' );
 		return sb.toString();
 	}
@@ -95,6 +95,22 @@ public class FacetRange<T> {
 		return includeMax;
 	}
 
+	/**
+	 * @return the lower bound in the form it is compared to the field cache values: dates are compared
+	 *         using their string encoding in the index
+	 */
+	public Object getIndexedMin() {
+		return Date.class.equals( rangeType ) ? stringMin : min;
+	}
+
+	/**
+	 * @return the upper bound in the form it is compared to the field cache values: dates are compared
+	 *         using their string encoding in the index
+	 */
+	public Object getIndexedMax() {
+		return Date.class.equals( rangeType ) ? stringMax : max;
+	}
+
 	public boolean isInRange(T value) {
 		if ( Number.class.isAssignableFrom( rangeType ) ) {
 			return isInRangeNumber( (Number) value, (Number) min, (Number) max );
@@ -241,6 +257,31 @@ public class FacetRange<T> {
 		return 0;
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if ( this == o ) {
+			return true;
+		}
+		if ( o == null || getClass() != o.getClass() ) {
+			return false;
+		}
+
+		FacetRange<?> that = (FacetRange<?>) o;
+		return includeMin == that.includeMin
+				&& includeMax == that.includeMax
+				&& rangeString.equals( that.rangeString )
+				&& ( fieldName != null ? fieldName.equals( that.fieldName ) : that.fieldName == null )
+				&& ( rangeType != null ? rangeType.equals( that.rangeType ) : that.rangeType == null );
+	}
+
+	@Override
+	public int hashCode() {
+		int result = rangeString.hashCode();
+		result = 31 * result + ( fieldName != null ? fieldName.hashCode() : 0 );
+		result = 31 * result + ( rangeType != null ? rangeType.hashCode() : 0 );
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
@@ -60,6 +60,27 @@ public abstract class FacetingRequestImpl implements FacetingRequest {
 	 */
 	private int maxNumberOfFacets = 1;
 
+	/**
+	 * The number of matching documents counted exactly before counting a sample of the others. A negative value
+	 * means that all matching documents are counted
+	 */
+	private int samplingThreshold = -1;
+
+	/**
+	 * The ratio of the matching documents beyond the sampling threshold which get counted
+	 */
+	private double samplingRatio = 1;
+
+	/**
+	 * Whether the sampled documents are picked at random rather than at regular intervals
+	 */
+	private boolean randomSampling;
+
+	/**
+	 * Whether the returned facets get their exact count when they were counted from a sample
+	 */
+	private boolean recountReturnedFacets;
+
 	public FacetingRequestImpl(String name, String fieldName) {
 		if ( name == null ) {
 			throw new IllegalArgumentException( "The request name name cannot be null" );
@@ -97,7 +118,11 @@ public abstract class FacetingRequestImpl implements FacetingRequest {
 
 	public abstract Class<?> getFieldCacheType();
 
-	public abstract Facet createFacet(String value, int count);
+	public Facet createFacet(String value, int count) {
+		return createFacet( value, count, true );
+	}
+
+	public abstract Facet createFacet(String value, int count, boolean countExact);
 
 	public boolean hasZeroCountsIncluded() {
 		return includeZeroCounts;
@@ -107,6 +132,82 @@ public abstract class FacetingRequestImpl implements FacetingRequest {
 		this.includeZeroCounts = includeZeroCounts;
 	}
 
+	/**
+	 * @return {@code true} if the matching documents beyond the sampling threshold are sampled
+	 */
+	public boolean isSampled() {
+		return samplingThreshold >= 0 && samplingRatio < 1;
+	}
+
+	public int getSamplingThreshold() {
+		return samplingThreshold;
+	}
+
+	public double getSamplingRatio() {
+		return samplingRatio;
+	}
+
+	/**
+	 * @param samplingThreshold the number of matching documents counted before sampling
+	 * @param samplingRatio the ratio of the following documents counted, validated by {@link FacetBuildingContext}
+	 */
+	public void setSampling(int samplingThreshold, double samplingRatio) {
+		this.samplingThreshold = samplingThreshold;
+		this.samplingRatio = samplingRatio;
+	}
+
+	public boolean isRandomSampling() {
+		return randomSampling;
+	}
+
+	public void setRandomSampling(boolean randomSampling) {
+		this.randomSampling = randomSampling;
+	}
+
+	public boolean isRecountReturnedFacets() {
+		return recountReturnedFacets;
+	}
+
+	public void setRecountReturnedFacets(boolean recountReturnedFacets) {
+		this.recountReturnedFacets = recountReturnedFacets;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if ( this == o ) {
+			return true;
+		}
+		if ( o == null || getClass() != o.getClass() ) {
+			return false;
+		}
+
+		FacetingRequestImpl that = (FacetingRequestImpl) o;
+		return name.equals( that.name )
+				&& fieldName.equals( that.fieldName )
+				&& sort == that.sort
+				&& includeZeroCounts == that.includeZeroCounts
+				&& maxNumberOfFacets == that.maxNumberOfFacets
+				&& samplingThreshold == that.samplingThreshold
+				&& Double.compare( samplingRatio, that.samplingRatio ) == 0
+				&& randomSampling == that.randomSampling
+				&& recountReturnedFacets == that.recountReturnedFacets;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = name.hashCode();
+		result = 31 * result + fieldName.hashCode();
+		result = 31 * result + ( sort != null ? sort.hashCode() : 0 );
+		result = 31 * result + ( includeZeroCounts ? 1 : 0 );
+		result = 31 * result + maxNumberOfFacets;
+		result = 31 * result + samplingThreshold;
+		long samplingRatioBits = Double.doubleToLongBits( samplingRatio );
+		result = 31 * result + (int) ( samplingRatioBits ^ ( samplingRatioBits >>> 32 ) );
+		result = 31 * result + ( randomSampling ? 1 : 0 );
+		result = 31 * result + ( recountReturnedFacets ? 1 : 0 );
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
@@ -116,6 +217,10 @@ public abstract class FacetingRequestImpl implements FacetingRequest {
 		sb.append( ", sort=" ).append( sort );
 		sb.append( ", includeZeroCounts=" ).append( includeZeroCounts );
 		sb.append( ", maxNumberOfFacets=" ).append( maxNumberOfFacets );
+		sb.append( ", samplingThreshold=" ).append( samplingThreshold );
+		sb.append( ", samplingRatio=" ).append( samplingRatio );
+		sb.append( ", randomSampling=" ).append( randomSampling );
+		sb.append( ", recountReturnedFacets=" ).append( recountReturnedFacets );
 		sb.append( '}' );
 		return sb.toString();
 	}
@@ -0,0 +1,123 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.dsl.impl;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.search.query.facet.Facet;
+
+/**
+ * A faceting request on a field holding a path per document, such as {@code Electronics/Computers/Laptops}.
+ * The facets are the children of a parent path, or the roots if no parent path is set, and count the documents
+ * of all their descendants.
+ */
+public class HierarchicalFacetRequest extends FacetingRequestImpl {
+	private final String pathSeparator;
+	private final String parentPath;
+
+	HierarchicalFacetRequest(String name, String fieldName, String pathSeparator, String parentPath) {
+		super( name, fieldName );
+		if ( pathSeparator == null || pathSeparator.length() == 0 ) {
+			throw new IllegalArgumentException( "The path separator cannot be null or empty" );
+		}
+		this.pathSeparator = pathSeparator;
+		this.parentPath = parentPath;
+	}
+
+	public String getPathSeparator() {
+		return pathSeparator;
+	}
+
+	/**
+	 * @return the path whose children are counted, {@code null} to count the roots
+	 */
+	public String getParentPath() {
+		return parentPath;
+	}
+
+	@Override
+	public Class<?> getFieldCacheType() {
+		return String.class;
+	}
+
+	@Override
+	public Facet createFacet(String value, int count, boolean countExact) {
+		return new PathFacet( getFacetingName(), getFieldName(), value, count, countExact, pathSeparator );
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if ( !super.equals( o ) ) {
+			return false;
+		}
+		HierarchicalFacetRequest that = (HierarchicalFacetRequest) o;
+		return pathSeparator.equals( that.pathSeparator )
+				&& ( parentPath == null ? that.parentPath == null : parentPath.equals( that.parentPath ) );
+	}
+
+	@Override
+	public int hashCode() {
+		int result = super.hashCode();
+		result = 31 * result + pathSeparator.hashCode();
+		result = 31 * result + ( parentPath != null ? parentPath.hashCode() : 0 );
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append( "HierarchicalFacetRequest" );
+		sb.append( "{pathSeparator='" ).append( pathSeparator ).append( '\'' );
+		sb.append( ", parentPath='" ).append( parentPath ).append( '\'' );
+		sb.append( ", " ).append( super.toString() );
+		sb.append( '}' );
+		return sb.toString();
+	}
+
+	static class PathFacet extends AbstractFacet {
+		private final String pathSeparator;
+
+		PathFacet(String facetingName, String fieldName, String value, int count, boolean countExact,
+				String pathSeparator) {
+			super( facetingName, fieldName, value, count, countExact );
+			this.pathSeparator = pathSeparator;
+		}
+
+		/**
+		 * @return a query matching the documents of the path and of all its descendants
+		 */
+		@Override
+		public Query getFacetQuery() {
+			BooleanQuery query = new BooleanQuery();
+			query.add( new TermQuery( new Term( getFieldName(), getValue() ) ), BooleanClause.Occur.SHOULD );
+			query.add(
+					new PrefixQuery( new Term( getFieldName(), getValue() + pathSeparator ) ),
+					BooleanClause.Occur.SHOULD
+			);
+			return query;
+		}
+	}
+}
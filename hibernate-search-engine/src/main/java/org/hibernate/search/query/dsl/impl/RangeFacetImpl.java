@@ -52,8 +52,8 @@ public class RangeFacetImpl<T> extends AbstractFacet implements RangeFacet<T> {
 	 */
 	private final DocumentBuilderIndexedEntity<?> documentBuilder;
 
-	RangeFacetImpl(String facetingName, String fieldName, FacetRange<T> range, int count, int index, DocumentBuilderIndexedEntity<?> documentBuilder) {
-		super( facetingName, fieldName, range.getRangeString(), count );
+	RangeFacetImpl(String facetingName, String fieldName, FacetRange<T> range, int count, boolean countExact, int index, DocumentBuilderIndexedEntity<?> documentBuilder) {
+		super( facetingName, fieldName, range.getRangeString(), count, countExact );
 		this.range = range;
 		this.rangeIndex = index;
 		this.documentBuilder = documentBuilder;
@@ -66,11 +66,24 @@ public class RangeFacetRequest<T> extends FacetingRequestImpl {
 	}
 
 	@Override
-	public Facet createFacet(String value, int count) {
+	public Facet createFacet(String value, int count, boolean countExact) {
 		// todo improve implementation. we should not depend on the string value (HF)
 		int facetIndex = findFacetRangeIndex( value );
 		FacetRange<T> range = facetRangeList.get( facetIndex );
-		return new RangeFacetImpl<T>( getFacetingName(), getFieldName(), range, count, facetIndex, documentBuilder );
+		return new RangeFacetImpl<T>( getFacetingName(), getFieldName(), range, count, countExact, facetIndex, documentBuilder );
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if ( !super.equals( o ) ) {
+			return false;
+		}
+		return facetRangeList.equals( ( (RangeFacetRequest<?>) o ).facetRangeList );
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + facetRangeList.hashCode();
 	}
 
 	@Override
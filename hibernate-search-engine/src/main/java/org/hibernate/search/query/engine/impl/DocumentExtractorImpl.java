@@ -22,11 +22,14 @@ package org.hibernate.search.query.engine.impl;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.document.MapFieldSelector;
@@ -34,10 +37,14 @@ import org.apache.lucene.search.TopDocs;
 
 import org.hibernate.search.ProjectionConstants;
 import org.hibernate.search.engine.impl.DocumentBuilderHelper;
+import org.hibernate.search.engine.spi.EntityIndexBinder;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
 import org.hibernate.search.query.engine.spi.DocumentExtractor;
 import org.hibernate.search.query.engine.spi.EntityInfo;
+import org.hibernate.search.query.engine.spi.TimeoutManager;
 import org.hibernate.search.query.collector.impl.FieldCacheCollector;
+import org.hibernate.search.query.fieldcache.impl.ColumnStoreReader;
+import org.hibernate.search.query.fieldcache.impl.FieldCacheLoadingType;
 import org.hibernate.search.util.logging.impl.LoggerFactory;
 import org.hibernate.search.util.logging.impl.Log;
 
@@ -76,6 +83,9 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 	private final Class singleClassIfPossible; //null when not possible
 	private final FieldCacheCollector classTypeCollector; //null when not used
 	private final FieldCacheCollector idsCollector; //null when not used
+	private final TimeoutManager timeoutManager;
+	private int extractedDocuments;
+	private final List<ColumnStoreReader> columnStoreReaders; //null when not used
 
 	public DocumentExtractorImpl(QueryHits queryHits,
 								 SearchFactoryImplementor searchFactoryImplementor,
@@ -87,6 +97,23 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 								 int firstIndex,
 								 int maxIndex,
 								 Set<Class<?>> classesAndSubclasses) {
+		this(
+				queryHits, searchFactoryImplementor, projection, idFieldNames, allowFieldSelection, searcher, query,
+				firstIndex, maxIndex, classesAndSubclasses, queryHits.getTimeoutManager()
+		);
+	}
+
+	public DocumentExtractorImpl(QueryHits queryHits,
+								 SearchFactoryImplementor searchFactoryImplementor,
+								 String[] projection,
+								 Set<String> idFieldNames,
+								 boolean allowFieldSelection,
+								 IndexSearcherWithPayload searcher,
+								 Object query,
+								 int firstIndex,
+								 int maxIndex,
+								 Set<Class<?>> classesAndSubclasses,
+								 TimeoutManager timeoutManager) {
 		this.searchFactoryImplementor = searchFactoryImplementor;
 		if ( projection != null ) {
 			this.projection = projection.clone();
@@ -113,9 +140,63 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 		this.maxIndex = maxIndex;
 		this.classTypeCollector = queryHits.getClassTypeCollector();
 		this.idsCollector = queryHits.getIdsCollector();
+		this.timeoutManager = timeoutManager;
+		this.columnStoreReaders = createColumnStoreReaders( projection );
 		initFieldSelection( projection, idFieldNames );
 	}
 
+	private List<ColumnStoreReader> createColumnStoreReaders(String[] projection) {
+		if ( projection == null ) {
+			return null;
+		}
+		List<ColumnStoreReader> readers = null;
+		for ( String projectionName : projection ) {
+			FieldCacheLoadingType loadingType = getColumnStoredType( projectionName );
+			if ( loadingType != null ) {
+				if ( readers == null ) {
+					readers = new ArrayList<ColumnStoreReader>( projection.length );
+				}
+				readers.add(
+						new ColumnStoreReader( searcher.getSearcher().getIndexReader(), projectionName, loadingType )
+				);
+			}
+		}
+		return readers;
+	}
+
+	private FieldCacheLoadingType getColumnStoredType(String fieldName) {
+		if ( fieldName == null ) {
+			return null;
+		}
+		FieldCacheLoadingType loadingType = null;
+		for ( Class<?> clazz : targetedClasses.values() ) {
+			EntityIndexBinder<?> indexBinder = searchFactoryImplementor.getIndexBindingForEntity( clazz );
+			if ( indexBinder == null ) {
+				return null;
+			}
+			FieldCacheLoadingType classLoadingType = indexBinder.getDocumentBuilder()
+					.getColumnStoredFields()
+					.get( fieldName );
+			// all targeted types need to agree, otherwise we read the stored fields
+			if ( classLoadingType == null || ( loadingType != null && loadingType != classLoadingType ) ) {
+				return null;
+			}
+			loadingType = classLoadingType;
+		}
+		return loadingType;
+	}
+
+	private boolean isColumnStored(String fieldName) {
+		if ( columnStoreReaders != null ) {
+			for ( ColumnStoreReader reader : columnStoreReaders ) {
+				if ( reader.getFieldName().equals( fieldName ) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	private void initFieldSelection(String[] projection, Set<String> idFieldNames) {
 		Map<String, FieldSelectorResult> fields;
 		if ( projection == null ) {
@@ -153,6 +234,9 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 				else if ( ProjectionConstants.OBJECT_CLASS.equals( projectionName ) ) {
 					continue;
 				}
+				else if ( isColumnStored( projectionName ) ) {
+					continue;
+				}
 				else {
 					fields.put( projectionName, FieldSelectorResult.LOAD );
 				}
@@ -230,8 +314,15 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 	}
 
 	public EntityInfo extract(int scoreDocIndex) throws IOException {
+		//loading the stored fields is a disk access per document: raises the timeout exception if needed
+		if ( timeoutManager != null && extractedDocuments++ % 10 == 0 ) {
+			timeoutManager.isTimedOut();
+		}
 		int docId = queryHits.docId( scoreDocIndex );
 		Document document = extractDocument( scoreDocIndex );
+		if ( columnStoreReaders != null ) {
+			document = addColumnStoredValues( docId, document );
+		}
 
 		EntityInfo entityInfo = extractEntityInfo( docId, document, scoreDocIndex );
 		Object[] eip = entityInfo.getProjection();
@@ -278,6 +369,23 @@ public class DocumentExtractorImpl implements DocumentExtractor {
 		searcher.closeSearcher( query, searchFactoryImplementor );
 	}
 
+	/**
+	 * Column stored values are added to the document as if they were stored fields, so that they are
+	 * converted by the field bridges as any other projected field.
+	 */
+	private Document addColumnStoredValues(int docId, Document document) throws IOException {
+		if ( document == null ) {
+			document = new Document();
+		}
+		for ( ColumnStoreReader reader : columnStoreReaders ) {
+			Object value = reader.getValue( docId );
+			if ( value != null ) {
+				document.add( new Field( reader.getFieldName(), value.toString(), Field.Store.YES, Field.Index.NO ) );
+			}
+		}
+		return document;
+	}
+
 	private Document extractDocument(int index) throws IOException {
 		if ( allowFieldSelection ) {
 			if ( fieldSelector == null ) {
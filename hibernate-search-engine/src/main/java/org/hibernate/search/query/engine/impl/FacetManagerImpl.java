@@ -71,6 +71,11 @@ public class FacetManagerImpl implements FacetManager {
 	 */
 	private Filter facetFilter;
 
+	/**
+	 * Whether each faceting request ignores the selection group of the same name
+	 */
+	private boolean drillSideways;
+
 	/**
 	 * The query from which this manager was retrieved
 	 */
@@ -134,6 +139,12 @@ public class FacetManagerImpl implements FacetManager {
 		return selection;
 	}
 
+	public FacetManager setDrillSideways(boolean drillSideways) {
+		this.drillSideways = drillSideways;
+		queryHasChanged();
+		return this;
+	}
+
 	Map<String, FacetingRequestImpl> getFacetRequests() {
 		return facetRequests;
 	}
@@ -148,7 +159,14 @@ public class FacetManagerImpl implements FacetManager {
 		query.clearCachedResults();
 	}
 
+	/**
+	 * @return the filter for the selected facets, or {@code null} if there is no selection or when counting facets
+	 *         sideways, in which case the selections are applied by the collector (see {@link #getSelectionFilters()})
+	 */
 	Filter getFacetFilter() {
+		if ( drillSideways ) {
+			return null;
+		}
 		if ( facetFilter == null ) {
 			BooleanQuery boolQuery = new BooleanQuery();
 			for ( FacetSelectionImpl selection : facetSelection.values() ) {
@@ -164,6 +182,24 @@ public class FacetManagerImpl implements FacetManager {
 		return facetFilter;
 	}
 
+	/**
+	 * @return the filter of each selection group keyed by group name when counting facets sideways, {@code null}
+	 *         otherwise or if there is no selection
+	 */
+	Map<String, Filter> getSelectionFilters() {
+		if ( !drillSideways ) {
+			return null;
+		}
+		Map<String, Filter> selectionFilters = newHashMap();
+		for ( Map.Entry<String, FacetSelectionImpl> selection : facetSelection.entrySet() ) {
+			if ( !selection.getValue().getFacetList().isEmpty() ) {
+				Query selectionGroupQuery = createSelectionGroupQuery( selection.getValue() );
+				selectionFilters.put( selection.getKey(), new QueryWrapperFilter( selectionGroupQuery ) );
+			}
+		}
+		return selectionFilters.isEmpty() ? null : selectionFilters;
+	}
+
 	private Query createSelectionGroupQuery(FacetSelectionImpl selection) {
 		BooleanQuery orQuery = new BooleanQuery();
 		for ( Facet facet : selection.getFacetList() ) {
@@ -0,0 +1,173 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+
+import org.hibernate.search.query.dsl.impl.FacetingRequestImpl;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.util.impl.SoftLimitMRUCache;
+
+/**
+ * Keeps the most recently computed facets in memory, per faceting request.
+ * <p/>
+ * Facets are keyed on the query, the filter and the faceting request, and on the generation of each targeted
+ * index as exposed by {@link org.hibernate.search.reader.impl.CacheableMultiReader#getGenerationKey()}, so that
+ * stale facets are never returned. When counting sideways the facets of a request don't depend on the selection
+ * of its own facets, which is left out of the key: selecting a facet doesn't invalidate the facets it was selected
+ * from.
+ *
+ * @see org.hibernate.search.Environment#FACET_RESULT_CACHE_SIZE
+ */
+public class FacetResultCache {
+
+	/**
+	 * Under memory pressure the JVM will release all Soft references,
+	 * so pushing it too high will invalidate all eventually useful other caches.
+	 */
+	private static final int HARD_TO_SOFT_RATIO = 15;
+
+	private final SoftLimitMRUCache cache;
+
+	/**
+	 * @param size number of facet lists kept in hard reference (gets multiplied by {@link #HARD_TO_SOFT_RATIO}
+	 * for the soft references).
+	 */
+	public FacetResultCache(int size) {
+		this.cache = new SoftLimitMRUCache( size, size * HARD_TO_SOFT_RATIO );
+	}
+
+	/**
+	 * @return a copy of the cached facets, or {@code null} if there are no cached facets for this key
+	 */
+	@SuppressWarnings("unchecked")
+	List<Facet> get(Object key) {
+		List<Facet> facets = (List<Facet>) cache.get( key );
+		return facets == null ? null : new ArrayList<Facet>( facets );
+	}
+
+	void put(Object key, List<Facet> facets) {
+		cache.put( key, new ArrayList<Facet>( facets ) );
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * @param readerGeneration the generation of the targeted indexes
+	 * @param query the query
+	 * @param filter the filter applied when searching
+	 * @param facetRequest the faceting request
+	 * @param selectionFilters the filters of the facet selections which are not part of {@code filter}, applying
+	 * to the documents counted for {@code facetRequest}
+	 *
+	 * @return the cache key for this combination of parameters, or {@code null} if the facets can't be cached
+	 */
+	static Object createKey(Object readerGeneration,
+							Query query,
+							Filter filter,
+							FacetingRequestImpl facetRequest,
+							Map<String, Filter> selectionFilters) {
+		if ( readerGeneration == null ) {
+			return null;
+		}
+		return new FacetResultKey( readerGeneration, query, filter, facetRequest, selectionFilters );
+	}
+
+	private static final class FacetResultKey {
+
+		private final Object readerGeneration;
+		private final Query query;
+		private final Filter filter;
+		private final FacetingRequestImpl facetRequest;
+		private final Map<String, Filter> selectionFilters;
+		private final int hashCode;
+
+		FacetResultKey(Object readerGeneration,
+					   Query query,
+					   Filter filter,
+					   FacetingRequestImpl facetRequest,
+					   Map<String, Filter> selectionFilters) {
+			this.readerGeneration = readerGeneration;
+			// queries are mutable: keep a copy of the current state
+			this.query = (Query) query.clone();
+			this.filter = filter;
+			this.facetRequest = facetRequest;
+			this.selectionFilters = selectionFilters == null || selectionFilters.isEmpty() ?
+					null :
+					new HashMap<String, Filter>( selectionFilters );
+			this.hashCode = computeHashCode();
+		}
+
+		private int computeHashCode() {
+			int result = readerGeneration.hashCode();
+			result = 31 * result + query.hashCode();
+			result = 31 * result + ( filter != null ? filter.hashCode() : 0 );
+			result = 31 * result + facetRequest.hashCode();
+			result = 31 * result + ( selectionFilters != null ? selectionFilters.hashCode() : 0 );
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( !( o instanceof FacetResultKey ) ) {
+				return false;
+			}
+			FacetResultKey that = (FacetResultKey) o;
+			if ( hashCode != that.hashCode ) {
+				return false;
+			}
+			if ( !readerGeneration.equals( that.readerGeneration ) ) {
+				return false;
+			}
+			if ( !query.equals( that.query ) ) {
+				return false;
+			}
+			if ( filter != null ? !filter.equals( that.filter ) : that.filter != null ) {
+				return false;
+			}
+			if ( !facetRequest.equals( that.facetRequest ) ) {
+				return false;
+			}
+			if ( selectionFilters != null ?
+					!selectionFilters.equals( that.selectionFilters ) :
+					that.selectionFilters != null ) {
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
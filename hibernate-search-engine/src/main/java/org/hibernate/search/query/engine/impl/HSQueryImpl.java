@@ -29,17 +29,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
-import org.apache.lucene.index.Term;
-import org.apache.lucene.search.BooleanClause;
-import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Similarity;
 import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.TermQuery;
 
 import org.hibernate.annotations.common.AssertionFailure;
 import org.hibernate.search.FullTextFilter;
@@ -50,12 +48,15 @@ import org.hibernate.search.engine.spi.DocumentBuilderIndexedEntity;
 import org.hibernate.search.engine.spi.EntityIndexBinder;
 import org.hibernate.search.engine.impl.FilterDef;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.filter.FilterCachingStrategy;
 import org.hibernate.search.filter.StandardFilterKey;
+import org.hibernate.search.filter.TermSetFilter;
 import org.hibernate.search.filter.impl.ChainedFilter;
 import org.hibernate.search.filter.FilterKey;
 import org.hibernate.search.filter.FullTextFilterImplementor;
 import org.hibernate.search.filter.ShardSensitiveOnlyFilter;
 import org.hibernate.search.filter.impl.CachingWrapperFilter;
+import org.hibernate.search.filter.impl.CostBasedFilterCachingStrategy;
 import org.hibernate.search.filter.impl.FullTextFilterImpl;
 import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.query.collector.impl.FieldCacheCollectorFactory;
@@ -120,6 +121,16 @@ public class HSQueryImpl implements HSQuery, Serializable {
 	 */
 	private Integer resultSize;
 
+	/**
+	 * Whether {@link #resultSize} is the exact number of results or a lower bound.
+	 */
+	private boolean resultSizeExact = true;
+
+	/**
+	 * If set, counting the results stops at this threshold when possible.
+	 */
+	private Integer resultSizeThreshold;
+
 
 	public HSQueryImpl(SearchFactoryImplementor searchFactoryImplementor) {
 		this.searchFactoryImplementor = searchFactoryImplementor;
@@ -190,6 +201,15 @@ public class HSQueryImpl implements HSQuery, Serializable {
 		return this;
 	}
 
+	public HSQuery resultSizeThreshold(Integer threshold) {
+		if ( threshold != null && threshold <= 0 ) {
+			throw new IllegalArgumentException( "Result size threshold must be greater than 0" );
+		}
+		clearCachedResults();
+		this.resultSizeThreshold = threshold;
+		return this;
+	}
+
 	/**
 	 * List of targeted entities as described by the user
 	 */
@@ -248,10 +268,6 @@ public class HSQueryImpl implements HSQuery, Serializable {
 			DocumentExtractor extractor = buildDocumentExtractor( searcher, queryHits, first, max );
 			for ( int index = first; index <= max; index++ ) {
 				infos.add( extractor.extract( index ) );
-				//TODO should we measure on each extractor?
-				if ( index % 10 == 0 ) {
-					getTimeoutManager().isTimedOut();
-				}
 			}
 			return infos;
 		}
@@ -274,7 +290,8 @@ public class HSQueryImpl implements HSQuery, Serializable {
 				luceneQuery,
 				first,
 				max,
-				classesAndSubclasses
+				classesAndSubclasses,
+				getTimeoutManager()
 		);
 	}
 
@@ -311,6 +328,7 @@ public class HSQueryImpl implements HSQuery, Serializable {
 			IndexSearcherWithPayload searcher = buildSearcher( searchFactoryImplementor, false );
 			if ( searcher == null ) {
 				resultSize = 0;
+				resultSizeExact = true;
 			}
 			else {
 				try {
@@ -328,6 +346,13 @@ public class HSQueryImpl implements HSQuery, Serializable {
 		return this.resultSize;
 	}
 
+	public boolean isResultSizeExact() {
+		if ( resultSize == null ) {
+			queryResultSize();
+		}
+		return resultSizeExact;
+	}
+
 	public Explanation explain(int documentId) {
 		//don't use TimeoutManager here as explain is a dev tool when things are weird... or slow :)
 		Explanation explanation = null;
@@ -339,9 +364,10 @@ public class HSQueryImpl implements HSQuery, Serializable {
 			);
 		}
 		try {
-			org.apache.lucene.search.Query filteredQuery = filterQueryByClasses( luceneQuery );
 			buildFilters();
-			explanation = searcher.getSearcher().explain( filteredQuery, documentId );
+			// explain the query as it is executed, restricted to the queried types and the enabled filters
+			Query explainedQuery = filter != null ? new FilteredQuery( luceneQuery, filter ) : luceneQuery;
+			explanation = searcher.getSearcher().explain( explainedQuery, documentId );
 		}
 		catch ( IOException e ) {
 			throw new SearchException( "Unable to query Lucene index and build explanation", e );
@@ -400,7 +426,6 @@ public class HSQueryImpl implements HSQuery, Serializable {
 	 * @throws IOException in case there is an error executing the lucene search.
 	 */
 	private QueryHits getQueryHits(IndexSearcherWithPayload searcher, Integer n) throws IOException {
-		org.apache.lucene.search.Query filteredQuery = filterQueryByClasses( luceneQuery );
 		buildFilters();
 		QueryHits queryHits;
 
@@ -413,49 +438,59 @@ public class HSQueryImpl implements HSQuery, Serializable {
 		if ( n == null ) { // try to make sure that we get the right amount of top docs
 			queryHits = new QueryHits(
 					searcher,
-					filteredQuery,
+					luceneQuery,
 					filter,
 					sort,
 					getTimeoutManagerImpl(),
 					facetManager.getFacetRequests(),
+					facetManager.getSelectionFilters(),
 					useFieldCacheOnTypes(),
 					getAppropriateIdFieldCollectorFactory(),
-					this.timeoutExceptionFactory
+					this.timeoutExceptionFactory,
+					resultSizeThreshold,
+					searchFactoryImplementor
 			);
 		}
 		else if ( 0 == n) {
 			queryHits = new QueryHits(
 					searcher,
-					filteredQuery,
+					luceneQuery,
 					filter,
 					null,
 					0,
 					getTimeoutManagerImpl(),
 					null,
+					facetManager.getSelectionFilters(),
 					false,
 					null,
-					this.timeoutExceptionFactory
+					this.timeoutExceptionFactory,
+					resultSizeThreshold,
+					searchFactoryImplementor
 			);
 		}
 		else {
 			queryHits = new QueryHits(
 					searcher,
-					filteredQuery,
+					luceneQuery,
 					filter,
 					sort,
 					n,
 					getTimeoutManagerImpl(),
 					facetManager.getFacetRequests(),
+					facetManager.getSelectionFilters(),
 					useFieldCacheOnTypes(),
 					getAppropriateIdFieldCollectorFactory(),
-					this.timeoutExceptionFactory
+					this.timeoutExceptionFactory,
+					resultSizeThreshold,
+					searchFactoryImplementor
 			);
 		}
 		resultSize = queryHits.getTotalHits();
+		resultSizeExact = queryHits.isResultSizeExact();
 
 		if ( stats ) {
 			searchFactoryImplementor.getStatisticsImplementor()
-					.searchExecuted( filteredQuery.toString(), System.nanoTime() - startTime );
+					.searchExecuted( luceneQuery.toString(), System.nanoTime() - startTime );
 		}
 		facetManager.setFacetResults( queryHits.getFacets() );
 		return queryHits;
@@ -655,6 +690,10 @@ public class HSQueryImpl implements HSQuery, Serializable {
 
 	private void buildFilters() {
 		ChainedFilter chainedFilter = new ChainedFilter();
+		Filter classFilter = buildClassFilter();
+		if ( classFilter != null ) {
+			chainedFilter.addFilter( classFilter );
+		}
 		if ( !filterDefinitions.isEmpty() ) {
 			for ( FullTextFilterImpl fullTextFilter : filterDefinitions.values() ) {
 				Filter filter = buildLuceneFilter( fullTextFilter );
@@ -777,13 +816,24 @@ public class HSQueryImpl implements HSQuery, Serializable {
 	 */
 	private Filter addCachingWrapperFilter(Filter filter, FilterDef def) {
 		if ( cacheResults( def.getCacheMode() ) ) {
-			int cachingWrapperFilterSize = searchFactoryImplementor.getFilterCacheBitResultsSize();
-			filter = new CachingWrapperFilter( filter, cachingWrapperFilterSize );
+			filter = newCachingWrapperFilter( filter );
 		}
 
 		return filter;
 	}
 
+	/**
+	 * The cost based strategy bounds the memory taken by the cached results itself: they are kept with hard
+	 * references, not to be released by the garbage collector behind its back.
+	 */
+	private Filter newCachingWrapperFilter(Filter filter) {
+		return new CachingWrapperFilter(
+				filter,
+				searchFactoryImplementor.getFilterCacheBitResultsSize(),
+				searchFactoryImplementor.getFilterCachingStrategy() instanceof CostBasedFilterCachingStrategy
+		);
+	}
+
 	private FilterKey createFilterKey(FilterDef def, Object instance) {
 		FilterKey key = null;
 		if ( !cacheInstance( def.getCacheMode() ) ) {
@@ -849,6 +899,9 @@ public class HSQueryImpl implements HSQuery, Serializable {
 		catch ( IllegalAccessException e ) {
 			throw new SearchException( "Unable to create @FullTextFilterDef: " + def.getImpl(), e );
 		}
+		for ( Map.Entry<String, String> entry : def.getParameters().entrySet() ) {
+			def.invoke( entry.getKey(), instance, entry.getValue() );
+		}
 		for ( Map.Entry<String, Object> entry : fullTextFilter.getParameters().entrySet() ) {
 			def.invoke( entry.getKey(), instance, entry.getValue() );
 		}
@@ -859,26 +912,32 @@ public class HSQueryImpl implements HSQuery, Serializable {
 		return instance;
 	}
 
-	private org.apache.lucene.search.Query filterQueryByClasses(org.apache.lucene.search.Query luceneQuery) {
+	/**
+	 * When the targeted indexes hold other entity types than the queried ones, restricts the results to the
+	 * queried types. The filter is cached by the filter caching strategy like the filters of
+	 * {@code @FullTextFilterDef}, so that the entity type terms are scanned once per segment instead of on each query.
+	 *
+	 * @return the filter restricting the results to the queried entity types, or {@code null} if not needed
+	 */
+	private Filter buildClassFilter() {
 		if ( !needClassFilterClause ) {
-			return luceneQuery;
-		}
-		else {
-			//A query filter is more practical than a manual class filtering post query (esp on scrollable resultsets)
-			//it also probably minimise the memory footprint
-			BooleanQuery classFilter = new BooleanQuery();
-			//annihilate the scoring impact of DocumentBuilderIndexedEntity.CLASS_FIELDNAME
-			classFilter.setBoost( 0 );
-			for ( Class clazz : classesAndSubclasses ) {
-				Term t = new Term( ProjectionConstants.OBJECT_CLASS, clazz.getName() );
-				TermQuery termQuery = new TermQuery( t );
-				classFilter.add( termQuery, BooleanClause.Occur.SHOULD );
-			}
-			BooleanQuery filteredQuery = new BooleanQuery();
-			filteredQuery.add( luceneQuery, BooleanClause.Occur.MUST );
-			filteredQuery.add( classFilter, BooleanClause.Occur.MUST );
-			return filteredQuery;
+			return null;
 		}
+		Set<String> classNames = new TreeSet<String>();
+		for ( Class<?> clazz : classesAndSubclasses ) {
+			classNames.add( clazz.getName() );
+		}
+		StandardFilterKey key = new StandardFilterKey();
+		key.setImpl( TermSetFilter.class );
+		key.addParameter( ProjectionConstants.OBJECT_CLASS );
+		key.addParameter( classNames );
+		FilterCachingStrategy filterCachingStrategy = searchFactoryImplementor.getFilterCachingStrategy();
+		Filter classFilter = filterCachingStrategy.getCachedFilter( key );
+		if ( classFilter == null ) {
+			classFilter = newCachingWrapperFilter( new TermSetFilter( ProjectionConstants.OBJECT_CLASS, classNames ) );
+			filterCachingStrategy.addCachedFilter( key, classFilter );
+		}
+		return classFilter;
 	}
 
 	private int max(int first, int totalHits) {
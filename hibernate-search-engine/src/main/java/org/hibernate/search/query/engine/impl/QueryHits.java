@@ -29,15 +29,25 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
@@ -46,13 +56,22 @@ import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 
 import org.hibernate.search.SearchException;
+import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.filter.impl.ChainedFilter;
+import org.hibernate.search.query.collector.impl.DeadlineCollector;
+import org.hibernate.search.query.collector.impl.DrillSidewaysCollector;
+import org.hibernate.search.query.collector.impl.EarlyTerminatingCollector;
 import org.hibernate.search.query.collector.impl.FacetCollector;
 import org.hibernate.search.query.collector.impl.FieldCacheCollector;
 import org.hibernate.search.query.collector.impl.FieldCacheCollectorFactory;
+import org.hibernate.search.query.collector.impl.ShardedFieldCacheCollector;
 import org.hibernate.search.query.dsl.impl.FacetingRequestImpl;
 import org.hibernate.search.query.engine.spi.TimeoutExceptionFactory;
 import org.hibernate.search.query.engine.spi.TimeoutManager;
 import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.SampledFacet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.reader.impl.CacheableMultiReader;
 
 /**
  * A helper class which gives access to the current query and its hits. This class will dynamically
@@ -72,10 +91,16 @@ public class QueryHits {
 	private final Map<String, FacetingRequestImpl> facetRequests;
 	private final TimeoutManagerImpl timeoutManager;
 
+	/**
+	 * When counting facets sideways, the filter of each facet selection group keyed by group name. The selections
+	 * are not part of {@code filter} then, they are applied while collecting.
+	 */
+	private final Map<String, Filter> facetSelectionFilters;
+
 	private int totalHits;
+	private boolean resultSizeExact = true;
 	private TopDocs topDocs;
 	private Map<String, List<Facet>> facetMap;
-	private List<FacetCollector> facetCollectors;
 
 	private final boolean enableFieldCacheOnClassName;
 
@@ -92,6 +117,34 @@ public class QueryHits {
 
 	private final TimeoutExceptionFactory timeoutExceptionFactory;
 
+	/**
+	 * If set, the search stops counting matching documents once this threshold is reached,
+	 * when this doesn't affect the top documents
+	 */
+	private final Integer resultSizeThreshold;
+
+	/**
+	 * If enabled, the results are looked up from and stored into this cache
+	 */
+	private final QueryResultCache resultCache;
+	private final Object resultCacheKey;
+
+	/**
+	 * If enabled, the facets of each request are looked up from and stored into this cache
+	 */
+	private final FacetResultCache facetResultCache;
+
+	/**
+	 * The facet requests which were not found in the facet result cache, and the facets which were
+	 */
+	private List<FacetingRequestImpl> facetRequestsToCount;
+	private Map<String, List<Facet>> cachedFacets;
+
+	/**
+	 * If enabled, each index is searched on its own thread from this executor
+	 */
+	private final ExecutorService shardSearchExecutor;
+
 	public QueryHits(IndexSearcherWithPayload searcher,
 					 org.apache.lucene.search.Query preparedQuery,
 					 Filter filter,
@@ -102,9 +155,29 @@ public class QueryHits {
 					 FieldCacheCollectorFactory idFieldCollector,
 					 TimeoutExceptionFactory timeoutExceptionFactory)
 			throws IOException {
+		this(
+				searcher, preparedQuery, filter, sort, timeoutManager, facetRequests, null,
+				enableFieldCacheOnTypes, idFieldCollector, timeoutExceptionFactory, null, null
+		);
+	}
+
+	public QueryHits(IndexSearcherWithPayload searcher,
+					 org.apache.lucene.search.Query preparedQuery,
+					 Filter filter,
+					 Sort sort,
+					 TimeoutManagerImpl timeoutManager,
+					 Map<String, FacetingRequestImpl> facetRequests,
+					 Map<String, Filter> facetSelectionFilters,
+					 boolean enableFieldCacheOnTypes,
+					 FieldCacheCollectorFactory idFieldCollector,
+					 TimeoutExceptionFactory timeoutExceptionFactory,
+					 Integer resultSizeThreshold,
+					 SearchFactoryImplementor searchFactoryImplementor)
+			throws IOException {
 		this(
 				searcher, preparedQuery, filter, sort, DEFAULT_TOP_DOC_RETRIEVAL_SIZE, timeoutManager, facetRequests,
-				enableFieldCacheOnTypes, idFieldCollector, timeoutExceptionFactory
+				facetSelectionFilters, enableFieldCacheOnTypes, idFieldCollector, timeoutExceptionFactory,
+				resultSizeThreshold, searchFactoryImplementor
 		);
 	}
 
@@ -119,15 +192,45 @@ public class QueryHits {
 					 FieldCacheCollectorFactory idFieldCollector,
 					 TimeoutExceptionFactory timeoutExceptionFactory)
 			throws IOException {
+		this(
+				searcher, preparedQuery, filter, sort, n, timeoutManager, facetRequests, null,
+				enableFieldCacheOnTypes, idFieldCollector, timeoutExceptionFactory, null, null
+		);
+	}
+
+	public QueryHits(IndexSearcherWithPayload searcher,
+					 org.apache.lucene.search.Query preparedQuery,
+					 Filter filter,
+					 Sort sort,
+					 Integer n,
+					 TimeoutManagerImpl timeoutManager,
+					 Map<String, FacetingRequestImpl> facetRequests,
+					 Map<String, Filter> facetSelectionFilters,
+					 boolean enableFieldCacheOnTypes,
+					 FieldCacheCollectorFactory idFieldCollector,
+					 TimeoutExceptionFactory timeoutExceptionFactory,
+					 Integer resultSizeThreshold,
+					 SearchFactoryImplementor searchFactoryImplementor)
+			throws IOException {
 		this.timeoutManager = timeoutManager;
 		this.preparedQuery = preparedQuery;
 		this.searcher = searcher;
 		this.filter = filter;
 		this.sort = sort;
 		this.facetRequests = facetRequests;
+		this.facetSelectionFilters = facetSelectionFilters;
 		this.enableFieldCacheOnClassName = enableFieldCacheOnTypes;
 		this.idFieldCollectorFactory = idFieldCollector;
 		this.timeoutExceptionFactory = timeoutExceptionFactory;
+		this.resultSizeThreshold = resultSizeThreshold;
+		this.resultCache = searchFactoryImplementor != null ? searchFactoryImplementor.getQueryResultCache() : null;
+		this.facetResultCache = searchFactoryImplementor != null ?
+				searchFactoryImplementor.getFacetResultCache() :
+				null;
+		this.shardSearchExecutor = searchFactoryImplementor != null ?
+				searchFactoryImplementor.getShardSearchExecutor() :
+				null;
+		this.resultCacheKey = createResultCacheKey();
 		updateTopDocs( n );
 	}
 
@@ -176,6 +279,14 @@ public class QueryHits {
 		return totalHits;
 	}
 
+	/**
+	 * @return {@code true} if {@link #getTotalHits()} is the exact number of matching documents, {@code false} if
+	 *         it's a lower bound as the search was terminated once the result size threshold was reached
+	 */
+	public boolean isResultSizeExact() {
+		return resultSizeExact;
+	}
+
 	public TopDocs getTopDocs() {
 		return topDocs;
 	}
@@ -196,70 +307,426 @@ public class QueryHits {
 	private void updateTopDocs(int n) throws IOException {
 		int totalMaxDocs = searcher.getSearcher().maxDoc();
 		final int maxDocs = Math.min( n, totalMaxDocs );
+		if ( loadFromResultCache( maxDocs ) ) {
+			return;
+		}
+		loadFacetsFromCache();
 		final Weight weight = preparedQuery.weight( searcher.getSearcher() );
+		// rewriting the query can be expensive as well (e.g. wildcard queries enumerate the index terms):
+		// raise the timeout exception right away rather than starting to collect
+		timeoutManager.isTimedOut();
 
-		final TopDocsCollector<?> topDocCollector;
-		final TotalHitCountCollector hitCountCollector;
-		Collector collector = null;
-		if ( maxDocs != 0 ) {
-			topDocCollector = createTopDocCollector( maxDocs, weight );
-			hitCountCollector = null;
-			collector = topDocCollector;
-			collector = optionallyEnableFieldCacheOnTypes( collector, totalMaxDocs, maxDocs );
-			collector = optionallyEnableFieldCacheOnIds( collector, totalMaxDocs, maxDocs );
-			collector = optionallyEnableFacetingCollectors( collector );
+		if ( isParallelSearchEnabled() ) {
+			searchShardsInParallel( weight, maxDocs );
 		}
 		else {
-			topDocCollector = null;
-			hitCountCollector = new TotalHitCountCollector();
-			collector = hitCountCollector;
+			search( weight, totalMaxDocs, maxDocs );
 		}
-		collector = decorateWithTimeOutCollector( collector );
+
+		if ( !timeoutManager.isTimedOut() ) {
+			// partial results are never cached
+			storeInResultCache( maxDocs );
+			if ( maxDocs != 0 ) {
+				storeFacetsInCache();
+			}
+		}
+	}
+
+	private void search(Weight weight, int totalMaxDocs, int maxDocs) throws IOException {
+		HitCollectors hitCollectors = new HitCollectors( weight, totalMaxDocs, maxDocs );
 
 		boolean timeoutNow = isImmediateTimeout();
 		if ( !timeoutNow ) {
 			try {
-				searcher.getSearcher().search( weight, filter, collector );
+				searcher.getSearcher().search( weight, filter, hitCollectors.collector );
 			}
-			catch ( TimeLimitingCollector.TimeExceededException e ) {
+			catch ( DeadlineCollector.DeadlineExceededException e ) {
 				//we have reached the time limit and stopped before the end
-				//TimeoutManager.isTimedOut should be above that limit but set if for safety
-				timeoutManager.forceTimedOut();
+				timeoutManager.reactOnSearchInterrupted();
+			}
+			catch ( EarlyTerminatingCollector.CollectionTerminatedException e ) {
+				//we have reached the result size threshold
 			}
 		}
+		this.resultSizeExact = !hitCollectors.isTerminated();
 
 		// update top docs and totalHits
 		if ( maxDocs != 0 ) {
-			this.topDocs = topDocCollector.topDocs();
+			this.topDocs = hitCollectors.topDocCollector.topDocs();
 			this.totalHits = topDocs.totalHits;
+			this.classTypeCollector = hitCollectors.classTypeCollector;
+			this.idFieldCollector = hitCollectors.idFieldCollector;
 			// if we were collecting facet data we have to update our instance state
-			if ( facetCollectors != null && !facetCollectors.isEmpty() ) {
-				facetMap = new HashMap<String, List<Facet>>();
-				for ( FacetCollector facetCollector : facetCollectors ) {
-					facetMap.put( facetCollector.getFacetName(), facetCollector.getFacetList() );
+			updateFacets( hitCollectors.facetCollectors );
+		}
+		else {
+			this.topDocs = null;
+			this.totalHits = hitCollectors.hitCountCollector.getTotalHits();
+		}
+	}
+
+	/**
+	 * Parallel search is worth it only when at least two of the targeted indexes contain documents.
+	 */
+	private boolean isParallelSearchEnabled() {
+		if ( shardSearchExecutor == null ) {
+			return false;
+		}
+		IndexReader reader = searcher.getSearcher().getIndexReader();
+		if ( !( reader instanceof CacheableMultiReader ) ) {
+			return false;
+		}
+		int nonEmptyShards = 0;
+		for ( IndexReader shardReader : reader.getSequentialSubReaders() ) {
+			if ( shardReader.maxDoc() > 0 ) {
+				nonEmptyShards++;
+			}
+		}
+		return nonEmptyShards > 1;
+	}
+
+	/**
+	 * Searches each index on its own thread, then merges the top documents, total hits, facet counts and
+	 * FieldCache collected values as if the indexes had been searched all together.
+	 * Document ids are translated in the id space of the {@code MultiReader} used by the searcher,
+	 * so that documents can be loaded and explained as usual.
+	 */
+	private void searchShardsInParallel(Weight weight, int maxDocs) throws IOException {
+		List<IndexReader> shardReaders = new ArrayList<IndexReader>();
+		List<Integer> shardStartList = new ArrayList<Integer>();
+		int start = 0;
+		for ( IndexReader shardReader : searcher.getSearcher().getIndexReader().getSequentialSubReaders() ) {
+			// empty shards have no hits to contribute
+			if ( shardReader.maxDoc() > 0 ) {
+				shardReaders.add( shardReader );
+				shardStartList.add( start );
+			}
+			start += shardReader.maxDoc();
+		}
+		final int shardCount = shardReaders.size();
+		final int[] shardStarts = new int[shardCount];
+		final HitCollectors[] shardCollectors = new HitCollectors[shardCount];
+		for ( int i = 0; i < shardCount; i++ ) {
+			int shardMaxDocs = shardReaders.get( i ).maxDoc();
+			shardStarts[i] = shardStartList.get( i );
+			shardCollectors[i] = new HitCollectors( weight, shardMaxDocs, Math.min( maxDocs, shardMaxDocs ) );
+		}
+
+		boolean timeoutNow = isImmediateTimeout();
+		if ( !timeoutNow ) {
+			boolean someShardTimedOut = searchShards( weight, shardReaders, shardCollectors );
+			if ( someShardTimedOut ) {
+				timeoutManager.reactOnSearchInterrupted();
+			}
+		}
+		this.resultSizeExact = true;
+		for ( HitCollectors hitCollectors : shardCollectors ) {
+			if ( hitCollectors.isTerminated() ) {
+				this.resultSizeExact = false;
+			}
+		}
+
+		if ( maxDocs != 0 ) {
+			TopDocs[] shardTopDocs = new TopDocs[shardCount];
+			FieldCacheCollector[] classTypeCollectors = new FieldCacheCollector[shardCount];
+			FieldCacheCollector[] idFieldCollectors = new FieldCacheCollector[shardCount];
+			List<FacetCollector> facetCollectors = shardCollectors[0].facetCollectors;
+			for ( int i = 0; i < shardCount; i++ ) {
+				TopDocs shardHits = shardCollectors[i].topDocCollector.topDocs();
+				for ( ScoreDoc scoreDoc : shardHits.scoreDocs ) {
+					scoreDoc.doc += shardStarts[i];
+					rebaseIndexOrderSortValues( scoreDoc, shardStarts[i] );
 				}
+				shardTopDocs[i] = shardHits;
+				classTypeCollectors[i] = shardCollectors[i].classTypeCollector;
+				idFieldCollectors[i] = shardCollectors[i].idFieldCollector;
+				if ( i > 0 ) {
+					// facet collectors are created in the same order for each shard
+					for ( int j = 0; j < facetCollectors.size(); j++ ) {
+						facetCollectors.get( j ).mergeCounts( shardCollectors[i].facetCollectors.get( j ) );
+					}
+				}
+			}
+			this.topDocs = TopDocs.merge( sort, maxDocs, shardTopDocs );
+			this.totalHits = topDocs.totalHits;
+			if ( enableFieldCacheOnClassName ) {
+				this.classTypeCollector = new ShardedFieldCacheCollector( classTypeCollectors, shardStarts );
 			}
+			if ( idFieldCollectorFactory != null ) {
+				this.idFieldCollector = new ShardedFieldCacheCollector( idFieldCollectors, shardStarts );
+			}
+			updateFacets( facetCollectors );
 		}
 		else {
 			this.topDocs = null;
-			this.totalHits = hitCountCollector.getTotalHits();
+			int hits = 0;
+			for ( HitCollectors hitCollectors : shardCollectors ) {
+				hits += hitCollectors.hitCountCollector.getTotalHits();
+			}
+			this.totalHits = hits;
 		}
-		timeoutManager.isTimedOut();
 	}
 
-	private Collector optionallyEnableFacetingCollectors(Collector collector) {
+	/**
+	 * When sorting by index order the sort values are document ids relative to the shard: as for
+	 * document ids they need to be translated, otherwise documents of different shards can't be compared.
+	 */
+	private void rebaseIndexOrderSortValues(ScoreDoc scoreDoc, int shardStart) {
+		if ( sort == null ) {
+			return;
+		}
+		SortField[] sortFields = sort.getSort();
+		Object[] sortValues = ( (FieldDoc) scoreDoc ).fields;
+		for ( int i = 0; i < sortFields.length; i++ ) {
+			if ( sortFields[i].getType() == SortField.DOC ) {
+				sortValues[i] = (Integer) sortValues[i] + shardStart;
+			}
+		}
+	}
+
+	/**
+	 * The first documents in index order are known before all matching documents are collected.
+	 */
+	private boolean isIndexOrderSort() {
+		if ( sort == null ) {
+			return false;
+		}
+		SortField firstSortField = sort.getSort()[0];
+		return firstSortField.getType() == SortField.DOC && !firstSortField.getReverse();
+	}
+
+	/**
+	 * @return {@code true} if the search on some shard was interrupted by the time limit
+	 */
+	private boolean searchShards(Weight weight, List<IndexReader> shardReaders, HitCollectors[] shardCollectors)
+			throws IOException {
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>( shardCollectors.length - 1 );
+		try {
+			for ( int i = 1; i < shardCollectors.length; i++ ) {
+				futures.add(
+						shardSearchExecutor.submit(
+								new ShardSearch( weight, filter, shardReaders.get( i ), shardCollectors[i].collector )
+						)
+				);
+			}
+			// rather than waiting idle, the calling thread takes care of the first shard
+			boolean timedOut = new ShardSearch( weight, filter, shardReaders.get( 0 ), shardCollectors[0].collector ).call();
+			for ( Future<Boolean> future : futures ) {
+				timedOut |= waitForShard( future );
+			}
+			return timedOut;
+		}
+		finally {
+			// on failure don't keep searching the other shards: no-op for the completed ones
+			for ( Future<Boolean> future : futures ) {
+				future.cancel( true );
+			}
+		}
+	}
+
+	private boolean waitForShard(Future<Boolean> future) throws IOException {
+		try {
+			if ( timeoutManager.getType() == TimeoutManager.Type.EXCEPTION ) {
+				// shard collectors only check the deadline from time to time, while this one needs to fail as soon
+				// as the timeout expires: getTimeoutLeftInMilliseconds() raises the exception
+				while ( true ) {
+					Long timeoutLeft = timeoutManager.getTimeoutLeftInMilliseconds();
+					if ( timeoutLeft == null ) {
+						break;
+					}
+					try {
+						return future.get( timeoutLeft, TimeUnit.MILLISECONDS );
+					}
+					catch ( TimeoutException e ) {
+						// check the time left again
+					}
+				}
+			}
+			return future.get();
+		}
+		catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) {
+				throw (IOException) cause;
+			}
+			else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause;
+			}
+			else if ( cause instanceof Error ) {
+				throw (Error) cause;
+			}
+			throw new SearchException( "Unable to search shard", cause );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new SearchException( "Interrupted while waiting for shard search results", e );
+		}
+	}
+
+	private void updateFacets(List<FacetCollector> facetCollectors) throws IOException {
 		if ( facetRequests == null || facetRequests.isEmpty() ) {
-			return collector;
+			return;
+		}
+		facetMap = new HashMap<String, List<Facet>>();
+		if ( cachedFacets != null ) {
+			facetMap.putAll( cachedFacets );
+		}
+		for ( FacetCollector facetCollector : facetCollectors ) {
+			facetMap.putAll( facetCollector.getFacets() );
+		}
+		for ( FacetingRequestImpl facetRequest : facetRequestsToCount ) {
+			if ( facetRequest.isSampled() && facetRequest.isRecountReturnedFacets() ) {
+				List<Facet> facets = facetMap.get( facetRequest.getFacetingName() );
+				if ( facets != null ) {
+					facetMap.put( facetRequest.getFacetingName(), recountFacets( facetRequest, facets ) );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the estimated counts of the facets selected from a sample by their exact counts, counting the
+	 * matching documents of each facet with a search restricted to the facet.
+	 */
+	private List<Facet> recountFacets(FacetingRequestImpl facetRequest, List<Facet> facets) throws IOException {
+		List<Facet> recountedFacets = new ArrayList<Facet>( facets.size() );
+		for ( Facet facet : facets ) {
+			// partial results are not worth recounting
+			if ( !( facet instanceof SampledFacet ) || ( (SampledFacet) facet ).isCountExact()
+					|| timeoutManager.isTimedOut() ) {
+				recountedFacets.add( facet );
+				continue;
+			}
+			ChainedFilter recountFilter = new ChainedFilter();
+			if ( filter != null ) {
+				recountFilter.addFilter( filter );
+			}
+			if ( facetSelectionFilters != null ) {
+				// counted sideways: the selection of the request's own group doesn't apply
+				for ( Map.Entry<String, Filter> selectionFilter : facetSelectionFilters.entrySet() ) {
+					if ( !selectionFilter.getKey().equals( facetRequest.getFacetingName() ) ) {
+						recountFilter.addFilter( selectionFilter.getValue() );
+					}
+				}
+			}
+			recountFilter.addFilter( new QueryWrapperFilter( facet.getFacetQuery() ) );
+			TotalHitCountCollector facetHitCountCollector = new TotalHitCountCollector();
+			searcher.getSearcher().search( preparedQuery, recountFilter, facetHitCountCollector );
+			recountedFacets.add(
+					facetRequest.createFacet( facet.getValue(), facetHitCountCollector.getTotalHits(), true )
+			);
+		}
+		FacetSortOrder sortOrder = facetRequest.getSort();
+		if ( FacetSortOrder.COUNT_ASC.equals( sortOrder ) || FacetSortOrder.COUNT_DESC.equals( sortOrder ) ) {
+			Collections.sort( recountedFacets, new FacetCollector.FacetCountComparator( sortOrder ) );
+		}
+		return recountedFacets;
+	}
+
+	/**
+	 * Looks up the facets of each request in the facet result cache, and keeps track of the requests which
+	 * still need to be counted.
+	 */
+	private void loadFacetsFromCache() {
+		facetRequestsToCount = new ArrayList<FacetingRequestImpl>();
+		cachedFacets = null;
+		if ( facetRequests == null ) {
+			return;
+		}
+		for ( FacetingRequestImpl facetRequest : facetRequests.values() ) {
+			Object key = createFacetCacheKey( facetRequest );
+			List<Facet> facets = key == null ? null : facetResultCache.get( key );
+			if ( facets == null ) {
+				facetRequestsToCount.add( facetRequest );
+			}
+			else {
+				if ( cachedFacets == null ) {
+					cachedFacets = new HashMap<String, List<Facet>>();
+				}
+				cachedFacets.put( facetRequest.getFacetingName(), facets );
+			}
+		}
+	}
+
+	private void storeFacetsInCache() {
+		for ( FacetingRequestImpl facetRequest : facetRequestsToCount ) {
+			Object key = createFacetCacheKey( facetRequest );
+			List<Facet> facets = facetMap.get( facetRequest.getFacetingName() );
+			if ( key != null && facets != null ) {
+				facetResultCache.put( key, facets );
+			}
+		}
+	}
+
+	private Object createFacetCacheKey(FacetingRequestImpl facetRequest) {
+		if ( facetResultCache == null ) {
+			return null;
 		}
-		facetCollectors = new ArrayList<FacetCollector>();
-		Collector nextInChain = collector;
-		for ( FacetingRequestImpl entry : facetRequests.values() ) {
-			FacetCollector facetCollector = new FacetCollector( nextInChain, entry );
-			nextInChain = facetCollector;
-			facetCollectors.add( facetCollector );
+		IndexReader reader = searcher.getSearcher().getIndexReader();
+		if ( !( reader instanceof CacheableMultiReader ) ) {
+			return null;
 		}
+		Map<String, Filter> selectionFilters = null;
+		if ( facetSelectionFilters != null ) {
+			// counted sideways: the selection of the request's own group doesn't apply
+			selectionFilters = new HashMap<String, Filter>( facetSelectionFilters );
+			selectionFilters.remove( facetRequest.getFacetingName() );
+		}
+		return FacetResultCache.createKey(
+				( (CacheableMultiReader) reader ).getGenerationKey(),
+				preparedQuery,
+				filter,
+				facetRequest,
+				selectionFilters
+		);
+	}
 
-		return facetCollectors.get( facetCollectors.size() - 1 );
+	private Object createResultCacheKey() {
+		if ( resultCache == null ) {
+			return null;
+		}
+		IndexReader reader = searcher.getSearcher().getIndexReader();
+		if ( !( reader instanceof CacheableMultiReader ) ) {
+			return null;
+		}
+		return QueryResultCache.createKey(
+				( (CacheableMultiReader) reader ).getGenerationKey(),
+				preparedQuery,
+				filter,
+				sort,
+				facetRequests,
+				facetSelectionFilters,
+				resultSizeThreshold,
+				searcher.isFieldSortDoTrackScores(),
+				searcher.isFieldSortDoMaxScore()
+		);
+	}
+
+	private boolean loadFromResultCache(int maxDocs) {
+		if ( resultCacheKey == null ) {
+			return false;
+		}
+		QueryResultCache.CachedQueryResult cachedResult = resultCache.get( resultCacheKey, maxDocs );
+		if ( cachedResult == null ) {
+			return false;
+		}
+		this.topDocs = cachedResult.getTopDocs();
+		this.totalHits = cachedResult.getTotalHits();
+		this.resultSizeExact = cachedResult.isResultSizeExact();
+		this.facetMap = cachedResult.getFacets();
+		// FieldCache values are not cached: unless collected by a previous search on this same reader
+		// the FieldCacheCollectors are left unset, so DocumentExtractor will use stored fields
+		return true;
+	}
+
+	private void storeInResultCache(int maxDocs) {
+		if ( resultCacheKey == null ) {
+			return;
+		}
+		resultCache.put(
+				resultCacheKey,
+				new QueryResultCache.CachedQueryResult( maxDocs, topDocs, totalHits, resultSizeExact, facetMap )
+		);
 	}
 
 	private boolean isImmediateTimeout() {
@@ -284,14 +751,11 @@ public class QueryHits {
 	}
 
 	private Collector decorateWithTimeOutCollector(Collector collector) {
-		Collector maybeTimeLimitingCollector = collector;
-		if ( timeoutManager.getType() == TimeoutManager.Type.LIMIT ) {
-			final Long timeoutLeft = timeoutManager.getTimeoutLeftInMilliseconds();
-			if ( timeoutLeft != null ) {
-				maybeTimeLimitingCollector = new TimeLimitingCollector( collector, timeoutLeft );
-			}
+		final Long deadline = timeoutManager.getDeadline();
+		if ( deadline == null ) {
+			return collector;
 		}
-		return maybeTimeLimitingCollector;
+		return new DeadlineCollector( collector, deadline );
 	}
 
 	private TopDocsCollector<?> createTopDocCollector(int maxDocs, Weight weight) throws IOException {
@@ -313,24 +777,8 @@ public class QueryHits {
 		return topCollector;
 	}
 
-	private Collector optionallyEnableFieldCacheOnIds(Collector collector, int totalMaxDocs, int maxDocs) {
-		if ( idFieldCollectorFactory != null ) {
-			idFieldCollector = idFieldCollectorFactory.createFieldCollector( collector, totalMaxDocs, maxDocs );
-			return idFieldCollector;
-		}
-		return collector;
-	}
-
-	private Collector optionallyEnableFieldCacheOnTypes(Collector collector, int totalMaxDocs, int expectedMatchesCount) {
-		if ( enableFieldCacheOnClassName ) {
-			classTypeCollector = FieldCacheCollectorFactory
-					.CLASS_TYPE_FIELD_CACHE_COLLECTOR_FACTORY
-					.createFieldCollector( collector, totalMaxDocs, expectedMatchesCount );
-			return classTypeCollector;
-		}
-		else {
-			return collector;
-		}
+	TimeoutManagerImpl getTimeoutManager() {
+		return timeoutManager;
 	}
 
 	public FieldCacheCollector getClassTypeCollector() {
@@ -340,4 +788,157 @@ public class QueryHits {
 	public FieldCacheCollector getIdsCollector() {
 		return idFieldCollector;
 	}
+
+	/**
+	 * The chain of collectors needed for a search, either on all the indexes or on a single shard.
+	 */
+	private final class HitCollectors {
+		private final TopDocsCollector<?> topDocCollector;
+		private final TotalHitCountCollector hitCountCollector;
+		private FieldCacheCollector classTypeCollector;
+		private FieldCacheCollector idFieldCollector;
+		private final List<FacetCollector> facetCollectors = new ArrayList<FacetCollector>();
+		private EarlyTerminatingCollector earlyTerminatingCollector;
+		private final Collector collector;
+
+		HitCollectors(Weight weight, int totalMaxDocs, int maxDocs) throws IOException {
+			Collector collector;
+			if ( maxDocs != 0 ) {
+				topDocCollector = createTopDocCollector( maxDocs, weight );
+				hitCountCollector = null;
+				collector = topDocCollector;
+				collector = optionallyEnableFieldCacheOnTypes( collector, totalMaxDocs, maxDocs );
+				collector = optionallyEnableFieldCacheOnIds( collector, totalMaxDocs, maxDocs );
+				// the top documents by index order are the first matches, in any other order all matches are needed;
+				// faceting also needs all matches
+				if ( isIndexOrderSort() && facetRequestsToCount.isEmpty() ) {
+					collector = optionallyTerminateEarly( collector, maxDocs );
+				}
+				collector = optionallyEnableFacetingCollectors( collector, facetRequestsToCount );
+			}
+			else {
+				topDocCollector = null;
+				hitCountCollector = new TotalHitCountCollector();
+				collector = hitCountCollector;
+				collector = optionallyTerminateEarly( collector, maxDocs );
+				collector = optionallyEnableFacetingCollectors( collector, Collections.<FacetingRequestImpl>emptyList() );
+			}
+			this.collector = decorateWithTimeOutCollector( collector );
+		}
+
+		boolean isTerminated() {
+			return earlyTerminatingCollector != null && earlyTerminatingCollector.isTerminated();
+		}
+
+		private Collector optionallyTerminateEarly(Collector collector, int maxDocs) {
+			if ( resultSizeThreshold == null ) {
+				return collector;
+			}
+			earlyTerminatingCollector = new EarlyTerminatingCollector(
+					collector, Math.max( resultSizeThreshold, maxDocs ), maxDocs != 0
+			);
+			return earlyTerminatingCollector;
+		}
+
+		/**
+		 * A single collector counts all the facets, except when counting sideways: the facets of a request having
+		 * a selection group of the same name are counted separately, ignoring the selection of their group.
+		 */
+		private Collector optionallyEnableFacetingCollectors(Collector collector, List<FacetingRequestImpl> requests) {
+			List<FacetingRequestImpl> hitFacetRequests = new ArrayList<FacetingRequestImpl>();
+			List<Filter> selectionFilters = new ArrayList<Filter>();
+			List<List<FacetingRequestImpl>> sidewaysFacetRequests = new ArrayList<List<FacetingRequestImpl>>();
+			if ( facetSelectionFilters != null ) {
+				for ( Map.Entry<String, Filter> selectionFilter : facetSelectionFilters.entrySet() ) {
+					selectionFilters.add( selectionFilter.getValue() );
+					List<FacetingRequestImpl> groupFacetRequests = new ArrayList<FacetingRequestImpl>();
+					for ( FacetingRequestImpl request : requests ) {
+						if ( request.getFacetingName().equals( selectionFilter.getKey() ) ) {
+							groupFacetRequests.add( request );
+						}
+					}
+					sidewaysFacetRequests.add( groupFacetRequests );
+				}
+			}
+			for ( FacetingRequestImpl request : requests ) {
+				if ( facetSelectionFilters == null || !facetSelectionFilters.containsKey( request.getFacetingName() ) ) {
+					hitFacetRequests.add( request );
+				}
+			}
+
+			Collector nextInChain = collector;
+			if ( !hitFacetRequests.isEmpty() ) {
+				FacetCollector facetCollector = new FacetCollector( nextInChain, hitFacetRequests );
+				facetCollectors.add( facetCollector );
+				nextInChain = facetCollector;
+			}
+			if ( selectionFilters.isEmpty() ) {
+				return nextInChain;
+			}
+			DrillSidewaysCollector drillSidewaysCollector = new DrillSidewaysCollector(
+					nextInChain, selectionFilters, sidewaysFacetRequests
+			);
+			for ( int i = 0; i < selectionFilters.size(); i++ ) {
+				if ( drillSidewaysCollector.getSidewaysFacetCollector( i ) != null ) {
+					facetCollectors.add( drillSidewaysCollector.getSidewaysFacetCollector( i ) );
+				}
+			}
+			return drillSidewaysCollector;
+		}
+
+		private Collector optionallyEnableFieldCacheOnIds(Collector collector, int totalMaxDocs, int maxDocs) {
+			if ( idFieldCollectorFactory != null ) {
+				idFieldCollector = idFieldCollectorFactory.createFieldCollector( collector, totalMaxDocs, maxDocs );
+				return idFieldCollector;
+			}
+			return collector;
+		}
+
+		private Collector optionallyEnableFieldCacheOnTypes(Collector collector, int totalMaxDocs, int expectedMatchesCount) {
+			if ( enableFieldCacheOnClassName ) {
+				classTypeCollector = FieldCacheCollectorFactory
+						.CLASS_TYPE_FIELD_CACHE_COLLECTOR_FACTORY
+						.createFieldCollector( collector, totalMaxDocs, expectedMatchesCount );
+				return classTypeCollector;
+			}
+			else {
+				return collector;
+			}
+		}
+	}
+
+	/**
+	 * Searches a single shard, on the calling thread or on a thread of the shard search pool.
+	 */
+	private static final class ShardSearch implements Callable<Boolean> {
+		private final Weight weight;
+		private final Filter filter;
+		private final IndexReader shardReader;
+		private final Collector collector;
+
+		ShardSearch(Weight weight, Filter filter, IndexReader shardReader, Collector collector) {
+			this.weight = weight;
+			this.filter = filter;
+			this.shardReader = shardReader;
+			this.collector = collector;
+		}
+
+		/**
+		 * @return {@code true} if the search was interrupted by the time limit
+		 */
+		public Boolean call() throws IOException {
+			// the weight was created on the top level searcher, so that scores are comparable across shards
+			IndexSearcher shardSearcher = new IndexSearcher( shardReader );
+			try {
+				shardSearcher.search( weight, filter, collector );
+			}
+			catch ( DeadlineCollector.DeadlineExceededException e ) {
+				return Boolean.TRUE;
+			}
+			catch ( EarlyTerminatingCollector.CollectionTerminatedException e ) {
+				//we have reached the result size threshold
+			}
+			return Boolean.FALSE;
+		}
+	}
 }
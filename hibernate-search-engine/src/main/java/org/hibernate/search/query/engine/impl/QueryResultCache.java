@@ -0,0 +1,262 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+
+import org.hibernate.search.query.dsl.impl.FacetingRequestImpl;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.util.impl.SoftLimitMRUCache;
+
+/**
+ * Keeps the most recently used query results in memory: the collected top documents,
+ * the total hit count and the faceting results.
+ * <p/>
+ * Results are keyed on the query, filter, sort, faceting requests and facet selections, and on the generation
+ * of each targeted index as exposed by {@link org.hibernate.search.reader.impl.CacheableMultiReader#getGenerationKey()}.
+ * As soon as the {@code ReaderProvider} of any targeted index opens a new IndexReader on changed
+ * data the key doesn't match anymore, so stale results are never returned: they are evicted
+ * from the cache as any other least recently used entry.
+ * <p/>
+ * Values collected in FieldCaches (class types and identifiers) are not cached, as they might
+ * be as large as the index: results served from the cache load them from stored fields.
+ *
+ * @see org.hibernate.search.Environment#QUERY_RESULT_CACHE_SIZE
+ */
+public class QueryResultCache {
+
+	/**
+	 * Under memory pressure the JVM will release all Soft references,
+	 * so pushing it too high will invalidate all eventually useful other caches.
+	 */
+	private static final int HARD_TO_SOFT_RATIO = 15;
+
+	private final SoftLimitMRUCache cache;
+
+	/**
+	 * @param size number of query results kept in hard reference (gets multiplied by {@link #HARD_TO_SOFT_RATIO}
+	 * for the soft references).
+	 */
+	public QueryResultCache(int size) {
+		this.cache = new SoftLimitMRUCache( size, size * HARD_TO_SOFT_RATIO );
+	}
+
+	/**
+	 * @param key the key as created by {@link #createKey}
+	 * @param maxDocs the number of top documents needed
+	 *
+	 * @return the cached result, or {@code null} if there is no cached result containing at least {@code maxDocs} top documents
+	 */
+	CachedQueryResult get(Object key, int maxDocs) {
+		CachedQueryResult result = (CachedQueryResult) cache.get( key );
+		if ( result != null && result.covers( maxDocs ) ) {
+			return result;
+		}
+		return null;
+	}
+
+	void put(Object key, CachedQueryResult result) {
+		CachedQueryResult previous = (CachedQueryResult) cache.get( key );
+		// don't replace a larger result with a smaller one
+		if ( previous == null || !previous.covers( result.maxDocs ) ) {
+			cache.put( key, result );
+		}
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * @return the cache key for this combination of parameters, or {@code null} if the results can't be cached
+	 */
+	static Object createKey(Object readerGeneration,
+							Query query,
+							Filter filter,
+							Sort sort,
+							Map<String, FacetingRequestImpl> facetRequests,
+							Map<String, Filter> facetSelectionFilters,
+							Integer resultSizeThreshold,
+							boolean trackScores,
+							boolean maxScore) {
+		if ( readerGeneration == null ) {
+			return null;
+		}
+		return new QueryResultKey(
+				readerGeneration, query, filter, sort, facetRequests, facetSelectionFilters, resultSizeThreshold,
+				trackScores, maxScore
+		);
+	}
+
+	static final class CachedQueryResult {
+
+		private final int maxDocs;
+		private final TopDocs topDocs;
+		private final int totalHits;
+		private final boolean resultSizeExact;
+		private final Map<String, List<Facet>> facets;
+
+		CachedQueryResult(int maxDocs, TopDocs topDocs, int totalHits, boolean resultSizeExact, Map<String, List<Facet>> facets) {
+			this.maxDocs = maxDocs;
+			this.topDocs = topDocs;
+			this.totalHits = totalHits;
+			this.resultSizeExact = resultSizeExact;
+			this.facets = facets;
+		}
+
+		boolean covers(int requestedDocs) {
+			// once all hits are collected any amount of top documents can be served
+			return requestedDocs <= maxDocs || ( resultSizeExact && totalHits <= maxDocs );
+		}
+
+		TopDocs getTopDocs() {
+			return topDocs;
+		}
+
+		int getTotalHits() {
+			return totalHits;
+		}
+
+		boolean isResultSizeExact() {
+			return resultSizeExact;
+		}
+
+		/**
+		 * @return a copy of the facet results, so that the cached instance can't be modified by the caller
+		 */
+		Map<String, List<Facet>> getFacets() {
+			if ( facets == null ) {
+				return null;
+			}
+			Map<String, List<Facet>> copy = new HashMap<String, List<Facet>>( facets.size() );
+			for ( Map.Entry<String, List<Facet>> entry : facets.entrySet() ) {
+				copy.put( entry.getKey(), new ArrayList<Facet>( entry.getValue() ) );
+			}
+			return copy;
+		}
+	}
+
+	private static final class QueryResultKey {
+
+		private final Object readerGeneration;
+		private final Query query;
+		private final Filter filter;
+		private final Sort sort;
+		private final Map<String, FacetingRequestImpl> facetRequests;
+		private final Map<String, Filter> facetSelectionFilters;
+		private final Integer resultSizeThreshold;
+		private final boolean trackScores;
+		private final boolean maxScore;
+		private final int hashCode;
+
+		QueryResultKey(Object readerGeneration,
+					   Query query,
+					   Filter filter,
+					   Sort sort,
+					   Map<String, FacetingRequestImpl> facetRequests,
+					   Map<String, Filter> facetSelectionFilters,
+					   Integer resultSizeThreshold,
+					   boolean trackScores,
+					   boolean maxScore) {
+			this.readerGeneration = readerGeneration;
+			// queries are mutable: keep a copy of the current state
+			this.query = (Query) query.clone();
+			this.filter = filter;
+			this.sort = sort;
+			this.facetRequests = facetRequests == null || facetRequests.isEmpty() ?
+					null :
+					new HashMap<String, FacetingRequestImpl>( facetRequests );
+			this.facetSelectionFilters = facetSelectionFilters == null ?
+					null :
+					new HashMap<String, Filter>( facetSelectionFilters );
+			this.resultSizeThreshold = resultSizeThreshold;
+			this.trackScores = trackScores;
+			this.maxScore = maxScore;
+			this.hashCode = computeHashCode();
+		}
+
+		private int computeHashCode() {
+			int result = readerGeneration.hashCode();
+			result = 31 * result + query.hashCode();
+			result = 31 * result + ( filter != null ? filter.hashCode() : 0 );
+			result = 31 * result + ( sort != null ? sort.hashCode() : 0 );
+			result = 31 * result + ( facetRequests != null ? facetRequests.hashCode() : 0 );
+			result = 31 * result + ( facetSelectionFilters != null ? facetSelectionFilters.hashCode() : 0 );
+			result = 31 * result + ( resultSizeThreshold != null ? resultSizeThreshold.hashCode() : 0 );
+			result = 31 * result + ( trackScores ? 1 : 0 );
+			result = 31 * result + ( maxScore ? 1 : 0 );
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( !( o instanceof QueryResultKey ) ) {
+				return false;
+			}
+			QueryResultKey that = (QueryResultKey) o;
+			if ( hashCode != that.hashCode || trackScores != that.trackScores || maxScore != that.maxScore ) {
+				return false;
+			}
+			if ( !readerGeneration.equals( that.readerGeneration ) ) {
+				return false;
+			}
+			if ( !query.equals( that.query ) ) {
+				return false;
+			}
+			if ( filter != null ? !filter.equals( that.filter ) : that.filter != null ) {
+				return false;
+			}
+			if ( sort != null ? !sort.equals( that.sort ) : that.sort != null ) {
+				return false;
+			}
+			if ( facetRequests != null ? !facetRequests.equals( that.facetRequests ) : that.facetRequests != null ) {
+				return false;
+			}
+			if ( facetSelectionFilters != null ?
+					!facetSelectionFilters.equals( that.facetSelectionFilters ) :
+					that.facetSelectionFilters != null ) {
+				return false;
+			}
+			if ( resultSizeThreshold != null ?
+					!resultSizeThreshold.equals( that.resultSizeThreshold ) :
+					that.resultSizeThreshold != null ) {
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
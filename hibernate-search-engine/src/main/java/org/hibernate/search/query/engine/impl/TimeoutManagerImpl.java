@@ -50,9 +50,20 @@ public class TimeoutManagerImpl implements TimeoutManager {
 	public void start() {
 		if ( timeout == null ) return;
 		this.start = System.nanoTime();
+		this.timedOut = false;
 		this.partialResults = false;
 	}
 
+	/**
+	 * @return the {@link System#nanoTime()} value at which the query times out, or {@code null} if no timeout is set
+	 */
+	public Long getDeadline() {
+		if ( timeout == null ) {
+			return null;
+		}
+		return start + timeout;
+	}
+
 	public Long getTimeoutLeftInMilliseconds() {
 		return getTimeoutLeft( 1000000 );
 	}
@@ -106,15 +117,19 @@ public class TimeoutManagerImpl implements TimeoutManager {
 			final long elapsedTime = currentTime - start;
 			timedOut = elapsedTime > timeout;
 			if ( this.type != Type.LIMIT && timedOut ) {
-				throw timeoutExceptionFactory.createTimeoutException(
-						"Full-text query took longer than expected (in microsecond): " + TimeUnit.NANOSECONDS.toMicros( elapsedTime ),
-						luceneQuery
-				);
+				throw createTimeoutException( elapsedTime );
 			}
 			return timedOut;
 		}
 	}
 
+	private RuntimeException createTimeoutException(long elapsedTime) {
+		return timeoutExceptionFactory.createTimeoutException(
+				"Full-text query took longer than expected (in microsecond): " + TimeUnit.NANOSECONDS.toMicros( elapsedTime ),
+				luceneQuery
+		);
+	}
+
 	public void stop() {
 		this.timeout = null;
 		this.type = Type.NONE;
@@ -138,6 +153,17 @@ public class TimeoutManagerImpl implements TimeoutManager {
 		}
 	}
 
+	/**
+	 * To be called when the search was interrupted as the deadline expired: for {@code Type.LIMIT} the results
+	 * are flagged as partial, otherwise the timeout exception is raised.
+	 */
+	public void reactOnSearchInterrupted() {
+		forceTimedOut();
+		if ( type != Type.LIMIT ) {
+			throw createTimeoutException( System.nanoTime() - start );
+		}
+	}
+
 	public void raiseExceptionOnTimeout() {
 		if ( this.type == Type.LIMIT ) {
 			throw new SearchException("Cannot define both setTimeout and limitFetchingTime on a full-text query. Please report your need to the Hibernate team");
@@ -73,4 +73,17 @@ public interface FacetManager {
 	 * @return the {@code FacetSelection} for this group name if it exists., otherwise a new selection is created.
 	 */
 	FacetSelection getFacetGroup(String groupName);
+
+	/**
+	 * Enables or disables sideways faceting. By default facets are counted on the query results, which only
+	 * contain the documents matching the selected facets. When counting sideways, the facets of a faceting request
+	 * are counted ignoring the selection group of the same name, so that the facets which were not selected keep
+	 * their counts. The query results are not affected, and all the faceting requests are still counted in a
+	 * single pass over the matching documents.
+	 *
+	 * @param drillSideways {@code true} to count facets sideways
+	 *
+	 * @return {@code this} to allow method chaining
+	 */
+	FacetManager setDrillSideways(boolean drillSideways);
 }
@@ -150,6 +150,22 @@ public interface HSQuery extends ProjectionConstants {
 	 */
 	HSQuery maxResults(Integer maxResults);
 
+	/**
+	 * Stop counting the matching documents once the threshold is reached: beyond it the result size
+	 * is a lower bound, see {@link #isResultSizeExact()}.
+	 * This bounds the cost of broad queries when the exact number of results is not needed.
+	 * <p/>
+	 * Matching documents are counted until the threshold is reached when only the result size is
+	 * requested, or when results are sorted by index order. For any other sort all matching documents
+	 * need to be collected to find the top ones, so the result size stays exact.
+	 * Results beyond the counted matches can't be retrieved.
+	 *
+	 * @param threshold the number of matching documents to count, or {@code null} to count all of them
+	 *
+	 * @return {@code this} in order to allow method chaining
+	 */
+	HSQuery resultSizeThreshold(Integer threshold);
+
 	/**
 	 * @return the targeted entity types
 	 */
@@ -210,6 +226,14 @@ public interface HSQuery extends ProjectionConstants {
 	 */
 	int queryResultSize();
 
+	/**
+	 * Execute the Lucene query if needed.
+	 *
+	 * @return {@code true} if the result size is exact, {@code false} if it's a lower bound as the
+	 *         {@link #resultSizeThreshold(Integer)} was reached
+	 */
+	boolean isResultSizeExact();
+
 	/**
 	 * Return the Lucene {@link org.apache.lucene.search.Explanation}
 	 * object describing the score computation for the matching object/document
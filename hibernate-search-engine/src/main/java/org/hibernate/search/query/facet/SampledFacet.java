@@ -0,0 +1,36 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.facet;
+
+/**
+ * A facet whose count may be estimated from a sample of the matching documents. The facets returned by
+ * Hibernate Search implement this interface; other {@link Facet} implementations are considered exact.
+ *
+ * @see org.hibernate.search.query.dsl.FacetParameterContext#sampleAbove(int, double)
+ */
+public interface SampledFacet extends Facet {
+
+	/**
+	 * @return {@code true} if the count is exact, {@code false} if it is an estimate computed from a sample of the
+	 *         matching documents
+	 */
+	boolean isCountExact();
+}
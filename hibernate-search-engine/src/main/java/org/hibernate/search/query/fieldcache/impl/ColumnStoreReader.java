@@ -0,0 +1,141 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.query.fieldcache.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.ReaderUtil;
+
+/**
+ * Reads the value of a column stored field for documents identified by their top level doc id.
+ * Values are picked from the {@code FieldCache} array of the segment containing the document: arrays are loaded
+ * the first time a document of their segment is read, and shared with any other user of the same {@code FieldCache}
+ * entry on the segment. Sorting on a string field doesn't use the same entry: it loads a {@code StringIndex}
+ * rather than the plain strings read here.
+ * <p/>
+ * The {@code FieldCache} reads numeric fields without a value as 0: the documents of a segment really holding 0 are
+ * looked up in the index when such a value is read, so that the others are read as null.
+ */
+public final class ColumnStoreReader {
+
+	private final String fieldName;
+	private final FieldCacheLoadingType loadingType;
+	private final IndexReader[] segmentReaders;
+	private final int[] docStarts;
+	private final FieldLoadingStrategy[] segmentValues;
+	private final OpenBitSet[] segmentZeros;
+
+	public ColumnStoreReader(IndexReader topLevelReader, String fieldName, FieldCacheLoadingType loadingType) {
+		this.fieldName = fieldName;
+		this.loadingType = loadingType;
+		List<IndexReader> readers = new ArrayList<IndexReader>();
+		ReaderUtil.gatherSubReaders( readers, topLevelReader );
+		this.segmentReaders = readers.toArray( new IndexReader[readers.size()] );
+		this.docStarts = new int[segmentReaders.length];
+		int maxDoc = 0;
+		for ( int i = 0; i < segmentReaders.length; i++ ) {
+			docStarts[i] = maxDoc;
+			maxDoc += segmentReaders[i].maxDoc();
+		}
+		this.segmentValues = new FieldLoadingStrategy[segmentReaders.length];
+		this.segmentZeros = new OpenBitSet[segmentReaders.length];
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * @param docId the document id relative to the top level reader
+	 *
+	 * @return the value of the field for this document, or null if it has none
+	 *
+	 * @throws IOException in case the values of the segment cannot be loaded
+	 */
+	public Object getValue(int docId) throws IOException {
+		int segment = ReaderUtil.subIndex( docId, docStarts );
+		FieldLoadingStrategy values = segmentValues[segment];
+		if ( values == null ) {
+			values = loadingType.createLoadingStrategy( fieldName );
+			values.loadNewCacheValues( segmentReaders[segment] );
+			segmentValues[segment] = values;
+		}
+		int relativeDocId = docId - docStarts[segment];
+		Object value = values.collect( relativeDocId );
+		if ( value instanceof Number && ( (Number) value ).doubleValue() == 0 && !holdsZero( segment, relativeDocId ) ) {
+			return null;
+		}
+		return value;
+	}
+
+	private boolean holdsZero(int segment, int relativeDocId) throws IOException {
+		OpenBitSet zeros = segmentZeros[segment];
+		if ( zeros == null ) {
+			IndexReader reader = segmentReaders[segment];
+			zeros = new OpenBitSet( reader.maxDoc() );
+			TermDocs termDocs = reader.termDocs();
+			try {
+				for ( String zeroTerm : getZeroTerms() ) {
+					termDocs.seek( new Term( fieldName, zeroTerm ) );
+					while ( termDocs.next() ) {
+						zeros.fastSet( termDocs.doc() );
+					}
+				}
+			}
+			finally {
+				termDocs.close();
+			}
+			segmentZeros[segment] = zeros;
+		}
+		return zeros.fastGet( relativeDocId );
+	}
+
+	/**
+	 * @return the full precision terms of the numeric field encoding 0, including -0 for floating point types
+	 */
+	private String[] getZeroTerms() {
+		switch ( loadingType ) {
+			case INT:
+				return new String[] { NumericUtils.intToPrefixCoded( 0 ) };
+			case LONG:
+				return new String[] { NumericUtils.longToPrefixCoded( 0L ) };
+			case FLOAT:
+				return new String[] {
+						NumericUtils.intToPrefixCoded( NumericUtils.floatToSortableInt( 0f ) ),
+						NumericUtils.intToPrefixCoded( NumericUtils.floatToSortableInt( -0f ) )
+				};
+			case DOUBLE:
+				return new String[] {
+						NumericUtils.longToPrefixCoded( NumericUtils.doubleToSortableLong( 0d ) ),
+						NumericUtils.longToPrefixCoded( NumericUtils.doubleToSortableLong( -0d ) )
+				};
+			default:
+				return new String[0];
+		}
+	}
+}
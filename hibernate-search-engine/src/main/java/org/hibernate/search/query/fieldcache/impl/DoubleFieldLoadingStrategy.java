@@ -46,4 +46,11 @@ public final class DoubleFieldLoadingStrategy implements FieldLoadingStrategy {
 	public Double collect(int relativeDocId) {
 		return currentCache[relativeDocId];
 	}
+
+	/**
+	 * Same as {@link #collect(int)}, without boxing the value.
+	 */
+	public double collectDouble(int relativeDocId) {
+		return currentCache[relativeDocId];
+	}
 }
@@ -46,4 +46,11 @@ public final class FloatFieldLoadingStrategy implements FieldLoadingStrategy {
 	public Float collect(int relativeDocId) {
 		return currentCache[relativeDocId];
 	}
+
+	/**
+	 * Same as {@link #collect(int)}, without boxing the value.
+	 */
+	public float collectFloat(int relativeDocId) {
+		return currentCache[relativeDocId];
+	}
 }
@@ -46,4 +46,11 @@ public final class IntFieldLoadingStrategy implements FieldLoadingStrategy {
 	public Integer collect(int relativeDocId) {
 		return currentCache[relativeDocId];
 	}
+
+	/**
+	 * Same as {@link #collect(int)}, without boxing the value.
+	 */
+	public int collectInt(int relativeDocId) {
+		return currentCache[relativeDocId];
+	}
 }
@@ -46,4 +46,11 @@ public final class LongFieldLoadingStrategy implements FieldLoadingStrategy {
 	public Long collect(int relativeDocId) {
 		return currentCache[relativeDocId];
 	}
+
+	/**
+	 * Same as {@link #collect(int)}, without boxing the value.
+	 */
+	public long collectLong(int relativeDocId) {
+		return currentCache[relativeDocId];
+	}
 }
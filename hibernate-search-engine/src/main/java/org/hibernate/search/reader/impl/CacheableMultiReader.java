@@ -23,6 +23,8 @@
  */
 package org.hibernate.search.reader.impl;
 
+import java.util.Arrays;
+
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiReader;
 import org.hibernate.search.SearchException;
@@ -88,9 +90,56 @@ public class CacheableMultiReader extends MultiReader {
 		return result;
 	}
 
+	/**
+	 * Identifies the state of each index this reader is looking at: two readers returning equal
+	 * generation keys expose exactly the same documents, with the same document ids.
+	 * The key doesn't keep any reference to the readers, so it's safe to store it in caches.
+	 *
+	 * @return the generation key, or {@code null} if some of the sub readers can't expose their version
+	 */
+	public Object getGenerationKey() {
+		int length = this.subReaders.length;
+		long[] versions = new long[length];
+		for (int index = 0; index < length; index++) {
+			try {
+				versions[index] = this.subReaders[index].getVersion();
+			}
+			catch (UnsupportedOperationException e) {
+				return null;
+			}
+		}
+		return new GenerationKey( managers.clone(), versions );
+	}
+
 	private void avoidUsingThis() {
 		throw new SearchException( "IndexReader lifecycle should not be managed, please use "
 				+ "org.hibernate.search.SearchFactory.closeIndexReader(IndexReader) to close IndexReader instances or pool them." );
 	}
 
+	private static final class GenerationKey {
+
+		private final ReaderProvider[] managers;
+		private final long[] versions;
+		private final int hashCode;
+
+		GenerationKey(ReaderProvider[] managers, long[] versions) {
+			this.managers = managers;
+			this.versions = versions;
+			this.hashCode = 31 * Arrays.hashCode( managers ) + Arrays.hashCode( versions );
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( this == obj ) return true;
+			if ( !( obj instanceof GenerationKey ) ) return false;
+			GenerationKey that = (GenerationKey) obj;
+			return Arrays.equals( this.versions, that.versions ) && Arrays.equals( this.managers, that.managers );
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
 }
@@ -37,12 +37,14 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.search.Similarity;
 import org.hibernate.search.backend.impl.BatchedQueueingProcessor;
 import org.hibernate.search.backend.impl.QueueingProcessor;
 import org.hibernate.search.backend.impl.WorkerFactory;
 import org.hibernate.search.backend.spi.LuceneIndexingParameters;
+import org.hibernate.search.batchindexing.impl.Executors;
 import org.hibernate.search.engine.impl.FilterDef;
 import org.hibernate.search.engine.impl.MutableEntityIndexBinding;
 import org.hibernate.search.engine.spi.DocumentBuilderContainedEntity;
@@ -51,7 +53,10 @@ import org.hibernate.search.engine.spi.EntityIndexBinder;
 import org.hibernate.search.engine.spi.EntityState;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
 import org.hibernate.search.filter.impl.CachingWrapperFilter;
+import org.hibernate.search.filter.impl.CostBasedFilterCachingStrategy;
 import org.hibernate.search.filter.impl.MRUFilterCachingStrategy;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
 import org.hibernate.search.cfg.spi.SearchConfiguration;
 import org.hibernate.search.util.impl.ClassLoaderHelper;
@@ -247,6 +252,9 @@ public class SearchFactoryBuilder {
 						cfg.getProperties(), Environment.CACHE_DOCIDRESULTS_SIZE, CachingWrapperFilter.DEFAULT_SIZE
 				)
 		);
+		factoryState.setQueryResultCache( buildQueryResultCache( cfg.getProperties() ) );
+		factoryState.setFacetResultCache( buildFacetResultCache( cfg.getProperties() ) );
+		factoryState.setShardSearchExecutor( buildShardSearchExecutor( cfg.getProperties() ) );
 		SearchFactoryImplementorWithShareableState factory = new ImmutableSearchFactory( factoryState );
 		factoryState.setActiveSearchFactory( factory );
 		rootFactory.setDelegate( factory );
@@ -293,6 +301,9 @@ public class SearchFactoryBuilder {
 		if ( StringHelper.isEmpty( impl ) || "mru".equalsIgnoreCase( impl ) ) {
 			filterCachingStrategy = new MRUFilterCachingStrategy();
 		}
+		else if ( "cost".equalsIgnoreCase( impl ) ) {
+			filterCachingStrategy = new CostBasedFilterCachingStrategy();
+		}
 		else {
 			filterCachingStrategy = ClassLoaderHelper.instanceFromName(
 					FilterCachingStrategy.class,
@@ -303,6 +314,30 @@ public class SearchFactoryBuilder {
 		return filterCachingStrategy;
 	}
 
+	private static QueryResultCache buildQueryResultCache(Properties properties) {
+		int size = ConfigurationParseHelper.getIntValue( properties, Environment.QUERY_RESULT_CACHE_SIZE, 0 );
+		if ( size <= 0 ) {
+			return null;
+		}
+		return new QueryResultCache( size );
+	}
+
+	private static FacetResultCache buildFacetResultCache(Properties properties) {
+		int size = ConfigurationParseHelper.getIntValue( properties, Environment.FACET_RESULT_CACHE_SIZE, 0 );
+		if ( size <= 0 ) {
+			return null;
+		}
+		return new FacetResultCache( size );
+	}
+
+	private static ExecutorService buildShardSearchExecutor(Properties properties) {
+		int threads = ConfigurationParseHelper.getIntValue( properties, Environment.SHARD_SEARCH_THREAD_POOL_SIZE, 0 );
+		if ( threads <= 0 ) {
+			return null;
+		}
+		return Executors.newFixedThreadPool( threads, "Shard searcher" );
+	}
+
 	private void createCleanFactoryState(SearchConfiguration cfg) {
 		if ( rootFactory == null ) {
 			//set the mutable structure of factory state
@@ -512,6 +547,14 @@ public class SearchFactoryBuilder {
 				filterDef.addSetter( Introspector.decapitalize( name.substring( 3 ) ), method );
 			}
 		}
+		for ( String parameterName : filterDef.getParameters().keySet() ) {
+			if ( !filterDef.hasSetter( parameterName ) ) {
+				throw new SearchException(
+						"No setter " + parameterName + " found in " + filterDef.getImpl().getName()
+								+ " for the parameter of @FullTextFilterDef.name=" + defAnn.name()
+				);
+			}
+		}
 		filterDefinition.put( defAnn.name(), filterDef );
 	}
 
@@ -34,12 +34,15 @@ import org.hibernate.search.engine.ServiceManager;
 import org.hibernate.search.exception.ErrorHandler;
 import org.hibernate.search.filter.FilterCachingStrategy;
 import org.hibernate.search.indexes.impl.IndexManagerHolder;
+import org.hibernate.search.query.engine.impl.FacetResultCache;
+import org.hibernate.search.query.engine.impl.QueryResultCache;
 import org.hibernate.search.query.engine.spi.TimeoutExceptionFactory;
 import org.hibernate.search.spi.ClassNavigator;
 import org.hibernate.search.store.DirectoryProvider;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Represents the sharable state of a search factory
@@ -63,6 +66,12 @@ public interface SearchFactoryState {
 
 	int getCacheBitResultsSize();
 
+	QueryResultCache getQueryResultCache();
+
+	FacetResultCache getFacetResultCache();
+
+	ExecutorService getShardSearchExecutor();
+
 	Properties getConfigurationProperties();
 
 	PolymorphicIndexHierarchy getIndexHierarchy();
@@ -0,0 +1,69 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.stat;
+
+/**
+ * Statistics of the spool of an index: the change sets a clustered backend couldn't send, kept on disk until
+ * their destination is available again.
+ *
+ * @see org.hibernate.search.backend.impl.ChangeSetSpool
+ */
+public interface ChangeSetSpoolStatistics {
+	/**
+	 * @return the name of the index whose change sets are spooled
+	 */
+	String getIndexName();
+
+	/**
+	 * @return true while change sets are spooled instead of being sent
+	 */
+	boolean isSpooling();
+
+	/**
+	 * @return the number of change sets in the spool, waiting to be sent
+	 */
+	int getBacklogChangeSetCount();
+
+	/**
+	 * @return the size of the change sets in the spool, in bytes
+	 */
+	long getBacklogBytes();
+
+	/**
+	 * @return the size the spool file may grow to before change sets are rejected, in bytes
+	 */
+	long getMaxBytes();
+
+	/**
+	 * @return the number of change sets written to the spool
+	 */
+	long getSpooledChangeSetCount();
+
+	/**
+	 * @return the number of spooled change sets sent to their destination
+	 */
+	long getForwardedChangeSetCount();
+
+	/**
+	 * @return the number of change sets which couldn't be spooled as the spool was full
+	 */
+	long getRejectedChangeSetCount();
+}
@@ -0,0 +1,70 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.stat;
+
+/**
+ * Statistics of a filter caching strategy: how often cached filters are reused, how much memory their cached
+ * results take and which filters got evicted.
+ *
+ * @see org.hibernate.search.filter.impl.CostBasedFilterCachingStrategy
+ */
+public interface FilterCacheStatistics {
+	/**
+	 * Reset the hit, miss and eviction counts.
+	 */
+	void clear();
+
+	/**
+	 * @return the number of lookups which found the filter in the cache
+	 */
+	long getFilterCacheHitCount();
+
+	/**
+	 * @return the number of lookups which did not find the filter in the cache
+	 */
+	long getFilterCacheMissCount();
+
+	/**
+	 * @return the number of filters evicted from the cache
+	 */
+	long getFilterCacheEvictionCount();
+
+	/**
+	 * @return the number of filters currently cached
+	 */
+	int getCachedFilterCount();
+
+	/**
+	 * @return an estimate of the memory taken by the results cached by the cached filters, in bytes
+	 */
+	long getCachedBytes();
+
+	/**
+	 * @return the memory the cached results may take before filters get evicted, in bytes
+	 */
+	long getMaxBytes();
+
+	/**
+	 * @return for each cached filter its hit count, the memory taken by its cached results and the average time
+	 *         spent computing a segment result
+	 */
+	String[] getCachedFilterStatistics();
+}
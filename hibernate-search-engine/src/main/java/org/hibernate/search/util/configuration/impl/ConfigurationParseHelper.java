@@ -145,6 +145,27 @@ public abstract class ConfigurationParseHelper {
 		return parseInt( propValue, defValue, "Unable to parse " + key + ": " + propValue );
 	}
 
+	/**
+	 * Looks for a long value in the Properties, returning
+	 * defValue if not found or if an empty string is found.
+	 * @param cfg
+	 * @param key
+	 * @param defValue
+	 * @return the converted long.
+	 * @throws SearchException for invalid format.
+	 */
+	public static final long getLongValue(Properties cfg, String key, long defValue) {
+		String propValue = cfg.getProperty( key );
+		if ( StringHelper.isEmpty( propValue ) ) {
+			return defValue;
+		}
+		try {
+			return Long.parseLong( propValue.trim() );
+		} catch (NumberFormatException nfe) {
+			throw new SearchException( "Unable to parse " + key + ": " + propValue, nfe );
+		}
+	}
+
 	/**
 	 * Parses a string to recognize exactly either "true" or "false".
 	 * @param value the string to be parsed
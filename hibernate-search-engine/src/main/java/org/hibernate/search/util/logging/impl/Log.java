@@ -404,7 +404,7 @@ public interface Log extends BasicLogger {
 	SearchException unknownAttributeSerializedRepresentation(String name);
 
 	@Message(id = 87, value = "Unable to read TokenStream")
-	SearchException unableToReadTokenStream();
+	SearchException unableToReadTokenStream(@Cause IOException e);
 
 	@Message(id = 88, value = "Unable to convert serializable TermVector to Lucene TermVector: %1$s")
 	SearchException unableToConvertSerializableTermVectorToLuceneTermVector(String termVector);
@@ -511,4 +511,89 @@ public interface Log extends BasicLogger {
 	@Message(id = 118, value = "Exception during index Merge operation")
 	String exceptionDuringIndexMergeOperation();
 
+	@Message(id = 119, value = "Serialized works were compressed with an unknown codec, identifier: %1$d")
+	SearchException unknownCompressionCodec(int codecId);
+
+	@Message(id = 120, value = "Unable to decompress serialized works")
+	SearchException unableToDecompressLuceneWorks(@Cause Throwable e);
+
+	@Message(id = 121, value = "Compression codec %1$s uses the identifier %2$d of codec %3$s")
+	SearchException duplicateCompressionCodecId(String codecClass, int codecId, String otherCodecClass);
+
+	@Message(id = 122, value = "Unable to send a batch of Search works to JMS queue %1$s")
+	String unableToSendJmsBatch(String jmsQueueName);
+
+	@Message(id = 123, value = "Unable to apply the works received through JMS for index %1$s")
+	String unableToApplyJmsChangeSets(String indexName);
+
+	@LogMessage(level = WARN)
+	@Message(id = 124, value = "Unable to announce the JGroups master node of index %1$s")
+	void unableToAnnounceJGroupsMaster(String indexName, @Cause Exception e);
+
+	@Message(id = 125, value = "Unable to send a batch of Search works to JGroups cluster %1$s")
+	String unableToSendJGroupsBatch(String clusterName);
+
+	@LogMessage(level = ERROR)
+	@Message(id = 126, value = "Unable to apply the works received from node %2$s for index %1$s")
+	void unableToApplyAcknowledgedWorks(String indexName, Object sender, @Cause Exception e);
+
+	@LogMessage(level = WARN)
+	@Message(id = 127, value = "Unable to acknowledge the works received from node %2$s for index %1$s")
+	void unableToAcknowledgeWorks(String indexName, Object sender, @Cause Exception e);
+
+	@Message(id = 128, value = "The master node of index %1$s did not acknowledge the works within %2$d ms")
+	SearchException jGroupsMasterDidNotAcknowledge(String indexName, long timeout);
+
+	@Message(id = 129, value = "The master node of index %1$s failed to apply the works")
+	SearchException jGroupsMasterFailedToApplyWorks(String indexName);
+
+	@LogMessage(level = INFO)
+	@Message(id = 130, value = "Node %2$s is now the master of index %1$s")
+	void jGroupsNodeElectedMaster(String indexName, Object address);
+
+	@LogMessage(level = INFO)
+	@Message(id = 131, value = "Node %2$s is no longer the master of index %1$s, node %3$s took over")
+	void jGroupsNodeReplacedAsMaster(String indexName, Object address, Object newMaster);
+
+	@LogMessage(level = ERROR)
+	@Message(id = 132, value = "Unable to switch the role of node %2$s for index %1$s")
+	void unableToSwitchJGroupsRole(String indexName, Object address, @Cause Exception e);
+
+	@LogMessage(level = WARN)
+	@Message(id = 133, value = "Unable to forward the works for index %1$s to the master node %2$s")
+	void unableToForwardWorksToMaster(String indexName, Object master, @Cause Exception e);
+
+	@LogMessage(level = ERROR)
+	@Message(id = 134, value = "Unable to send the works buffered during a view change for index %1$s")
+	void unableToSendJGroupsPendingWorks(String indexName, @Cause Exception e);
+
+	@LogMessage(level = WARN)
+	@Message(id = 135, value = "Unable to send the works for index %1$s, spooling them until the destination is available")
+	void spoolingChangeSets(String indexName, @Cause Exception e);
+
+	@Message(id = 136, value = "Unable to send the works for index %1$s and its spool is full (%2$d bytes)")
+	SearchException changeSetSpoolFull(String indexName, long maxSize);
+
+	@LogMessage(level = INFO)
+	@Message(id = 137, value = "Sent %2$d spooled change sets for index %1$s")
+	void changeSetSpoolDrained(String indexName, long count);
+
+	@LogMessage(level = ERROR)
+	@Message(id = 138, value = "Unable to send the spooled change sets for index %1$s")
+	void unableToForwardSpooledChangeSets(String indexName, @Cause Exception e);
+
+	@LogMessage(level = WARN)
+	@Message(id = 139, value = "Skipping an unreadable spooled change set for index %1$s")
+	void skippingUnreadableSpooledChangeSet(String indexName, @Cause Exception e);
+
+	@Message(id = 140, value = "Serialized works claim an uncompressed length of %1$d bytes for %2$d compressed bytes, the payload is corrupted")
+	SearchException invalidUncompressedLength(int length, int compressedLength);
+
+	@Message(id = 141, value = "%1$s is stopped, the change set is not sent")
+	SearchException batchingQueueStopped(String threadName);
+
+	@LogMessage(level = ERROR)
+	@Message(id = 142, value = "Unable to acknowledge the received JMS messages, they will be redelivered")
+	void unableToAcknowledgeJmsMessages(@Cause Exception e);
+
 }
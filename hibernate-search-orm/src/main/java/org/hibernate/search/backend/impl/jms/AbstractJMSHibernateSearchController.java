@@ -23,7 +23,10 @@
  */
 package org.hibernate.search.backend.impl.jms;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -31,6 +34,7 @@ import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
 
 import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
 import org.hibernate.search.engine.spi.SearchFactoryImplementor;
 import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.util.impl.ContextHelper;
@@ -50,6 +54,13 @@ public abstract class AbstractJMSHibernateSearchController implements MessageLis
 	
 	private static final Log log = LoggerFactory.make();
 
+	private volatile JMSMasterDispatcher dispatcher;
+
+	/**
+	 * The latches of the dispatched work queues not acknowledged yet, guarded by itself
+	 */
+	private final List<CountDownLatch> unacknowledged = new ArrayList<CountDownLatch>();
+
 	/**
 	 * Return the current or give a new session
 	 * This session is not used per se, but is the link to access the Search configuration.
@@ -82,6 +93,70 @@ public abstract class AbstractJMSHibernateSearchController implements MessageLis
 	 */
 	protected abstract void cleanSessionIfNeeded(Session session);
 
+	/**
+	 * The number of threads decoding and applying the received work queues. When greater than 0, the work queues
+	 * for different indexes are applied in parallel, and the consecutive work queues for an index are merged
+	 * into a single batch.
+	 * <p>
+	 * Work queues are applied in the order they are received, so they should be received by a single
+	 * instance of this controller.
+	 * <p>
+	 * Defaults to 0: work queues are applied one at a time by the thread receiving them.
+	 */
+	protected int getDispatcherThreads() {
+		return 0;
+	}
+
+	/**
+	 * Whether messages are acknowledged only once their work queues are applied, when they are applied by the
+	 * dispatching threads. The receiving thread doesn't wait for them: once all the work queues received so far
+	 * are applied, the message being received is acknowledged, which acknowledges all the messages received
+	 * before it. This requires receiving the messages through a session in <code>CLIENT_ACKNOWLEDGE</code> mode;
+	 * messages not acknowledged yet are redelivered if the master stops abruptly, and their work queues applied
+	 * again. The receiving thread only waits for the work queues to be applied once
+	 * {@link #getMaxUnacknowledgedWorkQueues()} of them are not acknowledged.
+	 * <p>
+	 * With other acknowledgement modes, like the one of container managed message driven beans, messages are
+	 * acknowledged when {@link #onMessage(Message)} returns: up to {@link #getMaxUnacknowledgedWorkQueues()} work
+	 * queues not applied yet are then lost if the master stops abruptly.
+	 * <p>
+	 * When false, messages are acknowledged as soon as they are dispatched. Defaults to true.
+	 */
+	protected boolean isAcknowledgedAfterApplying() {
+		return true;
+	}
+
+	/**
+	 * The number of dispatched work queues not acknowledged yet from which the receiving thread waits for them to be
+	 * applied, so that the received messages eventually get acknowledged.
+	 */
+	protected int getMaxUnacknowledgedWorkQueues() {
+		return 100;
+	}
+
+	/**
+	 * The number of works from which a batch is applied without merging more work queues.
+	 */
+	protected int getMaxBatchSize() {
+		return 1000;
+	}
+
+	/**
+	 * The number of received work queues waiting to be applied before receiving messages blocks.
+	 */
+	protected int getMaxPendingWorkQueues() {
+		return 1000;
+	}
+
+	/**
+	 * Waits for the received work queues to be applied and releases the dispatching threads, if any
+	 */
+	public void close() {
+		if ( dispatcher != null ) {
+			dispatcher.shutdown();
+		}
+	}
+
 	/**
 	 * Process the Hibernate Search work queues received
 	 */
@@ -91,20 +166,22 @@ public abstract class AbstractJMSHibernateSearchController implements MessageLis
 			return;
 		}
 		final ObjectMessage objectMessage = (ObjectMessage) message;
-		final String indexName;
-		final List<LuceneWork> queue;
-		final IndexManager indexManager;
 		Session session = getSession();
 		SearchFactoryImplementor factory = ContextHelper.getSearchFactory( session );
+		List<CountDownLatch> dispatched = new ArrayList<CountDownLatch>();
 		try {
-			indexName = objectMessage.getStringProperty( JMSBackendQueueTask.INDEX_NAME_JMS_PROPERTY );
-			indexManager = factory.getAllIndexesManager().getIndexManager( indexName );
-			if ( indexManager == null ) {
-				log.messageReceivedForUndefinedIndex( indexName );
-				return;
+			String indexName = objectMessage.getStringProperty( JMSBackendQueueTask.INDEX_NAME_JMS_PROPERTY );
+			if ( indexName == null ) {
+				// the work queues of several indexes, routed by index name
+				ChangeSetBundle bundle = (ChangeSetBundle) objectMessage.getObject();
+				for ( int i = 0; i < bundle.indexNames.length; i++ ) {
+					apply( factory, bundle.indexNames[i], bundle.changeSets[i], dispatched );
+				}
 			}
-			queue = indexManager.getSerializer().toLuceneWorks( (byte[]) objectMessage.getObject() );
-			indexManager.performOperations( queue );
+			else {
+				apply( factory, indexName, (byte[]) objectMessage.getObject(), dispatched );
+			}
+			acknowledge( objectMessage, dispatched );
 		}
 		catch (JMSException e) {
 			log.unableToRetrieveObjectFromMessage( message.getClass(), e );
@@ -119,4 +196,94 @@ public abstract class AbstractJMSHibernateSearchController implements MessageLis
 		}
 	}
 
+	/**
+	 * @param dispatched collects the latches of the work queues applied by the dispatching threads
+	 */
+	private void apply(SearchFactoryImplementor factory, String indexName, byte[] data, List<CountDownLatch> dispatched) {
+		IndexManager indexManager = factory.getAllIndexesManager().getIndexManager( indexName );
+		if ( indexManager == null ) {
+			log.messageReceivedForUndefinedIndex( indexName );
+			return;
+		}
+		if ( getDispatcherThreads() > 0 ) {
+			dispatched.add( getDispatcher( factory ).dispatch( indexManager, data ) );
+			return;
+		}
+		List<LuceneWork> queue = indexManager.getSerializer().toLuceneWorks( data );
+		indexManager.performOperations( queue );
+	}
+
+	/**
+	 * Acknowledges the message if all the work queues dispatched so far are applied, waiting for them first if too
+	 * many were not acknowledged yet. Acknowledging a message acknowledges the ones received before it.
+	 */
+	private void acknowledge(Message message, List<CountDownLatch> dispatched) {
+		if ( isAcknowledgedAfterApplying() && !isAllApplied( dispatched ) ) {
+			return;
+		}
+		try {
+			message.acknowledge();
+		}
+		catch ( JMSException e ) {
+			log.unableToAcknowledgeJmsMessages( e );
+		}
+	}
+
+	/**
+	 * Tracks the dispatched work queues until they are applied, waiting for them when too many are tracked.
+	 *
+	 * @return true if all the work queues dispatched so far are applied
+	 */
+	private boolean isAllApplied(List<CountDownLatch> dispatched) {
+		synchronized ( unacknowledged ) {
+			unacknowledged.addAll( dispatched );
+			if ( unacknowledged.size() >= getMaxUnacknowledgedWorkQueues() ) {
+				awaitApplied( unacknowledged );
+			}
+			for ( Iterator<CountDownLatch> iterator = unacknowledged.iterator(); iterator.hasNext(); ) {
+				if ( iterator.next().getCount() > 0 ) {
+					return false;
+				}
+				iterator.remove();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Waits for dispatched work queues to be applied, even if interrupted: the messages must not be acknowledged before
+	 */
+	private void awaitApplied(List<CountDownLatch> dispatched) {
+		boolean interrupted = false;
+		for ( CountDownLatch applied : dispatched ) {
+			while ( applied.getCount() > 0 ) {
+				try {
+					applied.await();
+				}
+				catch ( InterruptedException e ) {
+					interrupted = true;
+				}
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private JMSMasterDispatcher getDispatcher(SearchFactoryImplementor factory) {
+		if ( dispatcher == null ) {
+			synchronized ( this ) {
+				if ( dispatcher == null ) {
+					dispatcher = new JMSMasterDispatcher(
+							factory.getErrorHandler(),
+							getDispatcherThreads(),
+							getMaxBatchSize(),
+							getMaxPendingWorkQueues()
+					);
+				}
+			}
+		}
+		return dispatcher;
+	}
+
 }
@@ -157,6 +157,29 @@ public interface FullTextQuery extends Query, ProjectionConstants {
 	 */
 	boolean hasPartialResults();
 
+	/**
+	 * *Experimental* API, subject to change or removal
+	 *
+	 * Stop counting the matching documents once the threshold is reached, bounding the cost of broad queries
+	 * when the exact number of results is not needed. Beyond the threshold {@link #getResultSize()} returns
+	 * a lower bound and {@link #isResultSizeExact()} returns false.
+	 *
+	 * Counting stops early when only the result size is requested, or when results are sorted by index order.
+	 * For any other sort all matching documents are collected to find the top ones, so the result size stays exact.
+	 * Results beyond the counted matches are not returned.
+	 *
+	 * @param threshold the number of matching documents to count
+	 */
+	FullTextQuery setResultSizeThreshold(int threshold);
+
+	/**
+	 * *Experimental* API, subject to change or removal
+	 *
+	 * When using {@link #setResultSizeThreshold(int)}, returns false if the result size is a lower bound
+	 * as the threshold has been reached.
+	 */
+	boolean isResultSizeExact();
+
 	/**
 	 * Refine the strategies used to load entities.
 	 *
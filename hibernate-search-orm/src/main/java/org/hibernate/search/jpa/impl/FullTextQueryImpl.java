@@ -356,6 +356,15 @@ public class FullTextQueryImpl implements FullTextQuery {
 		return query.hasPartialResults();
 	}
 
+	public FullTextQuery setResultSizeThreshold(int threshold) {
+		query.setResultSizeThreshold( threshold );
+		return this;
+	}
+
+	public boolean isResultSizeExact() {
+		return query.isResultSizeExact();
+	}
+
 	public FullTextQuery initializeObjectsWith(ObjectLookupMethod lookupMethod, DatabaseRetrievalMethod retrievalMethod) {
 		query.initializeObjectsWith( lookupMethod, retrievalMethod );
 		return this;
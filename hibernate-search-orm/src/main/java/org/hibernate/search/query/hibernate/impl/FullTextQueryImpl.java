@@ -332,6 +332,15 @@ public class FullTextQueryImpl extends AbstractQueryImpl implements FullTextQuer
 		return hSearchQuery.getTimeoutManager().hasPartialResults();
 	}
 
+	public FullTextQuery setResultSizeThreshold(int threshold) {
+		hSearchQuery.resultSizeThreshold( threshold );
+		return this;
+	}
+
+	public boolean isResultSizeExact() {
+		return hSearchQuery.isResultSizeExact();
+	}
+
 	public FullTextQuery initializeObjectsWith(ObjectLookupMethod lookupMethod, DatabaseRetrievalMethod retrievalMethod) {
 		this.lookupMethod = lookupMethod;
 		this.retrievalMethod = retrievalMethod;
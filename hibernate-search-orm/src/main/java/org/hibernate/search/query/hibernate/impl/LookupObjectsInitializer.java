@@ -60,9 +60,10 @@ public class LookupObjectsInitializer implements ObjectsInitializer {
 			return;
 		}
 
-		//TODO should we do time out check between each object call?
+		//each lookup is a potential database roundtrip: check the time out between each object call
 		for ( EntityInfo entityInfo : entityInfos ) {
 			ObjectLoaderHelper.load( entityInfo, session );
+			timeoutManager.isTimedOut();
 		}
 		log.tracef( "Initialized %d objects by lookup method.", maxResults );
 	}
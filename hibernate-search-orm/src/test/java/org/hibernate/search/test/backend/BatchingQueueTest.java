@@ -0,0 +1,153 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.PurgeAllLuceneWork;
+import org.hibernate.search.backend.impl.BatchingQueue;
+import org.hibernate.search.exception.ErrorContext;
+import org.hibernate.search.exception.ErrorHandler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the change sets {@link BatchingQueue} can't send are reported to the error handler.
+ */
+public class BatchingQueueTest {
+
+	@Test
+	public void testChangeSetQueuedAfterShutdownIsReported() {
+		RecordingErrorHandler errorHandler = new RecordingErrorHandler();
+		RecordingBatchingQueue queue = new RecordingBatchingQueue( errorHandler );
+		queue.start();
+		LuceneWork sentWork = new PurgeAllLuceneWork( String.class );
+		queue.enqueue( Collections.singletonList( sentWork ) );
+		queue.shutdown();
+		assertEquals( Collections.singletonList( sentWork ), queue.sentWorks );
+
+		LuceneWork lateWork = new PurgeAllLuceneWork( Integer.class );
+		queue.enqueue( Collections.singletonList( lateWork ) );
+		assertEquals( 1, errorHandler.contexts.size() );
+		assertSame( lateWork, errorHandler.contexts.get( 0 ).getOperationAtFault() );
+		assertTrue( errorHandler.contexts.get( 0 ).getThrowable() instanceof SearchException );
+		assertEquals( 1, queue.sentWorks.size() );
+	}
+
+	@Test
+	public void testChangeSetOfInterruptedProducerIsReported() {
+		RecordingErrorHandler errorHandler = new RecordingErrorHandler();
+		RecordingBatchingQueue queue = new RecordingBatchingQueue( errorHandler );
+		LuceneWork work = new PurgeAllLuceneWork( String.class );
+		Thread.currentThread().interrupt();
+		queue.enqueue( Collections.singletonList( work ) );
+		assertTrue( "The interruption should be kept", Thread.interrupted() );
+		assertEquals( 1, errorHandler.contexts.size() );
+		assertSame( work, errorHandler.contexts.get( 0 ).getOperationAtFault() );
+		assertTrue( errorHandler.contexts.get( 0 ).getThrowable().getCause() instanceof InterruptedException );
+		queue.shutdown();
+	}
+
+	@Test
+	public void testBlockedProducerIsReleasedWhenSenderDies() throws Exception {
+		RecordingErrorHandler errorHandler = new RecordingErrorHandler();
+		final CountDownLatch sending = new CountDownLatch( 1 );
+		final CountDownLatch failSending = new CountDownLatch( 1 );
+		final BatchingQueue queue = new BatchingQueue( "Test sender", errorHandler, "Unable to send test works", 0, 1, 1 ) {
+			@Override
+			protected void send(List<LuceneWork> batch) {
+				sending.countDown();
+				try {
+					failSending.await();
+				}
+				catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+				throw new Error( "Sending thread failure" );
+			}
+		};
+		queue.start();
+		queue.enqueue( Collections.<LuceneWork>singletonList( new PurgeAllLuceneWork( String.class ) ) );
+		assertTrue( sending.await( 10, TimeUnit.SECONDS ) );
+		final LuceneWork queuedWork = new PurgeAllLuceneWork( Integer.class );
+		queue.enqueue( Collections.singletonList( queuedWork ) );
+
+		// the queue is full: this producer is blocked until the sending thread dies
+		final LuceneWork blockedWork = new PurgeAllLuceneWork( Long.class );
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				queue.enqueue( Collections.singletonList( blockedWork ) );
+			}
+		};
+		producer.start();
+		failSending.countDown();
+		producer.join( 10000 );
+		assertFalse( "The producer should not be blocked by a dead sending thread", producer.isAlive() );
+		queue.shutdown();
+
+		assertEquals( 2, errorHandler.contexts.size() );
+		List<Object> reportedWorks = new ArrayList<Object>();
+		for ( ErrorContext context : errorHandler.contexts ) {
+			reportedWorks.add( context.getOperationAtFault() );
+		}
+		assertTrue( reportedWorks.contains( queuedWork ) );
+		assertTrue( reportedWorks.contains( blockedWork ) );
+	}
+
+	private static class RecordingBatchingQueue extends BatchingQueue {
+		private final List<LuceneWork> sentWorks = Collections.synchronizedList( new ArrayList<LuceneWork>() );
+
+		RecordingBatchingQueue(ErrorHandler errorHandler) {
+			super( "Test sender", errorHandler, "Unable to send test works", 10, 100, 10 );
+		}
+
+		@Override
+		protected void send(List<LuceneWork> batch) {
+			sentWorks.addAll( batch );
+		}
+	}
+
+	private static class RecordingErrorHandler implements ErrorHandler {
+		private final List<ErrorContext> contexts = Collections.synchronizedList( new ArrayList<ErrorContext>() );
+
+		@Override
+		public void handle(ErrorContext context) {
+			contexts.add( context );
+		}
+
+		@Override
+		public void handleException(String errorMsg, Throwable exception) {
+			throw new AssertionError( errorMsg );
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.backend;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.hibernate.search.Environment;
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.DeleteLuceneWork;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.ChangeSetSpool;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+import org.hibernate.search.indexes.spi.IndexManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the size limit of {@link ChangeSetSpool} and the recovery of the spooled change sets after a crash.
+ */
+public class ChangeSetSpoolTest {
+
+	private static final String INDEX_NAME = "spooled";
+
+	/**
+	 * Length in the spool of a change set of a single work
+	 */
+	private static final int CHANGE_SET_LENGTH = 4 + 1;
+
+	private File directory;
+
+	@Before
+	public void createDirectory() {
+		directory = new File( System.getProperty( "java.io.tmpdir" ), "spool-" + UUID.randomUUID() );
+	}
+
+	@After
+	public void deleteDirectory() {
+		File[] files = directory.listFiles();
+		if ( files != null ) {
+			for ( File file : files ) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testSizeLimitAppliesToChangeSetsNotSent() throws Exception {
+		RecordingSpool spool = new RecordingSpool( 8 + 3 * CHANGE_SET_LENGTH );
+		spool.start();
+		try {
+			spool.sendOrSpool( changeSet( 1 ) );
+			spool.sendOrSpool( changeSet( 2 ) );
+			spool.sendOrSpool( changeSet( 3 ) );
+			assertRejected( spool, 4 );
+
+			spool.availableSends.set( 2 );
+			waitFor( spool, 2 );
+			assertEquals( 1, spool.getBacklogChangeSetCount() );
+
+			// the change sets sent are dropped from the full spool
+			spool.sendOrSpool( changeSet( 4 ) );
+			spool.sendOrSpool( changeSet( 5 ) );
+			assertEquals( 3, spool.getBacklogChangeSetCount() );
+			assertEquals( 3 * CHANGE_SET_LENGTH, spool.getBacklogBytes() );
+			assertRejected( spool, 6 );
+
+			spool.availableSends.set( Integer.MAX_VALUE );
+			waitFor( spool, 5 );
+			assertEquals( Arrays.asList( 1, 2, 3, 4, 5 ), spool.sentIds );
+			assertEquals( 2, spool.getRejectedChangeSetCount() );
+		}
+		finally {
+			spool.close();
+		}
+	}
+
+	@Test
+	public void testSpooledChangeSetsAreRecoveredAfterCrash() throws Exception {
+		RecordingSpool spool = new RecordingSpool( 1024 );
+		spool.start();
+		spool.sendOrSpool( changeSet( 1 ) );
+		spool.sendOrSpool( changeSet( 2 ) );
+		spool.sendOrSpool( changeSet( 3 ) );
+		spool.availableSends.set( 1 );
+		waitFor( spool, 1 );
+		spool.close();
+
+		// the node crashed while spooling a change set
+		File file = new File( directory, INDEX_NAME + ".spool" );
+		long length = file.length();
+		RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+		try {
+			raf.seek( length );
+			raf.writeInt( 1 );
+		}
+		finally {
+			raf.close();
+		}
+
+		RecordingSpool restarted = new RecordingSpool( 1024 );
+		restarted.start();
+		try {
+			assertTrue( restarted.isSpooling() );
+			assertEquals( 2, restarted.getBacklogChangeSetCount() );
+			assertEquals( 2 * CHANGE_SET_LENGTH, restarted.getBacklogBytes() );
+			assertEquals( length, file.length() );
+
+			restarted.availableSends.set( Integer.MAX_VALUE );
+			waitFor( restarted, 2 );
+			assertEquals( Arrays.asList( 2, 3 ), restarted.sentIds );
+			assertFalse( restarted.isSpooling() );
+		}
+		finally {
+			restarted.close();
+		}
+	}
+
+	private static List<LuceneWork> changeSet(int id) {
+		return Collections.<LuceneWork>singletonList( new DeleteLuceneWork( id, String.valueOf( id ), Object.class ) );
+	}
+
+	private static void assertRejected(ChangeSetSpool spool, int id) {
+		try {
+			spool.sendOrSpool( changeSet( id ) );
+			fail( "The spool should be full" );
+		}
+		catch ( SearchException e ) {
+			// expected
+		}
+	}
+
+	private static void waitFor(ChangeSetSpool spool, long forwardedChangeSets) throws InterruptedException {
+		for ( int i = 0; i < 500 && spool.getForwardedChangeSetCount() < forwardedChangeSets; i++ ) {
+			Thread.sleep( 10 );
+		}
+		assertEquals( forwardedChangeSets, spool.getForwardedChangeSetCount() );
+	}
+
+	private Properties spoolProperties(long maxSize) {
+		Properties props = new Properties();
+		props.setProperty( Environment.WORKER_SPOOL_DIRECTORY, directory.getAbsolutePath() );
+		props.setProperty( Environment.WORKER_SPOOL_MAX_SIZE, String.valueOf( maxSize ) );
+		props.setProperty( Environment.WORKER_SPOOL_RETRY_INTERVAL, "10" );
+		props.setProperty( Environment.WORKER_SPOOL_BATCH_SIZE, "1" );
+		return props;
+	}
+
+	/**
+	 * Sends the change sets while sends are available, records the ids of the works sent
+	 */
+	private class RecordingSpool extends ChangeSetSpool {
+		final AtomicInteger availableSends = new AtomicInteger();
+		final List<Integer> sentIds = Collections.synchronizedList( new ArrayList<Integer>() );
+
+		RecordingSpool(long maxSize) {
+			super( newIndexManager(), spoolProperties( maxSize ), null );
+		}
+
+		@Override
+		protected void send(List<LuceneWork> works) {
+			if ( availableSends.getAndDecrement() <= 0 ) {
+				availableSends.incrementAndGet();
+				throw new SearchException( "Destination not available" );
+			}
+			for ( LuceneWork work : works ) {
+				sentIds.add( (Integer) work.getId() );
+			}
+		}
+	}
+
+	/**
+	 * Serializes each work as the single byte of its id
+	 */
+	private static IndexManager newIndexManager() {
+		final LuceneWorkSerializer serializer = newProxy(
+				LuceneWorkSerializer.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ( "toSerializedModel".equals( method.getName() ) ) {
+							List<?> works = (List<?>) args[0];
+							byte[] changeSet = new byte[works.size()];
+							for ( int i = 0; i < changeSet.length; i++ ) {
+								changeSet[i] = ( (Integer) ( (LuceneWork) works.get( i ) ).getId() ).byteValue();
+							}
+							return changeSet;
+						}
+						else if ( "toLuceneWorks".equals( method.getName() ) ) {
+							List<LuceneWork> works = new ArrayList<LuceneWork>();
+							for ( byte id : (byte[]) args[0] ) {
+								works.addAll( changeSet( id ) );
+							}
+							return works;
+						}
+						throw new UnsupportedOperationException( method.getName() );
+					}
+				}
+		);
+		return newProxy(
+				IndexManager.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ( "getIndexName".equals( method.getName() ) ) {
+							return INDEX_NAME;
+						}
+						else if ( "getSerializer".equals( method.getName() ) ) {
+							return serializer;
+						}
+						throw new UnsupportedOperationException( method.getName() );
+					}
+				}
+		);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance( ChangeSetSpoolTest.class.getClassLoader(), new Class<?>[] { type }, handler );
+	}
+}
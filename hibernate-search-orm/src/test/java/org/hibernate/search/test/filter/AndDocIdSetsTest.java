@@ -39,6 +39,9 @@ import org.apache.lucene.util.OpenBitSet;
 import org.apache.lucene.util.SortedVIntList;
 
 import org.hibernate.search.filter.impl.AndDocIdSet;
+import org.hibernate.search.filter.impl.DocIdSetCompressionHelper;
+import org.hibernate.search.filter.impl.FilterOptimizationHelper;
+import org.hibernate.search.filter.impl.SortedIntDocIdSet;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -139,6 +142,79 @@ public class AndDocIdSetsTest {
 		assertTrue( docIdSetsEqual( expectedDocIdSet, testedSet ) );
 	}
 
+	@Test
+	public void testMixedRepresentations() throws IOException {
+		Random r = new Random( 23L );
+		for ( int i = 0; i < 20; i++ ) {
+			int maxDoc = 20000 + r.nextInt( 20000 );
+			List<BitSet> filtersData = new ArrayList<BitSet>( 4 );
+			List<DocIdSet> filters = new ArrayList<DocIdSet>( 4 );
+			for ( int j = 0; j < 2 + r.nextInt( 3 ); j++ ) {
+				BitSet bitSet = makeRandomClusteredBitSet( r, maxDoc );
+				filtersData.add( bitSet );
+				filters.add( toRandomRepresentation( r, bitSet ) );
+			}
+			DocIdSet expected = new DocIdBitSet( applyANDOnBitSets( filtersData ) );
+			List<DocIdSet> merged = FilterOptimizationHelper.mergeByBitAnds( filters );
+			DocIdSet testedSet = merged.size() == 1 ? merged.get( 0 ) : new AndDocIdSet( merged, maxDoc );
+			assertTrue( docIdSetsEqual( expected, testedSet ) );
+			assertTrue( docIdSetsEqual( expected, new AndDocIdSet( filters, maxDoc ) ) );
+		}
+	}
+
+	@Test
+	public void testAdvance() throws IOException {
+		List<DocIdSet> filters = new ArrayList<DocIdSet>( 3 );
+		filters.add( integersToDocIdSet( 1, 3, 5, 7, 9, 200, 300 ) );
+		filters.add( new SortedVIntList( 3, 7, 9, 200, 300 ) );
+		filters.add( new SortedIntDocIdSet( new int[] { 0, 3, 8, 9, 300 } ) );
+		DocIdSetIterator iterator = new AndDocIdSet( filters, 400 ).iterator();
+		assertEquals( -1, iterator.docID() );
+		assertEquals( 9, iterator.advance( 4 ) );
+		assertEquals( 9, iterator.docID() );
+		assertEquals( 300, iterator.advance( 10 ) );
+		assertEquals( DocIdSetIterator.NO_MORE_DOCS, iterator.nextDoc() );
+	}
+
+	private static DocIdSet toRandomRepresentation(Random randomSource, BitSet bitSet) throws IOException {
+		switch ( randomSource.nextInt( 4 ) ) {
+			case 0:
+				return new DocIdBitSet( bitSet );
+			case 1:
+				return new SortedVIntList( bitSet );
+			default:
+				OpenBitSet openBitSet = new OpenBitSet( bitSet.length() );
+				for ( int i = bitSet.nextSetBit( 0 ); i >= 0; i = bitSet.nextSetBit( i + 1 ) ) {
+					openBitSet.set( i );
+				}
+				// either the bit set, a SortedIntDocIdSet or a WordAlignedDocIdSet depending on the density
+				return DocIdSetCompressionHelper.compress( openBitSet );
+		}
+	}
+
+	private static BitSet makeRandomClusteredBitSet(final Random randomSource, final int maxSize) {
+		BitSet bitSet = new BitSet();
+		int density = randomSource.nextInt( 3 );
+		for ( int datai = 0; datai < maxSize; datai++ ) {
+			if ( density == 0 ) {
+				// sparse
+				if ( randomSource.nextInt( 100 ) == 0 ) {
+					bitSet.set( datai );
+				}
+			}
+			else if ( density == 1 ) {
+				// runs of set and unset bits
+				if ( ( datai / 1000 ) % 2 == 0 && randomSource.nextInt( 50 ) != 0 ) {
+					bitSet.set( datai );
+				}
+			}
+			else if ( randomSource.nextBoolean() ) {
+				bitSet.set( datai );
+			}
+		}
+		return bitSet;
+	}
+
 	private static List<DocIdSet> toDocIdSetList(List<BitSet> filtersData) {
 		List<DocIdSet> docIdSets = new ArrayList<DocIdSet>( filtersData.size() );
 		for ( BitSet bitSet : filtersData ) {
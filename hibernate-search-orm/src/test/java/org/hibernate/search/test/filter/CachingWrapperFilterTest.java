@@ -0,0 +1,153 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.filter;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.RAMDirectory;
+
+import org.hibernate.search.filter.impl.CachingWrapperFilter;
+import org.hibernate.search.test.TestConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that {@link CachingWrapperFilter} caches results per segment.
+ */
+public class CachingWrapperFilterTest {
+	private RAMDirectory directory;
+	private IndexWriter writer;
+	private CountingFilter countingFilter;
+	private Filter cachingFilter;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new RAMDirectory();
+		IndexWriterConfig config = new IndexWriterConfig(
+				TestConstants.getTargetLuceneVersion(), new KeywordAnalyzer()
+		);
+		// keep one segment per commit
+		config.setMergePolicy( NoMergePolicy.NO_COMPOUND_FILES );
+		writer = new IndexWriter( directory, config );
+		countingFilter = new CountingFilter( new QueryWrapperFilter( new TermQuery( new Term( "color", "red" ) ) ) );
+		cachingFilter = new CachingWrapperFilter( countingFilter );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		writer.close();
+		directory.close();
+	}
+
+	@Test
+	public void testOnlyNewSegmentsAreFiltered() throws Exception {
+		addCars( "red", "blue", "red" );
+		addCars( "red", "blue" );
+		IndexReader reader = IndexReader.open( directory );
+		assertEquals( 3, countFilteredDocs( reader ) );
+		assertEquals( "Each segment should be filtered once", 2, countingFilter.calls );
+		assertEquals( 3, countFilteredDocs( reader ) );
+		assertEquals( "Results should be cached", 2, countingFilter.calls );
+
+		addCars( "red" );
+		IndexReader newReader = reader.reopen();
+		reader.close();
+		assertEquals( 4, countFilteredDocs( newReader ) );
+		assertEquals( "Only the new segment should be filtered", 3, countingFilter.calls );
+		newReader.close();
+	}
+
+	@Test
+	public void testDeletedDocumentsAreExcluded() throws Exception {
+		addCars( "red", "blue", "red" );
+		IndexReader reader = IndexReader.open( directory );
+		assertEquals( 2, countDocIdSet( reader.getSequentialSubReaders()[0] ) );
+
+		writer.deleteDocuments( new Term( "id", "0" ) );
+		writer.commit();
+		IndexReader newReader = reader.reopen();
+		assertEquals( 1, countDocIdSet( newReader.getSequentialSubReaders()[0] ) );
+		assertEquals( "The segment should not be filtered again", 1, countingFilter.calls );
+		// the old reader still sees the deleted document
+		assertEquals( 2, countDocIdSet( reader.getSequentialSubReaders()[0] ) );
+		reader.close();
+		newReader.close();
+	}
+
+	private void addCars(String... colors) throws IOException {
+		for ( String color : colors ) {
+			Document document = new Document();
+			document.add( new Field( "id", String.valueOf( writer.maxDoc() ), Field.Store.NO, Field.Index.NOT_ANALYZED ) );
+			document.add( new Field( "color", color, Field.Store.NO, Field.Index.NOT_ANALYZED ) );
+			writer.addDocument( document );
+		}
+		writer.commit();
+	}
+
+	private int countFilteredDocs(IndexReader reader) throws IOException {
+		TotalHitCountCollector collector = new TotalHitCountCollector();
+		new IndexSearcher( reader ).search( new MatchAllDocsQuery(), cachingFilter, collector );
+		return collector.getTotalHits();
+	}
+
+	private int countDocIdSet(IndexReader segmentReader) throws IOException {
+		DocIdSetIterator iterator = cachingFilter.getDocIdSet( segmentReader ).iterator();
+		int count = 0;
+		while ( iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS ) {
+			count++;
+		}
+		return count;
+	}
+
+	private static class CountingFilter extends Filter {
+		private final Filter filter;
+		private int calls;
+
+		CountingFilter(Filter filter) {
+			this.filter = filter;
+		}
+
+		@Override
+		public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+			calls++;
+			return filter.getDocIdSet( reader );
+		}
+	}
+}
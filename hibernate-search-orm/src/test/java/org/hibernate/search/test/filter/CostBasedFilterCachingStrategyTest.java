@@ -0,0 +1,193 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.filter;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.OpenBitSet;
+
+import org.hibernate.search.filter.FilterKey;
+import org.hibernate.search.filter.StandardFilterKey;
+import org.hibernate.search.filter.impl.CachingWrapperFilter;
+import org.hibernate.search.filter.impl.CostBasedFilterCachingStrategy;
+import org.hibernate.search.test.TestConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the eviction of filters by {@link CostBasedFilterCachingStrategy}.
+ */
+public class CostBasedFilterCachingStrategyTest {
+	private RAMDirectory directory;
+	private IndexReader reader;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(
+				directory, new IndexWriterConfig( TestConstants.getTargetLuceneVersion(), new KeywordAnalyzer() )
+		);
+		for ( int i = 0; i < 8000; i++ ) {
+			writer.addDocument( new Document() );
+		}
+		writer.close();
+		reader = IndexReader.open( directory );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testCheapFilterWithLargeResultsIsEvictedFirst() throws Exception {
+		CostBasedFilterCachingStrategy strategy = createStrategy( 128, 500 );
+		Filter expensiveFilter = new CachingWrapperFilter( new FixedFilter( 20, 1000 ) );
+		Filter cheapFilter = new CachingWrapperFilter( new FixedFilter( 0, 2 ) );
+		FilterKey expensiveKey = createKey( "expensive" );
+		FilterKey cheapKey = createKey( "cheap" );
+
+		computeResults( expensiveFilter );
+		strategy.addCachedFilter( expensiveKey, expensiveFilter );
+		computeResults( cheapFilter );
+		strategy.addCachedFilter( cheapKey, cheapFilter );
+
+		assertEquals( 1, strategy.getCachedFilterCount() );
+		assertEquals( 1, strategy.getFilterCacheEvictionCount() );
+		assertSame( expensiveFilter, strategy.getCachedFilter( expensiveKey ) );
+		assertNull( strategy.getCachedFilter( cheapKey ) );
+		assertEquals( 1, strategy.getFilterCacheHitCount() );
+		assertEquals( 1, strategy.getFilterCacheMissCount() );
+		assertEquals( 1, strategy.getCachedFilterStatistics().length );
+	}
+
+	@Test
+	public void testFilterGrowingAfterBeingCachedIsEvictedOnNextAddition() throws Exception {
+		CostBasedFilterCachingStrategy strategy = createStrategy( 128, 500 );
+		Filter growingFilter = new CachingWrapperFilter( new FixedFilter( 0, 2 ) );
+		FilterKey growingKey = createKey( "growing" );
+		strategy.addCachedFilter( growingKey, growingFilter );
+		assertEquals( 0, strategy.getCachedBytes() );
+
+		computeResults( growingFilter );
+		assertSame( growingFilter, strategy.getCachedFilter( growingKey ) );
+		assertEquals( ( (CachingWrapperFilter) growingFilter ).getCachedBytes(), strategy.getCachedBytes() );
+		assertEquals( 0, strategy.getFilterCacheEvictionCount() );
+
+		strategy.addCachedFilter( createKey( "other" ), new FixedFilter( 0, 2 ) );
+		assertEquals( 1, strategy.getFilterCacheEvictionCount() );
+		assertEquals( 0, strategy.getCachedBytes() );
+		assertNull( strategy.getCachedFilter( growingKey ) );
+	}
+
+	@Test
+	public void testNumberOfFiltersIsBounded() throws Exception {
+		CostBasedFilterCachingStrategy strategy = createStrategy( 1, 10000 );
+		for ( int i = 0; i < 20; i++ ) {
+			strategy.addCachedFilter( createKey( i ), new FixedFilter( 0, 2 ) );
+		}
+		assertEquals( 15, strategy.getCachedFilterCount() );
+		assertEquals( 5, strategy.getFilterCacheEvictionCount() );
+		assertEquals( 0, strategy.getCachedBytes() );
+		assertNotNull( strategy.getCachedFilter( createKey( 19 ) ) );
+
+		strategy.clear();
+		assertEquals( 0, strategy.getFilterCacheEvictionCount() );
+		assertEquals( 0, strategy.getFilterCacheHitCount() );
+	}
+
+	@Test
+	public void testAddedFilterIsNotEvictedBeforeBeingUsed() throws Exception {
+		CostBasedFilterCachingStrategy strategy = createStrategy( 1, 10000 );
+		for ( int i = 0; i < 15; i++ ) {
+			strategy.addCachedFilter( createKey( i ), new FixedFilter( 0, 2 ) );
+			strategy.getCachedFilter( createKey( i ) );
+		}
+		Filter added = new FixedFilter( 0, 2 );
+		strategy.addCachedFilter( createKey( "added" ), added );
+		assertEquals( 15, strategy.getCachedFilterCount() );
+		assertEquals( 1, strategy.getFilterCacheEvictionCount() );
+		assertSame( added, strategy.getCachedFilter( createKey( "added" ) ) );
+	}
+
+	private CostBasedFilterCachingStrategy createStrategy(int size, long maxBytes) {
+		Properties properties = new Properties();
+		properties.setProperty( "hibernate.search.filter.cache_strategy.size", String.valueOf( size ) );
+		properties.setProperty( "hibernate.search.filter.cache_strategy.max_bytes", String.valueOf( maxBytes ) );
+		CostBasedFilterCachingStrategy strategy = new CostBasedFilterCachingStrategy();
+		strategy.initialize( properties );
+		return strategy;
+	}
+
+	private FilterKey createKey(Object parameter) {
+		StandardFilterKey key = new StandardFilterKey();
+		key.addParameter( parameter );
+		return key;
+	}
+
+	private void computeResults(Filter filter) throws IOException {
+		filter.getDocIdSet( reader );
+	}
+
+	/**
+	 * Matches one document every {@code step} documents, taking {@code millis} to do so.
+	 */
+	private static class FixedFilter extends Filter {
+		private final long millis;
+		private final int step;
+
+		FixedFilter(long millis, int step) {
+			this.millis = millis;
+			this.step = step;
+		}
+
+		@Override
+		public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+			try {
+				Thread.sleep( millis );
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			OpenBitSet bits = new OpenBitSet( reader.maxDoc() );
+			for ( int i = 0; i < reader.maxDoc(); i += step ) {
+				bits.fastSet( i );
+			}
+			return bits;
+		}
+	}
+}
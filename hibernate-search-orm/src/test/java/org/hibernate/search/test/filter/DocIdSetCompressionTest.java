@@ -0,0 +1,122 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.filter;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+
+import org.hibernate.search.filter.impl.DocIdSetCompressionHelper;
+import org.hibernate.search.filter.impl.SortedIntDocIdSet;
+import org.hibernate.search.filter.impl.WordAlignedDocIdSet;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the representations chosen by {@link DocIdSetCompressionHelper} and their iterators.
+ */
+public class DocIdSetCompressionTest {
+	private static final int MAX_DOC = 100000;
+
+	private final Random random = new Random( 42 );
+
+	@Test
+	public void testSparseSetIsStoredAsSortedInts() throws IOException {
+		OpenBitSet bits = randomBits( 0.001 );
+		DocIdSet compressed = DocIdSetCompressionHelper.compress( bits );
+		assertTrue( compressed instanceof SortedIntDocIdSet );
+		assertSameDocuments( bits, compressed );
+	}
+
+	@Test
+	public void testClusteredSetIsRunCompressed() throws IOException {
+		OpenBitSet bits = new OpenBitSet( MAX_DOC );
+		bits.set( 1000, 60000 );
+		bits.set( 70000, 70100 );
+		for ( int i = 80000; i < MAX_DOC; i += 3 ) {
+			bits.set( i );
+		}
+		DocIdSet compressed = DocIdSetCompressionHelper.compress( bits );
+		assertTrue( compressed instanceof WordAlignedDocIdSet );
+		assertSameDocuments( bits, compressed );
+	}
+
+	@Test
+	public void testDenseRandomSetIsKeptAsBitSet() throws IOException {
+		OpenBitSet bits = randomBits( 0.3 );
+		assertSame( bits, DocIdSetCompressionHelper.compress( bits ) );
+	}
+
+	@Test
+	public void testEmptySet() throws IOException {
+		assertSame( DocIdSet.EMPTY_DOCIDSET, DocIdSetCompressionHelper.compress( new OpenBitSet( MAX_DOC ) ) );
+	}
+
+	@Test
+	public void testCompressedSetsAreSmaller() throws IOException {
+		OpenBitSet bits = randomBits( 0.001 );
+		long bitSetBytes = DocIdSetCompressionHelper.sizeInBytes( bits );
+		long compressedBytes = DocIdSetCompressionHelper.sizeInBytes( DocIdSetCompressionHelper.compress( bits ) );
+		assertTrue( "Sparse sets should take much less memory", compressedBytes * 10 < bitSetBytes );
+	}
+
+	private OpenBitSet randomBits(double density) {
+		OpenBitSet bits = new OpenBitSet( MAX_DOC );
+		for ( int i = 0; i < MAX_DOC; i++ ) {
+			if ( random.nextDouble() < density ) {
+				bits.set( i );
+			}
+		}
+		return bits;
+	}
+
+	private void assertSameDocuments(OpenBitSet expected, DocIdSet actual) throws IOException {
+		DocIdSetIterator expectedIterator = expected.iterator();
+		DocIdSetIterator actualIterator = actual.iterator();
+		int doc;
+		while ( ( doc = expectedIterator.nextDoc() ) != DocIdSetIterator.NO_MORE_DOCS ) {
+			assertEquals( doc, actualIterator.nextDoc() );
+		}
+		assertEquals( DocIdSetIterator.NO_MORE_DOCS, actualIterator.nextDoc() );
+
+		// mix nextDoc() and advance() with random gaps
+		expectedIterator = expected.iterator();
+		actualIterator = actual.iterator();
+		doc = -1;
+		while ( doc != DocIdSetIterator.NO_MORE_DOCS ) {
+			if ( random.nextBoolean() ) {
+				doc = expectedIterator.nextDoc();
+				assertEquals( doc, actualIterator.nextDoc() );
+			}
+			else {
+				int target = doc + 1 + random.nextInt( 5000 );
+				doc = expectedIterator.advance( target );
+				assertEquals( "advance(" + target + ")", doc, actualIterator.advance( target ) );
+			}
+		}
+	}
+}
@@ -35,7 +35,9 @@ import org.hibernate.search.annotations.FilterCacheModeType;
 import org.hibernate.search.annotations.FullTextFilterDef;
 import org.hibernate.search.annotations.FullTextFilterDefs;
 import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Parameter;
 import org.hibernate.search.annotations.Resolution;
+import org.hibernate.search.filter.TermSetFilterFactory;
 
 /**
  * @author Emmanuel Bernard
@@ -63,7 +65,14 @@ import org.hibernate.search.annotations.Resolution;
 				cache = FilterCacheModeType.INSTANCE_ONLY),
 		@FullTextFilterDef(name = "empty",
 				impl = NullReturningEmptyFilter.class,
-				cache = FilterCacheModeType.INSTANCE_ONLY)
+				cache = FilterCacheModeType.INSTANCE_ONLY),
+		//Filter factory with parameters declared on the mapping
+		@FullTextFilterDef(name = "teachers",
+				impl = TermSetFilterFactory.class,
+				params = {
+						@Parameter(name = "field", value = "teacher"),
+						@Parameter(name = "values", value = "andre,max")
+				})
 })
 public class Driver {
 	@Id
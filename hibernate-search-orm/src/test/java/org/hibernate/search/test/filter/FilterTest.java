@@ -105,6 +105,16 @@ public class FilterTest extends SearchTestCase {
 //		InstanceBasedExcludeAllFilter.assertConstructorInvoked( 2 ); //uncomment this when solving HSEARCH-818
 	}
 
+	public void testFilterParametersDeclaredOnMapping() {
+		FullTextQuery ftQuery = fullTextSession.createFullTextQuery( query, Driver.class );
+		ftQuery.enableFullTextFilter( "teachers" );
+		assertEquals( "Should filter out Gavin", 2, ftQuery.getResultSize() );
+
+		ftQuery = fullTextSession.createFullTextQuery( query, Driver.class );
+		ftQuery.enableFullTextFilter( "teachers" ).setParameter( "values", "aaron" );
+		assertEquals( "Query parameters should override the declared ones", 1, ftQuery.getResultSize() );
+	}
+
 	public void testStraightFilters() {
 		FullTextQuery ftQuery = fullTextSession.createFullTextQuery( query, Driver.class );
 		ftQuery.enableFullTextFilter( "bestDriver" );
@@ -32,7 +32,10 @@ import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.DocIdBitSet;
 import org.apache.lucene.util.OpenBitSet;
+import org.hibernate.search.filter.impl.DocIdSetCompressionHelper;
 import org.hibernate.search.filter.impl.FilterOptimizationHelper;
+import org.hibernate.search.filter.impl.SortedIntDocIdSet;
+import org.hibernate.search.filter.impl.WordAlignedDocIdSet;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -53,7 +56,7 @@ public class FiltersOptimizationTest {
 	public void testSkipMerging() {
 		List<DocIdSet> dataIn = new ArrayList<DocIdSet>( 3 );
 		dataIn.add( makeOpenBitSetTestSet( 1,2,3,5,8,9,10,11 ) );
-		dataIn.add( makeBitSetTestSet( 1,2,3,5,8,9,10,11,20 ) );
+		dataIn.add( makeAnonymousTestSet( 1,2,3,5,8,9,10,11,20 ) );
 		dataIn.add( makeAnonymousTestSet( 1,2,3,5,8,9,10,11 ) );
 		dataIn.add( makeAnonymousTestSet( 1,2,3,5,8,9,10,11,12 ) );
 		List<DocIdSet> merge = FilterOptimizationHelper.mergeByBitAnds( dataIn );
@@ -102,6 +105,51 @@ public class FiltersOptimizationTest {
 		assertTrue( isIdSetSequenceSameTo( merge.get( 1 ), 1,2,5,8,11 ) );
 	}
 	
+	/**
+	 * OpenBitSet, DocIdBitSet and compressed bit sets should all
+	 * be AND-ed together by using bit operations.
+	 * @throws IOException should not be thrown
+	 */
+	@Test
+	public void testDoMergingOnMixedBitSets() throws IOException {
+		List<DocIdSet> dataIn = new ArrayList<DocIdSet>( 4 );
+		dataIn.add( makeOpenBitSetTestSet( 1,2,5,8,9,10,11,4000 ) );
+		dataIn.add( makeBitSetTestSet( 1,2,3,5,8,11,4000 ) );
+		DocIdSet wordAlignedSet = makeWordAlignedTestSet( 4000, 2, 8, 11 );
+		assertTrue( wordAlignedSet instanceof WordAlignedDocIdSet );
+		dataIn.add( wordAlignedSet );
+		DocIdSet unmergedSet = makeAnonymousTestSet( 1,2,3,5,8,9,10,11 );
+		dataIn.add( unmergedSet );
+		List<DocIdSet> merge = FilterOptimizationHelper.mergeByBitAnds( dataIn );
+
+		assertEquals( 2, merge.size() );
+		assertSame( unmergedSet, merge.get( 0 ) );
+		assertTrue( isIdSetSequenceSameTo( merge.get( 1 ), 1,5,4000 ) );
+		// the inputs are left untouched
+		assertTrue( isIdSetSequenceSameTo( dataIn.get( 0 ), 1,2,5,8,9,10,11,4000 ) );
+	}
+
+	/**
+	 * The few documents of a SortedIntDocIdSet should be looked up
+	 * in the bit sets rather than AND-ing whole bit sets.
+	 * @throws IOException should not be thrown
+	 */
+	@Test
+	public void testDoLookupOfSortedDocumentsInBitSets() throws IOException {
+		List<DocIdSet> dataIn = new ArrayList<DocIdSet>( 4 );
+		dataIn.add( makeOpenBitSetTestSet( 1,2,5,8,9,10,11 ) );
+		dataIn.add( makeBitSetTestSet( 1,2,3,5,8,11 ) );
+		dataIn.add( new SortedIntDocIdSet( new int[] { 2,3,8,9,12 } ) );
+		SortedIntDocIdSet largerSet = new SortedIntDocIdSet( new int[] { 1,2,3,5,8,9,10,11 } );
+		dataIn.add( largerSet );
+		List<DocIdSet> merge = FilterOptimizationHelper.mergeByBitAnds( dataIn );
+
+		assertEquals( 2, merge.size() );
+		assertTrue( merge.get( 0 ) instanceof SortedIntDocIdSet );
+		assertTrue( isIdSetSequenceSameTo( merge.get( 0 ), 2,8 ) );
+		assertSame( largerSet, merge.get( 1 ) );
+	}
+
 	/**
 	 * Used to this test the testcase's helper method isIdSetSequenceSameTo
 	 * @throws IOException
@@ -167,6 +215,21 @@ public class FiltersOptimizationTest {
 		return set;
 	}
 	
+	/**
+	 * test helper, makes a bit set compressed by runs of words
+	 * @param fullUpTo the ids up to which all bits are set
+	 * @param disabledBits the ids it should not contain
+	 * @return the compressed set
+	 */
+	private DocIdSet makeWordAlignedTestSet(int fullUpTo, int... disabledBits) {
+		OpenBitSet set = new OpenBitSet();
+		set.set( 0, fullUpTo + 1 );
+		for (int position : disabledBits ) {
+			set.clear( position );
+		}
+		return DocIdSetCompressionHelper.compress( set );
+	}
+
 	/**
 	 * test helper, makes a prefilled DocIdBitSet
 	 * using the java.lang.BitSet
@@ -0,0 +1,152 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.RAMDirectory;
+
+import org.hibernate.search.ProjectionConstants;
+import org.hibernate.search.bridge.util.impl.NumericFieldUtils;
+import org.hibernate.search.filter.NumericRangeFilterFactory;
+import org.hibernate.search.filter.TermSetFilter;
+import org.hibernate.search.filter.TermSetFilterFactory;
+import org.hibernate.search.filter.impl.CachingWrapperFilter;
+import org.hibernate.search.test.TestConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests {@link TermSetFilter} and numeric range filters.
+ */
+public class TermSetFilterTest {
+	private RAMDirectory directory;
+	private IndexReader reader;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(
+				directory, new IndexWriterConfig( TestConstants.getTargetLuceneVersion(), new KeywordAnalyzer() )
+		);
+		String[] classNames = { "Animal", "Dog", "Cat", "Dog", "Bird" };
+		for ( int i = 0; i < classNames.length; i++ ) {
+			Document document = new Document();
+			document.add(
+					new Field( ProjectionConstants.OBJECT_CLASS, classNames[i], Field.Store.NO, Field.Index.NOT_ANALYZED )
+			);
+			document.add( new NumericField( "weight" ).setIntValue( i * 10 ) );
+			writer.addDocument( document );
+		}
+		writer.close();
+		reader = IndexReader.open( directory );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testMatchesAnyOfTheTerms() throws Exception {
+		TermSetFilter filter = new TermSetFilter( ProjectionConstants.OBJECT_CLASS, Arrays.asList( "Dog", "Cat" ) );
+		assertEquals( 3, countFilteredDocs( filter ) );
+		assertEquals( 3, countFilteredDocs( new CachingWrapperFilter( filter ) ) );
+		assertEquals( 0, countFilteredDocs( new TermSetFilter( "color", Arrays.asList( "Dog" ) ) ) );
+	}
+
+	@Test
+	public void testEquality() {
+		TermSetFilter filter = new TermSetFilter( ProjectionConstants.OBJECT_CLASS, Arrays.asList( "Dog", "Cat" ) );
+		TermSetFilter sameFilter = new TermSetFilter( ProjectionConstants.OBJECT_CLASS, Arrays.asList( "Cat", "Dog" ) );
+		assertEquals( filter, sameFilter );
+		assertEquals( filter.hashCode(), sameFilter.hashCode() );
+		assertFalse( filter.equals( new TermSetFilter( "color", Arrays.asList( "Cat", "Dog" ) ) ) );
+		assertEquals( new CachingWrapperFilter( filter ), new CachingWrapperFilter( sameFilter ) );
+	}
+
+	@Test
+	public void testNumericRangeFilter() throws Exception {
+		Filter filter = NumericFieldUtils.createNumericRangeFilter( "weight", 10, 30, true, false );
+		assertEquals( 2, countFilteredDocs( filter ) );
+		assertEquals( 2, countFilteredDocs( new CachingWrapperFilter( filter ) ) );
+		assertEquals( 4, countFilteredDocs( NumericFieldUtils.createNumericRangeFilter( "weight", 10, null, true, true ) ) );
+	}
+
+	@Test
+	public void testTermSetFilterFactory() throws Exception {
+		TermSetFilterFactory factory = new TermSetFilterFactory();
+		factory.setField( ProjectionConstants.OBJECT_CLASS );
+		factory.setValues( "Dog, Bird" );
+		assertEquals( 3, countFilteredDocs( factory.getFilter() ) );
+
+		TermSetFilterFactory sameFactory = new TermSetFilterFactory();
+		sameFactory.setField( ProjectionConstants.OBJECT_CLASS );
+		sameFactory.setValues( Arrays.asList( "Bird", "Dog" ) );
+		assertEquals( factory.getKey(), sameFactory.getKey() );
+		assertEquals( factory.getFilter(), sameFactory.getFilter() );
+	}
+
+	@Test
+	public void testNumericRangeFilterFactory() throws Exception {
+		NumericRangeFilterFactory factory = new NumericRangeFilterFactory();
+		factory.setField( "weight" );
+		factory.setType( "int" );
+		factory.setFrom( "10" );
+		factory.setTo( "30" );
+		factory.setIncludeUpper( "false" );
+		assertEquals( 2, countFilteredDocs( factory.getFilter() ) );
+
+		NumericRangeFilterFactory sameFactory = new NumericRangeFilterFactory();
+		sameFactory.setField( "weight" );
+		sameFactory.setFrom( 10 );
+		sameFactory.setTo( 30 );
+		sameFactory.setIncludeUpper( false );
+		assertEquals( factory.getKey(), sameFactory.getKey() );
+
+		sameFactory.setTo( null );
+		assertEquals( 4, countFilteredDocs( sameFactory.getFilter() ) );
+		assertFalse( factory.getKey().equals( sameFactory.getKey() ) );
+	}
+
+	private int countFilteredDocs(Filter filter) throws IOException {
+		TotalHitCountCollector collector = new TotalHitCountCollector();
+		new IndexSearcher( reader ).search( new MatchAllDocsQuery(), filter, collector );
+		return collector.getTotalHits();
+	}
+}
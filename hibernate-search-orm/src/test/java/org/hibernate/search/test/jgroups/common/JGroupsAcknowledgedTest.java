@@ -0,0 +1,114 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jgroups.common;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.backend.impl.jgroups.JGroupsBackendQueueProcessor;
+import org.hibernate.search.test.jgroups.master.TShirt;
+
+/**
+ * Checks that in acknowledged mode a synchronous slave returns from the commit once the master applied the works.
+ */
+public class JGroupsAcknowledgedTest extends MultipleSessionsSearchTestCase {
+
+	private static final String JGROUPS_CONFIGURATION_FILE = "testing-flush-loopback.xml";
+
+	private final String channelName = UUID.randomUUID().toString();
+
+	public void testCommitWaitsForMaster() throws Exception {
+		// let the master announce itself
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+
+		for ( int i = 0; i < 3; i++ ) {
+			Session s = getSlaveSession();
+			Transaction tx = s.beginTransaction();
+			TShirt ts = new TShirt();
+			ts.setLogo( "logo" + i );
+			ts.setSize( "L" );
+			ts.setLength( 23.4d );
+			s.persist( ts );
+			tx.commit();
+			s.close();
+
+			// no need to wait: the change set has been applied by the master
+			assertEquals( 1, countMatches( "logo" + i ) );
+		}
+	}
+
+	private int countMatches(String logo) {
+		FullTextSession ftSess = Search.getFullTextSession( openSession() );
+		ftSess.getTransaction().begin();
+		List<?> result = ftSess.createFullTextQuery( new TermQuery( new Term( "logo", logo ) ) ).list();
+		ftSess.getTransaction().commit();
+		ftSess.close();
+		return result.size();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		//master jgroups configuration
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsMaster" );
+		configureChannel( cfg );
+	}
+
+	@Override
+	protected void commonConfigure(Configuration cfg) {
+		//slave jgroups configuration
+		super.commonConfigure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsSlave" );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_EXECUTION, "sync" );
+		configureChannel( cfg );
+	}
+
+	private void configureChannel(Configuration cfg) {
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.JG_CLUSTER_NAME, channelName );
+		cfg.setProperty(
+				"hibernate.search.default." + JGroupsBackendQueueProcessor.CONFIGURATION_FILE, JGROUPS_CONFIGURATION_FILE
+		);
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.ACKNOWLEDGED, "true" );
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+
+	@Override
+	protected Class<?>[] getCommonAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jgroups.common;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.backend.impl.jgroups.AutoJGroupsBackendQueueProcessor;
+import org.hibernate.search.backend.impl.jgroups.JGroupsBackendQueueProcessor;
+import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
+import org.hibernate.search.test.Clock;
+import org.hibernate.search.test.jgroups.master.TShirt;
+
+/**
+ * Checks that with the automatic JGroups backend the coordinator of the cluster becomes the master of the index,
+ * and applies the works of the other nodes. The master is elected for each index.
+ */
+public class JGroupsAutoMasterTest extends MultipleSessionsSearchTestCase {
+
+	private static final String JGROUPS_CONFIGURATION_FILE = "testing-flush-loopback.xml";
+
+	private final String channelName = UUID.randomUUID().toString();
+
+	public void testCoordinatorIsElected() throws Exception {
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+
+		// the node started first is the coordinator of the cluster of each index
+		assertTrue( getProcessor( getSearchFactoryImpl(), TShirt.class ).isMaster() );
+		assertTrue( getProcessor( getSearchFactoryImpl(), Clock.class ).isMaster() );
+		FullTextSession slaveSession = Search.getFullTextSession( getSlaveSession() );
+		SearchFactoryImplementor slaveSearchFactory = (SearchFactoryImplementor) slaveSession.getSearchFactory();
+		assertFalse( getProcessor( slaveSearchFactory, TShirt.class ).isMaster() );
+		assertFalse( getProcessor( slaveSearchFactory, Clock.class ).isMaster() );
+		slaveSession.close();
+
+		Session s = getSlaveSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( "elected" );
+		ts.setSize( "L" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		s.persist( new Clock( 1, "elected" ) );
+		tx.commit();
+		s.close();
+
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+
+		FullTextSession ftSess = Search.getFullTextSession( openSession() );
+		ftSess.getTransaction().begin();
+		List<?> result = ftSess.createFullTextQuery( new TermQuery( new Term( "logo", "elected" ) ), TShirt.class )
+				.list();
+		assertEquals( 1, result.size() );
+		int clocks = ftSess.createFullTextQuery( new TermQuery( new Term( "brand", "elected" ) ), Clock.class )
+				.getResultSize();
+		assertEquals( 1, clocks );
+		ftSess.getTransaction().commit();
+		ftSess.close();
+	}
+
+	private AutoJGroupsBackendQueueProcessor getProcessor(SearchFactoryImplementor searchFactory, Class<?> entityType) {
+		DirectoryBasedIndexManager indexManager = (DirectoryBasedIndexManager) searchFactory.getAllIndexesManager()
+				.getIndexManager( entityType.getName() );
+		return (AutoJGroupsBackendQueueProcessor) indexManager.getBackendQueueProcessor();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		configureNode( cfg );
+	}
+
+	@Override
+	protected void commonConfigure(Configuration cfg) {
+		super.commonConfigure( cfg );
+		configureNode( cfg );
+	}
+
+	private void configureNode(Configuration cfg) {
+		// any node can become the master, so all of them write to the same index
+		cfg.setProperty( "hibernate.search.default.directory_provider", "filesystem" );
+		cfg.setProperty( "hibernate.search.default.indexBase", getBaseIndexDir().getAbsolutePath() + "/shared" );
+		cfg.setProperty( "hibernate.search.default.locking_strategy", "native" );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroups" );
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.JG_CLUSTER_NAME, channelName );
+		cfg.setProperty(
+				"hibernate.search.default." + JGroupsBackendQueueProcessor.CONFIGURATION_FILE, JGROUPS_CONFIGURATION_FILE
+		);
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class,
+				Clock.class
+		};
+	}
+
+	@Override
+	protected Class<?>[] getCommonAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class,
+				Clock.class
+		};
+	}
+}
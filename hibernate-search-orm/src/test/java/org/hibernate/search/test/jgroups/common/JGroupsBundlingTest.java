@@ -0,0 +1,185 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jgroups.common;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.jgroups.Address;
+import org.jgroups.Channel;
+import org.jgroups.Message;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.backend.impl.ChangeSetBundle;
+import org.hibernate.search.backend.impl.jgroups.BackendMessage;
+import org.hibernate.search.backend.impl.jgroups.JGroupsBackendQueueProcessor;
+import org.hibernate.search.engine.spi.SearchFactoryImplementor;
+import org.hibernate.search.indexes.impl.DirectoryBasedIndexManager;
+import org.hibernate.search.test.Clock;
+import org.hibernate.search.test.jgroups.master.TShirt;
+
+/**
+ * Checks that the change sets of a transaction targeting several indexes are sent by the slave node in a single
+ * message, and that the master applies each of them to its index.
+ */
+public class JGroupsBundlingTest extends MultipleSessionsSearchTestCase {
+
+	private static final String JGROUPS_CONFIGURATION_FILE = "testing-flush-loopback.xml";
+
+	private final String channelName = UUID.randomUUID().toString();
+
+	private final AtomicInteger bundles = new AtomicInteger();
+
+	private final AtomicInteger changeSets = new AtomicInteger();
+
+	public void testChangeSetsAreBundled() throws Exception {
+		// the slave nodes bundle change sets once the master is known
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+		countReceivedMessages( TShirt.class );
+		countReceivedMessages( Clock.class );
+
+		Session s = getSlaveSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( "bundled" );
+		ts.setSize( "L" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		s.persist( new Clock( 1, "bundled" ) );
+		tx.commit();
+		s.close();
+
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+
+		assertEquals( 1, bundles.get() );
+		assertEquals( 0, changeSets.get() );
+
+		FullTextSession ftSess = Search.getFullTextSession( openSession() );
+		ftSess.getTransaction().begin();
+		List<?> result = ftSess.createFullTextQuery( new TermQuery( new Term( "logo", "bundled" ) ), TShirt.class )
+				.list();
+		assertEquals( 1, result.size() );
+		int clocks = ftSess.createFullTextQuery( new TermQuery( new Term( "brand", "bundled" ) ), Clock.class )
+				.getResultSize();
+		assertEquals( 1, clocks );
+		ftSess.getTransaction().commit();
+		ftSess.close();
+	}
+
+	/**
+	 * Counts the bundles and the single change sets received by the master for the index of the entity
+	 */
+	private void countReceivedMessages(Class<?> entityType) {
+		SearchFactoryImplementor searchFactory = getSearchFactoryImpl();
+		DirectoryBasedIndexManager indexManager = (DirectoryBasedIndexManager) searchFactory.getAllIndexesManager()
+				.getIndexManager( entityType.getName() );
+		Channel channel = ( (JGroupsBackendQueueProcessor) indexManager.getBackendQueueProcessor() ).getChannel();
+		channel.setReceiver( new CountingReceiver( channel.getReceiver() ) );
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsMaster" );
+		configureChannel( cfg );
+	}
+
+	@Override
+	protected void commonConfigure(Configuration cfg) {
+		super.commonConfigure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsSlave" );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BUNDLING, "true" );
+		configureChannel( cfg );
+	}
+
+	private void configureChannel(Configuration cfg) {
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.JG_CLUSTER_NAME, channelName );
+		cfg.setProperty(
+				"hibernate.search.default." + JGroupsBackendQueueProcessor.CONFIGURATION_FILE, JGROUPS_CONFIGURATION_FILE
+		);
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class,
+				Clock.class
+		};
+	}
+
+	@Override
+	protected Class<?>[] getCommonAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class,
+				Clock.class
+		};
+	}
+
+	private class CountingReceiver implements Receiver {
+
+		private final Receiver delegate;
+
+		CountingReceiver(Receiver delegate) {
+			this.delegate = delegate;
+		}
+
+		public void receive(Message message) {
+			Object object = message.getObject();
+			if ( object instanceof ChangeSetBundle ) {
+				bundles.incrementAndGet();
+			}
+			else if ( object instanceof BackendMessage ) {
+				changeSets.incrementAndGet();
+			}
+			delegate.receive( message );
+		}
+
+		public byte[] getState() {
+			return delegate.getState();
+		}
+
+		public void setState(byte[] state) {
+			delegate.setState( state );
+		}
+
+		public void viewAccepted(View view) {
+			delegate.viewAccepted( view );
+		}
+
+		public void suspect(Address suspected) {
+			delegate.suspect( suspected );
+		}
+
+		public void block() {
+			delegate.block();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jgroups.common;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.Query;
+import org.jgroups.Channel;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.backend.impl.jgroups.BackendMessage;
+import org.hibernate.search.backend.impl.jgroups.JGroupsBackendQueueProcessor;
+import org.hibernate.search.backend.impl.jgroups.MasterAnnouncement;
+import org.hibernate.search.test.TestConstants;
+import org.hibernate.search.test.jgroups.master.TShirt;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
+
+/**
+ * Checks that slaves send their works to the master only, once it announced itself, and batch the change sets
+ * of close transactions. The observer channel announces itself as a second master of the index, joining the
+ * cluster last: works must be sent to a single master, the first one in the view.
+ */
+public class JGroupsUnicastTest extends MultipleSessionsSearchTestCase {
+
+	private static final String JGROUPS_CONFIGURATION_FILE = "testing-flush-loopback.xml";
+
+	private final String channelName = UUID.randomUUID().toString();
+
+	private Channel observerChannel;
+	private volatile int observedMessages;
+
+	public void testWorksAreSentToMasterOnly() throws Exception {
+		// let the master announce itself
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+
+		Session s = getSlaveSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( "Boston" );
+		ts.setSize( "XXL" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		tx.commit();
+
+		tx = s.beginTransaction();
+		TShirt ts2 = new TShirt();
+		ts2.setLogo( "Mapple leaves" );
+		ts2.setSize( "L" );
+		ts2.setLength( 23.42d );
+		s.persist( ts2 );
+		tx.commit();
+		s.close();
+
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT * 3 );
+
+		FullTextSession ftSess = Search.getFullTextSession( openSession() );
+		ftSess.getTransaction().begin();
+		QueryParser parser = new QueryParser( TestConstants.getTargetLuceneVersion(), "id", TestConstants.stopAnalyzer );
+		Query luceneQuery = parser.parse( "logo:Boston or logo:Mapple leaves" );
+		List<?> result = ftSess.createFullTextQuery( luceneQuery ).list();
+		assertEquals( 2, result.size() );
+		ftSess.getTransaction().commit();
+		ftSess.close();
+
+		assertEquals( "Works should be sent to the first master only", 0, observedMessages );
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		observerChannel = new JChannel( ConfigurationParseHelper.locateConfig( JGROUPS_CONFIGURATION_FILE ) );
+		observerChannel.setReceiver(
+				new ReceiverAdapter() {
+					@Override
+					public void receive(Message message) {
+						if ( message.getObject() instanceof BackendMessage ) {
+							observedMessages++;
+						}
+					}
+				}
+		);
+		observerChannel.connect( channelName );
+		observerChannel.send( new Message( null, null, new MasterAnnouncement( TShirt.class.getName() ) ) );
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		observerChannel.close();
+		super.tearDown();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		//master jgroups configuration
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsMaster" );
+		configureChannel( cfg );
+	}
+
+	@Override
+	protected void commonConfigure(Configuration cfg) {
+		//slave jgroups configuration
+		super.commonConfigure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsSlave" );
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.BATCH_MAX_DELAY, "200" );
+		// batching is disabled with sync execution
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_EXECUTION, "async" );
+		configureChannel( cfg );
+	}
+
+	private void configureChannel(Configuration cfg) {
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.JG_CLUSTER_NAME, channelName );
+		cfg.setProperty(
+				"hibernate.search.default." + JGroupsBackendQueueProcessor.CONFIGURATION_FILE, JGROUPS_CONFIGURATION_FILE
+		);
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+
+	@Override
+	protected Class<?>[] getCommonAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jgroups.slave;
+
+import java.io.File;
+import java.util.UUID;
+
+import org.jgroups.Channel;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.backend.impl.jgroups.BackendMessage;
+import org.hibernate.search.backend.impl.jgroups.JGroupsBackendQueueProcessor;
+import org.hibernate.search.backend.impl.jgroups.MasterAnnouncement;
+import org.hibernate.search.test.SearchTestCase;
+import org.hibernate.search.test.jgroups.common.JGroupsCommonTest;
+import org.hibernate.search.util.configuration.impl.ConfigurationParseHelper;
+
+/**
+ * Checks that the change sets of a slave node are spooled while no master is known, then sent in a single
+ * message once a master announces itself.
+ */
+public class JGroupsSpoolingSlaveTest extends SearchTestCase {
+
+	private static final String JGROUPS_CONFIGURATION_FILE = "testing-flush-loopback.xml";
+
+	private final String channelName = UUID.randomUUID().toString();
+
+	private Channel masterChannel;
+
+	private volatile int messages;
+
+	public void testChangeSetsAreSpooledWhileNoMasterIsKnown() throws Exception {
+		persistTShirt( "Boston" );
+		persistTShirt( "Paris" );
+
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+		assertEquals( 0, messages );
+
+		masterChannel.send( new Message( null, null, new MasterAnnouncement( TShirt.class.getName() ) ) );
+
+		//need to sleep for the spooled change sets to be sent
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT * 2 );
+		assertEquals( "Spooled change sets should be sent in a single message", 1, messages );
+
+		persistTShirt( "Berlin" );
+		Thread.sleep( JGroupsCommonTest.NETWORK_TIMEOUT );
+		assertEquals( "Change sets should be sent directly once the spool is empty", 2, messages );
+	}
+
+	private void persistTShirt(String logo) {
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( logo );
+		ts.setSize( "XXL" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		tx.commit();
+		s.close();
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		// joins the cluster without announcing itself as master yet
+		masterChannel = new JChannel( ConfigurationParseHelper.locateConfig( JGROUPS_CONFIGURATION_FILE ) );
+		masterChannel.setReceiver(
+				new ReceiverAdapter() {
+					@Override
+					public void receive(Message message) {
+						if ( message.getObject() instanceof BackendMessage ) {
+							messages++;
+						}
+					}
+				}
+		);
+		masterChannel.connect( channelName );
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		masterChannel.close();
+		super.tearDown();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jgroupsSlave" );
+		cfg.setProperty( "hibernate.search.default." + JGroupsBackendQueueProcessor.JG_CLUSTER_NAME, channelName );
+		cfg.setProperty(
+				"hibernate.search.default." + JGroupsBackendQueueProcessor.CONFIGURATION_FILE, JGROUPS_CONFIGURATION_FILE
+		);
+		cfg.setProperty(
+				"hibernate.search.default." + Environment.WORKER_SPOOL_DIRECTORY,
+				new File( getBaseIndexDir(), "spool" ).getAbsolutePath()
+		);
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_SPOOL_RETRY_INTERVAL, "100" );
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+}
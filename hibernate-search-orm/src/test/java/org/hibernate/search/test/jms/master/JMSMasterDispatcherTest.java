@@ -0,0 +1,158 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jms.master;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.DeleteLuceneWork;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.impl.jms.JMSMasterDispatcher;
+import org.hibernate.search.exception.ErrorContext;
+import org.hibernate.search.exception.ErrorHandler;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+import org.hibernate.search.indexes.spi.IndexManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the change sets dispatched on the master are applied in order for each index.
+ */
+public class JMSMasterDispatcherTest {
+
+	private static final byte CORRUPTED = -1;
+
+	@Test
+	public void testChangeSetsAreAppliedInOrderPerIndex() throws Exception {
+		RecordingIndex first = new RecordingIndex( "first" );
+		RecordingIndex second = new RecordingIndex( "second" );
+		CountingErrorHandler errorHandler = new CountingErrorHandler();
+		JMSMasterDispatcher dispatcher = new JMSMasterDispatcher( errorHandler, 4, 5, 8 );
+		for ( byte i = 0; i < 40; i++ ) {
+			RecordingIndex index = i % 2 == 0 ? first : second;
+			dispatcher.dispatch( index.indexManager, new byte[] { i == 11 ? CORRUPTED : i } );
+		}
+		dispatcher.shutdown();
+
+		assertAppliedInOrder( first, 20 );
+		assertAppliedInOrder( second, 19 );
+		assertEquals( "The corrupted change set should be reported", 1, errorHandler.errors.get() );
+	}
+
+	@Test
+	public void testDispatchedChangeSetIsAppliedWhenReleased() throws Exception {
+		RecordingIndex index = new RecordingIndex( "index" );
+		CountingErrorHandler errorHandler = new CountingErrorHandler();
+		JMSMasterDispatcher dispatcher = new JMSMasterDispatcher( errorHandler, 2, 5, 8 );
+		CountDownLatch applied = dispatcher.dispatch( index.indexManager, new byte[] { 1 } );
+		CountDownLatch corrupted = dispatcher.dispatch( index.indexManager, new byte[] { CORRUPTED } );
+		assertTrue( applied.await( 10, TimeUnit.SECONDS ) );
+		assertEquals( 1, index.batches.get( 0 ).size() );
+		assertTrue( "Change sets which can't be decoded are released", corrupted.await( 10, TimeUnit.SECONDS ) );
+		assertEquals( 1, errorHandler.errors.get() );
+		dispatcher.shutdown();
+	}
+
+	private void assertAppliedInOrder(RecordingIndex index, int expectedCount) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for ( List<Integer> batch : index.batches ) {
+			assertTrue( "Batches should not exceed the maximum size", batch.size() <= 5 );
+			ids.addAll( batch );
+		}
+		assertEquals( expectedCount, ids.size() );
+		for ( int i = 1; i < ids.size(); i++ ) {
+			assertTrue( "Change sets should be applied in order", ids.get( i - 1 ) < ids.get( i ) );
+		}
+	}
+
+	private static class RecordingIndex {
+		final List<List<Integer>> batches = Collections.synchronizedList( new ArrayList<List<Integer>>() );
+		final IndexManager indexManager;
+
+		RecordingIndex(final String indexName) {
+			final LuceneWorkSerializer serializer = newProxy(
+					LuceneWorkSerializer.class, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+							byte id = ( (byte[]) args[0] )[0];
+							if ( id == CORRUPTED ) {
+								throw new SearchException( "Corrupted change set" );
+							}
+							// decode at different speeds
+							Thread.sleep( id % 3 );
+							return Collections.<LuceneWork>singletonList(
+									new DeleteLuceneWork( (int) id, String.valueOf( id ), Object.class )
+							);
+						}
+					}
+			);
+			indexManager = newProxy(
+					IndexManager.class, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+							if ( "getIndexName".equals( method.getName() ) ) {
+								return indexName;
+							}
+							else if ( "getSerializer".equals( method.getName() ) ) {
+								return serializer;
+							}
+							else if ( "performOperations".equals( method.getName() ) ) {
+								List<Integer> ids = new ArrayList<Integer>();
+								for ( Object work : (List<?>) args[0] ) {
+									ids.add( (Integer) ( (LuceneWork) work ).getId() );
+								}
+								batches.add( ids );
+								Thread.sleep( 5 );
+								return null;
+							}
+							throw new UnsupportedOperationException( method.getName() );
+						}
+					}
+			);
+		}
+	}
+
+	private static class CountingErrorHandler implements ErrorHandler {
+		final AtomicInteger errors = new AtomicInteger();
+
+		public void handle(ErrorContext context) {
+			errors.incrementAndGet();
+		}
+
+		public void handleException(String errorMsg, Throwable exception) {
+			errors.incrementAndGet();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance( JMSMasterDispatcherTest.class.getClassLoader(), new Class<?>[] { type }, handler );
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jms.slave;
+
+import java.util.Properties;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSession;
+import javax.naming.Context;
+
+import org.apache.activemq.broker.BrokerService;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.backend.impl.jms.JMSBackendQueueProcessor;
+import org.hibernate.search.test.SearchTestCase;
+import org.hibernate.search.test.jms.master.JMSMasterTest;
+
+/**
+ * Checks that a slave sending change sets in transacted batches merges the change sets of
+ * close transactions into a single message.
+ */
+public class JMSBatchingSlaveTest extends SearchTestCase {
+
+	private static final String QUEUE_NAME = "queue/searchtest";
+
+	private static final String CONNECTION_FACTORY_NAME = "java:/ConnectionFactory";
+
+	private BrokerService brokerService;
+
+	private QueueConnection queueConnection;
+
+	public void testChangeSetsAreBatched() throws Exception {
+		registerMessageListener();
+		SearchQueueChecker.reset();
+
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( "Boston" );
+		ts.setSize( "XXL" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		tx.commit();
+
+		tx = s.beginTransaction();
+		TShirt ts2 = new TShirt();
+		ts2.setLogo( "Mapple leaves" );
+		ts2.setSize( "L" );
+		ts2.setLength( 23.42d );
+		s.persist( ts2 );
+		tx.commit();
+		s.close();
+
+		//need to sleep for the batch delay and the message consumption
+		Thread.sleep( 1500 );
+
+		assertEquals( 1, SearchQueueChecker.queues );
+		assertEquals( 2, SearchQueueChecker.works );
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		brokerService = JMSMasterTest.createTestingBrokerService();
+		super.setUp();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		super.tearDown();
+		if ( queueConnection != null ) {
+			queueConnection.close();
+		}
+		if ( brokerService != null ) {
+			brokerService.stop();
+		}
+	}
+
+	private void registerMessageListener() throws Exception {
+		Context ctx = getJndiInitialContext();
+		QueueConnectionFactory factory = (QueueConnectionFactory) ctx.lookup( CONNECTION_FACTORY_NAME );
+		queueConnection = factory.createQueueConnection();
+		queueConnection.start();
+		QueueSession queueSession = queueConnection.createQueueSession( false, QueueSession.AUTO_ACKNOWLEDGE );
+		MessageConsumer consumer = queueSession.createConsumer( (Queue) ctx.lookup( QUEUE_NAME ) );
+		consumer.setMessageListener( new SearchQueueChecker( getSearchFactoryImpl() ) );
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jms" );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_CONNECTION_FACTORY, CONNECTION_FACTORY_NAME );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_QUEUE, QUEUE_NAME );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_TRANSACTED, "true" );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_BATCH_MAX_DELAY, "500" );
+		// batching is disabled with sync execution
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_EXECUTION, "async" );
+		cfg.setProperty(
+				"hibernate.search.default.worker.jndi.class", "org.apache.activemq.jndi.ActiveMQInitialContextFactory"
+		);
+		cfg.setProperty( "hibernate.search.default.worker.jndi.url", "vm://localhost" );
+		cfg.setProperty( "hibernate.search.default.worker.jndi.connectionFactoryNames", "ConnectionFactory, java:/ConnectionFactory" );
+		cfg.setProperty( "hibernate.search.default.worker.jndi.queue.queue/searchtest", "searchQueue" );
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+
+	private Context getJndiInitialContext() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(
+				Context.INITIAL_CONTEXT_FACTORY, "org.apache.activemq.jndi.ActiveMQInitialContextFactory"
+		);
+		props.setProperty( Context.PROVIDER_URL, "vm://localhost" );
+		props.setProperty( "connectionFactoryNames", "ConnectionFactory, java:/ConnectionFactory" );
+		props.setProperty( "queue.queue/searchtest", "searchQueue" );
+		return new javax.naming.InitialContext( props );
+	}
+}
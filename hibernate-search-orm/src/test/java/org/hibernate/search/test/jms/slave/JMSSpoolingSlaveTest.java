@@ -0,0 +1,179 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.jms.slave;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSession;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.naming.Context;
+
+import org.apache.activemq.broker.BrokerService;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.backend.impl.jms.JMSBackendQueueProcessor;
+import org.hibernate.search.jmx.ChangeSetSpoolStatisticsInfoMBean;
+import org.hibernate.search.test.SearchTestCase;
+import org.hibernate.search.test.jms.master.JMSMasterTest;
+
+/**
+ * Checks that the change sets which can't be sent while the JMS broker is down are spooled, then sent in a single
+ * message once the broker is back.
+ */
+public class JMSSpoolingSlaveTest extends SearchTestCase {
+
+	private static final String QUEUE_NAME = "queue/searchtest";
+
+	private static final String CONNECTION_FACTORY_NAME = "java:/ConnectionFactory";
+
+	private BrokerService brokerService;
+
+	private QueueConnection queueConnection;
+
+	private volatile int messages;
+
+	public void testChangeSetsAreSpooledWhileBrokerIsDown() throws Exception {
+		brokerService.stop();
+		brokerService.waitUntilStopped();
+		brokerService = null;
+
+		persistTShirt( "Boston" );
+		persistTShirt( "Paris" );
+
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName spoolName = new ObjectName(
+				ChangeSetSpoolStatisticsInfoMBean.CHANGE_SET_SPOOL_MBEAN_OBJECT_NAME_PREFIX + TShirt.class.getName()
+		);
+		//need to sleep for the forwarder to register the MBean
+		Thread.sleep( 500 );
+		assertEquals( Boolean.TRUE, mbeanServer.getAttribute( spoolName, "Spooling" ) );
+		assertEquals( 2, mbeanServer.getAttribute( spoolName, "BacklogChangeSetCount" ) );
+
+		brokerService = JMSMasterTest.createTestingBrokerService();
+		registerMessageListener();
+
+		//need to sleep for the spooled change sets to be sent
+		Thread.sleep( 1000 );
+
+		assertEquals( "Spooled change sets should be sent in a single message", 1, messages );
+		assertEquals( Boolean.FALSE, mbeanServer.getAttribute( spoolName, "Spooling" ) );
+		assertEquals( 2L, mbeanServer.getAttribute( spoolName, "ForwardedChangeSetCount" ) );
+
+		persistTShirt( "Berlin" );
+		Thread.sleep( 500 );
+		assertEquals( "Change sets should be sent directly once the spool is empty", 2, messages );
+	}
+
+	private void persistTShirt(String logo) {
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		TShirt ts = new TShirt();
+		ts.setLogo( logo );
+		ts.setSize( "XXL" );
+		ts.setLength( 23.4d );
+		s.persist( ts );
+		tx.commit();
+		s.close();
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		brokerService = JMSMasterTest.createTestingBrokerService();
+		super.setUp();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		super.tearDown();
+		if ( queueConnection != null ) {
+			queueConnection.close();
+		}
+		if ( brokerService != null ) {
+			brokerService.stop();
+		}
+	}
+
+	private void registerMessageListener() throws Exception {
+		Context ctx = getJndiInitialContext();
+		QueueConnectionFactory factory = (QueueConnectionFactory) ctx.lookup( CONNECTION_FACTORY_NAME );
+		queueConnection = factory.createQueueConnection();
+		queueConnection.start();
+		QueueSession queueSession = queueConnection.createQueueSession( false, QueueSession.AUTO_ACKNOWLEDGE );
+		MessageConsumer consumer = queueSession.createConsumer( (Queue) ctx.lookup( QUEUE_NAME ) );
+		consumer.setMessageListener(
+				new MessageListener() {
+					public void onMessage(Message message) {
+						messages++;
+					}
+				}
+		);
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( Environment.JMX_ENABLED, "true" );
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_BACKEND, "jms" );
+		cfg.setProperty(
+				"hibernate.search.default." + Environment.WORKER_SPOOL_DIRECTORY,
+				new File( getBaseIndexDir(), "spool" ).getAbsolutePath()
+		);
+		cfg.setProperty( "hibernate.search.default." + Environment.WORKER_SPOOL_RETRY_INTERVAL, "100" );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_CONNECTION_FACTORY, CONNECTION_FACTORY_NAME );
+		cfg.setProperty( "hibernate.search.default." + JMSBackendQueueProcessor.JMS_QUEUE, QUEUE_NAME );
+		cfg.setProperty(
+				"hibernate.search.default.worker.jndi.class", "org.apache.activemq.jndi.ActiveMQInitialContextFactory"
+		);
+		// don't start an embedded broker while the test broker is down
+		cfg.setProperty( "hibernate.search.default.worker.jndi.url", "vm://localhost?create=false" );
+		cfg.setProperty( "hibernate.search.default.worker.jndi.connectionFactoryNames", "ConnectionFactory, java:/ConnectionFactory" );
+		cfg.setProperty( "hibernate.search.default.worker.jndi.queue.queue/searchtest", "searchQueue" );
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				TShirt.class
+		};
+	}
+
+	private Context getJndiInitialContext() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(
+				Context.INITIAL_CONTEXT_FACTORY, "org.apache.activemq.jndi.ActiveMQInitialContextFactory"
+		);
+		props.setProperty( Context.PROVIDER_URL, "vm://localhost" );
+		props.setProperty( "connectionFactoryNames", "ConnectionFactory, java:/ConnectionFactory" );
+		props.setProperty( "queue.queue/searchtest", "searchQueue" );
+		return new javax.naming.InitialContext( props );
+	}
+}
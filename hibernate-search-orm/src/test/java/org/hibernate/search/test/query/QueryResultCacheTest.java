@@ -0,0 +1,162 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.test.SearchTestCase;
+
+/**
+ * Tests that query results are served from the result cache until the index changes, and that the cache key
+ * includes the filter and sort of the query.
+ */
+public class QueryResultCacheTest extends SearchTestCase {
+
+	private static int filterCalls;
+
+	public void testRepeatedQueryIsServedFromCache() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		storeClocks( s, "Seiko", "Swatch", "Seiko" );
+
+		assertEquals( 2, createQuery( s, null ).list().size() );
+		int calls = filterCalls;
+		assertTrue( "The filter should have been applied", calls > 0 );
+
+		assertEquals( 2, createQuery( s, null ).list().size() );
+		assertEquals( "The results should be served from the cache", calls, filterCalls );
+		s.close();
+	}
+
+	public void testIndexChangeInvalidatesResults() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		storeClocks( s, "Seiko", "Swatch" );
+
+		assertEquals( 1, createQuery( s, null ).list().size() );
+		int calls = filterCalls;
+
+		storeClocks( s, "Seiko" );
+		assertEquals( "Results computed before the index change should not be served", 2, createQuery( s, null ).list().size() );
+		assertTrue( "The query should have been run again", filterCalls > calls );
+		s.close();
+	}
+
+	public void testKeyIncludesFilterAndSort() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		storeClocks( s, "Seiko", "Swatch", "Seiko" );
+
+		assertEquals( 2, createQuery( s, null ).list().size() );
+		int calls = filterCalls;
+
+		Sort sort = new Sort( new SortField( "id", SortField.STRING, true ) );
+		assertEquals( 2, createQuery( s, sort ).list().size() );
+		assertTrue( "A different sort should not share the cached results", filterCalls > calls );
+		calls = filterCalls;
+
+		assertEquals( 2, createQuery( s, sort ).list().size() );
+		assertEquals( "The sorted results should be served from the cache", calls, filterCalls );
+
+		FullTextQuery otherFilter = s.createFullTextQuery( new MatchAllDocsQuery(), Clock.class );
+		otherFilter.setFilter( new QueryWrapperFilter( new TermQuery( new Term( "brand", "swatch" ) ) ) );
+		assertEquals( "A different filter should not share the cached results", 1, otherFilter.list().size() );
+		s.close();
+	}
+
+	private FullTextQuery createQuery(FullTextSession s, Sort sort) {
+		FullTextQuery query = s.createFullTextQuery( new TermQuery( new Term( "brand", "seiko" ) ), Clock.class );
+		query.setFilter( new CountingFilter() );
+		if ( sort != null ) {
+			query.setSort( sort );
+		}
+		return query;
+	}
+
+	private void storeClocks(FullTextSession s, String... brands) {
+		Transaction tx = s.beginTransaction();
+		int id = ( (Long) s.createQuery( "select count(*) from Clock" ).uniqueResult() ).intValue();
+		for ( String brand : brands ) {
+			s.save( new Clock( ++id, brand ) );
+		}
+		tx.commit();
+		s.clear();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		Transaction tx = s.beginTransaction();
+		s.createQuery( "delete from Clock" ).executeUpdate();
+		s.purgeAll( Clock.class );
+		tx.commit();
+		s.close();
+		super.tearDown();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( Environment.QUERY_RESULT_CACHE_SIZE, "10" );
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Clock.class
+		};
+	}
+
+	/**
+	 * Matches all documents and counts its invocations; all instances are equal so that they share cached results.
+	 */
+	private static class CountingFilter extends Filter {
+
+		@Override
+		public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+			filterCalls++;
+			return new QueryWrapperFilter( new MatchAllDocsQuery() ).getDocIdSet( reader );
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof CountingFilter;
+		}
+
+		@Override
+		public int hashCode() {
+			return CountingFilter.class.hashCode();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query;
+
+import java.util.List;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.test.SearchTestCase;
+
+/**
+ * Tests counting results up to a threshold.
+ */
+public class ResultSizeThresholdTest extends SearchTestCase {
+
+	public void testResultSizeBelowThreshold() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		createClocks( s, 10 );
+
+		Transaction tx = s.beginTransaction();
+		FullTextQuery query = s.createFullTextQuery( new TermQuery( new Term( "brand", "seiko" ) ), Clock.class );
+		query.setResultSizeThreshold( 20 );
+		assertEquals( 10, query.getResultSize() );
+		assertTrue( query.isResultSizeExact() );
+		tx.commit();
+		s.close();
+	}
+
+	public void testResultSizeAboveThreshold() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		createClocks( s, 30 );
+
+		Transaction tx = s.beginTransaction();
+		FullTextQuery query = s.createFullTextQuery( new TermQuery( new Term( "brand", "seiko" ) ), Clock.class );
+		query.setResultSizeThreshold( 20 );
+		assertEquals( "The result size is a lower bound", 20, query.getResultSize() );
+		assertFalse( query.isResultSizeExact() );
+
+		query.setResultSizeThreshold( 50 );
+		assertEquals( 30, query.getResultSize() );
+		assertTrue( query.isResultSizeExact() );
+		tx.commit();
+		s.close();
+	}
+
+	public void testIndexOrderTerminatesEarly() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		createClocks( s, 30 );
+
+		Transaction tx = s.beginTransaction();
+		FullTextQuery query = s.createFullTextQuery( new TermQuery( new Term( "brand", "seiko" ) ), Clock.class );
+		query.setSort( Sort.INDEXORDER );
+		query.setResultSizeThreshold( 20 );
+		query.setMaxResults( 5 );
+		List<?> results = query.list();
+		assertEquals( 5, results.size() );
+		for ( int i = 0; i < 5; i++ ) {
+			assertEquals( Integer.valueOf( i + 1 ), ( (Clock) results.get( i ) ).getId() );
+		}
+		assertFalse( query.isResultSizeExact() );
+		tx.commit();
+		s.close();
+	}
+
+	public void testRelevanceSortKeepsExactResultSize() throws Exception {
+		FullTextSession s = Search.getFullTextSession( openSession() );
+		createClocks( s, 30 );
+
+		Transaction tx = s.beginTransaction();
+		FullTextQuery query = s.createFullTextQuery( new TermQuery( new Term( "brand", "seiko" ) ), Clock.class );
+		query.setResultSizeThreshold( 20 );
+		query.setMaxResults( 5 );
+		assertEquals( 5, query.list().size() );
+		assertTrue( query.isResultSizeExact() );
+		assertEquals( 30, query.getResultSize() );
+		tx.commit();
+		s.close();
+	}
+
+	private void createClocks(FullTextSession s, int count) {
+		Transaction tx = s.beginTransaction();
+		for ( int i = 1; i <= count; i++ ) {
+			s.persist( new Clock( i, "Seiko" ) );
+		}
+		tx.commit();
+		s.clear();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Clock.class
+		};
+	}
+}
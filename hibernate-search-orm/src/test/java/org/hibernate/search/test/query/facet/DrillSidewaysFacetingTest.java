@@ -0,0 +1,141 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.facet;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.query.engine.spi.FacetManager;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+/**
+ * Tests sideways faceting, with the facet result cache enabled.
+ */
+public class DrillSidewaysFacetingTest extends AbstractFacetTest {
+	private final String colorFacetName = "color";
+	private final String ccsFacetName = "ccs";
+
+	public void testSelectedFacetGroupKeepsItsCounts() throws Exception {
+		FullTextQuery query = createMatchAllQuery( Car.class );
+		FacetManager facetManager = enableFacets( query );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 12, 12, 12, 12, 2 } );
+		assertFacetCounts( facetManager.getFacets( ccsFacetName ), new int[] { 17, 16, 16, 1 } );
+
+		Facet red = findFacet( facetManager.getFacets( colorFacetName ), "red" );
+		facetManager.getFacetGroup( colorFacetName ).selectFacets( red );
+		assertEquals( "Wrong number of query matches", 12, query.getResultSize() );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 12, 12, 12, 12, 2 } );
+		assertFacetCounts( facetManager.getFacets( ccsFacetName ), new int[] { 4, 4, 4, 0 } );
+
+		Facet cc = findFacet( facetManager.getFacets( ccsFacetName ), "2407" );
+		facetManager.getFacetGroup( ccsFacetName ).selectFacets( cc );
+		assertEquals( "Wrong number of query matches", 4, query.list().size() );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 4, 4, 4, 4, 1 } );
+		assertFacetCounts( facetManager.getFacets( ccsFacetName ), new int[] { 4, 4, 4, 0 } );
+
+		facetManager.getFacetGroup( colorFacetName ).clearSelectedFacets();
+		facetManager.getFacetGroup( ccsFacetName ).clearSelectedFacets();
+		assertEquals( "Wrong number of query matches", 50, query.getResultSize() );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 12, 12, 12, 12, 2 } );
+		assertFacetCounts( facetManager.getFacets( ccsFacetName ), new int[] { 17, 16, 16, 1 } );
+	}
+
+	public void testCachedFacetsAreRecountedOnIndexChange() throws Exception {
+		FullTextQuery query = createMatchAllQuery( Car.class );
+		FacetManager facetManager = enableFacets( query );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 12, 12, 12, 12, 2 } );
+
+		fullTextSession.save( new Car( "Toyota", "yellow", 2407 ) );
+		tx.commit();
+		fullTextSession.clear();
+		tx = fullTextSession.beginTransaction();
+
+		query = createMatchAllQuery( Car.class );
+		facetManager = enableFacets( query );
+		assertFacetCounts( facetManager.getFacets( colorFacetName ), new int[] { 12, 12, 12, 12, 3 } );
+	}
+
+	private FacetManager enableFacets(FullTextQuery query) {
+		FacetingRequest colorFacetRequest = queryBuilder( Car.class ).facet()
+				.name( colorFacetName )
+				.onField( "color" )
+				.discrete()
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FacetingRequest ccsFacetRequest = queryBuilder( Car.class ).facet()
+				.name( ccsFacetName )
+				.onField( "cubicCapacity" )
+				.discrete()
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FacetManager facetManager = query.getFacetManager();
+		facetManager.enableFaceting( colorFacetRequest );
+		facetManager.enableFaceting( ccsFacetRequest );
+		facetManager.setDrillSideways( true );
+		return facetManager;
+	}
+
+	private Facet findFacet(List<Facet> facets, String value) {
+		for ( Facet facet : facets ) {
+			if ( facet.getValue().equals( value ) ) {
+				return facet;
+			}
+		}
+		fail( "No facet for value " + value );
+		return null;
+	}
+
+	public void loadTestData(Session session) {
+		Transaction tx = session.beginTransaction();
+		for ( String make : makes ) {
+			for ( String color : colors ) {
+				for ( int cc : ccs ) {
+					Car car = new Car( make, color, cc );
+					session.save( car );
+				}
+			}
+		}
+		Car car = new Car( "Honda", "yellow", 2407 );
+		session.save( car );
+
+		car = new Car( "Ford", "yellow", 2500 );
+		session.save( car );
+		tx.commit();
+		session.clear();
+	}
+
+	@Override
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( Environment.FACET_RESULT_CACHE_SIZE, "10" );
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Car.class
+		};
+	}
+}
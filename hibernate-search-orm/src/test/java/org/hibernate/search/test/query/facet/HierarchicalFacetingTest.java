@@ -0,0 +1,137 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.facet;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+public class HierarchicalFacetingTest extends AbstractFacetTest {
+	private final String indexFieldName = "category";
+
+	public void testRootFacetsCountAllDescendants() throws Exception {
+		FacetingRequest request = queryBuilder( Product.class ).facet()
+				.name( "roots" )
+				.onField( indexFieldName )
+				.hierarchical( "/" )
+				.orderedBy( FacetSortOrder.COUNT_DESC )
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FullTextQuery query = createMatchAllQuery( Product.class );
+		query.getFacetManager().enableFaceting( request );
+
+		List<Facet> facetList = query.getFacetManager().getFacets( "roots" );
+		assertFacetCounts( facetList, new int[] { 5, 2, 1 } );
+		assertEquals( "Electronics", facetList.get( 0 ).getValue() );
+		assertEquals( "Books", facetList.get( 1 ).getValue() );
+		assertEquals( "Electronic", facetList.get( 2 ).getValue() );
+	}
+
+	public void testChildrenOfPath() throws Exception {
+		FacetingRequest request = queryBuilder( Product.class ).facet()
+				.name( "electronics" )
+				.onField( indexFieldName )
+				.hierarchical( "/" )
+				.childrenOf( "Electronics" )
+				.orderedBy( FacetSortOrder.FIELD_VALUE )
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FullTextQuery query = createMatchAllQuery( Product.class );
+		query.getFacetManager().enableFaceting( request );
+
+		List<Facet> facetList = query.getFacetManager().getFacets( "electronics" );
+		assertFacetCounts( facetList, new int[] { 3, 1 } );
+		assertEquals( "Electronics/Computers", facetList.get( 0 ).getValue() );
+		assertEquals( "Electronics/Phones", facetList.get( 1 ).getValue() );
+	}
+
+	public void testSelectingPathFacetMatchesDescendants() throws Exception {
+		FacetingRequest request = queryBuilder( Product.class ).facet()
+				.name( "electronics" )
+				.onField( indexFieldName )
+				.hierarchical( "/" )
+				.childrenOf( "Electronics" )
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FullTextQuery query = createMatchAllQuery( Product.class );
+		query.getFacetManager().enableFaceting( request );
+
+		Facet computers = query.getFacetManager().getFacets( "electronics" ).get( 0 );
+		assertEquals( "Electronics/Computers", computers.getValue() );
+		query.getFacetManager().getFacetGroup( "electronics" ).selectFacets( computers );
+		assertEquals( "Wrong number of results", 3, query.getResultSize() );
+	}
+
+	public void testSeveralFacetsOnTheSameField() throws Exception {
+		FacetingRequest roots = queryBuilder( Product.class ).facet()
+				.name( "roots" )
+				.onField( indexFieldName )
+				.hierarchical( "/" )
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FacetingRequest computers = queryBuilder( Product.class ).facet()
+				.name( "computers" )
+				.onField( indexFieldName )
+				.hierarchical( "/" )
+				.childrenOf( "Electronics/Computers" )
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FacetingRequest leaves = queryBuilder( Product.class ).facet()
+				.name( "leaves" )
+				.onField( indexFieldName )
+				.discrete()
+				.maxFacetCount( -1 )
+				.createFacetingRequest();
+		FullTextQuery query = createMatchAllQuery( Product.class );
+		query.getFacetManager().enableFaceting( roots );
+		query.getFacetManager().enableFaceting( computers );
+		query.getFacetManager().enableFaceting( leaves );
+
+		assertFacetCounts( query.getFacetManager().getFacets( "roots" ), new int[] { 5, 2, 1 } );
+		assertFacetCounts( query.getFacetManager().getFacets( "computers" ), new int[] { 2, 1 } );
+		assertFacetCounts( query.getFacetManager().getFacets( "leaves" ), new int[] { 2, 2, 1, 1, 1, 1 } );
+	}
+
+	public void loadTestData(Session session) {
+		Transaction tx = session.beginTransaction();
+		session.save( new Product( "Laptop", "Electronics/Computers/Laptops" ) );
+		session.save( new Product( "Netbook", "Electronics/Computers/Laptops" ) );
+		session.save( new Product( "Tower", "Electronics/Computers/Desktops" ) );
+		session.save( new Product( "Smartphone", "Electronics/Phones" ) );
+		session.save( new Product( "Cable", "Electronics" ) );
+		session.save( new Product( "Resistor", "Electronic" ) );
+		session.save( new Product( "Novel", "Books/Fiction" ) );
+		session.save( new Product( "Poems", "Books/Fiction" ) );
+		tx.commit();
+		session.clear();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Product.class
+		};
+	}
+}
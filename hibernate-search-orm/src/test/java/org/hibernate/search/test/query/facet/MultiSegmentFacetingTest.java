@@ -0,0 +1,129 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.facet;
+
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+/**
+ * Tests discrete facets counted by ordinal on an index made of several segments, each segment numbering its
+ * terms on its own.
+ */
+public class MultiSegmentFacetingTest extends AbstractFacetTest {
+	private final String facetName = "color";
+
+	public void testIndexHasSeveralSegments() throws Exception {
+		IndexReader reader = IndexReader.open( getDirectory( Car.class ) );
+		try {
+			assertEquals( "Each transaction should have created a segment", 3, reader.getSequentialSubReaders().length );
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	public void testCountsAreMergedAcrossSegments() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.createFacetingRequest();
+		List<Facet> facets = getHondaFacets( request );
+		assertFacetValues( facets, "red", "blue", "green", "yellow" );
+		assertFacetCounts( facets, new int[] { 4, 3, 2, 0 } );
+	}
+
+	public void testZeroCountsAreExcluded() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.includeZeroCounts( false )
+				.createFacetingRequest();
+		List<Facet> facets = getHondaFacets( request );
+		assertFacetValues( facets, "red", "blue", "green" );
+		assertFacetCounts( facets, new int[] { 4, 3, 2 } );
+	}
+
+	public void testMaxFacetCountAcrossSegments() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.orderedBy( FacetSortOrder.FIELD_VALUE )
+				.maxFacetCount( 2 )
+				.createFacetingRequest();
+		List<Facet> facets = getHondaFacets( request );
+		assertFacetValues( facets, "blue", "green" );
+		assertFacetCounts( facets, new int[] { 3, 2 } );
+	}
+
+	private List<Facet> getHondaFacets(FacetingRequest request) {
+		Query luceneQuery = queryBuilder( Car.class ).keyword().onField( "make" ).matching( "Honda" ).createQuery();
+		FullTextQuery query = fullTextSession.createFullTextQuery( luceneQuery, Car.class );
+		query.getFacetManager().enableFaceting( request );
+		assertEquals( "Wrong number of query matches", 9, query.getResultSize() );
+		return query.getFacetManager().getFacets( facetName );
+	}
+
+	private void assertFacetValues(List<Facet> facets, String... values) {
+		assertEquals( "Wrong number of facets", values.length, facets.size() );
+		for ( int i = 0; i < values.length; i++ ) {
+			assertEquals( "Wrong facet value for facet " + i, values[i], facets.get( i ).getValue() );
+		}
+	}
+
+	public void loadTestData(Session session) {
+		// one transaction per segment, each segment holding a different set of colors
+		saveCars( session, "Honda", "red", "red", "red", "blue" );
+		saveCars( session, "Honda", "red", "green", "green" );
+		Transaction tx = session.beginTransaction();
+		session.save( new Car( "Honda", "blue", 2407 ) );
+		session.save( new Car( "Honda", "blue", 2407 ) );
+		session.save( new Car( "BMW", "yellow", 2407 ) );
+		tx.commit();
+		session.clear();
+	}
+
+	private void saveCars(Session session, String make, String... colors) {
+		Transaction tx = session.beginTransaction();
+		for ( String color : colors ) {
+			session.save( new Car( make, color, 2407 ) );
+		}
+		tx.commit();
+		session.clear();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Car.class
+		};
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.facet;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+
+/**
+ * Tests the counting of range facets by elementary intervals: overlapping ranges, included and excluded bounds,
+ * open ended ranges and documents without a value.
+ */
+public class RangeFacetCounterTest extends AbstractFacetTest {
+	private static final String[] names = { "a", "b", "c", "d", "e", "f" };
+	private static final int[] prices = { 100, 200, 200, 300, 400, 500 };
+
+	public void testOverlappingRanges() throws Exception {
+		FacetingRequest request = queryBuilder( Cd.class ).facet()
+				.name( "prices" )
+				.onField( "price" )
+				.range()
+				.below( 200 ).excludeLimit()
+				.from( 200 ).to( 400 )
+				.from( 300 ).excludeLimit().to( 500 ).excludeLimit()
+				.above( 400 )
+				.orderedBy( FacetSortOrder.RANGE_DEFINITION_ODER )
+				.createFacetingRequest();
+		assertFacetCounts( getFacets( request, "prices" ), new int[] { 1, 4, 1, 3 } );
+	}
+
+	public void testIncludedBounds() throws Exception {
+		FacetingRequest request = queryBuilder( Cd.class ).facet()
+				.name( "prices" )
+				.onField( "price" )
+				.range()
+				.below( 200 )
+				.from( 200 ).to( 200 )
+				.above( 500 ).excludeLimit()
+				.orderedBy( FacetSortOrder.RANGE_DEFINITION_ODER )
+				.createFacetingRequest();
+		assertFacetCounts( getFacets( request, "prices" ), new int[] { 3, 2, 1 } );
+	}
+
+	public void testDocumentsWithoutValueAreNotCounted() throws Exception {
+		FacetingRequest request = queryBuilder( Cd.class ).facet()
+				.name( "names" )
+				.onField( "name_un_analyzed" )
+				.range()
+				.below( "c" ).excludeLimit()
+				.from( "c" ).to( "e" )
+				.above( "b" ).excludeLimit()
+				.orderedBy( FacetSortOrder.RANGE_DEFINITION_ODER )
+				.createFacetingRequest();
+		assertFacetCounts( getFacets( request, "names" ), new int[] { 2, 3, 4 } );
+	}
+
+	private List<Facet> getFacets(FacetingRequest request, String facetingName) {
+		FullTextQuery query = createMatchAllQuery( Cd.class );
+		query.getFacetManager().enableFaceting( request );
+		assertEquals( "Wrong number of query matches", 7, query.getResultSize() );
+		return query.getFacetManager().getFacets( facetingName );
+	}
+
+	public void loadTestData(Session session) {
+		Transaction tx = session.beginTransaction();
+		for ( int i = 0; i < names.length; i++ ) {
+			session.save( new Cd( names[i], prices[i], "2000" ) );
+		}
+		// no name to count in the name ranges
+		session.save( new Cd( null, 600, "2000" ) );
+		tx.commit();
+		session.clear();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Cd.class
+		};
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.facet;
+
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.query.engine.spi.FacetManager;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetingRequest;
+import org.hibernate.search.query.facet.SampledFacet;
+
+/**
+ * Tests facet counts estimated from a sample of the matching documents.
+ */
+public class SampledFacetingTest extends AbstractFacetTest {
+	private final String facetName = "color";
+
+	public void testResultBelowThresholdIsCountedExactly() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.maxFacetCount( -1 )
+				.sampleAbove( 100, 0.5 )
+				.createFacetingRequest();
+		List<Facet> facets = getFacets( request );
+		assertFacetCounts( facets, new int[] { 12, 12, 12, 12, 2 } );
+		for ( Facet facet : facets ) {
+			assertTrue( "Count should be exact", ( (SampledFacet) facet ).isCountExact() );
+		}
+	}
+
+	public void testCountsBeyondThresholdAreEstimated() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.maxFacetCount( -1 )
+				.sampleAbove( 10, 0.5 )
+				.createFacetingRequest();
+		List<Facet> facets = getFacets( request );
+		int totalCount = 0;
+		for ( Facet facet : facets ) {
+			assertFalse( "Count should be estimated", ( (SampledFacet) facet ).isCountExact() );
+			totalCount += facet.getCount();
+		}
+		// 10 documents counted, then 1 in 2 of the 40 others, each counting twice
+		assertEquals( "Wrong total count", 50, totalCount );
+	}
+
+	public void testReturnedFacetsAreRecounted() throws Exception {
+		FacetingRequest request = queryBuilder( Car.class ).facet()
+				.name( facetName )
+				.onField( "color" )
+				.discrete()
+				.maxFacetCount( -1 )
+				.sampleAbove( 10, 0.5 )
+				.randomSampling()
+				.recountReturnedFacets()
+				.createFacetingRequest();
+		List<Facet> facets = getFacets( request );
+		for ( Facet facet : facets ) {
+			assertTrue( "Count should be exact", ( (SampledFacet) facet ).isCountExact() );
+		}
+		assertFacetCounts( facets, new int[] { 12, 12, 12, 12, 2 } );
+	}
+
+	private List<Facet> getFacets(FacetingRequest request) {
+		FullTextQuery query = createMatchAllQuery( Car.class );
+		FacetManager facetManager = query.getFacetManager();
+		facetManager.enableFaceting( request );
+		assertEquals( "Wrong number of query matches", 50, query.getResultSize() );
+		return facetManager.getFacets( facetName );
+	}
+
+	public void loadTestData(Session session) {
+		Transaction tx = session.beginTransaction();
+		for ( String make : makes ) {
+			for ( String color : colors ) {
+				for ( int cc : ccs ) {
+					Car car = new Car( make, color, cc );
+					session.save( car );
+				}
+			}
+		}
+		Car car = new Car( "Honda", "yellow", 2407 );
+		session.save( car );
+
+		car = new Car( "Ford", "yellow", 2500 );
+		session.save( car );
+		tx.commit();
+		session.clear();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Car.class
+		};
+	}
+}
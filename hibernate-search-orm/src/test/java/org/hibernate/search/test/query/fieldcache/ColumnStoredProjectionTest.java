@@ -0,0 +1,112 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.fieldcache;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.ProjectionConstants;
+import org.hibernate.search.Search;
+import org.hibernate.search.test.SearchTestCase;
+
+/**
+ * Tests projections on column stored fields, read from the FieldCache instead of the stored fields.
+ */
+public class ColumnStoredProjectionTest extends SearchTestCase {
+
+	private static final int NUM_WATCHES = 50;
+
+	public void setUp() throws Exception {
+		super.setUp();
+		prepareData();
+	}
+
+	public void testProjectionOnColumnStoredFields() {
+		Session session = openSession();
+		Transaction tx = session.beginTransaction();
+		FullTextSession fullTextSession = Search.getFullTextSession( session );
+		FullTextQuery fullTextQuery = fullTextSession.createFullTextQuery( new MatchAllDocsQuery(), Watch.class );
+		// to avoid loading in document order
+		fullTextQuery.setSort( new Sort( new SortField( "price", SortField.INT, true ) ) );
+		fullTextQuery.setProjection( ProjectionConstants.ID, "model", "price", "collection", "description" );
+		List<?> results = fullTextQuery.list();
+		assertEquals( NUM_WATCHES, results.size() );
+		Set<Object> ids = new HashSet<Object>();
+		for ( Object result : results ) {
+			Object[] projection = (Object[]) result;
+			int id = (Integer) projection[0];
+			assertTrue( ids.add( id ) );
+			assertEquals( "model " + id, projection[1] );
+			// a null price is not read as 0, unlike the price of the first watch
+			assertEquals( getPrice( id ), projection[2] );
+			assertEquals( id % 2 == 0 ? "classic" : null, projection[3] );
+			assertEquals( "Watch number " + id, projection[4] );
+		}
+		tx.commit();
+		session.close();
+	}
+
+	private void prepareData() {
+		Session session = openSession();
+		Transaction tx = session.beginTransaction();
+		for ( int i = 0; i < NUM_WATCHES; i++ ) {
+			session.persist(
+					new Watch( i, "model " + i, getPrice( i ), i % 2 == 0 ? "classic" : null, "Watch number " + i )
+			);
+		}
+		tx.commit();
+		session.close();
+	}
+
+	private static Integer getPrice(int id) {
+		return id % 5 == 3 ? null : id * 10;
+	}
+
+	public void tearDown() throws Exception {
+		Session session = openSession();
+		Transaction tx = session.beginTransaction();
+		session.createQuery( "delete " + Watch.class.getName() ).executeUpdate();
+		tx.commit();
+		session.close();
+		super.tearDown();
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class<?>[] { Watch.class };
+	}
+
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		// force multiple segments to also verify the docId transformations
+		cfg.setProperty( "hibernate.search.default.indexwriter.transaction.max_merge_docs", "10" );
+	}
+}
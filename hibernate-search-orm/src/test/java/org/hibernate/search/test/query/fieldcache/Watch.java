@@ -0,0 +1,87 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.fieldcache;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.DocumentId;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.NumericField;
+import org.hibernate.search.annotations.Store;
+
+/**
+ * Entity with column stored fields, not stored in the index.
+ */
+@Entity
+@Indexed
+public class Watch {
+
+	@Id
+	@DocumentId
+	private Integer id;
+
+	@Field(analyze = Analyze.NO, columnStored = true)
+	private String model;
+
+	@Field(columnStored = true)
+	@NumericField
+	private Integer price;
+
+	@Field(analyze = Analyze.NO, columnStored = true, indexNullAs = Field.DEFAULT_NULL_TOKEN)
+	private String collection;
+
+	@Field(store = Store.YES)
+	private String description;
+
+	public Watch() {
+	}
+
+	public Watch(Integer id, String model, Integer price, String collection, String description) {
+		this.id = id;
+		this.model = model;
+		this.price = price;
+		this.collection = collection;
+		this.description = description;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getModel() {
+		return model;
+	}
+
+	public Integer getPrice() {
+		return price;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
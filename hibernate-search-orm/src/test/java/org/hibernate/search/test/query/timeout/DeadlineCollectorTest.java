@@ -0,0 +1,113 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.query.timeout;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.RAMDirectory;
+
+import org.hibernate.search.query.collector.impl.DeadlineCollector;
+import org.hibernate.search.test.TestConstants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that {@link DeadlineCollector} only interrupts the search once the deadline has expired, checking it
+ * every {@link DeadlineCollector#CHECK_INTERVAL} documents and on each segment.
+ */
+public class DeadlineCollectorTest {
+	private static final long ONE_HOUR = 3600L * 1000L * 1000L * 1000L;
+
+	private RAMDirectory directory;
+	private IndexReader reader;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(
+				directory, new IndexWriterConfig( TestConstants.getTargetLuceneVersion(), new KeywordAnalyzer() )
+		);
+		for ( int i = 0; i < 1000; i++ ) {
+			Document document = new Document();
+			document.add( new Field( "id", String.valueOf( i ), Field.Store.NO, Field.Index.NOT_ANALYZED ) );
+			writer.addDocument( document );
+		}
+		writer.close();
+		reader = IndexReader.open( directory );
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testSearchCompletesBeforeDeadline() throws Exception {
+		TotalHitCountCollector counter = new TotalHitCountCollector();
+		new IndexSearcher( reader ).search(
+				new MatchAllDocsQuery(), new DeadlineCollector( counter, System.nanoTime() + ONE_HOUR )
+		);
+		assertEquals( 1000, counter.getTotalHits() );
+	}
+
+	@Test
+	public void testExpiredDeadlineInterruptsOnNextSegment() throws Exception {
+		TotalHitCountCollector counter = new TotalHitCountCollector();
+		try {
+			new IndexSearcher( reader ).search(
+					new MatchAllDocsQuery(), new DeadlineCollector( counter, System.nanoTime() - 1 )
+			);
+			fail( "The search should have been interrupted" );
+		}
+		catch ( DeadlineCollector.DeadlineExceededException e ) {
+			assertEquals( "No document should be collected", 0, counter.getTotalHits() );
+		}
+	}
+
+	@Test
+	public void testDeadlineIsCheckedEveryInterval() throws Exception {
+		TotalHitCountCollector counter = new TotalHitCountCollector();
+		DeadlineCollector collector = new DeadlineCollector( counter, System.nanoTime() - 1 );
+		int doc = 0;
+		try {
+			for ( ; doc < 2 * DeadlineCollector.CHECK_INTERVAL; doc++ ) {
+				collector.collect( doc );
+			}
+			fail( "The collection should have been interrupted" );
+		}
+		catch ( DeadlineCollector.DeadlineExceededException e ) {
+			assertEquals( DeadlineCollector.CHECK_INTERVAL - 1, doc );
+			assertEquals( DeadlineCollector.CHECK_INTERVAL - 1, counter.getTotalHits() );
+		}
+	}
+}
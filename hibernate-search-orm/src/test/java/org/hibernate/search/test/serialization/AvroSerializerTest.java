@@ -0,0 +1,192 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.serialization;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttributeImpl;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttributeImpl;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.Payload;
+import org.apache.lucene.util.AttributeImpl;
+import org.junit.Test;
+
+import org.hibernate.search.backend.AddLuceneWork;
+import org.hibernate.search.backend.DeleteLuceneWork;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.backend.OptimizeLuceneWork;
+import org.hibernate.search.backend.PurgeAllLuceneWork;
+import org.hibernate.search.backend.UpdateLuceneWork;
+import org.hibernate.search.indexes.serialization.avro.impl.AvroSerializationProvider;
+import org.hibernate.search.indexes.serialization.impl.CopyTokenStream;
+import org.hibernate.search.indexes.serialization.impl.PluggableSerializationLuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorksBuilder;
+import org.hibernate.search.indexes.serialization.spi.SerializableIndex;
+import org.hibernate.search.indexes.serialization.spi.SerializableStore;
+import org.hibernate.search.indexes.serialization.spi.SerializableTermVector;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the Avro serializer writes messages of the version 1.0 of the protocol, readable by generic Avro readers,
+ * and the details of its reading side.
+ */
+public class AvroSerializerTest {
+	private final AvroSerializationProvider provider = new AvroSerializationProvider();
+	private final LuceneWorkSerializer serializer = new PluggableSerializationLuceneWorkSerializer( provider, null );
+
+	@Test
+	public void testMessageIsReadableByGenericReader() throws Exception {
+		byte[] data = serializer.toSerializedModel( buildWorks() );
+		assertThat( data[0] & 0xFF ).isEqualTo( AvroSerializationProvider.getMajorVersion() );
+		assertThat( data[1] & 0xFF ).isEqualTo( AvroSerializationProvider.getMinorVersion() );
+
+		Protocol protocol = provider.parseProtocol( "Works" );
+		GenericDatumReader<GenericRecord> reader = new GenericDatumReader<GenericRecord>( protocol.getType( "Message" ) );
+		GenericRecord message = reader.read( null, DecoderFactory.get().binaryDecoder( data, 2, data.length - 2, null ) );
+
+		List<?> classReferences = (List<?>) message.get( "classReferences" );
+		assertThat( classReferences ).hasSize( 2 );
+		assertThat( classReferences.get( 0 ).toString() ).isEqualTo( String.class.getName() );
+		assertThat( classReferences.get( 1 ).toString() ).isEqualTo( RemoteEntity.class.getName() );
+
+		List<GenericRecord> operations = (List<GenericRecord>) message.get( "operations" );
+		assertThat( schemaNames( operations ) ).containsExactly( "OptimizeAll", "PurgeAll", "Delete", "Add", "Update" );
+		assertThat( operations.get( 1 ).get( "class" ) ).isEqualTo( 0 );
+		assertThat( ( (GenericRecord) operations.get( 2 ).get( "id" ) ).get( "value" ).toString() ).isEqualTo( "abc" );
+
+		GenericRecord add = operations.get( 3 );
+		assertThat( add.get( "class" ) ).isEqualTo( 1 );
+		assertThat( ( (GenericRecord) add.get( "id" ) ).get( "value" ) ).isEqualTo( 123 );
+		assertThat( ( (Map<?, ?>) add.get( "fieldToAnalyzerMap" ) ) ).hasSize( 1 );
+		GenericRecord document = (GenericRecord) add.get( "document" );
+		assertThat( document.get( "boost" ) ).isEqualTo( 2.5f );
+		List<GenericRecord> fieldables = (List<GenericRecord>) document.get( "fieldables" );
+		assertThat( schemaNames( fieldables ) ).containsExactly(
+				"StringField", "StringField", "NumericLongField", "BinaryField", "TokenStreamField"
+		);
+		GenericRecord stringField = fieldables.get( 0 );
+		assertThat( stringField.get( "name" ).toString() ).isEqualTo( "title" );
+		assertThat( stringField.get( "value" ).toString() ).isEqualTo( "Avro" );
+		assertThat( stringField.get( "index" ).toString() ).isEqualTo( "ANALYZED" );
+		assertThat( stringField.get( "termVector" ).toString() ).isEqualTo( "WITH_OFFSETS" );
+		assertThat( fieldables.get( 2 ).get( "value" ) ).isEqualTo( 42L );
+		assertThat( fieldables.get( 2 ).get( "store" ).toString() ).isEqualTo( "YES" );
+		List<List<GenericRecord>> tokens = (List<List<GenericRecord>>) fieldables.get( 4 ).get( "value" );
+		assertThat( tokens ).hasSize( 1 );
+		assertThat( schemaNames( tokens.get( 0 ) ) ).containsExactly( "CharTermAttribute", "PayloadAttribute" );
+
+		GenericRecord update = operations.get( 4 );
+		assertThat( update.get( "fieldToAnalyzerMap" ) ).isNull();
+		assertThat( (List<?>) ( (GenericRecord) update.get( "document" ) ).get( "fieldables" ) ).isEmpty();
+	}
+
+	@Test
+	public void testPooledBuffersAreReused() throws Exception {
+		// token streams are consumed by the serialization, so each message needs its own works
+		byte[] data = serializer.toSerializedModel( buildWorks() );
+		assertArrayEquals( data, serializer.toSerializedModel( buildWorks() ) );
+	}
+
+	@Test
+	public void testFieldNamesAreSharedInMessage() throws Exception {
+		final List<Object[]> stringFields = new ArrayList<Object[]>();
+		LuceneWorksBuilder builder = (LuceneWorksBuilder) Proxy.newProxyInstance(
+				LuceneWorksBuilder.class.getClassLoader(),
+				new Class<?>[] { LuceneWorksBuilder.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if ( method.getName().equals( "addFieldWithStringData" ) ) {
+							stringFields.add( args );
+						}
+						return null;
+					}
+				}
+		);
+		provider.getDeserializer().deserialize( serializer.toSerializedModel( buildWorks() ), builder );
+
+		assertThat( stringFields ).hasSize( 2 );
+		Object[] first = stringFields.get( 0 );
+		Object[] second = stringFields.get( 1 );
+		assertThat( Arrays.asList( first ) ).containsExactly(
+				"title", "Avro", SerializableStore.YES, SerializableIndex.ANALYZED, SerializableTermVector.WITH_OFFSETS,
+				1.5f, false, false
+		);
+		assertThat( second[1] ).isEqualTo( "Protocol" );
+		assertSame( "Field names should be read once per message", first[0], second[0] );
+	}
+
+	private List<LuceneWork> buildWorks() {
+		List<LuceneWork> works = new ArrayList<LuceneWork>();
+		works.add( new OptimizeLuceneWork() );
+		works.add( new PurgeAllLuceneWork( String.class ) );
+		works.add( new DeleteLuceneWork( "abc", "abc", RemoteEntity.class ) );
+
+		Document document = new Document();
+		document.setBoost( 2.5f );
+		Field field = new Field( "title", "Avro", Field.Store.YES, Field.Index.ANALYZED, Field.TermVector.WITH_OFFSETS );
+		field.setBoost( 1.5f );
+		document.add( field );
+		document.add( new Field( "title", "Protocol", Field.Store.NO, Field.Index.NOT_ANALYZED ) );
+		NumericField numericField = new NumericField( "count", 4, Field.Store.YES, true );
+		numericField.setLongValue( 42L );
+		document.add( numericField );
+		document.add( new Field( "binary", new byte[] { 1, 2, 3, 4 }, 1, 2 ) );
+		List<List<AttributeImpl>> tokens = new ArrayList<List<AttributeImpl>>();
+		CharTermAttributeImpl charTerm = new CharTermAttributeImpl();
+		charTerm.append( "token" );
+		PayloadAttributeImpl payload = new PayloadAttributeImpl();
+		payload.setPayload( new Payload( new byte[] { 0, 1, 2, 3 }, 1, 2 ) );
+		tokens.add( Arrays.<AttributeImpl>asList( charTerm, payload ) );
+		document.add( new Field( "tokens", new CopyTokenStream( tokens ) ) );
+		Map<String, String> analyzers = new HashMap<String, String>();
+		analyzers.put( "title", "standard" );
+		works.add( new AddLuceneWork( 123, "123", RemoteEntity.class, document, analyzers ) );
+
+		works.add( new UpdateLuceneWork( 124L, "124", RemoteEntity.class, new Document() ) );
+		return works;
+	}
+
+	private static List<String> schemaNames(List<GenericRecord> records) {
+		List<String> names = new ArrayList<String>( records.size() );
+		for ( GenericRecord record : records ) {
+			names.add( record.getSchema().getName() );
+		}
+		return names;
+	}
+}
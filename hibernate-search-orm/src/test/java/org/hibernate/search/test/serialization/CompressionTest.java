@@ -0,0 +1,201 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.hibernate.search.SearchException;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.indexes.serialization.impl.CompressingLuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.impl.DeflateCompressionCodec;
+import org.hibernate.search.indexes.serialization.impl.LZCompressionCodec;
+import org.hibernate.search.indexes.serialization.spi.CompressionCodec;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the compression codecs and the compression of serialized works.
+ */
+public class CompressionTest {
+
+	@Test
+	public void testLZRoundTrip() throws Exception {
+		assertRoundTrips( new LZCompressionCodec() );
+	}
+
+	@Test
+	public void testDeflateRoundTrip() throws Exception {
+		assertRoundTrips( new DeflateCompressionCodec() );
+	}
+
+	@Test
+	public void testLZRejectsCorruptedData() throws Exception {
+		LZCompressionCodec codec = new LZCompressionCodec();
+		byte[] data = repetitiveText( 2000 );
+		byte[] compressed = compress( codec, data );
+		try {
+			codec.decompress( compressed, 0, compressed.length, new byte[data.length + 1] );
+			fail( "Decompressing into a longer array should fail" );
+		}
+		catch ( IOException e ) {
+			// expected
+		}
+		try {
+			codec.decompress( compressed, 0, compressed.length / 2, new byte[data.length] );
+			fail( "Decompressing truncated data should fail" );
+		}
+		catch ( IOException e ) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSmallPayloadsAreNotCompressed() {
+		byte[] payload = repetitiveText( 100 );
+		RecordingSerializer delegate = new RecordingSerializer( payload );
+		LuceneWorkSerializer serializer = new CompressingLuceneWorkSerializer( delegate, new LZCompressionCodec(), 1024 );
+		byte[] serialized = serializer.toSerializedModel( Collections.<LuceneWork>emptyList() );
+		assertSame( payload, serialized );
+		serializer.toLuceneWorks( serialized );
+		assertSame( payload, delegate.deserialized );
+	}
+
+	@Test
+	public void testCompressedPayloadsAreReadByAnyNode() {
+		byte[] payload = repetitiveText( 5000 );
+		LuceneWorkSerializer compressing = new CompressingLuceneWorkSerializer(
+				new RecordingSerializer( payload ), new DeflateCompressionCodec(), 1024
+		);
+		byte[] serialized = compressing.toSerializedModel( Collections.<LuceneWork>emptyList() );
+		assertTrue( "Payload should be compressed", serialized.length < payload.length / 4 );
+
+		// a node not compressing its own payloads
+		RecordingSerializer delegate = new RecordingSerializer( null );
+		new CompressingLuceneWorkSerializer( delegate, null, 1024 ).toLuceneWorks( serialized );
+		assertArrayEquals( payload, delegate.deserialized );
+	}
+
+	@Test
+	public void testUnknownCodecIsRejected() {
+		byte[] payload = repetitiveText( 5000 );
+		byte[] serialized = new CompressingLuceneWorkSerializer(
+				new RecordingSerializer( payload ), new CustomCodec(), 1024
+		).toSerializedModel( Collections.<LuceneWork>emptyList() );
+		try {
+			new CompressingLuceneWorkSerializer( new RecordingSerializer( null ), null, 1024 ).toLuceneWorks( serialized );
+			fail( "The codec is not known to the reading node" );
+		}
+		catch ( SearchException e ) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCorruptedUncompressedLengthIsRejected() {
+		byte[] payload = repetitiveText( 5000 );
+		byte[] serialized = new CompressingLuceneWorkSerializer(
+				new RecordingSerializer( payload ), new DeflateCompressionCodec(), 1024
+		).toSerializedModel( Collections.<LuceneWork>emptyList() );
+		// an uncompressed length of 2 GB
+		serialized[2] = (byte) 0x7F;
+		try {
+			new CompressingLuceneWorkSerializer( new RecordingSerializer( null ), null, 1024 ).toLuceneWorks( serialized );
+			fail( "The uncompressed length can't be reached from the compressed payload" );
+		}
+		catch ( SearchException e ) {
+			// expected
+		}
+	}
+
+	private void assertRoundTrips(CompressionCodec codec) throws IOException {
+		Random random = new Random( 7 );
+		byte[] randomBytes = new byte[10000];
+		random.nextBytes( randomBytes );
+		byte[] runs = new byte[100000];
+		Arrays.fill( runs, 30000, 90000, (byte) 7 );
+		List<byte[]> samples = Arrays.asList(
+				new byte[0], new byte[] { 1, 2, 3 }, repetitiveText( 50000 ), randomBytes, runs
+		);
+		for ( byte[] sample : samples ) {
+			byte[] compressed = compress( codec, sample );
+			byte[] copy = new byte[sample.length];
+			codec.decompress( compressed, 0, compressed.length, copy );
+			assertArrayEquals( sample, copy );
+		}
+		assertTrue( compress( codec, runs ).length < runs.length / 50 );
+	}
+
+	private static byte[] compress(CompressionCodec codec, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		codec.compress( data, 0, data.length, out );
+		return out.toByteArray();
+	}
+
+	private static byte[] repetitiveText(int length) {
+		StringBuilder text = new StringBuilder( length );
+		Random random = new Random( 3 );
+		String[] words = { "hibernate ", "search ", "lucene ", "index ", "master ", "slave ", "jms " };
+		while ( text.length() < length ) {
+			text.append( words[random.nextInt( words.length )] );
+		}
+		text.setLength( length );
+		return text.toString().getBytes();
+	}
+
+	private static class RecordingSerializer implements LuceneWorkSerializer {
+		private final byte[] payload;
+		private byte[] deserialized;
+
+		RecordingSerializer(byte[] payload) {
+			this.payload = payload;
+		}
+
+		@Override
+		public byte[] toSerializedModel(List<LuceneWork> works) {
+			return payload;
+		}
+
+		@Override
+		public List<LuceneWork> toLuceneWorks(byte[] data) {
+			deserialized = data;
+			return Collections.emptyList();
+		}
+	}
+
+	public static class CustomCodec extends LZCompressionCodec {
+		@Override
+		public byte getId() {
+			return 42;
+		}
+	}
+}
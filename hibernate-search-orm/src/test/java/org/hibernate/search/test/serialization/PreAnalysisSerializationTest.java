@@ -0,0 +1,115 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.serialization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Fieldable;
+
+import org.hibernate.search.backend.AddLuceneWork;
+import org.hibernate.search.backend.LuceneWork;
+import org.hibernate.search.indexes.serialization.avro.impl.AvroSerializationProvider;
+import org.hibernate.search.indexes.serialization.impl.PluggableSerializationLuceneWorkSerializer;
+import org.hibernate.search.indexes.serialization.spi.LuceneWorkSerializer;
+import org.hibernate.search.test.SearchTestCase;
+
+/**
+ * Tests that analyzed fields are sent as the tokens produced by their analyzer when pre-analysis is enabled.
+ */
+public class PreAnalysisSerializationTest extends SearchTestCase {
+
+	public void testAnalyzedFieldIsSentAsTokens() throws Exception {
+		Document document = new Document();
+		document.add( new Field( "id", "1", Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS ) );
+		Field name = new Field( "name", "Emmanuel Bernard", Field.Store.YES, Field.Index.ANALYZED );
+		name.setBoost( 3f );
+		document.add( name );
+
+		Document copy = roundTrip( new AddLuceneWork( 1, "1", RemoteEntity.class, document ) );
+
+		Fieldable id = copy.getFieldable( "id" );
+		assertEquals( "1", id.stringValue() );
+		assertFalse( "Non analyzed fields should be sent as they are", id.isTokenized() );
+
+		Fieldable[] names = copy.getFieldables( "name" );
+		assertEquals( 2, names.length );
+		assertEquals( "Emmanuel Bernard", names[0].stringValue() );
+		assertTrue( names[0].isStored() );
+		assertFalse( "The stored value should not be indexed again", names[0].isIndexed() );
+		assertFalse( names[1].isStored() );
+		assertEquals( 3f, names[1].getBoost() );
+		assertEquals( "[emmanuel, bernard]", terms( names[1].tokenStreamValue() ).toString() );
+	}
+
+	public void testScopedAnalyzerIsApplied() throws Exception {
+		Document document = new Document();
+		document.add( new Field( "name", "Hibernate", Field.Store.NO, Field.Index.ANALYZED ) );
+		Map<String, String> analyzers = new HashMap<String, String>();
+		analyzers.put( "name", "ngram" );
+
+		Document copy = roundTrip( new AddLuceneWork( 1, "1", RemoteEntity.class, document, analyzers ) );
+
+		Fieldable[] names = copy.getFieldables( "name" );
+		assertEquals( "Unstored fields should only be sent as tokens", 1, names.length );
+		assertEquals(
+				"[Hib, ibe, ber, ern, rna, nat, ate]",
+				terms( names[0].tokenStreamValue() ).toString()
+		);
+	}
+
+	private Document roundTrip(LuceneWork work) {
+		LuceneWorkSerializer serializer = new PluggableSerializationLuceneWorkSerializer(
+				new AvroSerializationProvider(),
+				getSearchFactoryImpl(),
+				true
+		);
+		List<LuceneWork> works = new ArrayList<LuceneWork>();
+		works.add( work );
+		List<LuceneWork> copyOfWorks = serializer.toLuceneWorks( serializer.toSerializedModel( works ) );
+		assertEquals( 1, copyOfWorks.size() );
+		return copyOfWorks.get( 0 ).getDocument();
+	}
+
+	private List<String> terms(TokenStream tokenStream) throws Exception {
+		assertNotNull( "The field should hold a token stream", tokenStream );
+		List<String> terms = new ArrayList<String>();
+		CharTermAttribute term = tokenStream.addAttribute( CharTermAttribute.class );
+		tokenStream.reset();
+		while ( tokenStream.incrementToken() ) {
+			terms.add( term.toString() );
+		}
+		return terms;
+	}
+
+	@Override
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class<?>[] {
+				RemoteEntity.class
+		};
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Hibernate, Relational Persistence for Idiomatic Java
+ *
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This copyrighted material is made available to anyone wishing to use,
+ * modify, copy, or redistribute it subject to the terms and conditions
+ * of the GNU Lesser General Public License, v. 2.1.
+ * This program is distributed in the hope that it will be useful, but WITHOUT A
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License,
+ * v.2.1 along with this distribution; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+package org.hibernate.search.test.shards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.search.Environment;
+import org.hibernate.search.FullTextQuery;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
+import org.hibernate.search.test.SearchTestCase;
+
+/**
+ * Queries on a sharded index searching each shard on its own thread.
+ */
+public class ParallelShardsQueryTest extends SearchTestCase {
+
+	private static final int ANIMALS = 40;
+
+	protected void configure(Configuration cfg) {
+		super.configure( cfg );
+		cfg.setProperty( "hibernate.search.Animal.sharding_strategy.nbr_of_shards", "4" );
+		cfg.setProperty( Environment.SHARD_SEARCH_THREAD_POOL_SIZE, "2" );
+	}
+
+	public void testSortedQueryAcrossShards() throws Exception {
+		indexAnimals();
+
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		FullTextSession fts = Search.getFullTextSession( s );
+		FullTextQuery query = fts.createFullTextQuery( new TermQuery( new Term( "name", "animal" ) ), Animal.class );
+		query.setSort( new Sort( new SortField( "id", SortField.STRING ) ) );
+		assertEquals( ANIMALS, query.getResultSize() );
+
+		List<String> expectedIds = new ArrayList<String>();
+		for ( int i = 1; i <= ANIMALS; i++ ) {
+			expectedIds.add( String.valueOf( i ) );
+		}
+		Collections.sort( expectedIds );
+
+		List<?> results = query.list();
+		assertEquals( ANIMALS, results.size() );
+		for ( int i = 0; i < ANIMALS; i++ ) {
+			assertEquals( expectedIds.get( i ), String.valueOf( ( (Animal) results.get( i ) ).getId() ) );
+		}
+
+		query.setFirstResult( 10 ).setMaxResults( 5 );
+		results = query.list();
+		assertEquals( 5, results.size() );
+		for ( int i = 0; i < 5; i++ ) {
+			assertEquals( expectedIds.get( 10 + i ), String.valueOf( ( (Animal) results.get( i ) ).getId() ) );
+		}
+		tx.commit();
+		s.close();
+	}
+
+	public void testProjectionAcrossShards() throws Exception {
+		indexAnimals();
+
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		FullTextSession fts = Search.getFullTextSession( s );
+		FullTextQuery query = fts.createFullTextQuery( new TermQuery( new Term( "name", "even" ) ), Animal.class );
+		query.setProjection( FullTextQuery.ID, FullTextQuery.OBJECT_CLASS );
+		List<?> results = query.list();
+		assertEquals( ANIMALS / 2, results.size() );
+		for ( Object result : results ) {
+			Object[] projection = (Object[]) result;
+			assertEquals( 0, ( (Integer) projection[0] ) % 2 );
+			assertEquals( Animal.class, projection[1] );
+		}
+		tx.commit();
+		s.close();
+	}
+
+	private void indexAnimals() {
+		Session s = openSession();
+		Transaction tx = s.beginTransaction();
+		for ( int i = 1; i <= ANIMALS; i++ ) {
+			Animal animal = new Animal();
+			animal.setId( i );
+			animal.setName( i % 2 == 0 ? "even animal" : "odd animal" );
+			s.persist( animal );
+		}
+		tx.commit();
+		s.close();
+	}
+
+	protected Class<?>[] getAnnotatedClasses() {
+		return new Class[] {
+				Animal.class
+		};
+	}
+}